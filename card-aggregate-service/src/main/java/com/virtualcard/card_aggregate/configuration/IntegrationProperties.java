@@ -1,5 +1,7 @@
 package com.virtualcard.card_aggregate.configuration;
 
+import java.time.Duration;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -12,6 +14,14 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 public class IntegrationProperties {
 	private String cardServiceBaseUrl;
 	private String transactionServiceBaseUrl;
+	private int maxSpendsPerWindow = 5;
+	private Duration spendWindow = Duration.ofMinutes(1);
+	private int spendRateLimiterCapacity = 1 << 21;
+	private int bulkParallelism = 16;
+	private int bulkMaxSpendsPerWindow = 1000;
+	private Duration bulkSpendWindow = Duration.ofSeconds(1);
+	private Duration transferTimeout = Duration.ofSeconds(5);
+	private int transferRetries = 2;
 
 	public String getCardServiceBaseUrl() {
 		return cardServiceBaseUrl;
@@ -28,4 +38,68 @@ public class IntegrationProperties {
 	public void setTransactionServiceBaseUrl(final String transactionServiceBaseUrl) {
 		this.transactionServiceBaseUrl = transactionServiceBaseUrl;
 	}
+
+	public int getMaxSpendsPerWindow() {
+		return maxSpendsPerWindow;
+	}
+
+	public void setMaxSpendsPerWindow(final int maxSpendsPerWindow) {
+		this.maxSpendsPerWindow = maxSpendsPerWindow;
+	}
+
+	public Duration getSpendWindow() {
+		return spendWindow;
+	}
+
+	public void setSpendWindow(final Duration spendWindow) {
+		this.spendWindow = spendWindow;
+	}
+
+	public int getSpendRateLimiterCapacity() {
+		return spendRateLimiterCapacity;
+	}
+
+	public void setSpendRateLimiterCapacity(final int spendRateLimiterCapacity) {
+		this.spendRateLimiterCapacity = spendRateLimiterCapacity;
+	}
+
+	public int getBulkParallelism() {
+		return bulkParallelism;
+	}
+
+	public void setBulkParallelism(final int bulkParallelism) {
+		this.bulkParallelism = bulkParallelism;
+	}
+
+	public int getBulkMaxSpendsPerWindow() {
+		return bulkMaxSpendsPerWindow;
+	}
+
+	public void setBulkMaxSpendsPerWindow(final int bulkMaxSpendsPerWindow) {
+		this.bulkMaxSpendsPerWindow = bulkMaxSpendsPerWindow;
+	}
+
+	public Duration getBulkSpendWindow() {
+		return bulkSpendWindow;
+	}
+
+	public void setBulkSpendWindow(final Duration bulkSpendWindow) {
+		this.bulkSpendWindow = bulkSpendWindow;
+	}
+
+	public Duration getTransferTimeout() {
+		return transferTimeout;
+	}
+
+	public void setTransferTimeout(final Duration transferTimeout) {
+		this.transferTimeout = transferTimeout;
+	}
+
+	public int getTransferRetries() {
+		return transferRetries;
+	}
+
+	public void setTransferRetries(final int transferRetries) {
+		this.transferRetries = transferRetries;
+	}
 }
@@ -1,18 +1,22 @@
 package com.virtualcard.card_aggregate.controller;
 
 import static com.virtualcard.common.lang.EndpointConstants.BALANCE_OPERATION;
+import static com.virtualcard.common.lang.EndpointConstants.BULK_BALANCE_OPERATION_MAPPING;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.virtualcard.card_aggregate.service.CardAggregateIntegrationService;
+import com.virtualcard.common.dto.BalanceOperationResult;
 import com.virtualcard.common.request.BalanceOperationRequest;
 
 import lombok.RequiredArgsConstructor;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -34,4 +38,13 @@ public class CardAggregateController {
 		return integrationService.balanceOperation(req);
 	}
 
+	/**
+	 * Applies a stream of balance operations sent as NDJSON, streaming back the outcome of each one as NDJSON
+	 * while the request body is still being read.
+	 */
+	@PostMapping(value = BULK_BALANCE_OPERATION_MAPPING, consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public Flux<BalanceOperationResult> bulkBalanceOperation(@RequestBody final Flux<BalanceOperationRequest> requests) {
+		return integrationService.bulkBalanceOperation(requests);
+	}
+
 }
@@ -0,0 +1,301 @@
+package com.virtualcard.card_aggregate.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Sliding window limiter of the spends of each sender card, keyed by the card id.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         14 set 2025
+ *
+ */
+public class SpendRateLimiter {
+
+	// Layout of a state word: | fingerprint 16 | window 24 | previous 12 | current 12 |
+	private static final int COUNT_BITS = 12;
+	private static final int WINDOW_BITS = 24;
+	private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+	private static final long WINDOW_MASK = (1L << WINDOW_BITS) - 1;
+	private static final long FINGERPRINT_MASK = 0xFFFFL;
+	private static final int PREVIOUS_SHIFT = COUNT_BITS;
+	private static final int WINDOW_SHIFT = 2 * COUNT_BITS;
+	private static final int FINGERPRINT_SHIFT = WINDOW_SHIFT + WINDOW_BITS;
+
+	public static final int MAX_LIMIT = (int) COUNT_MASK;
+	private static final int MAX_PROBES = 8;
+	private static final long EMPTY = 0L;
+
+	/**
+	 * Returned by {@link #acquire(long)} when the card exceeded its limit.
+	 */
+	public static final long DENIED = -1L;
+
+	private final int maxSpends;
+	private final long windowMillis;
+	private final int mask;
+	private final LongSupplier clock;
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Card ids owning each slot, {@code 0} marks a slot that has never been claimed.
+	 */
+	private final AtomicLongArray keys;
+
+	/**
+	 * Packed sliding-window state of each slot, see the layout above. A state whose fingerprint does not match the
+	 * card id of its slot still belongs to the previous owner of a slot just claimed.
+	 */
+	private final AtomicLongArray states;
+
+	public SpendRateLimiter(final int maxSpends, final Duration window, final int capacity) {
+		this(maxSpends, window, capacity, System::currentTimeMillis);
+	}
+
+	public SpendRateLimiter(final int maxSpends, final Duration window, final int capacity, final LongSupplier clock) {
+		if (maxSpends < 1 || maxSpends > MAX_LIMIT) {
+			throw new IllegalArgumentException("Max spends must be between 1 and " + MAX_LIMIT);
+		}
+		if (window.toMillis() < 1) {
+			throw new IllegalArgumentException("Spend window must be at least one millisecond");
+		}
+		if (capacity < MAX_PROBES) {
+			throw new IllegalArgumentException("Capacity must be at least " + MAX_PROBES);
+		}
+		final int size = Integer.highestOneBit(capacity - 1) << 1;
+		this.maxSpends = maxSpends;
+		this.windowMillis = window.toMillis();
+		this.mask = size - 1;
+		this.clock = clock;
+		this.keys = new AtomicLongArray(size);
+		this.states = new AtomicLongArray(size);
+	}
+
+	/**
+	 * Tries to record a spend for the given card.
+	 *
+	 * @param cardId the id of the sender card
+	 * @return {@code true} if the spend is allowed, {@code false} if the card exceeded its limit
+	 * @see #acquire(long)
+	 */
+	public boolean tryAcquire(final long cardId) {
+		return acquire(cardId) != DENIED;
+	}
+
+	/**
+	 * Tries to record a spend for the given card, returning the permit to give it back with.
+	 *
+	 * The limiter uses a sliding window counter: the count of the previous window is weighted by the
+	 * portion of it still covered by the sliding window and added to the count of the current one.
+	 * Each card owns one slot of a fixed-size open-addressing table, claimed by a compare-and-set of its id and never
+	 * locked. Slots idle for more than a full window hold no information anymore and are reclaimed lazily by the next
+	 * card probing them, so no sweeping task is needed. When every probed slot is active, the one idle the longest is
+	 * evicted: a full table forgets the spends of that card rather than denying the spends of the others. Evictions are
+	 * counted by {@link #getEvictions()}.
+	 *
+	 * @param cardId the id of the sender card, not {@code 0}
+	 * @return the window the spend was counted in, or {@link #DENIED} if the card exceeded its limit
+	 */
+	public long acquire(final long cardId) {
+		final long fingerprint = keyFingerprint(cardId);
+
+		while (true) {
+			final long now = clock.getAsLong();
+			final long window = (now / windowMillis) & WINDOW_MASK;
+			final long elapsed = now % windowMillis;
+
+			final int slot = findSlot(cardId, window);
+			final long state = states.get(slot);
+			if (keys.get(slot) != cardId) {
+				// Slot evicted by another card, look it up again
+				continue;
+			}
+			if (stateFingerprint(state) != fingerprint) {
+				// Slot just claimed: reset the state of the previous owner, whichever spend of the card gets there first
+				states.compareAndSet(slot, state, (fingerprint << FINGERPRINT_SHIFT) | (window << WINDOW_SHIFT));
+				continue;
+			}
+			final long rolled = roll(state, window);
+			final long current = rolled & COUNT_MASK;
+			final long previous = (rolled >>> PREVIOUS_SHIFT) & COUNT_MASK;
+
+			// previous * (window - elapsed) / window + current + 1 <= maxSpends, in integer arithmetic
+			if (previous * (windowMillis - elapsed) + (current + 1) * windowMillis > maxSpends * windowMillis) {
+				if (rolled != state) {
+					states.compareAndSet(slot, state, rolled);
+				}
+				return DENIED;
+			}
+			if (states.compareAndSet(slot, state, rolled + 1)) {
+				return window;
+			}
+		}
+	}
+
+	/**
+	 * Gives back a spend previously granted by {@link #acquire(long)}, e.g. when the operation failed downstream.
+	 *
+	 * The spend is taken off the window it was counted in: once that window became the previous one it only weighs
+	 * on the estimate partially, and once it slid out entirely there is nothing left to give back.
+	 *
+	 * @param cardId the id of the sender card
+	 * @param permit the value returned by {@link #acquire(long)}
+	 */
+	public void release(final long cardId, final long permit) {
+		if (permit < 0) {
+			return;
+		}
+		final long fingerprint = keyFingerprint(cardId);
+		final int slot = lookup(cardId);
+		if (slot < 0) {
+			return;
+		}
+		while (true) {
+			final long state = states.get(slot);
+			if (stateFingerprint(state) != fingerprint) {
+				return;
+			}
+			final long age = (((state >>> WINDOW_SHIFT) & WINDOW_MASK) - permit) & WINDOW_MASK;
+			final int shift = age == 0 ? 0 : age == 1 ? PREVIOUS_SHIFT : -1;
+			if (shift < 0 || (state >>> shift & COUNT_MASK) == 0) {
+				return;
+			}
+			if (states.compareAndSet(slot, state, state - (1L << shift))) {
+				return;
+			}
+		}
+	}
+
+	public int getMaxSpends() {
+		return maxSpends;
+	}
+
+	public Duration getWindow() {
+		return Duration.ofMillis(windowMillis);
+	}
+
+	/**
+	 * @return the number of active cards evicted so far because every slot a new card could use was taken
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	private int findSlot(final long cardId, final long window) {
+		final int owned = lookup(cardId);
+		return owned >= 0 ? owned : claimSlot(cardId, window);
+	}
+
+	private int lookup(final long cardId) {
+		final int start = index(cardId);
+		for (int i = 0; i < MAX_PROBES; i++) {
+			final int slot = (start + i) & mask;
+			if (keys.get(slot) == cardId) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Claims the first slot of the probe sequence that is blank or expired, or else the one idle the longest.
+	 * Concurrent claims of the same card try the slots in the same order, so one of them wins the compare-and-set and
+	 * the others find its id when they look the card up again.
+	 *
+	 * @return the slot index
+	 */
+	private int claimSlot(final long cardId, final long window) {
+		final int start = index(cardId);
+
+		while (true) {
+			final int owned = lookup(cardId);
+			if (owned >= 0) {
+				return owned;
+			}
+
+			int candidate = -1;
+			long candidateKey = EMPTY;
+			int oldest = -1;
+			long oldestKey = EMPTY;
+			long oldestAge = -1;
+			for (int i = 0; i < MAX_PROBES; i++) {
+				final int slot = (start + i) & mask;
+				final long key = keys.get(slot);
+				final long state = states.get(slot);
+				// A slot just claimed, whose state is not reset yet, counts as active
+				final boolean settled = stateFingerprint(state) == keyFingerprint(key);
+				if (key == EMPTY || settled && isExpired(state, window)) {
+					candidate = slot;
+					candidateKey = key;
+					break;
+				}
+				final long age = settled ? age(state, window) : 0;
+				if (age > oldestAge) {
+					oldest = slot;
+					oldestKey = key;
+					oldestAge = age;
+				}
+			}
+
+			if (candidate >= 0) {
+				if (keys.compareAndSet(candidate, candidateKey, cardId)) {
+					return candidate;
+				}
+			} else if (keys.compareAndSet(oldest, oldestKey, cardId)) {
+				evictions.increment();
+				return oldest;
+			}
+		}
+	}
+
+	/**
+	 * Moves the counters of a state word forward to the given window.
+	 */
+	private static long roll(final long state, final long window) {
+		final long stateWindow = (state >>> WINDOW_SHIFT) & WINDOW_MASK;
+		if (stateWindow == window) {
+			return state;
+		}
+		final long fingerprintBits = state & (FINGERPRINT_MASK << FINGERPRINT_SHIFT);
+		final long previous = ((window - stateWindow) & WINDOW_MASK) == 1 ? state & COUNT_MASK : 0L;
+		return fingerprintBits | (window << WINDOW_SHIFT) | (previous << PREVIOUS_SHIFT);
+	}
+
+	/**
+	 * A slot whose last activity is older than the previous window no longer contributes to any estimate.
+	 */
+	private static boolean isExpired(final long state, final long window) {
+		return age(state, window) > 1;
+	}
+
+	/**
+	 * @return the number of windows since the last activity of the slot
+	 */
+	private static long age(final long state, final long window) {
+		final long stateWindow = (state >>> WINDOW_SHIFT) & WINDOW_MASK;
+		return (window - stateWindow) & WINDOW_MASK;
+	}
+
+	private int index(final long key) {
+		return (int) mix(key) & mask;
+	}
+
+	private static long stateFingerprint(final long state) {
+		return state >>> FINGERPRINT_SHIFT & FINGERPRINT_MASK;
+	}
+
+	private static long keyFingerprint(final long key) {
+		// Never zero, so that a claimed slot can always be told apart from a blank one
+		return (mix(key) >>> 48 & FINGERPRINT_MASK) | 1L;
+	}
+
+	private static long mix(final long value) {
+		long h = value * 0x9E3779B97F4A7C15L;
+		h ^= h >>> 32;
+		return h * 0xBF58476D1CE4E5B9L;
+	}
+
+}
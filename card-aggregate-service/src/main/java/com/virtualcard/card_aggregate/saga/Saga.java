@@ -0,0 +1,189 @@
+package com.virtualcard.card_aggregate.saga;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import lombok.extern.log4j.Log4j2;
+
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * Executes a sequence of stages of remote steps: the steps of a stage run concurrently, and a stage starts once every
+ * step of the previous one has completed.
+ *
+ * If a step fails, the saga waits for the other steps of its stage, runs the compensations of the completed steps,
+ * latest stage first, and fails with the error of the step. Compensations are retried a few times on transient errors; one still failing
+ * is logged with the state of every step, since it needs a manual reconciliation.
+ *
+ * A step failing without being {@linkplain #isRejection(Throwable) rejected} by the remote service, e.g. on a timeout
+ * or on a 500 answered by a proxy, may have been applied remotely all the same, so its outcome is {@link StepState#UNKNOWN}.
+ * Compensating the other steps could then undo half of an applied saga, so nothing is compensated and the saga is
+ * logged for reconciliation instead.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         20 set 2025
+ *
+ */
+@Log4j2
+public class Saga {
+
+	private static final int COMPENSATION_RETRIES = 3;
+	private static final Duration COMPENSATION_BACKOFF = Duration.ofMillis(100);
+
+	private final String name;
+	private final List<List<SagaStep<?>>> stages = new ArrayList<>();
+
+	private Saga(final String name) {
+		this.name = name;
+	}
+
+	public static Saga named(final String name) {
+		return new Saga(name);
+	}
+
+	/**
+	 * Appends a stage of independent steps, run concurrently once the previous stages have completed.
+	 */
+	public Saga then(final SagaStep<?>... steps) {
+		if (steps.length == 0) {
+			throw new IllegalArgumentException("A saga stage needs at least one step");
+		}
+		stages.add(List.of(steps));
+		return this;
+	}
+
+	/**
+	 * @return a Mono completing when every step has completed, or failing once the completed steps have been compensated
+	 */
+	public Mono<Void> execute() {
+		return Mono.defer(() -> {
+			final List<List<StepExecution<?>>> executions = stages.stream()
+				.map(stage -> stage.stream()
+					.<StepExecution<?>> map(StepExecution::new)
+					.toList())
+				.toList();
+			final List<StepExecution<?>> steps = executions.stream().flatMap(List::stream).toList();
+
+			return Flux.fromIterable(executions)
+				// The steps of a stage all end before the saga stops at a failure, so that none is left running uncompensated
+				.concatMap(stage -> Flux.fromIterable(stage).flatMapDelayError(StepExecution::run, stage.size(), 1))
+				.then()
+				.doOnSuccess(v -> log.debug("Saga {} completed: {}", name, describe(steps)))
+				.onErrorResume(errors -> {
+					final List<Throwable> failures = Exceptions.unwrapMultiple(errors);
+					final Throwable error = failures.getFirst();
+					failures.stream().skip(1).forEach(error::addSuppressed);
+					return compensate(steps, error)
+						.then(Mono.error(error));
+				});
+		});
+	}
+
+	/**
+	 * @return whether the error may go away by itself, so that the call can be sent again if it is idempotent
+	 */
+	public static boolean isTransient(final Throwable error) {
+		for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+			if (cause instanceof TimeoutException || cause instanceof IOException || cause instanceof WebClientRequestException) {
+				return true;
+			}
+			if (cause instanceof final WebClientResponseException response) {
+				final int status = response.getStatusCode().value();
+				return status == 502 || status == 503 || status == 504;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return whether the remote service refused the call, which was then not applied
+	 */
+	public static boolean isRejection(final Throwable error) {
+		for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+			if (cause instanceof final WebClientResponseException response) {
+				return response.getStatusCode().is4xxClientError();
+			}
+		}
+		return false;
+	}
+
+	private Mono<Void> compensate(final List<StepExecution<?>> executions, final Throwable error) {
+		if (executions.stream().anyMatch(execution -> execution.state == StepState.UNKNOWN)) {
+			return Mono.fromRunnable(() -> log.error("Saga {} failed with a step of unknown outcome, not compensated, needs reconciliation: {}",
+					name, describe(executions)));
+		}
+		final List<StepExecution<?>> reversed = new ArrayList<>(executions);
+		Collections.reverse(reversed);
+
+		return Flux.fromIterable(reversed)
+			.filter(execution -> execution.state == StepState.COMPLETED)
+			.concatMap(execution -> execution.compensate(error))
+			.then(Mono.fromRunnable(() -> {
+				if (executions.stream().anyMatch(execution -> execution.state == StepState.COMPENSATION_FAILED)) {
+					log.error("Saga {} could not be fully compensated, needs manual reconciliation: {}", name, describe(executions));
+				} else {
+					log.info("Saga {} failed and was compensated: {}", name, describe(executions));
+				}
+			}));
+	}
+
+	private static String describe(final List<StepExecution<?>> executions) {
+		return executions.stream()
+			.map(execution -> execution.step.name() + "=" + execution.state)
+			.collect(Collectors.joining(", ", "[", "]"));
+	}
+
+	private final class StepExecution<T> {
+
+		private final SagaStep<T> step;
+		private volatile StepState state = StepState.PENDING;
+		private volatile T result;
+
+		private StepExecution(final SagaStep<T> step) {
+			this.step = step;
+		}
+
+		private Mono<Void> run() {
+			return Mono.defer(() -> {
+				state = StepState.RUNNING;
+				return Objects.requireNonNull(step.action().get(), "Saga step action cannot be null");
+			})
+				.doOnNext(value -> result = value)
+				.then(Mono.fromRunnable(() -> state = StepState.COMPLETED))
+				.doOnError(e -> {
+					log.debug("Saga {} step {} failed: {}", name, step.name(), e.toString());
+					state = isRejection(e) ? StepState.FAILED : StepState.UNKNOWN;
+				})
+				.then();
+		}
+
+		private Mono<Void> compensate(final Throwable cause) {
+			return Mono.defer(() -> step.compensation().apply(result))
+				.retryWhen(Retry.backoff(COMPENSATION_RETRIES, COMPENSATION_BACKOFF)
+					.filter(Saga::isTransient)
+					.onRetryExhaustedThrow((spec, signal) -> signal.failure()))
+				.then(Mono.fromRunnable(() -> state = StepState.COMPENSATED))
+				.onErrorResume(e -> {
+					log.error("Saga {} step {} could not be compensated: {}", name, step.name(), e.toString());
+					state = StepState.COMPENSATION_FAILED;
+					cause.addSuppressed(e);
+					return Mono.empty();
+				})
+				.then();
+		}
+	}
+
+}
@@ -0,0 +1,27 @@
+package com.virtualcard.card_aggregate.saga;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * A step of a {@link Saga}: a remote action and the compensation undoing it.
+ *
+ * @param <T>          the result of the action, {@code null} for actions completing empty
+ * @param name         the name used to log the step
+ * @param action       supplies the action to run
+ * @param compensation undoes the action given its result, only invoked if the action succeeded
+ *
+ * @author Lorenzo Leccese
+ *
+ *         20 set 2025
+ *
+ */
+public record SagaStep<T>(String name, Supplier<Mono<T>> action, Function<T, Mono<?>> compensation) {
+
+	public static <T> SagaStep<T> of(final String name, final Supplier<Mono<T>> action, final Function<T, Mono<?>> compensation) {
+		return new SagaStep<>(name, action, compensation);
+	}
+
+}
@@ -0,0 +1,18 @@
+package com.virtualcard.card_aggregate.saga;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         20 set 2025
+ *
+ */
+public enum StepState {
+	PENDING,
+	RUNNING,
+	COMPLETED,
+	FAILED,
+	// Failed without being rejected, the remote action may or may not have been applied
+	UNKNOWN,
+	COMPENSATED,
+	COMPENSATION_FAILED
+}
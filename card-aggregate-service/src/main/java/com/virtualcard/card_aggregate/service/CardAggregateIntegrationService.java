@@ -4,14 +4,14 @@ import static com.virtualcard.common.lang.EndpointConstants.AMOUNT_QUERY;
 import static com.virtualcard.common.lang.EndpointConstants.CARDS;
 import static com.virtualcard.common.lang.EndpointConstants.GET_COVERED_CARD_URL;
 import static com.virtualcard.common.lang.EndpointConstants.TRANSACTIONS;
-import static com.virtualcard.common.lang.EndpointConstants.UPDATE_BALANCE;
+import static com.virtualcard.common.lang.EndpointConstants.TRANSFER_CREDIT_URL;
+import static com.virtualcard.common.lang.EndpointConstants.TRANSFER_DEBIT_URL;
 import static com.virtualcard.common.lang.LangConstants.SLASH;
 
 import java.math.BigDecimal;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.UUID;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -20,21 +20,27 @@ import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
 import com.virtualcard.card_aggregate.configuration.IntegrationProperties;
+import com.virtualcard.card_aggregate.ratelimit.SpendRateLimiter;
+import com.virtualcard.card_aggregate.saga.Saga;
+import com.virtualcard.card_aggregate.saga.SagaStep;
+import com.virtualcard.common.dto.BalanceOperationResult;
 import com.virtualcard.common.dto.CardDTO;
+import com.virtualcard.common.dto.TransactionDTO;
 import com.virtualcard.common.enums.TransactionType;
 import com.virtualcard.common.error.InvalidInputException;
 import com.virtualcard.common.error.RateLimitExceededException;
 import com.virtualcard.common.request.BalanceOperationRequest;
 import com.virtualcard.common.request.CreateTransactionRequest;
-import com.virtualcard.common.request.UpdateBalanceRequest;
+import com.virtualcard.common.request.TransferRequest;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 
 import jakarta.annotation.PostConstruct;
-import jakarta.transaction.Transactional;
 import jakarta.ws.rs.NotFoundException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
 /**
  * @author Lorenzo Leccese
@@ -47,26 +53,32 @@ import reactor.core.publisher.Mono;
 @Log4j2
 public class CardAggregateIntegrationService {
 
+	// Operations read ahead for each lane of a bulk request
+	private static final int BULK_LANE_PREFETCH = 8;
+	private static final Duration TRANSFER_BACKOFF = Duration.ofMillis(100);
+	// Appended to the id of a transfer to get the ids of its legs, and to the id of a leg to get the id of its reversal
+	private static final String DEBIT_SUFFIX = ":debit";
+	private static final String CREDIT_SUFFIX = ":credit";
+	private static final String REVERSAL_SUFFIX = ":reversal";
+
 	private final WebClient webClient;
 	private final IntegrationProperties integrationProperties;
 	private String cardServiceBaseUrl;
 	private String transactionServiceBaseUrl;
 
 	/**
-	 * A thread-safe map that tracks the spend counts for each card on a per-minute basis.
-	 * The keys represent card numbers (e.g., code), and the values are {@link AtomicInteger} instances
-	 * that record the number of spend operations attempted for the corresponding card.
-	 *
-	 * This variable is used to enforce a rate limit on spending operations. If a card exceeds
-	 * the maximum allowed number of spend operations within a minute, further spending attempts
-	 * will be rejected until the count resets.
+	 * Sliding window limiter that tracks the spends of each sender card by its id.
 	 *
-	 * The counts are cleared periodically (every minute) using a scheduled task to ensure
-	 * the rate limits are applied within the intended time window.
+	 * If a card exceeds the maximum allowed number of spend operations within the configured window,
+	 * further spending attempts are rejected until older spends slide out of the window.
 	 */
-	private final ConcurrentHashMap<String, AtomicInteger> spendCounters = new ConcurrentHashMap<>();
+	private SpendRateLimiter spendRateLimiter;
 
-	private static final int MAX_SPENDS_PER_MINUTE = 5;
+	/**
+	 * Limiter of the spends sent through the bulk endpoint, with its own quota: a payout job sends far more spends per
+	 * sender than an interactive caller is allowed to, and must not use up the quota of its interactive spends either.
+	 */
+	private SpendRateLimiter bulkSpendRateLimiter;
 
 	/**
 	 * Initializes resources or configurations required by the `CardAggregateIntegrationService`.
@@ -76,32 +88,33 @@ public class CardAggregateIntegrationService {
 	 *
 	 * 1. Fetches and assigns the base URL for the card service from `integrationProperties`.
 	 * 2. Fetches and assigns the base URL for the transaction service from `integrationProperties`.
-	 * 3. Sets up a scheduled task using a single-threaded executor to reset spend counters in
-	 * `spendCounters` map every minute.
+	 * 3. Creates the spend rate limiters, single and bulk, from the limits configured in `integrationProperties`.
 	 */
 	@PostConstruct
 	private void init() {
 		cardServiceBaseUrl = integrationProperties.getCardServiceBaseUrl();
 		transactionServiceBaseUrl = integrationProperties.getTransactionServiceBaseUrl();
 
-		// Scheduled task to reset spend counts every minute
-		Executors.newSingleThreadScheduledExecutor().scheduleAtFixedRate(
-				spendCounters::clear,
-				1, 1, TimeUnit.MINUTES);
+		spendRateLimiter = new SpendRateLimiter(
+				integrationProperties.getMaxSpendsPerWindow(),
+				integrationProperties.getSpendWindow(),
+				integrationProperties.getSpendRateLimiterCapacity());
+		bulkSpendRateLimiter = new SpendRateLimiter(
+				integrationProperties.getBulkMaxSpendsPerWindow(),
+				integrationProperties.getBulkSpendWindow(),
+				integrationProperties.getSpendRateLimiterCapacity());
 	}
 
 	public Mono<Void> balanceOperation(final BalanceOperationRequest req) {
+		return balanceOperation(req, spendRateLimiter);
+	}
+
+	private Mono<Void> balanceOperation(final BalanceOperationRequest req, final SpendRateLimiter limiter) {
 
 		final String senderCardCode = req.senderCardNumber();
 		final String recipientCardCode = req.recipientCardNumber();
 		final BigDecimal amount = req.amount();
 
-		// Rate limit check
-		final AtomicInteger counter = spendCounters.computeIfAbsent(senderCardCode, k -> new AtomicInteger(0));
-		if (counter.incrementAndGet() > MAX_SPENDS_PER_MINUTE) {
-			return Mono.error(new RateLimitExceededException("Max 5 spends per minute exceeded for card " + senderCardCode));
-		}
-
 		final String getSenderCardURL = cardServiceBaseUrl + GET_COVERED_CARD_URL + senderCardCode + AMOUNT_QUERY + amount;
 		final String getRecipientCardURL = cardServiceBaseUrl + CARDS + SLASH + recipientCardCode;
 
@@ -123,81 +136,141 @@ public class CardAggregateIntegrationService {
 				return Mono.error(ex);
 			});
 
+		// Rate limit check once the sender is validated, so that only existing cards take a slot of the limiter
 		return Mono.zip(senderCardMono, recipientCardMono)
 			.flatMap(tuple -> {
-				final CardDTO senderCard = tuple.getT1();
-				final CardDTO recipientCard = tuple.getT2();
+				final long senderCardId = tuple.getT1().getId();
+				final long permit = limiter.acquire(senderCardId);
+				if (permit == SpendRateLimiter.DENIED) {
+					return Mono.error(new RateLimitExceededException("Max " + limiter.getMaxSpends() + " spends per "
+							+ describeWindow(limiter.getWindow()) + " exceeded for card " + senderCardCode));
+				}
+				return atomicBalanceTransaction(tuple.getT1(), tuple.getT2(), amount)
+					.doOnError(e -> limiter.release(senderCardId, permit)); // rollback spend on failure
+			});
 
-				return atomicBalanceTransaction(senderCard, recipientCard, amount);
-			})
-			.doOnError(e -> counter.decrementAndGet()); // rollback counter on failure
+	}
 
+	/**
+	 * Processes a stream of balance operations, emitting the outcome of each one as soon as it is known.
+	 *
+	 * Operations are spread over {@code bulkParallelism} lanes by sender card, each lane running its operations one at a time:
+	 * the operations of the same sender are therefore applied in the order they were received, while different senders
+	 * proceed in parallel. At most {@value #BULK_LANE_PREFETCH} operations per lane are read ahead of the ones being processed,
+	 * so the input is read as fast as it is processed and memory use does not depend on the size of the upload.
+	 *
+	 * @param requests the balance operations, each validated as a single one and limited by the bulk quota of its sender
+	 * @return the outcome of every operation, a failed operation does not stop the others
+	 */
+	public Flux<BalanceOperationResult> bulkBalanceOperation(final Flux<BalanceOperationRequest> requests) {
+		final int parallelism = integrationProperties.getBulkParallelism();
+
+		return requests.index()
+			.groupBy(indexed -> Math.floorMod(Objects.hashCode(indexed.getT2().senderCardNumber()), parallelism), parallelism * BULK_LANE_PREFETCH)
+			.flatMap(lane -> lane.concatMap(indexed -> {
+				final long index = indexed.getT1();
+				final BalanceOperationRequest request = indexed.getT2();
+				return balanceOperation(request, bulkSpendRateLimiter)
+					.thenReturn(BalanceOperationResult.succeeded(index, request))
+					.onErrorResume(e -> Mono.just(BalanceOperationResult.failed(index, request, e)));
+			}, 0), parallelism);
 	}
 
 	/**
-	 * Performs an atomic balance transaction by updating the card balance and creating a transaction record.
-	 * If both operations are successful, the new balance is returned.
+	 * Transfers the amount between the two cards and records the transaction as a saga.
+	 *
+	 * The debit of the sender and the credit of the recipient are independent legs, sent to card-service concurrently with
+	 * relative balance updates, so the balances of the given DTOs are never written back. If either leg is rejected,
+	 * the other one is compensated by the opposite leg of the reversed transfer:
+	 * a credited recipient is debited, a debited sender credited. The transaction is recorded only once both legs have
+	 * committed, so no record ever describes a transfer that did not happen; if recording fails, both legs are reversed.
+	 *
+	 * Each leg, its reversal and the record carry an id that their service applies only once, so each can be sent
+	 * again when its outcome is unknown. A leg or a record failing without being rejected by its service, e.g.
+	 * still timing out after its retries, may have been applied: nothing is recorded nor reversed, the saga logs it
+	 * for reconciliation. A reversal rejected, e.g. because the recipient already spent the credit, is logged as well.
 	 *
-	 * @param cardId           the identifier of the card for which the transaction is being performed
+	 * @param senderCardDTO    the data transfer object of the card to debit
+	 * @param recipientCardDTO the data transfer object of the card to credit
 	 * @param amount           the amount involved in the transaction
-	 * @param senderCardDTO    the data transfer object containing card details, including the current balance
-	 * @param type             the type of the transaction (e.g., SPEND, TOPUP)
-	 * @param balanceOperation a function that calculates the new balance based on the current balance
-	 * @return a Mono emitting the new card balance after the transaction is successfully processed
+	 * @return a Mono completing when both the transfer and the transaction record succeed
 	 */
-	@Transactional
 	private Mono<Void> atomicBalanceTransaction(
 			final CardDTO senderCardDTO,
 			final CardDTO recipientCardDTO,
 			final BigDecimal amount) {
 
-		final BigDecimal newSenderBalance = senderCardDTO.getBalance().subtract(amount);
-		final BigDecimal newRecipientBalance = recipientCardDTO.getBalance().add(amount);
 		final Long senderCardId = senderCardDTO.getId();
 		final Long recipientCardId = recipientCardDTO.getId();
+		final String transferId = UUID.randomUUID().toString();
 
-		// Create the URLs
-		final String updateSenderBalanceURL = cardServiceBaseUrl + CARDS + SLASH + senderCardId + UPDATE_BALANCE;
-		final String updateRecipientBalanceURL = cardServiceBaseUrl + CARDS + SLASH + recipientCardId + UPDATE_BALANCE;
-
-		final UpdateBalanceRequest updateSenderBalanceRequest = new UpdateBalanceRequest(newSenderBalance);
-		final UpdateBalanceRequest updateRecipientBalanceRequest = new UpdateBalanceRequest(newRecipientBalance);
 		// TODO transaction
 		// type hardcoded
 		// for now
-		final CreateTransactionRequest createTransactionRequest = new CreateTransactionRequest(senderCardId, recipientCardId, amount, TransactionType.TRANSFER);
+		final CreateTransactionRequest createTransactionRequest = new CreateTransactionRequest(transferId, senderCardId, recipientCardId, amount, TransactionType.TRANSFER);
 
-		// Update sender balance
-		final Mono<Void> updateSenderBalance = webClient.put()
-			.uri(updateSenderBalanceURL)
-			.contentType(MediaType.APPLICATION_JSON)
-			.bodyValue(updateSenderBalanceRequest)
-			.retrieve()
-			.bodyToMono(Void.class)
-			.onErrorMap(WebClientResponseException.class, this::handleException);
+		final String debitId = transferId + DEBIT_SUFFIX;
+		final String creditId = transferId + CREDIT_SUFFIX;
 
-		// Update recipient balance
-		final Mono<Void> updateRecipientBalance = webClient.put()
-			.uri(updateRecipientBalanceURL)
+		return Saga.named("transfer " + transferId + " " + senderCardId + " -> " + recipientCardId)
+			.then(
+					SagaStep.of("debit",
+							() -> transferLeg(TRANSFER_DEBIT_URL, new TransferRequest(debitId, senderCardId, recipientCardId, amount)),
+							ignored -> transferLeg(TRANSFER_CREDIT_URL, new TransferRequest(debitId + REVERSAL_SUFFIX, recipientCardId, senderCardId, amount))),
+					SagaStep.of("credit",
+							() -> transferLeg(TRANSFER_CREDIT_URL, new TransferRequest(creditId, senderCardId, recipientCardId, amount)),
+							ignored -> transferLeg(TRANSFER_DEBIT_URL, new TransferRequest(creditId + REVERSAL_SUFFIX, recipientCardId, senderCardId, amount))))
+			// Last stage, never compensated
+			.then(SagaStep.of("record transaction",
+					() -> createTransaction(createTransactionRequest),
+					ignored -> Mono.empty()))
+			.execute();
+	}
+
+	/**
+	 * Sends one leg of a transfer, the debit of its sender or the credit of its recipient, sending it again with the same
+	 * id while it times out or fails with a transient error.
+	 */
+	private Mono<Void> transferLeg(final String legUrl, final TransferRequest transferRequest) {
+		return retryTransient(webClient.post()
+			.uri(cardServiceBaseUrl + legUrl)
 			.contentType(MediaType.APPLICATION_JSON)
-			.bodyValue(updateRecipientBalanceRequest)
+			.bodyValue(transferRequest)
 			.retrieve()
-			.bodyToMono(Void.class)
+			.bodyToMono(Void.class), "Transfer leg " + transferRequest.transferId())
 			.onErrorMap(WebClientResponseException.class, this::handleException);
+	}
 
-		// Register transaction
-		final Mono<Void> createTransaction = webClient.post()
+	/**
+	 * Records the transaction, sending the request again with the same id while it times out or fails with a transient error.
+	 */
+	private Mono<TransactionDTO> createTransaction(final CreateTransactionRequest createTransactionRequest) {
+		return retryTransient(webClient.post()
 			.uri(transactionServiceBaseUrl + TRANSACTIONS)
 			.contentType(MediaType.APPLICATION_JSON)
 			.bodyValue(createTransactionRequest)
 			.retrieve()
-			.bodyToMono(Void.class)
+			.bodyToMono(TransactionDTO.class), "Transaction record " + createTransactionRequest.requestId())
 			.onErrorMap(WebClientResponseException.class, this::handleException);
+	}
+
+	/**
+	 * Times out the call and sends it again while it fails with a transient error, the call must be idempotent.
+	 */
+	private <T> Mono<T> retryTransient(final Mono<T> call, final String description) {
+		return call
+			.timeout(integrationProperties.getTransferTimeout())
+			.retryWhen(Retry.backoff(integrationProperties.getTransferRetries(), TRANSFER_BACKOFF)
+				.filter(Saga::isTransient)
+				.doBeforeRetry(signal -> log.warn("{} failed with {}, sending it again", description, signal.failure().toString()))
+				.onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+	}
 
-		// only emit if all succeed
-		return updateSenderBalance
-			.then(updateRecipientBalance)
-			.then(createTransaction);
+	private static String describeWindow(final Duration window) {
+		if (window.equals(Duration.ofMinutes(1))) {
+			return "minute";
+		}
+		return window.equals(Duration.ofSeconds(1)) ? "second" : window.toSeconds() + " seconds";
 	}
 
 	/**
@@ -215,8 +288,8 @@ public class CardAggregateIntegrationService {
 	private Throwable handleException(final Throwable ex) {
 		if (ex instanceof final WebClientResponseException wcre) {
 			return switch (HttpStatus.resolve(wcre.getStatusCode().value())) {
-				case NOT_FOUND -> new NotFoundException(wcre.getResponseBodyAsString());
-				case UNPROCESSABLE_ENTITY -> new InvalidInputException(wcre.getResponseBodyAsString());
+				case NOT_FOUND -> new NotFoundException(wcre.getResponseBodyAsString(), wcre);
+				case UNPROCESSABLE_ENTITY -> new InvalidInputException(wcre.getResponseBodyAsString(), wcre);
 				default -> {
 					log.error("Got an unexpected HTTP error: {}, will rethrow it", wcre.getStatusCode());
 					log.error("Error body: {}", wcre.getResponseBodyAsString());
@@ -0,0 +1,83 @@
+package com.virtualcard.card_aggregate.benchmark;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.virtualcard.card_aggregate.ratelimit.SpendRateLimiter;
+
+/**
+ * Throughput of the spend rate limiter under 64-thread contention, compared with the former
+ * {@code ConcurrentHashMap<String, AtomicInteger>} counters keyed by card code.
+ *
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.virtualcard.card_aggregate.benchmark.SpendRateLimiterBenchmark}
+ * or straight from the IDE.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         14 set 2025
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(64)
+public class SpendRateLimiterBenchmark {
+
+	/**
+	 * Number of distinct cards hit by the benchmark: few cards means heavy contention on the same slots.
+	 */
+	@Param({ "16", "100000" })
+	private int cards;
+
+	private SpendRateLimiter limiter;
+	private ConcurrentHashMap<String, AtomicInteger> spendCounters;
+
+	@Setup
+	public void setUp() {
+		limiter = new SpendRateLimiter(5, Duration.ofMinutes(1), 1 << 18);
+		spendCounters = new ConcurrentHashMap<>();
+	}
+
+	@Benchmark
+	public boolean slidingWindowLimiter() {
+		final long cardId = 1 + ThreadLocalRandom.current().nextInt(cards);
+		return limiter.tryAcquire(cardId);
+	}
+
+	@Benchmark
+	public boolean concurrentMapCounters() {
+		final String cardCode = String.valueOf(1 + ThreadLocalRandom.current().nextInt(cards));
+		return spendCounters.computeIfAbsent(cardCode, k -> new AtomicInteger(0)).incrementAndGet() <= 5;
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+			.include(SpendRateLimiterBenchmark.class.getSimpleName())
+			.build())
+			.run();
+	}
+
+}
@@ -1,12 +1,27 @@
 package com.virtualcard.card_aggregate.test;
 
+import static com.virtualcard.common.lang.EndpointConstants.GET_CARD_URL;
+import static com.virtualcard.common.lang.EndpointConstants.GET_COVERED_CARD_URL;
+import static com.virtualcard.common.lang.EndpointConstants.TRANSACTIONS;
+import static com.virtualcard.common.lang.EndpointConstants.TRANSFER_CREDIT_URL;
+import static com.virtualcard.common.lang.EndpointConstants.TRANSFER_DEBIT_URL;
+import static com.virtualcard.common.lang.EndpointConstants.TRANSFER_URL;
 import static com.virtualcard.common.lang.LangConstants.SLASH;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,16 +30,20 @@ import org.springframework.web.reactive.function.client.WebClient;
 
 import com.virtualcard.card_aggregate.configuration.IntegrationProperties;
 import com.virtualcard.card_aggregate.service.CardAggregateIntegrationService;
+import com.virtualcard.common.dto.BalanceOperationResult;
 import com.virtualcard.common.enums.TransactionType;
+import com.virtualcard.common.error.InvalidInputException;
 import com.virtualcard.common.error.RateLimitExceededException;
 import com.virtualcard.common.request.BalanceOperationRequest;
 
 import lombok.extern.log4j.Log4j2;
 
 import jakarta.annotation.PostConstruct;
+import okhttp3.mockwebserver.Dispatcher;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
@@ -37,6 +56,9 @@ import reactor.test.StepVerifier;
 @Log4j2
 public class CardAggregateServiceTest {
 
+	private static final Pattern TRANSFER_ID = Pattern.compile("\"transferId\":\"([^\"]+)\"");
+	private static final Pattern REQUEST_ID = Pattern.compile("\"requestId\":\"([^\"]+)\"");
+	private static final String REVERSAL = ":reversal";
 	private static final String APPLICATION_JSON = "application/json";
 	private static final String CONTENT_TYPE = "Content-Type";
 //	private static final String BALANCE = "{\"balance\": %s}";
@@ -54,8 +76,32 @@ public class CardAggregateServiceTest {
 			}
 			""";
 
+	private static final String TRANSACTION_JSON = """
+			{
+			  "id": 7,
+			  "senderCardId": 1,
+			  "recipientCardId": 2,
+			  "code": "0190b5c4-6f2a-7c3e-9a1b-2f4d6e8a0b1c",
+			  "type": "TRANSFER",
+			  "amount": 50
+			}
+			""";
+
 	// "MockWebServer.enqueue()" enqueue responses and then retrieve them in a FIFO order like a regular Queue
 	private MockWebServer mockWebServer;
+	// Debits of the sender received, reversals excluded
+	private final AtomicInteger debits = new AtomicInteger();
+	// Ids of the transfer legs and of their reversals received, in order
+	private final List<String> legIds = new CopyOnWriteArrayList<>();
+	// Response of the debits after the first one and of the reversals
+	private volatile int laterTransferReturnCode = 200;
+	private final AtomicInteger records = new AtomicInteger();
+	// Bodies of the transaction records received, in order
+	private final List<String> recordBodies = new CopyOnWriteArrayList<>();
+	// Response of the transaction records after the first one
+	private volatile int laterRecordReturnCode = 200;
+	// Delay of the response to the first debit
+	private volatile Duration firstTransferDelay = Duration.ZERO;
 	private CardAggregateIntegrationService service;
 	private IntegrationProperties integrationProperties;
 
@@ -112,27 +158,57 @@ public class CardAggregateServiceTest {
 
 	private void balanceOperation_helperFunction(
 			final BigDecimal senderCurrentBalance,
-			final int updateBalanceReturnCode,
+			final int transferReturnCode,
 			final int createTransactionReturnCode) {
 
-		// Sender GET: /cards/covered/{sender}?amount=50
-		mockWebServer.enqueue(new MockResponse()
-			.setBody(buildCardJson(1L, 10L, "123", senderCurrentBalance, "123"))
-			.addHeader("Content-Type", "application/json"));
-
-		// Recipient GET: /cards/{recipient}
-		mockWebServer.enqueue(new MockResponse()
-			.setBody(buildCardJson(2L, 20L, "456", new BigDecimal("200.00"), "456"))
-			.addHeader("Content-Type", "application/json"));
-
-		// PUT /cards/{senderId}/updateBalance
-		mockWebServer.enqueue(new MockResponse().setResponseCode(updateBalanceReturnCode));
-
-		// PUT /cards/{recipientId}/updateBalance
-		mockWebServer.enqueue(new MockResponse().setResponseCode(updateBalanceReturnCode));
+		// Both cards are fetched in parallel, so responses are dispatched by path rather than enqueued
+		mockWebServer.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(final RecordedRequest recordedRequest) {
+				final String path = recordedRequest.getPath();
+				// Sender GET: /cards/covered/{sender}?amount=50
+				if (path.startsWith(GET_COVERED_CARD_URL)) {
+					return new MockResponse()
+						.setBody(buildCardJson(1L, 10L, "123", senderCurrentBalance, "123"))
+						.addHeader(CONTENT_TYPE, APPLICATION_JSON);
+				}
+				// POST /cards/transfer/debit and /cards/transfer/credit, the legs of the transfer and their reversals
+				if (path.equals(TRANSFER_DEBIT_URL) || path.equals(TRANSFER_CREDIT_URL)) {
+					final String legId = transferId(recordedRequest.getBody().readUtf8());
+					legIds.add(legId);
+					if (legId.endsWith(REVERSAL)) {
+						return new MockResponse().setResponseCode(laterTransferReturnCode);
+					}
+					if (path.equals(TRANSFER_CREDIT_URL)) {
+						return new MockResponse().setResponseCode(200);
+					}
+					return debits.getAndIncrement() == 0
+							? new MockResponse().setResponseCode(transferReturnCode).setHeadersDelay(firstTransferDelay.toMillis(), TimeUnit.MILLISECONDS)
+							: new MockResponse().setResponseCode(laterTransferReturnCode);
+				}
+				// Recipient GET: /cards/{recipient}
+				if (path.startsWith(GET_CARD_URL)) {
+					return new MockResponse()
+						.setBody(buildCardJson(2L, 20L, "456", new BigDecimal("200.00"), "456"))
+						.addHeader(CONTENT_TYPE, APPLICATION_JSON);
+				}
+				// POST /transactions, any later one is the same record sent again
+				recordBodies.add(recordedRequest.getBody().readUtf8());
+				final int recordReturnCode = records.getAndIncrement() == 0 ? createTransactionReturnCode : laterRecordReturnCode;
+				return recordReturnCode == 200
+						? new MockResponse().setBody(TRANSACTION_JSON).addHeader(CONTENT_TYPE, APPLICATION_JSON)
+						: new MockResponse().setResponseCode(recordReturnCode);
+			}
+		});
+	}
 
-		// POST /transactions
-		mockWebServer.enqueue(new MockResponse().setResponseCode(createTransactionReturnCode));
+	private List<String> recordedRequests() throws InterruptedException {
+		final List<String> requests = new ArrayList<>();
+		RecordedRequest request;
+		while ((request = mockWebServer.takeRequest(100, TimeUnit.MILLISECONDS)) != null) {
+			requests.add(request.getMethod() + " " + request.getPath());
+		}
+		return requests;
 	}
 
 	private static String buildCardJson(
@@ -160,11 +236,10 @@ public class CardAggregateServiceTest {
 		StepVerifier.create(result)
 			.verifyComplete();
 
-		// Inspect all requests received by MockWebServer
-		for (int i = 1; i <= 5; i++) {
-			final RecordedRequest req = mockWebServer.takeRequest(1, TimeUnit.SECONDS);
-			log.debug("Request {}: {}", i, (req != null ? req.getMethod() + " " + req.getPath() : "NONE"));
-		}
+		// Inspect all requests received by MockWebServer: both cards, both legs and the record
+		final List<String> requests = recordedRequests();
+		log.debug("Requests: {}", requests);
+		assertEquals(5, requests.size());
 	}
 
 	@Test
@@ -180,14 +255,234 @@ public class CardAggregateServiceTest {
 			.verify();
 	}
 
+	/**
+	 * Verifies that a bulk request reports the outcome of every operation, keeping the order of the operations of each sender.
+	 */
+	@Test
+	void testBulkBalanceOperation_shouldReportEveryOperation() {
+		balanceOperation_helperFunction(new BigDecimal("100"), 200, 200);
+
+		final Flux<BalanceOperationRequest> requests = Flux.range(0, 4)
+			.map(i -> new BalanceOperationRequest(i % 2 == 0 ? "123" : "789", "456", new BigDecimal("10"), TransactionType.TRANSFER));
+
+		StepVerifier.create(service.bulkBalanceOperation(requests).collectList())
+			.assertNext(results -> {
+				assertEquals(4, results.size());
+				assertTrue(results.stream().allMatch(BalanceOperationResult::success));
+				final List<Long> senderIndexes = results.stream()
+					.filter(r -> r.senderCardNumber().equals("123"))
+					.map(BalanceOperationResult::index)
+					.toList();
+				assertEquals(List.of(0L, 2L), senderIndexes);
+			})
+			.verifyComplete();
+	}
+
+	/**
+	 * Verifies that a bulk request is limited by the bulk quota of the sender, not by the quota of single spends.
+	 */
+	@Test
+	void testBulkBalanceOperation_shouldAllowMoreSpendsThanSingleQuota() {
+		balanceOperation_helperFunction(new BigDecimal("100"), 200, 200);
+
+		final Flux<BalanceOperationRequest> requests = Flux.range(0, 12)
+			.map(i -> new BalanceOperationRequest("123", "456", new BigDecimal("1"), TransactionType.TRANSFER));
+
+		StepVerifier.create(service.bulkBalanceOperation(requests).collectList())
+			.assertNext(results -> {
+				assertEquals(12, results.size());
+				assertTrue(results.stream().allMatch(BalanceOperationResult::success));
+			})
+			.verifyComplete();
+
+		// The single spends of the sender still have their whole quota
+		for (int i = 0; i < integrationProperties.getMaxSpendsPerWindow(); i++) {
+			StepVerifier.create(service.balanceOperation(new BalanceOperationRequest("123", "456", new BigDecimal("1"), TransactionType.TRANSFER)))
+				.verifyComplete();
+		}
+	}
+
+	/**
+	 * Verifies that the operations of a sender exceeding its bulk quota fail alone, the others going through.
+	 */
+	@Test
+	void testBulkBalanceOperation_shouldRejectSpendsOverBulkQuota() throws Exception {
+		integrationProperties.setBulkMaxSpendsPerWindow(8);
+		integrationProperties.setBulkSpendWindow(Duration.ofMinutes(1));
+		invokePostConstruct(service);
+		balanceOperation_helperFunction(new BigDecimal("100"), 200, 200);
+
+		final Flux<BalanceOperationRequest> requests = Flux.range(0, 12)
+			.map(i -> new BalanceOperationRequest("123", "456", new BigDecimal("1"), TransactionType.TRANSFER));
+
+		StepVerifier.create(service.bulkBalanceOperation(requests).collectList())
+			.assertNext(results -> {
+				assertEquals(8, results.stream().filter(BalanceOperationResult::success).count());
+				assertTrue(results.stream()
+					.filter(r -> !r.success())
+					.allMatch(r -> r.index() >= 8 && r.error().contains("Max 8 spends per minute exceeded")));
+			})
+			.verifyComplete();
+	}
+
+	/**
+	 * Verifies that the credit is reversed and no transaction is recorded when the debit is rejected.
+	 */
+	@Test
+	void testBalanceOperation_shouldReverseCreditAndNotRecord_whenDebitRejected() throws InterruptedException {
+		final BalanceOperationRequest request = new BalanceOperationRequest("123", "456", new BigDecimal("50"), TransactionType.TRANSFER);
+		balanceOperation_helperFunction(new BigDecimal("100"), 422, 200);
+
+		StepVerifier.create(service.balanceOperation(request))
+			.expectError(InvalidInputException.class)
+			.verify();
+
+		final List<String> requests = recordedRequests();
+		assertTrue(requests.stream().noneMatch(r -> r.startsWith("POST " + TRANSACTIONS)));
+		assertEquals(1, debits.get());
+		final String transferId = transferId(legIds);
+		assertEquals(List.of(transferId + ":credit" + REVERSAL), reversals());
+	}
+
+	/**
+	 * Verifies that both legs are reversed, each with its own id, when the transaction record is rejected.
+	 */
+	@Test
+	void testBalanceOperation_shouldReverseBothLegs_whenRecordRejected() {
+		final BalanceOperationRequest request = new BalanceOperationRequest("123", "456", new BigDecimal("50"), TransactionType.TRANSFER);
+		balanceOperation_helperFunction(new BigDecimal("100"), 200, 422);
+
+		StepVerifier.create(service.balanceOperation(request))
+			.expectError()
+			.verify();
+
+		final String transferId = requestId(recordBodies.get(0));
+		assertEquals(List.of(transferId + ":credit" + REVERSAL, transferId + ":debit" + REVERSAL), reversals().stream().sorted().toList());
+	}
+
+	/**
+	 * Verifies that a reversal rejected by card-service is not sent again, only transient errors are retried.
+	 */
+	@Test
+	void testBalanceOperation_shouldNotRetryReversal_whenRejected() {
+		final BalanceOperationRequest request = new BalanceOperationRequest("123", "456", new BigDecimal("50"), TransactionType.TRANSFER);
+		balanceOperation_helperFunction(new BigDecimal("100"), 200, 422);
+		laterTransferReturnCode = 422;
+
+		StepVerifier.create(service.balanceOperation(request))
+			.expectError()
+			.verify();
+
+		assertEquals(4, legIds.size());
+		assertEquals(2, reversals().size());
+	}
+
+	/**
+	 * Verifies that the legs are not reversed when the record fails without being rejected, since the record may
+	 * have been applied.
+	 */
+	@Test
+	void testBalanceOperation_shouldNotReverse_whenRecordOutcomeUnknown() {
+		final BalanceOperationRequest request = new BalanceOperationRequest("123", "456", new BigDecimal("50"), TransactionType.TRANSFER);
+		balanceOperation_helperFunction(new BigDecimal("100"), 200, 500);
+
+		StepVerifier.create(service.balanceOperation(request))
+			.expectError()
+			.verify();
+
+		assertEquals(2, legIds.size());
+		assertTrue(reversals().isEmpty());
+		assertEquals(1, records.get());
+	}
+
+	/**
+	 * Verifies that an unavailable transaction-service gets the record again, with the transfer id as its request id.
+	 */
+	@Test
+	void testBalanceOperation_shouldRetryRecordWithTransferId_whenUnavailable() {
+		final BalanceOperationRequest request = new BalanceOperationRequest("123", "456", new BigDecimal("50"), TransactionType.TRANSFER);
+		balanceOperation_helperFunction(new BigDecimal("100"), 200, 503);
+
+		StepVerifier.create(service.balanceOperation(request))
+			.verifyComplete();
+
+		assertEquals(2, legIds.size());
+		assertEquals(2, records.get());
+		final String transferId = transferId(legIds);
+		assertEquals(transferId, requestId(recordBodies.get(0)));
+		assertEquals(transferId, requestId(recordBodies.get(1)));
+	}
+
+	/**
+	 * Verifies that a timed out debit is sent again with the same leg id, then recorded once.
+	 */
+	@Test
+	void testBalanceOperation_shouldRetryTransferWithSameId_whenTimedOut() throws InterruptedException {
+		final BalanceOperationRequest request = new BalanceOperationRequest("123", "456", new BigDecimal("50"), TransactionType.TRANSFER);
+		integrationProperties.setTransferTimeout(Duration.ofMillis(200));
+		firstTransferDelay = Duration.ofSeconds(1);
+		balanceOperation_helperFunction(new BigDecimal("100"), 200, 200);
+
+		StepVerifier.create(service.balanceOperation(request))
+			.verifyComplete();
+
+		assertEquals(2, debits.get());
+		assertEquals(1, legIds.stream().filter(id -> id.endsWith(":debit")).distinct().count());
+		assertEquals(1, recordedRequests().stream().filter(r -> r.equals("POST " + TRANSACTIONS)).count());
+	}
+
+	/**
+	 * Verifies that a debit still failing with a transient error is neither recorded nor followed by the reversal of
+	 * the credit, since it may have been applied.
+	 */
+	@Test
+	void testBalanceOperation_shouldNotReverse_whenTransferOutcomeUnknown() throws InterruptedException {
+		final BalanceOperationRequest request = new BalanceOperationRequest("123", "456", new BigDecimal("50"), TransactionType.TRANSFER);
+		balanceOperation_helperFunction(new BigDecimal("100"), 503, 200);
+		laterTransferReturnCode = 503;
+
+		StepVerifier.create(service.balanceOperation(request))
+			.expectError()
+			.verify();
+
+		assertEquals(1 + integrationProperties.getTransferRetries(), debits.get());
+		assertEquals(1, legIds.stream().filter(id -> id.endsWith(":debit")).distinct().count());
+		assertTrue(reversals().isEmpty());
+		assertTrue(recordedRequests().stream().noneMatch(r -> r.startsWith("POST " + TRANSACTIONS)));
+	}
+
+	private static String transferId(final String transferBody) {
+		final Matcher matcher = TRANSFER_ID.matcher(transferBody);
+		assertTrue(matcher.find(), transferBody);
+		return matcher.group(1);
+	}
+
+	/**
+	 * @return the id of the transfer the received legs belong to
+	 */
+	private static String transferId(final List<String> legIds) {
+		final String legId = legIds.get(0);
+		return legId.substring(0, legId.lastIndexOf(':'));
+	}
+
+	private List<String> reversals() {
+		return legIds.stream().filter(id -> id.endsWith(REVERSAL)).toList();
+	}
+
+	private static String requestId(final String recordBody) {
+		final Matcher matcher = REQUEST_ID.matcher(recordBody);
+		assertTrue(matcher.find(), recordBody);
+		return matcher.group(1);
+	}
+
 	/**
 	 * Tests the behavior of the spend operation under rate-limiting conditions.
 	 * Verifies that a card is allowed to perform up to 5 spends within a one-minute window,
 	 * but the sixth spend attempt results in a {@link RateLimitExceededException}.
 	 *
-	 * The test sets up mock responses for the necessary interactions:
+	 * The test sets up a path based dispatcher for the necessary interactions, since both cards are fetched concurrently:
 	 * - Fetching the card's balance.
-	 * - Updating the card's balance.
+	 * - Transferring the amount.
 	 * - Creating a transaction.
 	 *
 	 * The test first performs 5 successful spends, ensuring the balance is updated correctly after each.
@@ -202,13 +497,27 @@ public class CardAggregateServiceTest {
 
 		final BalanceOperationRequest request = new BalanceOperationRequest("123", "456", new BigDecimal("10"), TransactionType.TRANSFER);
 
-		// Enqueue 6 sets of responses for GET /cards, PUT balance, POST transaction
-		for (int i = 0; i < 6; i++) {
-			// GET card balance (assume 100)
-			// PUT update balance (200 OK)
-			// POST create transaction (200 OK)
-			balanceOperation_helperFunction(new BigDecimal("100"), 200, 200);
-		}
+		mockWebServer.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(final RecordedRequest recordedRequest) {
+				final String path = recordedRequest.getPath();
+				// GET sender card balance (assume 100)
+				if (path.startsWith(GET_COVERED_CARD_URL)) {
+					return new MockResponse()
+						.setBody(buildCardJson(1L, 10L, "123", new BigDecimal("100"), "123"))
+						.addHeader(CONTENT_TYPE, APPLICATION_JSON);
+				}
+				// GET recipient card
+				if (path.startsWith(GET_CARD_URL) && "GET".equals(recordedRequest.getMethod())) {
+					return new MockResponse()
+						.setBody(buildCardJson(2L, 20L, "456", new BigDecimal("200.00"), "456"))
+						.addHeader(CONTENT_TYPE, APPLICATION_JSON);
+				}
+				// POST transfer (200 OK)
+				// POST create transaction (200 OK)
+				return new MockResponse().setResponseCode(200);
+			}
+		});
 
 		// The first 5 spends should succeed, 6th should fail with RateLimitExceededException
 		StepVerifier.create(service.balanceOperation(request)).verifyComplete();
@@ -223,4 +532,23 @@ public class CardAggregateServiceTest {
 			.verify();
 	}
 
+	/**
+	 * Verifies that a throttled spend is rejected before any money is moved.
+	 */
+	@Test
+	void testSpend_rateLimitExceeded_shouldNotTransfer() throws InterruptedException {
+		final BalanceOperationRequest request = new BalanceOperationRequest("123", "456", new BigDecimal("10"), TransactionType.TRANSFER);
+		balanceOperation_helperFunction(new BigDecimal("100"), 200, 200);
+
+		for (int i = 0; i < 5; i++) {
+			StepVerifier.create(service.balanceOperation(request)).verifyComplete();
+		}
+		recordedRequests();
+
+		StepVerifier.create(service.balanceOperation(request))
+			.expectError(RateLimitExceededException.class)
+			.verify();
+		assertTrue(recordedRequests().stream().noneMatch(r -> r.startsWith("POST " + TRANSFER_URL)));
+	}
+
 }
@@ -0,0 +1,116 @@
+package com.virtualcard.card_aggregate.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.virtualcard.card_aggregate.saga.Saga;
+import com.virtualcard.card_aggregate.saga.SagaStep;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         20 set 2025
+ *
+ */
+class SagaTest {
+
+	// Actions and compensations run, in order
+	private final List<String> calls = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Verifies that the steps of a stage run concurrently: the first step only completes once the second one has started.
+	 */
+	@Test
+	void execute_shouldRunTheStepsOfAStageConcurrently() {
+		final Sinks.Empty<Void> creditStarted = Sinks.empty();
+
+		final Mono<Void> saga = Saga.named("concurrent")
+			.then(
+					SagaStep.of("debit", creditStarted::asMono, ignored -> Mono.empty()),
+					SagaStep.of("credit", () -> Mono.<Void> fromRunnable(creditStarted::tryEmitEmpty), ignored -> Mono.empty()))
+			.execute();
+
+		StepVerifier.create(saga)
+			.expectComplete()
+			.verify(Duration.ofSeconds(5));
+	}
+
+	/**
+	 * Verifies that a step rejected by its service gets the completed steps of its stage compensated,
+	 * and that the next stages do not run.
+	 */
+	@Test
+	void execute_shouldCompensateCompletedStep_whenAnotherStepOfItsStageIsRejected() {
+		final Mono<Void> saga = Saga.named("rejected")
+			.then(
+					SagaStep.of("debit", () -> Mono.<Void> error(rejection()), ignored -> call("undo debit")),
+					SagaStep.of("credit", () -> call("credit"), ignored -> call("undo credit")))
+			.then(SagaStep.of("record", () -> call("record"), ignored -> Mono.empty()))
+			.execute();
+
+		StepVerifier.create(saga)
+			.expectError(WebClientResponseException.class)
+			.verify();
+
+		assertThat(calls).containsExactly("credit", "undo credit");
+	}
+
+	/**
+	 * Verifies that every completed step is compensated, latest stage first, when a later stage is rejected.
+	 */
+	@Test
+	void execute_shouldCompensateEveryStage_whenALaterStageIsRejected() {
+		final Mono<Void> saga = Saga.named("record rejected")
+			.then(SagaStep.of("debit", () -> call("debit"), ignored -> call("undo debit")))
+			.then(SagaStep.of("credit", () -> call("credit"), ignored -> call("undo credit")))
+			.then(SagaStep.of("record", () -> Mono.<Void> error(rejection()), ignored -> call("undo record")))
+			.execute();
+
+		StepVerifier.create(saga)
+			.expectError(WebClientResponseException.class)
+			.verify();
+
+		assertThat(calls).containsExactly("debit", "credit", "undo credit", "undo debit");
+	}
+
+	/**
+	 * Verifies that nothing is compensated when a step failed without being rejected, since it may have been applied.
+	 */
+	@Test
+	void execute_shouldNotCompensate_whenAStepOutcomeIsUnknown() {
+		final Mono<Void> saga = Saga.named("unknown")
+			.then(
+					SagaStep.of("debit", () -> Mono.<Void> error(new TimeoutException()), ignored -> call("undo debit")),
+					SagaStep.of("credit", () -> call("credit"), ignored -> call("undo credit")))
+			.execute();
+
+		StepVerifier.create(saga)
+			.expectError(TimeoutException.class)
+			.verify();
+
+		assertThat(calls).containsExactly("credit");
+	}
+
+	private Mono<Void> call(final String name) {
+		return Mono.fromRunnable(() -> calls.add(name));
+	}
+
+	private static WebClientResponseException rejection() {
+		return WebClientResponseException.create(HttpStatus.UNPROCESSABLE_ENTITY.value(), "Unprocessable Entity", HttpHeaders.EMPTY,
+				new byte[0], null);
+	}
+
+}
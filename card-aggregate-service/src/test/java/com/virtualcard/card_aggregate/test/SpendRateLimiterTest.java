@@ -0,0 +1,177 @@
+package com.virtualcard.card_aggregate.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.virtualcard.card_aggregate.ratelimit.SpendRateLimiter;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         14 set 2025
+ *
+ */
+class SpendRateLimiterTest {
+
+	private static final long MINUTE = Duration.ofMinutes(1).toMillis();
+
+	private final AtomicLong clock = new AtomicLong();
+	private SpendRateLimiter limiter;
+
+	@BeforeEach
+	void setUp() {
+		// Start in the middle of a window so both halves of the sliding window are exercised
+		clock.set(1_000 * MINUTE + MINUTE / 2);
+		limiter = new SpendRateLimiter(5, Duration.ofMinutes(1), 64, clock::get);
+	}
+
+	@Test
+	void tryAcquire_shouldRejectAfterLimitWithinWindow() {
+		for (int i = 0; i < 5; i++) {
+			assertThat(limiter.tryAcquire(1L)).isTrue();
+		}
+		assertThat(limiter.tryAcquire(1L)).isFalse();
+		// Other cards are not affected
+		assertThat(limiter.tryAcquire(2L)).isTrue();
+	}
+
+	/**
+	 * The spends of the previous window still weigh on the next one, so a card cannot burst
+	 * twice its limit across a window boundary.
+	 */
+	@Test
+	void tryAcquire_shouldNotAllowBurstAcrossWindowBoundary() {
+		clock.set(1_001 * MINUTE - 1);
+		for (int i = 0; i < 5; i++) {
+			assertThat(limiter.tryAcquire(1L)).isTrue();
+		}
+
+		clock.set(1_001 * MINUTE + 1);
+		assertThat(limiter.tryAcquire(1L)).isFalse();
+
+		// Half of the previous window slid out: 5 * 0.5 = 2.5 spends are still counted
+		clock.set(1_001 * MINUTE + MINUTE / 2);
+		assertThat(limiter.tryAcquire(1L)).isTrue();
+		assertThat(limiter.tryAcquire(1L)).isTrue();
+		assertThat(limiter.tryAcquire(1L)).isFalse();
+	}
+
+	@Test
+	void release_shouldGiveBackSpend() {
+		for (int i = 0; i < 4; i++) {
+			assertThat(limiter.tryAcquire(1L)).isTrue();
+		}
+		final long permit = limiter.acquire(1L);
+		assertThat(permit).isNotNegative();
+		limiter.release(1L, permit);
+		assertThat(limiter.tryAcquire(1L)).isTrue();
+		assertThat(limiter.tryAcquire(1L)).isFalse();
+	}
+
+	/**
+	 * A spend released after its window ended is taken off the previous window, not off the spends of the current one.
+	 */
+	@Test
+	void release_shouldGiveBackSpendToTheWindowItWasCountedIn() {
+		clock.set(1_001 * MINUTE - 1);
+		final long permit = limiter.acquire(1L);
+		for (int i = 0; i < 4; i++) {
+			assertThat(limiter.tryAcquire(1L)).isTrue();
+		}
+
+		// 5 * 0.5 = 2.5 spends of the previous window are still counted, leaving room for 2
+		clock.set(1_001 * MINUTE + MINUTE / 2);
+		assertThat(limiter.tryAcquire(1L)).isTrue();
+		assertThat(limiter.tryAcquire(1L)).isTrue();
+
+		// 4 * 0.5 = 2 spends of the previous window, plus the 2 of the current one
+		limiter.release(1L, permit);
+		assertThat(limiter.tryAcquire(1L)).isTrue();
+		assertThat(limiter.tryAcquire(1L)).isFalse();
+	}
+
+	/**
+	 * Concurrent first spends of the same card claim a single slot, so the card cannot get twice its limit.
+	 */
+	@Test
+	void acquire_shouldNotGiveOneCardTwoSlots() throws Exception {
+		final int threads = 8;
+		for (int round = 0; round < 200; round++) {
+			limiter = new SpendRateLimiter(5, Duration.ofMinutes(1), 64, clock::get);
+			final CyclicBarrier start = new CyclicBarrier(threads);
+			final AtomicInteger granted = new AtomicInteger();
+			final ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				final List<Future<?>> futures = new ArrayList<>();
+				for (int t = 0; t < threads; t++) {
+					futures.add(executor.submit(() -> {
+						start.await();
+						for (int i = 0; i < 5; i++) {
+							if (limiter.tryAcquire(1L)) {
+								granted.incrementAndGet();
+							}
+						}
+						return null;
+					}));
+				}
+				for (final Future<?> future : futures) {
+					future.get();
+				}
+			} finally {
+				executor.shutdown();
+			}
+			assertThat(granted.get()).isEqualTo(5);
+		}
+	}
+
+	/**
+	 * A card finding its probe sequence full of active cards evicts one of them rather than being denied.
+	 */
+	@Test
+	void tryAcquire_shouldEvictActiveCard_whenTableIsFull() {
+		for (long cardId = 1; cardId <= 10_000; cardId++) {
+			limiter.tryAcquire(cardId);
+		}
+
+		assertThat(limiter.tryAcquire(20_000L)).isTrue();
+		assertThat(limiter.getEvictions()).isPositive();
+
+		// The new card is limited as usual from its own slot
+		for (int i = 0; i < 4; i++) {
+			assertThat(limiter.tryAcquire(20_000L)).isTrue();
+		}
+		assertThat(limiter.tryAcquire(20_000L)).isFalse();
+	}
+
+	/**
+	 * Slots of cards idle for a whole window are reclaimed by new cards, so the table never needs a global reset.
+	 */
+	@Test
+	void tryAcquire_shouldReclaimIdleSlots() {
+		for (long cardId = 1; cardId <= 64; cardId++) {
+			limiter.tryAcquire(cardId);
+		}
+
+		clock.addAndGet(2 * MINUTE);
+		for (long cardId = 1_000; cardId < 1_016; cardId++) {
+			for (int i = 0; i < 5; i++) {
+				assertThat(limiter.tryAcquire(cardId)).isTrue();
+			}
+			assertThat(limiter.tryAcquire(cardId)).isFalse();
+		}
+		assertThat(limiter.getEvictions()).isZero();
+	}
+
+}
@@ -0,0 +1,131 @@
+package com.virtualcard.cardservice.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.virtualcard.cardservice.configuration.CardCacheProperties;
+import com.virtualcard.common.dto.CardDTO;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * In-process near cache of the cards, looked up by id or by code.
+ *
+ * Entries are bounded in size (W-TinyLFU eviction) and in age, the latter bounding how stale a card can get
+ * when it is changed by another card-service instance. Local writes either replace the entry with a newer version
+ * or invalidate it. An invalidation leaves a short-lived tombstone so that a database read started before it
+ * cannot put back the old state once it completes.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         16 set 2025
+ *
+ */
+@Component
+public class CardCache {
+
+	private final Cache<Long, CardDTO> cardsById;
+
+	// Card codes never change, so the index only goes missing through eviction
+	private final Cache<String, Long> idsByCode;
+
+	// Epoch of the last invalidation of each recently changed card
+	private final Cache<Long, Long> tombstones;
+
+	/**
+	 * Stamp of a read that may lag behind the latest writes, handed to {@link #put(CardDTO, long)} in place of
+	 * {@link #stamp()}. Such a read may return the state an invalidation before it was meant to evict, so the card is
+	 * only cached if it has no tombstone, which outlives any replication lag.
+	 */
+	public static final long LAGGING = -1L;
+
+	private final AtomicLong epoch = new AtomicLong();
+
+	public CardCache(final CardCacheProperties properties, final MeterRegistry meterRegistry) {
+		this.cardsById = Caffeine.newBuilder()
+			.maximumSize(properties.getMaximumSize())
+			.expireAfterWrite(properties.getTimeToLive())
+			.recordStats()
+			.build();
+		this.idsByCode = Caffeine.newBuilder()
+			.maximumSize(properties.getMaximumSize())
+			.recordStats()
+			.build();
+		this.tombstones = Caffeine.newBuilder()
+			.maximumSize(properties.getMaximumSize())
+			.expireAfterWrite(properties.getTimeToLive())
+			.build();
+
+		CaffeineCacheMetrics.monitor(meterRegistry, cardsById, "cards.by-id");
+		CaffeineCacheMetrics.monitor(meterRegistry, idsByCode, "cards.by-code");
+	}
+
+	/**
+	 * Must be taken before reading a card from the database and handed back to {@link #put(CardDTO, long)}.
+	 */
+	public long stamp() {
+		return epoch.get();
+	}
+
+	public CardDTO getById(final Long id) {
+		return copy(cardsById.getIfPresent(id));
+	}
+
+	public CardDTO getByCode(final String code) {
+		final Long id = idsByCode.getIfPresent(code);
+		return id == null ? null : getById(id);
+	}
+
+	/**
+	 * Caches a card read or written at the given stamp, unless it was invalidated in the meantime
+	 * or a newer version of it is already cached.
+	 *
+	 * @param stamp the value of {@link #stamp()} taken before the read, or {@link #LAGGING}
+	 */
+	public void put(final CardDTO card, final long stamp) {
+		final Long id = card.getId();
+		if (id == null || isInvalidatedAfter(id, stamp)) {
+			return;
+		}
+		final CardDTO cached = cardsById.asMap().merge(id, copy(card), CardCache::newest);
+		idsByCode.put(card.getCode(), id);
+
+		// An invalidation may have slipped in between the check and the merge
+		if (isInvalidatedAfter(id, stamp)) {
+			cardsById.asMap().remove(id, cached);
+		}
+	}
+
+	/**
+	 * Evicts a card whose new state is not known locally, e.g. after a bulk update.
+	 */
+	public void invalidate(final Long id) {
+		tombstones.put(id, epoch.incrementAndGet());
+		cardsById.invalidate(id);
+	}
+
+	private boolean isInvalidatedAfter(final Long id, final long stamp) {
+		final Long invalidatedAt = tombstones.getIfPresent(id);
+		return invalidatedAt != null && invalidatedAt > stamp;
+	}
+
+	private static CardDTO newest(final CardDTO cached, final CardDTO candidate) {
+		return version(candidate) >= version(cached) ? candidate : cached;
+	}
+
+	private static int version(final CardDTO card) {
+		return card.getVersion() == null ? 0 : card.getVersion();
+	}
+
+	// DTOs are mutable, callers never get to share the cached instance
+	private static CardDTO copy(final CardDTO card) {
+		return card == null ? null
+				: new CardDTO(card.getId(), card.getUserId(), card.getCode(), card.getBalance(), card.getCreatedAt(),
+						card.getStatus(), card.getVersion(), card.getCvc(), card.getExpirationDate());
+	}
+
+}
@@ -0,0 +1,88 @@
+package com.virtualcard.cardservice.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+@ConfigurationProperties(prefix = "balance-engine")
+public class BalanceEngineProperties {
+	private boolean enabled = false;
+	private int partitions = 4;
+	private String journalDirectory = "balance-journal";
+	private DataSize journalSize = DataSize.ofMegabytes(64);
+	private boolean forceOnAppend = false;
+	private Duration snapshotInterval = Duration.ofSeconds(1);
+	private int snapshotBatchSize = 500;
+	private Duration recoveryTimeout = Duration.ofMinutes(1);
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(final boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public int getPartitions() {
+		return partitions;
+	}
+
+	public void setPartitions(final int partitions) {
+		this.partitions = partitions;
+	}
+
+	public String getJournalDirectory() {
+		return journalDirectory;
+	}
+
+	public void setJournalDirectory(final String journalDirectory) {
+		this.journalDirectory = journalDirectory;
+	}
+
+	public DataSize getJournalSize() {
+		return journalSize;
+	}
+
+	public void setJournalSize(final DataSize journalSize) {
+		this.journalSize = journalSize;
+	}
+
+	public boolean isForceOnAppend() {
+		return forceOnAppend;
+	}
+
+	public void setForceOnAppend(final boolean forceOnAppend) {
+		this.forceOnAppend = forceOnAppend;
+	}
+
+	public Duration getSnapshotInterval() {
+		return snapshotInterval;
+	}
+
+	public void setSnapshotInterval(final Duration snapshotInterval) {
+		this.snapshotInterval = snapshotInterval;
+	}
+
+	public int getSnapshotBatchSize() {
+		return snapshotBatchSize;
+	}
+
+	public void setSnapshotBatchSize(final int snapshotBatchSize) {
+		this.snapshotBatchSize = snapshotBatchSize;
+	}
+
+	public Duration getRecoveryTimeout() {
+		return recoveryTimeout;
+	}
+
+	public void setRecoveryTimeout(final Duration recoveryTimeout) {
+		this.recoveryTimeout = recoveryTimeout;
+	}
+}
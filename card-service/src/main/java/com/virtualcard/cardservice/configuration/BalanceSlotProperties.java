@@ -0,0 +1,42 @@
+package com.virtualcard.cardservice.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+@ConfigurationProperties(prefix = "balance-slots")
+public class BalanceSlotProperties {
+	private int maxSlots = 64;
+	private Duration consolidationInterval = Duration.ofSeconds(5);
+	private int consolidationBatchSize = 100;
+
+	public int getMaxSlots() {
+		return maxSlots;
+	}
+
+	public void setMaxSlots(final int maxSlots) {
+		this.maxSlots = maxSlots;
+	}
+
+	public Duration getConsolidationInterval() {
+		return consolidationInterval;
+	}
+
+	public void setConsolidationInterval(final Duration consolidationInterval) {
+		this.consolidationInterval = consolidationInterval;
+	}
+
+	public int getConsolidationBatchSize() {
+		return consolidationBatchSize;
+	}
+
+	public void setConsolidationBatchSize(final int consolidationBatchSize) {
+		this.consolidationBatchSize = consolidationBatchSize;
+	}
+}
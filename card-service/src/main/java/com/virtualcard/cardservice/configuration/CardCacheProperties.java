@@ -0,0 +1,33 @@
+package com.virtualcard.cardservice.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         16 set 2025
+ *
+ */
+@ConfigurationProperties(prefix = "card-cache")
+public class CardCacheProperties {
+	private long maximumSize = 10_000;
+	private Duration timeToLive = Duration.ofSeconds(30);
+
+	public long getMaximumSize() {
+		return maximumSize;
+	}
+
+	public void setMaximumSize(final long maximumSize) {
+		this.maximumSize = maximumSize;
+	}
+
+	public Duration getTimeToLive() {
+		return timeToLive;
+	}
+
+	public void setTimeToLive(final Duration timeToLive) {
+		this.timeToLive = timeToLive;
+	}
+}
@@ -0,0 +1,60 @@
+package com.virtualcard.cardservice.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+@ConfigurationProperties(prefix = "card-contention")
+public class CardContentionProperties {
+	private int conflictThreshold = 3;
+	private Duration window = Duration.ofSeconds(10);
+	private Duration coolDown = Duration.ofSeconds(30);
+	private int maximumHotCards = 1000;
+	private int sketchWidth = 4096;
+
+	public int getConflictThreshold() {
+		return conflictThreshold;
+	}
+
+	public void setConflictThreshold(final int conflictThreshold) {
+		this.conflictThreshold = conflictThreshold;
+	}
+
+	public Duration getWindow() {
+		return window;
+	}
+
+	public void setWindow(final Duration window) {
+		this.window = window;
+	}
+
+	public Duration getCoolDown() {
+		return coolDown;
+	}
+
+	public void setCoolDown(final Duration coolDown) {
+		this.coolDown = coolDown;
+	}
+
+	public int getMaximumHotCards() {
+		return maximumHotCards;
+	}
+
+	public void setMaximumHotCards(final int maximumHotCards) {
+		this.maximumHotCards = maximumHotCards;
+	}
+
+	public int getSketchWidth() {
+		return sketchWidth;
+	}
+
+	public void setSketchWidth(final int sketchWidth) {
+		this.sketchWidth = sketchWidth;
+	}
+}
@@ -0,0 +1,31 @@
+package com.virtualcard.cardservice.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+@ConfigurationProperties(prefix = "card-issuance")
+public class CardIssuanceProperties {
+	private int chunkSize = 500;
+	private int concurrentChunks = 2;
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	public void setChunkSize(final int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	public int getConcurrentChunks() {
+		return concurrentChunks;
+	}
+
+	public void setConcurrentChunks(final int concurrentChunks) {
+		this.concurrentChunks = concurrentChunks;
+	}
+}
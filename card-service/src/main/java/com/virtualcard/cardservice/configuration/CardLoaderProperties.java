@@ -0,0 +1,33 @@
+package com.virtualcard.cardservice.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         17 set 2025
+ *
+ */
+@ConfigurationProperties(prefix = "card-loader")
+public class CardLoaderProperties {
+	private Duration batchWindow = Duration.ofMillis(2);
+	private int maxBatchSize = 100;
+
+	public Duration getBatchWindow() {
+		return batchWindow;
+	}
+
+	public void setBatchWindow(final Duration batchWindow) {
+		this.batchWindow = batchWindow;
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	public void setMaxBatchSize(final int maxBatchSize) {
+		this.maxBatchSize = maxBatchSize;
+	}
+}
@@ -1,10 +1,14 @@
 package com.virtualcard.cardservice.configuration;
 
+import java.util.Map;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import com.virtualcard.cardservice.entity.Card;
 import com.virtualcard.common.configuration.SpringServiceConfiguration;
 
 import io.swagger.v3.oas.models.OpenAPI;
@@ -17,6 +21,8 @@ import io.swagger.v3.oas.models.info.Info;
  *
  */
 @Configuration
+@EnableConfigurationProperties({ CardCacheProperties.class, CardLoaderProperties.class, CardContentionProperties.class,
+		BalanceSlotProperties.class, BalanceEngineProperties.class, CardWriteLaneProperties.class, CardIssuanceProperties.class })
 public class CardServiceConfiguration extends SpringServiceConfiguration {
 
 	/**
@@ -56,4 +62,9 @@ public class CardServiceConfiguration extends SpringServiceConfiguration {
 		return builder.build();
 	}
 
+	@Override
+	protected Map<String, Integer> idAllocationSizes() {
+		return Map.of(Card.ID_SEQUENCE, Card.ID_ALLOCATION_SIZE);
+	}
+
 }
@@ -0,0 +1,42 @@
+package com.virtualcard.cardservice.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+@ConfigurationProperties(prefix = "card-write-lanes")
+public class CardWriteLaneProperties {
+	private int lanes = 16;
+	private int queueCapacity = 256;
+	private Duration mutationTimeout = Duration.ofSeconds(30);
+
+	public int getLanes() {
+		return lanes;
+	}
+
+	public void setLanes(final int lanes) {
+		this.lanes = lanes;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public void setQueueCapacity(final int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	public Duration getMutationTimeout() {
+		return mutationTimeout;
+	}
+
+	public void setMutationTimeout(final Duration mutationTimeout) {
+		this.mutationTimeout = mutationTimeout;
+	}
+}
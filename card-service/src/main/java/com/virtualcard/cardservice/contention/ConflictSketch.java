@@ -0,0 +1,91 @@
+package com.virtualcard.cardservice.contention;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+
+/**
+ * Count-min sketch of the recent conflicts of each card, in a fixed amount of memory whatever the number of cards.
+ *
+ * Estimates never undercount, they may overcount when cards collide in every row. Counts are halved at the end of
+ * each window, so the estimate of a card follows its recent conflict rate and old conflicts fade out.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+public class ConflictSketch {
+
+	private static final int DEPTH = 4;
+	private static final long[] SEEDS = { 0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L };
+
+	private final AtomicIntegerArray counters;
+	private final int mask;
+	private final long windowNanos;
+	private final Ticker ticker;
+	private final AtomicLong windowStart;
+
+	/**
+	 * @param width  the counters per row, rounded up to a power of two
+	 * @param window the period after which the counts are halved
+	 */
+	public ConflictSketch(final int width, final Duration window) {
+		this(width, window, Ticker.systemTicker());
+	}
+
+	/**
+	 * @param ticker the source of the time the windows are measured with
+	 */
+	public ConflictSketch(final int width, final Duration window, final Ticker ticker) {
+		final int rowWidth = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+		this.counters = new AtomicIntegerArray(DEPTH * rowWidth);
+		this.mask = rowWidth - 1;
+		this.windowNanos = window.toNanos();
+		this.ticker = ticker;
+		this.windowStart = new AtomicLong(ticker.read());
+	}
+
+	/**
+	 * Records a conflict on the card.
+	 *
+	 * @return the estimated conflicts of the card, including this one
+	 */
+	public int increment(final long cardId) {
+		ageIfWindowElapsed();
+		int estimate = Integer.MAX_VALUE;
+		for (int row = 0; row < DEPTH; row++) {
+			estimate = Math.min(estimate, counters.incrementAndGet(index(row, cardId)));
+		}
+		return estimate;
+	}
+
+	public int estimate(final long cardId) {
+		ageIfWindowElapsed();
+		int estimate = Integer.MAX_VALUE;
+		for (int row = 0; row < DEPTH; row++) {
+			estimate = Math.min(estimate, counters.get(index(row, cardId)));
+		}
+		return estimate;
+	}
+
+	private int index(final int row, final long cardId) {
+		long hash = (cardId + SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+		hash ^= hash >>> 29;
+		return row * (mask + 1) + (int) (hash & mask);
+	}
+
+	private void ageIfWindowElapsed() {
+		final long start = windowStart.get();
+		final long now = ticker.read();
+		// A single caller wins the window and halves the counters, the others keep counting meanwhile
+		if (now - start >= windowNanos && windowStart.compareAndSet(start, now)) {
+			for (int i = 0; i < counters.length(); i++) {
+				counters.updateAndGet(i, count -> count >>> 1);
+			}
+		}
+	}
+
+}
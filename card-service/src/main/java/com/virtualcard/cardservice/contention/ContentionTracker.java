@@ -0,0 +1,113 @@
+package com.virtualcard.cardservice.contention;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.virtualcard.cardservice.configuration.CardContentionProperties;
+
+import lombok.extern.log4j.Log4j2;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.LockModeType;
+
+/**
+ * Chooses how each card is locked when its balance is written.
+ *
+ * Cards are locked optimistically, relying on their version, until their recent conflicts reach the threshold:
+ * from then on they are locked with {@code SELECT ... FOR UPDATE}, so concurrent writers wait for each other instead
+ * of failing and retrying. A hot card goes back to optimistic locking once it has not conflicted for the cool down
+ * period, every conflict restarting it. Both the conflicts and the hot cards are tracked in bounded memory.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+@Log4j2
+@Component
+public class ContentionTracker {
+
+	private final ConflictSketch conflicts;
+	private final int conflictThreshold;
+
+	// Cards locked pessimistically, each one expiring after the cool down since its last conflict
+	private final Cache<Long, Boolean> hotCards;
+
+	private final Counter optimisticWrites;
+	private final Counter pessimisticWrites;
+	private final Counter conflictCounter;
+
+	@Autowired
+	public ContentionTracker(final CardContentionProperties properties, final MeterRegistry meterRegistry) {
+		this(properties, meterRegistry, Ticker.systemTicker());
+	}
+
+	/**
+	 * @param ticker the source of the time the conflict window and the cool down are measured with
+	 */
+	public ContentionTracker(final CardContentionProperties properties, final MeterRegistry meterRegistry, final Ticker ticker) {
+		if (properties.getConflictThreshold() < 1) {
+			throw new IllegalArgumentException("Conflict threshold must be at least 1");
+		}
+		this.conflicts = new ConflictSketch(properties.getSketchWidth(), properties.getWindow(), ticker);
+		this.conflictThreshold = properties.getConflictThreshold();
+		this.hotCards = Caffeine.newBuilder()
+			.maximumSize(properties.getMaximumHotCards())
+			.expireAfterWrite(properties.getCoolDown())
+			.ticker(ticker)
+			.build();
+
+		this.optimisticWrites = writes(meterRegistry, "optimistic");
+		this.pessimisticWrites = writes(meterRegistry, "pessimistic");
+		this.conflictCounter = Counter.builder("cards.lock.conflicts")
+			.description("Optimistic balance writes rejected by a concurrent change")
+			.register(meterRegistry);
+		Gauge.builder("cards.lock.hot-cards", hotCards, Cache::estimatedSize)
+			.description("Cards currently locked pessimistically")
+			.register(meterRegistry);
+	}
+
+	/**
+	 * @return the lock mode to use for the next balance write of the card, counted as a write in that mode
+	 */
+	public LockModeType lockModeFor(final Long cardId) {
+		if (hotCards.getIfPresent(cardId) != null) {
+			pessimisticWrites.increment();
+			return LockModeType.PESSIMISTIC_WRITE;
+		}
+		optimisticWrites.increment();
+		return LockModeType.OPTIMISTIC;
+	}
+
+	/**
+	 * Records a write of the card rejected by a concurrent change. A hot card conflicting again stays hot for another
+	 * cool down period.
+	 */
+	public void recordConflict(final Long cardId) {
+		conflictCounter.increment();
+		if (conflicts.increment(cardId) < conflictThreshold && hotCards.getIfPresent(cardId) == null) {
+			return;
+		}
+		// Put again rather than only if absent, so that the cool down starts over
+		if (hotCards.asMap().put(cardId, Boolean.TRUE) == null) {
+			log.info("Card {} is contended, locking it pessimistically", cardId);
+		}
+	}
+
+	public boolean isHot(final Long cardId) {
+		return hotCards.getIfPresent(cardId) != null;
+	}
+
+	private static Counter writes(final MeterRegistry meterRegistry, final String mode) {
+		return Counter.builder("cards.lock.writes")
+			.description("Balance writes by lock mode")
+			.tag("mode", mode)
+			.register(meterRegistry);
+	}
+
+}
@@ -1,15 +1,23 @@
 package com.virtualcard.cardservice.controller;
 
+import static com.virtualcard.common.lang.EndpointConstants.BALANCE_MAPPING;
+import static com.virtualcard.common.lang.EndpointConstants.BALANCE_SLOTS_MAPPING;
+import static com.virtualcard.common.lang.EndpointConstants.BULK;
 import static com.virtualcard.common.lang.EndpointConstants.CARDS;
 import static com.virtualcard.common.lang.EndpointConstants.CARD_NUMBER;
 import static com.virtualcard.common.lang.EndpointConstants.GET_ALL_CARDS_BY_USER_MAPPING;
 import static com.virtualcard.common.lang.EndpointConstants.GET_COVERED_CARD_MAPPING;
+import static com.virtualcard.common.lang.EndpointConstants.TRANSFER;
+import static com.virtualcard.common.lang.EndpointConstants.TRANSFER_CREDIT_MAPPING;
+import static com.virtualcard.common.lang.EndpointConstants.TRANSFER_DEBIT_MAPPING;
 import static com.virtualcard.common.lang.EndpointConstants.UPDATE_BALANCE_MAPPING;
 
 import java.math.BigDecimal;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -22,7 +30,11 @@ import org.springframework.web.bind.annotation.RestController;
 import com.virtualcard.cardservice.service.CardService;
 import com.virtualcard.cardservice.service.UserIntegrationService;
 import com.virtualcard.common.dto.CardDTO;
+import com.virtualcard.common.dto.CardIssuanceProgress;
 import com.virtualcard.common.request.AddCardRequest;
+import com.virtualcard.common.request.BalanceDeltaRequest;
+import com.virtualcard.common.request.BalanceSlotsRequest;
+import com.virtualcard.common.request.TransferRequest;
 import com.virtualcard.common.request.UpdateBalanceRequest;
 
 import lombok.RequiredArgsConstructor;
@@ -58,6 +70,15 @@ public class CardController {
 			.flatMap(req -> cardService.createCard(req.username(), req.cardNumber(), req.expiration(), req.cvc()));
 	}
 
+	/**
+	 * Issues the cards of a stream of requests sent as NDJSON, streaming back the progress as NDJSON after each chunk of cards
+	 * while the request body is still being read.
+	 */
+	@PostMapping(value = BULK, consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public Flux<CardIssuanceProgress> createCards(@RequestBody final Flux<AddCardRequest> requests) {
+		return cardService.createCards(requests);
+	}
+
 	/**
 	 * Retrieves a valid card based on the provided identifier.
 	 *
@@ -90,13 +111,72 @@ public class CardController {
 	 * Updates the balance of a card specified by its unique identifier.
 	 *
 	 * @param id      the unique identifier of the card whose balance needs to be updated
-	 * @param request the request containing the new balance to be set for the card
+	 * @param request the request containing the new balance to be set for the card and the version it was computed from
 	 * @return a Mono signaling when the update operation has completed
 	 */
 	@PutMapping(UPDATE_BALANCE_MAPPING)
 	public Mono<Void> updateBalance(@PathVariable final Long id,
 			@RequestBody final UpdateBalanceRequest request) {
-		return cardService.updateBalance(id, request.newBalance());
+		return cardService.updateBalance(id, request.newBalance(), request.expectedVersion());
+	}
+
+	/**
+	 * Credits or debits the balance of a card by a relative amount.
+	 *
+	 * @param id      the unique identifier of the card
+	 * @param request the request containing the delta, positive to credit and negative to debit
+	 * @return a Mono emitting the card with its updated balance and version
+	 */
+	@PatchMapping(BALANCE_MAPPING)
+	public Mono<CardDTO> applyBalanceDelta(@PathVariable final Long id,
+			@RequestBody final BalanceDeltaRequest request) {
+		return cardService.applyBalanceDelta(id, request.delta());
+	}
+
+	/**
+	 * Spreads the credits of a card over a number of balance slots, for cards credited too often for a single row.
+	 *
+	 * @param id      the unique identifier of the card
+	 * @param request the request containing the number of slots, 0 to stop spreading the credits
+	 * @return a Mono emitting the card
+	 */
+	@PutMapping(BALANCE_SLOTS_MAPPING)
+	public Mono<CardDTO> updateBalanceSlots(@PathVariable final Long id,
+			@RequestBody final BalanceSlotsRequest request) {
+		return cardService.updateBalanceSlots(id, request.slots());
+	}
+
+	/**
+	 * Debits the sender card and credits the recipient card in one database transaction.
+	 *
+	 * @param request the request containing the transfer id, both card ids and the amount to move
+	 * @return a Mono signaling when the transfer has been committed
+	 */
+	@PostMapping(TRANSFER)
+	public Mono<Void> transfer(@RequestBody final TransferRequest request) {
+		return cardService.transfer(request.transferId(), request.senderCardId(), request.recipientCardId(), request.amount());
+	}
+
+	/**
+	 * Debits the sender of a transfer whose legs are sent separately, the transfer id being the id of the leg.
+	 *
+	 * @param request the request containing the leg id, both card ids and the amount to move
+	 * @return a Mono signaling when the debit has been committed
+	 */
+	@PostMapping(TRANSFER_DEBIT_MAPPING)
+	public Mono<Void> debitTransfer(@RequestBody final TransferRequest request) {
+		return cardService.transferLeg(request.transferId(), request.senderCardId(), request.recipientCardId(), true, request.amount());
+	}
+
+	/**
+	 * Credits the recipient of a transfer whose legs are sent separately, the transfer id being the id of the leg.
+	 *
+	 * @param request the request containing the leg id, both card ids and the amount to move
+	 * @return a Mono signaling when the credit has been committed
+	 */
+	@PostMapping(TRANSFER_CREDIT_MAPPING)
+	public Mono<Void> creditTransfer(@RequestBody final TransferRequest request) {
+		return cardService.transferLeg(request.transferId(), request.senderCardId(), request.recipientCardId(), false, request.amount());
 	}
 
 }
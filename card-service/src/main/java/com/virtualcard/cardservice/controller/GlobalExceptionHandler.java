@@ -0,0 +1,76 @@
+package com.virtualcard.cardservice.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import com.virtualcard.common.error.InvalidInputException;
+import com.virtualcard.common.error.NotFoundException;
+import com.virtualcard.common.error.RateLimitExceededException;
+
+import jakarta.persistence.OptimisticLockException;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         15 set 2025
+ *
+ */
+@RestControllerAdvice
+public class GlobalExceptionHandler {
+
+	/**
+	 * Handles the exception thrown when a request cannot be applied to the current state of the cards,
+	 * e.g. a transfer from a blocked card or without enough balance.
+	 *
+	 * @param ex the {@link InvalidInputException} describing the rejected request.
+	 * @return a {@link ResponseEntity} with a status code of 422 (Unprocessable Entity) and the error message.
+	 */
+	@ExceptionHandler(InvalidInputException.class)
+	public ResponseEntity<String> handleInvalidInput(final InvalidInputException ex) {
+		return ResponseEntity
+			.status(HttpStatus.UNPROCESSABLE_ENTITY)
+			.body(ex.getMessage());
+	}
+
+	/**
+	 * Handles the exception thrown when a requested card does not exist.
+	 *
+	 * @param ex the {@link NotFoundException} describing the missing resource.
+	 * @return a {@link ResponseEntity} with a status code of 404 (Not Found) and the error message.
+	 */
+	@ExceptionHandler(NotFoundException.class)
+	public ResponseEntity<String> handleNotFound(final NotFoundException ex) {
+		return ResponseEntity
+			.status(HttpStatus.NOT_FOUND)
+			.body(ex.getMessage());
+	}
+
+	/**
+	 * Handles the exception thrown when a card has too many pending changes to accept another one.
+	 *
+	 * @param ex the {@link RateLimitExceededException} describing the rejected change.
+	 * @return a {@link ResponseEntity} with a status code of 429 (Too Many Requests) and the error message.
+	 */
+	@ExceptionHandler(RateLimitExceededException.class)
+	public ResponseEntity<String> handleRateLimitExceeded(final RateLimitExceededException ex) {
+		return ResponseEntity
+			.status(HttpStatus.TOO_MANY_REQUESTS)
+			.body(ex.getMessage());
+	}
+
+	/**
+	 * Handles the exception thrown when a balance update was computed from a version of the card that changed since.
+	 *
+	 * @param ex the {@link OptimisticLockException} describing the rejected update.
+	 * @return a {@link ResponseEntity} with a status code of 409 (Conflict) and the error message.
+	 */
+	@ExceptionHandler(OptimisticLockException.class)
+	public ResponseEntity<String> handleOptimisticLock(final OptimisticLockException ex) {
+		return ResponseEntity
+			.status(HttpStatus.CONFLICT)
+			.body(ex.getMessage());
+	}
+
+}
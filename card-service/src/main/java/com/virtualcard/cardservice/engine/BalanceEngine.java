@@ -0,0 +1,506 @@
+package com.virtualcard.cardservice.engine;
+
+import static com.virtualcard.common.converter.VertxWebFluxConverter.convertUniToMono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Component;
+
+import com.virtualcard.cardservice.configuration.BalanceEngineProperties;
+import com.virtualcard.cardservice.entity.Card;
+import com.virtualcard.cardservice.engine.JournalRecord.Type;
+import com.virtualcard.cardservice.repository.ReactiveCardRepository;
+import com.virtualcard.common.error.InvalidInputException;
+import com.virtualcard.common.springdata.repository.ReadConsistency;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.extern.log4j.Log4j2;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.OptimisticLockException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Keeps the authoritative balances of the cards in memory, so that balance changes and transfers complete without
+ * a database round trip.
+ *
+ * Cards are partitioned by id over single-threaded writers: every change of a card runs on the writer of its partition,
+ * so the changes of a card never race and need no lock. A change is appended to the {@link BalanceJournal} before it is
+ * applied and acknowledged, and the changed balances are written to the {@code cards} table in the background at every
+ * snapshot interval. A card is loaded from the database the first time it is used and stays in memory afterwards.
+ *
+ * A transfer debits the sender on its writer, then credits the recipient on its own, or refunds the sender if the
+ * recipient cannot be credited. At startup the balances are rebuilt from the journal on top of the last snapshot,
+ * and the transfers debited but neither credited nor refunded are completed.
+ *
+ * A transfer, or a leg of a transfer, sent again with the id of one received in the last {@link #TRANSFER_ID_RETENTION}
+ * gets the outcome of the first one instead of moving the amount twice. The id is journaled with the debit, before the transfer is acknowledged,
+ * and carried over to the next journal generations while it is retained, so a transfer sent again after a restart is
+ * not applied twice either. Ids recovered at startup are retained for a whole period again.
+ *
+ * The database must not be changed by anything else while the engine is enabled, which also means a single instance
+ * of the service.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+@Log4j2
+@Component
+public class BalanceEngine {
+
+	public static final Duration TRANSFER_ID_RETENTION = Duration.ofHours(1);
+	private static final long MAX_TRANSFER_IDS = 1_000_000;
+
+	private final ReactiveCardRepository repository;
+	private final BalanceEngineProperties properties;
+	private final Path journalDirectory;
+
+	// Each entry is only ever written by the writer of its partition, readers get the latest committed balance
+	private final Map<Long, CardBalance> balances = new ConcurrentHashMap<>();
+	// Version of the cards changed since they were last written to the database
+	private final Map<Long, Integer> unflushed = new ConcurrentHashMap<>();
+	// Debit record of the transfers not yet credited or refunded
+	private final Map<Long, JournalRecord> pendingTransfers = new ConcurrentHashMap<>();
+	private final AtomicLong transferIds = new AtomicLong();
+	// Outcome of the transfers by the id chosen by the caller, a failed transfer is forgotten so it can be sent again
+	private final Cache<UUID, Mono<Void>> transfersById = Caffeine.newBuilder()
+		.expireAfterWrite(TRANSFER_ID_RETENTION)
+		.maximumSize(MAX_TRANSFER_IDS)
+		.build();
+	// Request id records of the credited transfers and of the applied transfer legs, also the ones recovered from the journal
+	private final Cache<UUID, JournalRecord> appliedRequests = Caffeine.newBuilder()
+		.expireAfterWrite(TRANSFER_ID_RETENTION)
+		.maximumSize(MAX_TRANSFER_IDS)
+		.build();
+
+	// Appends and the changes they record are made under the read lock, rolling the journal takes the write lock
+	private final ReadWriteLock journalLock = new ReentrantReadWriteLock();
+	private volatile BalanceJournal journal;
+
+	private Scheduler[] writers;
+	private Disposable snapshots;
+
+	public BalanceEngine(final ReactiveCardRepository repository, final BalanceEngineProperties properties) {
+		if (properties.getPartitions() < 1) {
+			throw new IllegalArgumentException("Balance engine partitions must be at least 1");
+		}
+		if (properties.getJournalSize().toBytes() < 2L * JournalRecord.SIZE || properties.getJournalSize().toBytes() > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Balance journal size must be between " + 2 * JournalRecord.SIZE + " and " + Integer.MAX_VALUE + " bytes");
+		}
+		this.repository = repository;
+		this.properties = properties;
+		this.journalDirectory = Path.of(properties.getJournalDirectory());
+	}
+
+	@PostConstruct
+	public void start() throws IOException {
+		if (!properties.isEnabled()) {
+			return;
+		}
+		writers = IntStream.range(0, properties.getPartitions())
+			.mapToObj(partition -> Schedulers.newSingle("balance-writer-" + partition))
+			.toArray(Scheduler[]::new);
+
+		recover(BalanceJournal.read(journalDirectory)).block(properties.getRecoveryTimeout());
+
+		final Duration interval = properties.getSnapshotInterval();
+		snapshots = Flux.interval(interval, interval)
+			.onBackpressureDrop()
+			.concatMap(tick -> flush()
+				.onErrorResume(e -> {
+					log.warn("Balance snapshot failed, will retry in {}: {}", interval, e.getMessage());
+					return Mono.empty();
+				}))
+			.subscribe();
+	}
+
+	@PreDestroy
+	public void stop() throws IOException {
+		if (!properties.isEnabled()) {
+			return;
+		}
+		if (snapshots != null) {
+			snapshots.dispose();
+		}
+		try {
+			flush().block(properties.getRecoveryTimeout());
+		} catch (final RuntimeException e) {
+			log.warn("Final balance snapshot failed, the journal will be replayed at the next start: {}", e.getMessage());
+		}
+		Stream.of(writers).forEach(Scheduler::dispose);
+		journal.close();
+	}
+
+	public boolean isEnabled() {
+		return properties.isEnabled();
+	}
+
+	/**
+	 * @return the balance of the card, or {@code null} if the card has not been loaded in the engine,
+	 *         in which case its balance in the database is the current one
+	 */
+	public CardBalance get(final Long id) {
+		return balances.get(id);
+	}
+
+	/**
+	 * Sets the balance of the card, if it is still at the expected version.
+	 *
+	 * @param expectedVersion the version the new balance was computed from, {@code null} to skip the comparison
+	 * @return a Mono emitting the new balance, empty if the card is not found, or failing with
+	 *         {@link OptimisticLockException} if the card is not at the expected version
+	 */
+	public Mono<CardBalance> setBalance(final Long id, final BigDecimal newBalance, final Integer expectedVersion) {
+		return Mono.fromCallable(() -> CardBalance.toCents(newBalance))
+			.onErrorMap(ArithmeticException.class, e -> new InvalidInputException("Balance must have at most 2 decimal digits"))
+			.flatMap(cents -> ensureLoaded(id)
+				.then(onWriter(id, () -> commitIfLoaded(id, current -> {
+					if (expectedVersion != null && expectedVersion != current.version()) {
+						throw new OptimisticLockException("Card id: " + id + " is at version " + current.version()
+								+ ", not at the expected version " + expectedVersion);
+					}
+					return current.withBalanceCents(cents);
+				}))))
+			.publishOn(Schedulers.parallel());
+	}
+
+	/**
+	 * Credits or debits the card, a debit only applies if the card is active and covers it.
+	 *
+	 * @return a Mono emitting the new balance, or empty if the card is not found, not active or cannot cover the debit
+	 */
+	public Mono<CardBalance> applyDelta(final Long id, final BigDecimal delta) {
+		return applyDelta(id, delta, null);
+	}
+
+	/**
+	 * Debits the sender or credits the recipient of a transfer sent as two legs, unless a leg with the same id was already
+	 * received. The leg id is journaled with the change, like the id of a whole transfer.
+	 *
+	 * @param legId the idempotency key of the leg, chosen by the caller
+	 * @param delta negative to debit the sender, positive to credit the recipient
+	 * @return a Mono completing once the card is changed, or failing with {@link InvalidInputException}
+	 *         if the card is not found, not active or cannot cover the debit
+	 */
+	public Mono<Void> transferLeg(final String legId, final Long cardId, final BigDecimal delta) {
+		return applyOnce(legId, requestId -> applyDelta(cardId, delta, requestId)
+			.switchIfEmpty(Mono.error(() -> new InvalidInputException("Card id: " + cardId + " not found, blocked or insufficient balance")))
+			.then());
+	}
+
+	private Mono<CardBalance> applyDelta(final Long id, final BigDecimal delta, final UUID requestId) {
+		return Mono.fromCallable(() -> CardBalance.toCents(delta))
+			.onErrorMap(ArithmeticException.class, e -> new InvalidInputException("Balance delta must have at most 2 decimal digits"))
+			.flatMap(cents -> ensureLoaded(id)
+				.then(onWriter(id, () -> commitIfLoaded(id, current -> current.isActive() && current.balanceCents() + cents >= 0
+						? current.withBalanceCents(current.balanceCents() + cents)
+						: null, requestId))))
+			.publishOn(Schedulers.parallel());
+	}
+
+	/**
+	 * Moves the amount from the sender to the recipient, unless a transfer with the same id was already received.
+	 *
+	 * @param transferId the idempotency key of the transfer, chosen by the caller
+	 * @return a Mono completing once the recipient is credited, or failing with {@link InvalidInputException}
+	 *         if the sender cannot be debited or the recipient credited, in which case no balance is changed
+	 */
+	public Mono<Void> transfer(final String transferId, final Long senderId, final Long recipientId, final BigDecimal amount) {
+		return applyOnce(transferId, requestId -> transfer(requestId, senderId, recipientId, amount));
+	}
+
+	/**
+	 * Runs the request unless one with the same id was already applied, or shares the outcome of the one in flight.
+	 */
+	private Mono<Void> applyOnce(final String id, final Function<UUID, Mono<Void>> request) {
+		final UUID requestId = JournalRecord.requestId(id);
+		return Mono.defer(() -> appliedRequests.getIfPresent(requestId) != null
+				? Mono.empty()
+				: transfersById.get(requestId, key -> request.apply(key)
+					.doOnError(e -> transfersById.invalidate(key))
+					.cache()));
+	}
+
+	private Mono<Void> transfer(final UUID requestId, final Long senderId, final Long recipientId, final BigDecimal amount) {
+		return Mono.fromCallable(() -> CardBalance.toCents(amount))
+			.onErrorMap(ArithmeticException.class, e -> new InvalidInputException("Transfer amount must have at most 2 decimal digits"))
+			.flatMap(cents -> ensureLoaded(senderId, recipientId)
+				.then(Mono.defer(() -> {
+					final CardBalance recipient = balances.get(recipientId);
+					if (recipient == null || !recipient.isActive()) {
+						return Mono.error(new InvalidInputException("Recipient card id: " + recipientId + " not found or blocked"));
+					}
+					final long transferId = transferIds.incrementAndGet();
+					return onWriter(senderId, () -> debit(senderId, cents, transferId, recipientId, requestId));
+				})))
+			.switchIfEmpty(Mono.error(() -> new InvalidInputException("Sender card id: " + senderId + " not found, blocked or insufficient balance")))
+			.flatMap(this::completeTransfer)
+			.flatMap(credited -> credited
+					? Mono.<Void> empty()
+					: Mono.error(new InvalidInputException("Recipient card id: " + recipientId + " not found or blocked")))
+			.publishOn(Schedulers.parallel());
+	}
+
+	/**
+	 * Writes the balances changed since the last snapshot to the database.
+	 */
+	public Mono<Void> flush() {
+		final List<Card> snapshot = unflushed.keySet().stream()
+			.map(balances::get)
+			.filter(Objects::nonNull)
+			.map(CardBalance::toSnapshot)
+			.toList();
+
+		return Flux.fromIterable(snapshot)
+			.buffer(properties.getSnapshotBatchSize())
+			.concatMap(batch -> convertUniToMono(repository.writeBalances(batch))
+				// A card changed again in the meantime stays unflushed
+				.then(Mono.fromRunnable(() -> batch.forEach(card -> unflushed.remove(card.getId(), card.getVersion())))))
+			.then();
+	}
+
+	/**
+	 * Rebuilds the balances of the cards in the journal on top of their last snapshot, starts a new journal generation
+	 * with them and completes the transfers left halfway.
+	 */
+	private Mono<Void> recover(final BalanceJournal.Content content) {
+		final Map<Long, JournalRecord> latest = new HashMap<>();
+		final Map<Long, JournalRecord> debits = new LinkedHashMap<>();
+		final Set<Long> completed = new HashSet<>();
+		long lastTransferId = 0;
+		for (final JournalRecord record : content.records()) {
+			if (record.type() == Type.REQUEST_ID) {
+				appliedRequests.put(record.requestId(), record);
+				continue;
+			}
+			latest.put(record.cardId(), record);
+			switch (record.type()) {
+				case DEBIT -> debits.put(record.transferId(), record);
+				case CREDIT, REFUND -> completed.add(record.transferId());
+				case SET, REQUEST_ID -> {
+					// Nothing to complete
+				}
+			}
+			retainRequestId(record);
+			lastTransferId = Math.max(lastTransferId, record.transferId());
+		}
+		transferIds.set(lastTransferId);
+		debits.keySet().removeAll(completed);
+
+		final Set<Long> ids = new HashSet<>(latest.keySet());
+		debits.values().forEach(debit -> ids.add(debit.counterpartyId()));
+
+		return (ids.isEmpty() ? Mono.just(List.<Card> of()) : convertUniToMono(repository.findAllByIds(ids, ReadConsistency.READ_YOUR_WRITES)))
+			.flatMap(cards -> Mono.fromCallable(() -> {
+				for (final Card card : cards) {
+					final JournalRecord record = latest.get(card.getId());
+					// A record older than the snapshot was carried over after the card had already been written
+					if (record != null && record.version() >= card.getVersion()) {
+						balances.put(card.getId(), record.toBalance(card.getStatus()));
+						unflushed.put(card.getId(), record.version());
+					} else {
+						balances.put(card.getId(), CardBalance.of(card));
+					}
+				}
+				pendingTransfers.putAll(debits);
+
+				final long generation = content.lastGeneration().orElse(0) + 1;
+				journal = BalanceJournal.create(journalDirectory, generation, (int) properties.getJournalSize().toBytes(),
+						properties.isForceOnAppend(), carriedRecords());
+				BalanceJournal.deleteOlderThan(journalDirectory, generation);
+				log.info("Balance engine recovered {} cards and {} transfer ids from the journal, completing {} transfers", latest.size(),
+						appliedRequests.estimatedSize(), debits.size());
+				return debits.values();
+			}))
+			.flatMapMany(Flux::fromIterable)
+			.concatMap(this::completeTransfer)
+			.then();
+	}
+
+	/**
+	 * Credits the recipient of a debited transfer, or refunds the sender if the recipient cannot be credited.
+	 *
+	 * @return a Mono emitting whether the recipient was credited
+	 */
+	private Mono<Boolean> completeTransfer(final JournalRecord debit) {
+		final Long recipientId = debit.counterpartyId();
+		final Long senderId = debit.cardId();
+		return onWriter(recipientId, () -> credit(recipientId, debit))
+			.flatMap(credited -> credited
+					? Mono.just(true)
+					: onWriter(senderId, () -> refund(senderId, debit)).thenReturn(false));
+	}
+
+	private JournalRecord debit(final Long id, final long cents, final long transferId, final long recipientId, final UUID requestId) {
+		final CardBalance current = balances.get(id);
+		if (current == null || !current.isActive() || current.balanceCents() < cents) {
+			return null;
+		}
+		final JournalRecord record = JournalRecord.transfer(Type.DEBIT, current.withBalanceCents(current.balanceCents() - cents), transferId,
+				recipientId, cents, requestId);
+		commit(record);
+		return record;
+	}
+
+	private Boolean credit(final Long id, final JournalRecord debit) {
+		final CardBalance current = balances.get(id);
+		if (current == null || !current.isActive()) {
+			return false;
+		}
+		commit(JournalRecord.transfer(Type.CREDIT, current.withBalanceCents(current.balanceCents() + debit.amountCents()), debit.transferId(),
+				debit.cardId(), debit.amountCents(), debit.requestId()));
+		return true;
+	}
+
+	private Boolean refund(final Long id, final JournalRecord debit) {
+		final CardBalance current = balances.get(id);
+		if (current == null) {
+			log.error("Cannot refund transfer {} of {} cents, sender card {} not found", debit.transferId(), debit.amountCents(), id);
+			return false;
+		}
+		commit(JournalRecord.transfer(Type.REFUND, current.withBalanceCents(current.balanceCents() + debit.amountCents()), debit.transferId(),
+				debit.counterpartyId(), debit.amountCents(), debit.requestId()));
+		return true;
+	}
+
+	private CardBalance commitIfLoaded(final Long id, final UnaryOperator<CardBalance> change) {
+		return commitIfLoaded(id, change, null);
+	}
+
+	private CardBalance commitIfLoaded(final Long id, final UnaryOperator<CardBalance> change, final UUID requestId) {
+		final CardBalance current = balances.get(id);
+		final CardBalance updated = current == null ? null : change.apply(current);
+		if (updated != null) {
+			commit(JournalRecord.set(updated, requestId));
+		}
+		return updated;
+	}
+
+	/**
+	 * Appends the record, then applies it. Runs on the writer of the card.
+	 */
+	private void commit(final JournalRecord record) {
+		while (true) {
+			final Lock appendLock = journalLock.readLock();
+			appendLock.lock();
+			try {
+				if (journal.append(record)) {
+					final CardBalance current = balances.get(record.cardId());
+					balances.put(record.cardId(), record.toBalance(current.status()));
+					unflushed.put(record.cardId(), record.version());
+					switch (record.type()) {
+						case DEBIT -> pendingTransfers.put(record.transferId(), record);
+						case CREDIT, REFUND -> pendingTransfers.remove(record.transferId());
+						case SET, REQUEST_ID -> {
+							// Not part of a transfer
+						}
+					}
+					retainRequestId(record);
+					return;
+				}
+			} finally {
+				appendLock.unlock();
+			}
+			roll();
+		}
+	}
+
+	/**
+	 * Remembers the request id of a record completing a request: the credit of a transfer or the change of a transfer leg.
+	 */
+	private void retainRequestId(final JournalRecord record) {
+		if (record.requestId() != null && (record.type() == Type.CREDIT || record.type() == Type.SET)) {
+			appliedRequests.put(record.requestId(), JournalRecord.requestId(record));
+		}
+	}
+
+	/**
+	 * Replaces the full journal with the next generation, carrying the changes not yet in the database.
+	 */
+	private void roll() {
+		final Lock rollLock = journalLock.writeLock();
+		rollLock.lock();
+		try {
+			final BalanceJournal full = journal;
+			if (!full.isFull()) {
+				return; // Rolled by another writer
+			}
+			journal = BalanceJournal.create(journalDirectory, full.getGeneration() + 1, (int) properties.getJournalSize().toBytes(),
+					properties.isForceOnAppend(), carriedRecords());
+			full.close();
+			BalanceJournal.deleteOlderThan(journalDirectory, journal.getGeneration());
+			log.debug("Rolled the balance journal to generation {}", journal.getGeneration());
+		} catch (final IOException e) {
+			throw new UncheckedIOException("Could not roll the balance journal", e);
+		} finally {
+			rollLock.unlock();
+		}
+	}
+
+	/**
+	 * The records a new journal generation starts with: the pending transfers and the request ids of the credited ones,
+	 * then the balances not yet in the database, which are newer than the balances the pending debits carry.
+	 */
+	private List<JournalRecord> carriedRecords() {
+		final List<JournalRecord> carried = new ArrayList<>(pendingTransfers.values());
+		carried.addAll(appliedRequests.asMap().values());
+		unflushed.keySet().stream()
+			.map(balances::get)
+			.filter(Objects::nonNull)
+			.map(JournalRecord::set)
+			.forEach(carried::add);
+		return carried;
+	}
+
+	/**
+	 * Loads the given cards in the engine, if not loaded yet.
+	 */
+	private Mono<Void> ensureLoaded(final Long... ids) {
+		final List<Long> missing = Stream.of(ids).filter(id -> !balances.containsKey(id)).distinct().toList();
+		if (missing.isEmpty()) {
+			return Mono.empty();
+		}
+		return convertUniToMono(repository.findAllByIds(missing, ReadConsistency.READ_YOUR_WRITES))
+			.flatMapMany(Flux::fromIterable)
+			// The database is only stale for the cards already loaded, which are kept
+			.flatMap(card -> onWriter(card.getId(), () -> balances.putIfAbsent(card.getId(), CardBalance.of(card))))
+			.then();
+	}
+
+	private <T> Mono<T> onWriter(final Long id, final Callable<T> task) {
+		return Mono.fromCallable(task)
+			.subscribeOn(writers[Math.floorMod(Long.hashCode(id), writers.length)]);
+	}
+
+}
@@ -0,0 +1,182 @@
+package com.virtualcard.cardservice.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Memory-mapped, append-only file of fixed size {@link JournalRecord}s.
+ *
+ * Appends reserve their slot with an atomic increment and write it with an absolute put, so concurrent writers never
+ * wait for each other. A write is in the page cache, and survives a crash of the process, as soon as the put returns;
+ * it is also forced to the device before returning when {@code force} is set.
+ *
+ * When a journal is full it is replaced by the next generation, a new file starting with the records still needed
+ * to recover the current state. Older generations are deleted once the new one is forced to the device.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+public class BalanceJournal implements Closeable {
+
+	private static final Pattern FILE_NAME = Pattern.compile("balances-(\\d+)\\.journal");
+	// Largest whole number of records a single mapping can hold
+	private static final int MAX_CAPACITY = Integer.MAX_VALUE - Integer.MAX_VALUE % JournalRecord.SIZE;
+
+	private final long generation;
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final int capacity;
+	private final boolean force;
+
+	// Offset of the next free slot, it may grow past the capacity while appends find the journal full
+	private final AtomicInteger position = new AtomicInteger();
+
+	private BalanceJournal(final long generation, final FileChannel channel, final MappedByteBuffer buffer, final int capacity,
+			final boolean force) {
+		this.generation = generation;
+		this.channel = channel;
+		this.buffer = buffer;
+		this.capacity = capacity;
+		this.force = force;
+	}
+
+	/**
+	 * Creates the journal of the given generation starting with the carried records, forced to the device before returning.
+	 *
+	 * A journal the carried records would fill more than half of is grown to twice their size, so that it is not full
+	 * again after a few appends while the database catches up with the balances.
+	 *
+	 * @param size the size of the file, rounded down to a whole number of records
+	 * @throws IllegalStateException if the carried records do not fit in the largest journal
+	 */
+	public static BalanceJournal create(final Path directory, final long generation, final int size, final boolean force,
+			final Collection<JournalRecord> carried) throws IOException {
+		final int capacity = capacity(size, carried.size());
+		Files.createDirectories(directory);
+		final Path file = directory.resolve(fileName(generation));
+		final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		final BalanceJournal journal = new BalanceJournal(generation, channel, channel.map(MapMode.READ_WRITE, 0, capacity), capacity, force);
+		for (final JournalRecord record : carried) {
+			journal.write(journal.position.getAndAdd(JournalRecord.SIZE), record);
+		}
+		journal.buffer.force();
+		return journal;
+	}
+
+	/**
+	 * Reads the valid records of every generation in the directory, oldest generation first and in append order within
+	 * a generation. Slots never written or torn by a crash are skipped.
+	 */
+	public static Content read(final Path directory) throws IOException {
+		final List<Long> generations = generations(directory);
+		final List<JournalRecord> records = new ArrayList<>();
+		final byte[] slot = new byte[JournalRecord.SIZE];
+		for (final long generation : generations) {
+			try (FileChannel channel = FileChannel.open(directory.resolve(fileName(generation)), StandardOpenOption.READ)) {
+				final MappedByteBuffer mapped = channel.map(MapMode.READ_ONLY, 0, channel.size());
+				for (int offset = 0; offset + JournalRecord.SIZE <= mapped.capacity(); offset += JournalRecord.SIZE) {
+					mapped.get(offset, slot);
+					JournalRecord.decode(slot).ifPresent(records::add);
+				}
+			}
+		}
+		return new Content(generations.isEmpty() ? OptionalLong.empty() : OptionalLong.of(generations.getLast()), records);
+	}
+
+	/**
+	 * Deletes the generations older than the given one.
+	 */
+	public static void deleteOlderThan(final Path directory, final long generation) throws IOException {
+		for (final long older : generations(directory)) {
+			if (older < generation) {
+				Files.deleteIfExists(directory.resolve(fileName(older)));
+			}
+		}
+	}
+
+	/**
+	 * @return false, without writing anything, if the journal is full
+	 */
+	public boolean append(final JournalRecord record) {
+		final int offset = position.getAndAdd(JournalRecord.SIZE);
+		if (offset + JournalRecord.SIZE > capacity) {
+			return false;
+		}
+		write(offset, record);
+		if (force) {
+			buffer.force(offset, JournalRecord.SIZE);
+		}
+		return true;
+	}
+
+	public boolean isFull() {
+		return position.get() + JournalRecord.SIZE > capacity;
+	}
+
+	public long getGeneration() {
+		return generation;
+	}
+
+	@Override
+	public void close() throws IOException {
+		buffer.force();
+		channel.close();
+	}
+
+	private static int capacity(final int size, final int carried) {
+		final long carriedBytes = (long) carried * JournalRecord.SIZE;
+		if (carriedBytes >= MAX_CAPACITY) {
+			throw new IllegalStateException("No balance journal can hold the " + carried + " records to carry");
+		}
+		final long capacity = Math.max(size - size % JournalRecord.SIZE, 2 * carriedBytes);
+		return (int) Math.min(capacity, MAX_CAPACITY);
+	}
+
+	private void write(final int offset, final JournalRecord record) {
+		buffer.put(offset, record.encode());
+	}
+
+	private static List<Long> generations(final Path directory) throws IOException {
+		if (!Files.isDirectory(directory)) {
+			return List.of();
+		}
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.map(file -> FILE_NAME.matcher(file.getFileName().toString()))
+				.filter(Matcher::matches)
+				.map(matcher -> Long.parseLong(matcher.group(1)))
+				.sorted(Comparator.naturalOrder())
+				.toList();
+		}
+	}
+
+	private static String fileName(final long generation) {
+		return "balances-" + generation + ".journal";
+	}
+
+	/**
+	 * The records read from a journal directory.
+	 *
+	 * @param lastGeneration the newest generation found, empty if none
+	 * @param records        the valid records, in the order they must be replayed
+	 */
+	public record Content(OptionalLong lastGeneration, List<JournalRecord> records) {
+	}
+
+}
@@ -0,0 +1,62 @@
+package com.virtualcard.cardservice.engine;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import com.virtualcard.cardservice.entity.Card;
+import com.virtualcard.common.dto.CardDTO;
+import com.virtualcard.common.enums.CardStatus;
+
+/**
+ * Balance of a card held by the {@link BalanceEngine}, in cents, with the version it will be written to the database with.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+public record CardBalance(Long id, CardStatus status, long balanceCents, int version) {
+
+	public static CardBalance of(final Card card) {
+		return new CardBalance(card.getId(), card.getStatus(), toCents(card.getTotalBalance()), card.getVersion());
+	}
+
+	/**
+	 * @throws ArithmeticException if the amount has more than 2 decimal digits or does not fit in a long
+	 */
+	public static long toCents(final BigDecimal amount) {
+		return amount.setScale(2, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+	}
+
+	public BigDecimal balance() {
+		return BigDecimal.valueOf(balanceCents, 2);
+	}
+
+	public boolean isActive() {
+		return status == CardStatus.ACTIVE;
+	}
+
+	public CardBalance withBalanceCents(final long newBalanceCents) {
+		return new CardBalance(id, status, newBalanceCents, version + 1);
+	}
+
+	/**
+	 * @return a copy of the card with this balance and version, the given card may be cached and is never changed
+	 */
+	public CardDTO applyTo(final CardDTO card) {
+		return new CardDTO(card.getId(), card.getUserId(), card.getCode(), balance(), card.getCreatedAt(), card.getStatus(), version,
+				card.getCvc(), card.getExpirationDate());
+	}
+
+	/**
+	 * @return a detached card carrying only the id, balance and version to write to the database
+	 */
+	public Card toSnapshot() {
+		final Card card = new Card();
+		card.setId(id);
+		card.setBalance(balance());
+		card.setVersion(version);
+		return card;
+	}
+
+}
@@ -0,0 +1,143 @@
+package com.virtualcard.cardservice.engine;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+import com.virtualcard.common.enums.CardStatus;
+
+/**
+ * A change of balance appended to the {@link BalanceJournal}, carrying the state of the card after the change.
+ *
+ * Replaying the records of a card in order therefore gives its latest balance whatever the records already applied.
+ * The records of a transfer also carry its id, so that a transfer debited but neither credited nor refunded
+ * can be completed after a crash, and the id its caller chose, so that a transfer sent again after a restart
+ * is still applied only once. The change of a transfer leg carries the id of the leg for the same reason.
+ *
+ * Records have a fixed size and start with the CRC32C of the rest of the record, a torn or missing write
+ * never passes the checksum.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+public record JournalRecord(Type type, long cardId, long balanceCents, int version, long transferId, long counterpartyId,
+		long amountCents, UUID requestId) {
+
+	public enum Type {
+		// Balance set or changed outside of a transfer
+		SET,
+		// Sender side of a transfer, the counterparty is the recipient
+		DEBIT,
+		// Recipient side of a transfer, the counterparty is the sender
+		CREDIT,
+		// Amount of a transfer given back to the sender when the recipient cannot be credited
+		REFUND,
+		// Request id of a transfer or transfer leg applied in an older generation of the journal, carries no balance
+		REQUEST_ID
+	}
+
+	public static final int SIZE = 80;
+
+	private static final int CHECKSUM_OFFSET = 0;
+	private static final int BODY_OFFSET = Integer.BYTES;
+	private static final int BODY_LENGTH = 1 + 4 * Long.BYTES + Integer.BYTES + 4 * Long.BYTES;
+
+	public static JournalRecord set(final CardBalance balance) {
+		return set(balance, null);
+	}
+
+	/**
+	 * @param requestId the id chosen by the caller of a transfer leg, {@code null} for any other change
+	 */
+	public static JournalRecord set(final CardBalance balance, final UUID requestId) {
+		return new JournalRecord(Type.SET, balance.id(), balance.balanceCents(), balance.version(), 0, 0, 0, requestId);
+	}
+
+	public static JournalRecord transfer(final Type type, final CardBalance balance, final long transferId, final long counterpartyId,
+			final long amountCents) {
+		return transfer(type, balance, transferId, counterpartyId, amountCents, null);
+	}
+
+	/**
+	 * @param requestId the id chosen by the caller of the transfer, {@code null} for a transfer resumed without one
+	 */
+	public static JournalRecord transfer(final Type type, final CardBalance balance, final long transferId, final long counterpartyId,
+			final long amountCents, final UUID requestId) {
+		return new JournalRecord(type, balance.id(), balance.balanceCents(), balance.version(), transferId, counterpartyId, amountCents,
+				requestId);
+	}
+
+	/**
+	 * @return the record keeping the request id of the given transfer record once the transfer itself is no longer carried
+	 */
+	public static JournalRecord requestId(final JournalRecord transfer) {
+		return new JournalRecord(Type.REQUEST_ID, transfer.cardId(), 0, 0, transfer.transferId(), transfer.counterpartyId(),
+				transfer.amountCents(), transfer.requestId());
+	}
+
+	/**
+	 * @return the request id a transfer id chosen by a caller is journaled as
+	 */
+	public static UUID requestId(final String transferId) {
+		return UUID.nameUUIDFromBytes(transferId.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public byte[] encode() {
+		final ByteBuffer buffer = ByteBuffer.allocate(SIZE);
+		buffer.position(BODY_OFFSET)
+			.put((byte) (type.ordinal() + 1))
+			.putLong(cardId)
+			.putLong(balanceCents)
+			.putInt(version)
+			.putLong(transferId)
+			.putLong(counterpartyId)
+			.putLong(amountCents)
+			// A name based UUID is never all zeros
+			.putLong(requestId == null ? 0 : requestId.getMostSignificantBits())
+			.putLong(requestId == null ? 0 : requestId.getLeastSignificantBits());
+		buffer.putInt(CHECKSUM_OFFSET, checksum(buffer.array()));
+		return buffer.array();
+	}
+
+	/**
+	 * @param record the {@value #SIZE} bytes of a record
+	 * @return the record, or empty if the bytes were never written or do not match their checksum
+	 */
+	public static Optional<JournalRecord> decode(final byte[] record) {
+		final ByteBuffer buffer = ByteBuffer.wrap(record);
+		final byte type = buffer.get(BODY_OFFSET);
+		if (type < 1 || type > Type.values().length || buffer.getInt(CHECKSUM_OFFSET) != checksum(record)) {
+			return Optional.empty();
+		}
+		buffer.position(BODY_OFFSET + 1);
+		final Type recordType = Type.values()[type - 1];
+		final long cardId = buffer.getLong();
+		final long balanceCents = buffer.getLong();
+		final int version = buffer.getInt();
+		final long transferId = buffer.getLong();
+		final long counterpartyId = buffer.getLong();
+		final long amountCents = buffer.getLong();
+		final long requestIdHigh = buffer.getLong();
+		final long requestIdLow = buffer.getLong();
+		final UUID requestId = requestIdHigh == 0 && requestIdLow == 0 ? null : new UUID(requestIdHigh, requestIdLow);
+		return Optional.of(new JournalRecord(recordType, cardId, balanceCents, version, transferId, counterpartyId, amountCents, requestId));
+	}
+
+	/**
+	 * @return the balance of the card after this record, with the given status
+	 */
+	public CardBalance toBalance(final CardStatus status) {
+		return new CardBalance(cardId, status, balanceCents, version);
+	}
+
+	private static int checksum(final byte[] record) {
+		final CRC32C crc = new CRC32C();
+		crc.update(record, BODY_OFFSET, BODY_LENGTH);
+		return (int) crc.getValue();
+	}
+
+}
@@ -19,7 +19,9 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import jakarta.persistence.Version;
 
 /**
@@ -35,8 +37,14 @@ import jakarta.persistence.Version;
 @NoArgsConstructor
 public class Card implements BaseEntity {
 
+	public static final String ID_SEQUENCE = "cards_seq";
+	// Must match id-generation.allocation-sizes and the increment of the sequence, checked at startup
+	public static final int ID_ALLOCATION_SIZE = 50;
+
+	// Ids allocated in blocks from a sequence rather than by the insert, so the inserts can be batched
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+	@SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
 	private Long id;
 
 	@Column(name = "user_id", nullable = false)
@@ -64,6 +72,21 @@ public class Card implements BaseEntity {
 	@Column(name = "expiration_date")
 	private YearMonth expirationDate;
 
+	// Number of CardBalanceSlot rows the credits of the card are spread over, 0 when they go to the card row
+	@Column(name = "balance_slots", nullable = false)
+	private int balanceSlots;
+
+	// Sum of the balance slots, loaded along with the card when it has any
+	@Transient
+	private BigDecimal slotBalance = BigDecimal.ZERO;
+
+	/**
+	 * @return the balance of the card including its balance slots
+	 */
+	public BigDecimal getTotalBalance() {
+		return slotBalance == null ? balance : balance.add(slotBalance);
+	}
+
 	@PrePersist
 	public void prePersist() {
 		if (status == null) {
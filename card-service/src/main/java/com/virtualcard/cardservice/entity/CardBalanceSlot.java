@@ -0,0 +1,61 @@
+package com.virtualcard.cardservice.entity;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+import com.virtualcard.common.springdata.entity.BaseEntity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+/**
+ * A share of the balance of a card whose balance is split over {@link Card#getBalanceSlots()} rows.
+ *
+ * Credits to such a card go to a random slot instead of the card row, so concurrent credits rarely wait on the same
+ * row lock, and debits draw from any slot that covers them. The balance of the card is its own balance plus the sum
+ * of its slots, until the slots are consolidated back into the card.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+@Entity
+@Table(name = "card_balance_slots")
+@IdClass(CardBalanceSlot.SlotId.class)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CardBalanceSlot implements BaseEntity {
+
+	@Id
+	@Column(name = "card_id", nullable = false)
+	private Long cardId;
+
+	@Id
+	@Column(name = "slot", nullable = false)
+	private Integer slot;
+
+	@Column(name = "balance", nullable = false, precision = 15, scale = 2)
+	private BigDecimal balance;
+
+	@Data
+	@AllArgsConstructor
+	@NoArgsConstructor
+	public static class SlotId implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private Long cardId;
+		private Integer slot;
+
+	}
+
+}
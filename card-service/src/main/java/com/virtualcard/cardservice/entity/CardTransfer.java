@@ -0,0 +1,53 @@
+package com.virtualcard.cardservice.entity;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import com.virtualcard.common.springdata.entity.BaseEntity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * A transfer applied by card-service, keyed by the id chosen by its caller.
+ *
+ * The row is inserted in the same database transaction as the transfer, so a transfer sent again with the same id
+ * finds it and is not applied twice.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         20 set 2025
+ *
+ */
+@Entity
+@Table(name = "card_transfers")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CardTransfer implements BaseEntity {
+
+	public static final int MAX_ID_LENGTH = 64;
+
+	@Id
+	@Column(name = "id", nullable = false, length = MAX_ID_LENGTH)
+	private String id;
+
+	@Column(name = "sender_card_id", nullable = false)
+	private Long senderCardId;
+
+	@Column(name = "recipient_card_id", nullable = false)
+	private Long recipientCardId;
+
+	@Column(name = "amount", nullable = false, precision = 15, scale = 2)
+	private BigDecimal amount;
+
+	@Column(name = "created_at", nullable = false)
+	private Instant createdAt;
+
+}
@@ -0,0 +1,244 @@
+package com.virtualcard.cardservice.lane;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import org.springframework.stereotype.Component;
+
+import com.virtualcard.cardservice.configuration.CardWriteLaneProperties;
+import com.virtualcard.common.error.RateLimitExceededException;
+
+import lombok.extern.log4j.Log4j2;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * Runs the mutations of each card one at a time, in the order they were submitted.
+ *
+ * Cards are spread by id over a fixed number of lanes, each a bounded queue drained by its own virtual thread which
+ * waits for a mutation to complete before starting the next one. Two writes to the same card therefore never race
+ * at the database, while cards on different lanes are written in parallel. A mutation submitted to a full lane
+ * is rejected at once, so that callers back off instead of piling up behind a hot card. A mutation writing two cards
+ * holds the lanes of both, always taken in ascending lane order so that two such mutations cannot wait for each other.
+ *
+ * A mutation exceeding the timeout fails its caller, but the lane does not start the next mutation until it has
+ * actually completed, since the two could still race: meanwhile the lane is stalled and the mutations waiting in it,
+ * or submitted to it, are rejected.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+@Log4j2
+@Component
+public class CardWriteLanes {
+
+	private final Lane[] lanes;
+	private final Duration mutationTimeout;
+	private final Counter rejected;
+	private volatile boolean stopped;
+
+	public CardWriteLanes(final CardWriteLaneProperties properties, final MeterRegistry meterRegistry) {
+		if (properties.getLanes() < 1 || properties.getQueueCapacity() < 1) {
+			throw new IllegalArgumentException("Card write lanes and their queue capacity must be at least 1");
+		}
+		this.mutationTimeout = properties.getMutationTimeout();
+		this.lanes = IntStream.range(0, properties.getLanes())
+			.mapToObj(index -> new Lane(index, properties.getQueueCapacity()))
+			.toArray(Lane[]::new);
+
+		for (final Lane lane : lanes) {
+			Gauge.builder("cards.write-lanes.depth", lane.queue, BlockingQueue::size)
+				.description("Card mutations waiting in the lane")
+				.tag("lane", String.valueOf(lane.index))
+				.register(meterRegistry);
+		}
+		this.rejected = Counter.builder("cards.write-lanes.rejected")
+			.description("Card mutations rejected because their lane was full or stalled")
+			.register(meterRegistry);
+	}
+
+	/**
+	 * Runs the mutation on the lane of the card, once the mutations submitted before it on the same lane have completed.
+	 *
+	 * @param cardId   the card the mutation writes, the lane is chosen from it
+	 * @param mutation creates the mutation to run, called on the lane only when the mutation starts
+	 * @return a Mono emitting the outcome of the mutation, failing with {@link RateLimitExceededException} if the lane is
+	 *         full or stalled, or with {@link TimeoutException} if the mutation does not complete within the timeout
+	 */
+	public <T> Mono<T> submit(final Long cardId, final Supplier<Mono<T>> mutation) {
+		return submit(laneOf(cardId), cardId, mutation);
+	}
+
+	/**
+	 * Runs a mutation writing two cards once it holds the lanes of both, the lower lane waiting for the higher one.
+	 *
+	 * @param firstCardId  one of the cards the mutation writes
+	 * @param secondCardId the other card the mutation writes
+	 * @param mutation     creates the mutation to run, called on the higher lane only when the mutation starts
+	 * @return a Mono emitting the outcome of the mutation, failing as {@link #submit(Long, Supplier)} does on either lane
+	 */
+	public <T> Mono<T> submit(final Long firstCardId, final Long secondCardId, final Supplier<Mono<T>> mutation) {
+		final Lane first = laneOf(firstCardId);
+		final Lane second = laneOf(secondCardId);
+		if (first == second) {
+			return submit(first, firstCardId, mutation);
+		}
+		final boolean ascending = first.index < second.index;
+		final Lane lower = ascending ? first : second;
+		final Long higherCardId = ascending ? secondCardId : firstCardId;
+		// The lower lane waits for the mutation to run on the higher one, which never waits on a lower lane
+		return submit(lower, ascending ? firstCardId : secondCardId, () -> submit(laneOf(higherCardId), higherCardId, mutation));
+	}
+
+	/**
+	 * @return the mutations waiting in the lane of the card
+	 */
+	public int depthOf(final Long cardId) {
+		return laneOf(cardId).queue.size();
+	}
+
+	@PreDestroy
+	public void stop() {
+		stopped = true;
+		for (final Lane lane : lanes) {
+			lane.thread.interrupt();
+		}
+		for (final Lane lane : lanes) {
+			lane.failQueued(new IllegalStateException("Card write lanes stopped"));
+		}
+	}
+
+	private Lane laneOf(final Long cardId) {
+		return lanes[Math.floorMod(Long.hashCode(cardId), lanes.length)];
+	}
+
+	private <T> Mono<T> submit(final Lane lane, final Long cardId, final Supplier<Mono<T>> mutation) {
+		return Mono.create(sink -> {
+			final Task<T> task = new Task<>(mutation, sink);
+			sink.onCancel(() -> task.cancelled.set(true));
+			if (stopped) {
+				sink.error(new IllegalStateException("Card write lanes stopped"));
+			} else if (lane.stalled || !lane.queue.offer(task)) {
+				rejected.increment();
+				sink.error(new RateLimitExceededException("Too many pending changes for card " + cardId + ", retry later"));
+			} else if (stopped && lane.queue.remove(task)) {
+				// Stopped while the task was being queued, after the queue was emptied
+				sink.error(new IllegalStateException("Card write lanes stopped"));
+			}
+		});
+	}
+
+	private final class Lane {
+
+		private final int index;
+		private final BlockingQueue<Task<?>> queue;
+		private final Thread thread;
+		// Set while the lane waits for a mutation that exceeded the timeout
+		private volatile boolean stalled;
+
+		private Lane(final int index, final int capacity) {
+			this.index = index;
+			this.queue = new ArrayBlockingQueue<>(capacity);
+			this.thread = Thread.ofVirtual()
+				.name("card-write-lane-" + index)
+				.start(this::drain);
+		}
+
+		private void drain() {
+			try {
+				while (!Thread.currentThread().isInterrupted()) {
+					run(queue.take());
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			log.debug("Card write lane {} stopped with {} pending mutations", index, queue.size());
+		}
+
+		/**
+		 * Runs the mutation and waits for it to complete, the lane being a virtual thread.
+		 */
+		private <T> void run(final Task<T> task) throws InterruptedException {
+			if (task.cancelled.get()) {
+				return;
+			}
+			final CompletableFuture<T> future;
+			try {
+				future = Mono.defer(task.mutation).toFuture();
+			} catch (final RuntimeException e) {
+				task.sink.error(e);
+				return;
+			}
+			try {
+				task.complete(future.get(mutationTimeout.toMillis(), TimeUnit.MILLISECONDS));
+			} catch (final ExecutionException e) {
+				task.sink.error(e.getCause());
+			} catch (final TimeoutException e) {
+				task.sink.error(new TimeoutException("Card mutation did not complete within " + mutationTimeout));
+				awaitOverdue(future);
+			} catch (final InterruptedException e) {
+				task.sink.error(new IllegalStateException("Card write lanes stopped"));
+				throw e;
+			}
+		}
+
+		/**
+		 * Waits for a mutation that exceeded the timeout, rejecting the mutations of the lane meanwhile.
+		 */
+		private void awaitOverdue(final Future<?> future) throws InterruptedException {
+			log.warn("Card write lane {} stalled on a mutation running for more than {}", index, mutationTimeout);
+			stalled = true;
+			try {
+				failQueued(new RateLimitExceededException("Card write lane stalled on a mutation that timed out, retry later"));
+				future.get();
+			} catch (final ExecutionException e) {
+				// The caller already failed on the timeout
+			} finally {
+				stalled = false;
+			}
+			log.info("Card write lane {} resumed", index);
+		}
+
+		private void failQueued(final RuntimeException error) {
+			final List<Task<?>> pending = new ArrayList<>();
+			queue.drainTo(pending);
+			pending.forEach(task -> task.sink.error(error));
+		}
+
+	}
+
+	private record Task<T>(Supplier<Mono<T>> mutation, MonoSink<T> sink, AtomicBoolean cancelled) {
+
+		private Task(final Supplier<Mono<T>> mutation, final MonoSink<T> sink) {
+			this(mutation, sink, new AtomicBoolean());
+		}
+
+		private void complete(final T result) {
+			if (result == null) {
+				sink.success();
+			} else {
+				sink.success(result);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,134 @@
+package com.virtualcard.cardservice.loader;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import lombok.extern.log4j.Log4j2;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Coalesces single-key lookups into batched ones, in the style of a DataLoader.
+ *
+ * Keys requested within the same window are resolved together by one call to the batch function, or as soon as
+ * the batch reaches its maximum size. Concurrent requests for a key whose lookup is still pending or running
+ * share that lookup instead of starting a new one.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ *
+ * @author Lorenzo Leccese
+ *
+ *         17 set 2025
+ *
+ */
+@Log4j2
+public class BatchLoader<K, V> {
+
+	private final Function<Set<K>, Mono<Map<K, V>>> batchFunction;
+	private final long windowNanos;
+	private final int maxBatchSize;
+	private final Scheduler scheduler;
+
+	// Both guarded by this
+	private final Map<K, Mono<V>> inFlight = new HashMap<>();
+	private Map<K, Sinks.One<V>> pending = new HashMap<>();
+
+	public BatchLoader(final Function<Set<K>, Mono<Map<K, V>>> batchFunction, final Duration window, final int maxBatchSize) {
+		this(batchFunction, window, maxBatchSize, Schedulers.parallel());
+	}
+
+	public BatchLoader(final Function<Set<K>, Mono<Map<K, V>>> batchFunction, final Duration window, final int maxBatchSize,
+			final Scheduler scheduler) {
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("Max batch size must be at least 1");
+		}
+		this.batchFunction = batchFunction;
+		this.windowNanos = window.toNanos();
+		this.maxBatchSize = maxBatchSize;
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Loads the value of a key as part of the next batch.
+	 *
+	 * @param key the key to look up
+	 * @return a Mono emitting the value, or completing empty if the batch function did not return the key
+	 */
+	public Mono<V> load(final K key) {
+		return Mono.defer(() -> {
+			final Mono<V> result;
+			Map<K, Sinks.One<V>> full = null;
+
+			synchronized (this) {
+				final Mono<V> shared = inFlight.get(key);
+				if (shared != null) {
+					return shared;
+				}
+				final Sinks.One<V> sink = Sinks.one();
+				result = sink.asMono();
+				inFlight.put(key, result);
+				pending.put(key, sink);
+
+				if (pending.size() >= maxBatchSize) {
+					full = pending;
+					pending = new HashMap<>();
+				} else if (pending.size() == 1) {
+					final Map<K, Sinks.One<V>> batch = pending;
+					scheduler.schedule(() -> dispatchIfPending(batch), windowNanos, TimeUnit.NANOSECONDS);
+				}
+			}
+
+			if (full != null) {
+				dispatch(full);
+			}
+			return result;
+		});
+	}
+
+	private void dispatchIfPending(final Map<K, Sinks.One<V>> batch) {
+		synchronized (this) {
+			// Already dispatched because it filled up before the window elapsed
+			if (pending != batch) {
+				return;
+			}
+			pending = new HashMap<>();
+		}
+		dispatch(batch);
+	}
+
+	private void dispatch(final Map<K, Sinks.One<V>> batch) {
+		log.debug("Loading a batch of {} keys", batch.size());
+		Mono.defer(() -> batchFunction.apply(Set.copyOf(batch.keySet())))
+			.defaultIfEmpty(Map.of())
+			.subscribe(
+					values -> complete(batch, values, null),
+					error -> complete(batch, null, error));
+	}
+
+	private void complete(final Map<K, Sinks.One<V>> batch, final Map<K, V> values, final Throwable error) {
+		synchronized (this) {
+			batch.keySet().forEach(inFlight::remove);
+		}
+		batch.forEach((key, sink) -> {
+			if (error != null) {
+				sink.tryEmitError(error);
+				return;
+			}
+			final V value = values.get(key);
+			if (value == null) {
+				sink.tryEmitEmpty();
+			} else {
+				sink.tryEmitValue(value);
+			}
+		});
+	}
+
+}
@@ -0,0 +1,76 @@
+package com.virtualcard.cardservice.loader;
+
+import static com.virtualcard.common.converter.VertxWebFluxConverter.convertUniToMono;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.springframework.stereotype.Component;
+
+import com.virtualcard.cardservice.cache.CardCache;
+import com.virtualcard.cardservice.configuration.CardLoaderProperties;
+import com.virtualcard.cardservice.entity.Card;
+import com.virtualcard.cardservice.mapper.CardMapper;
+import com.virtualcard.cardservice.repository.ReactiveCardRepository;
+import com.virtualcard.common.dto.CardDTO;
+import com.virtualcard.common.springdata.repository.ReadConsistency;
+
+import io.smallrye.mutiny.Uni;
+import reactor.core.publisher.Mono;
+
+/**
+ * Batched card lookups by code and by id, each batch resolved with a single {@code IN} query.
+ * Every card read from the database is offered to the near cache.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         17 set 2025
+ *
+ */
+@Component
+public class CardLoader {
+
+	private final CardMapper mapper;
+	private final CardCache cardCache;
+
+	private final BatchLoader<String, CardDTO> byCode;
+	private final BatchLoader<Long, CardDTO> byId;
+
+	public CardLoader(final ReactiveCardRepository repository, final CardMapper mapper, final CardCache cardCache,
+			final CardLoaderProperties properties) {
+		this.mapper = mapper;
+		this.cardCache = cardCache;
+		// Read from the replica: a lagging card is never cached over a newer version nor over a recent invalidation
+		this.byCode = new BatchLoader<>(codes -> loadAll(codes, keys -> repository.findAllByCodes(keys, ReadConsistency.LAG_TOLERANT), CardDTO::getCode),
+				properties.getBatchWindow(), properties.getMaxBatchSize());
+		this.byId = new BatchLoader<>(ids -> loadAll(ids, keys -> repository.findAllByIds(keys, ReadConsistency.LAG_TOLERANT), CardDTO::getId),
+				properties.getBatchWindow(), properties.getMaxBatchSize());
+	}
+
+	public Mono<CardDTO> findByCode(final String code) {
+		return byCode.load(code);
+	}
+
+	public Mono<CardDTO> findById(final Long id) {
+		return byId.load(id);
+	}
+
+	private <K> Mono<Map<K, CardDTO>> loadAll(final Set<K> keys, final Function<Collection<K>, Uni<List<Card>>> query,
+			final Function<CardDTO, K> keyExtractor) {
+		return convertUniToMono(query.apply(keys))
+			.map(cards -> {
+				final Map<K, CardDTO> loaded = new HashMap<>(cards.size());
+				for (final Card card : cards) {
+					final CardDTO dto = mapper.entityToDTO(card);
+					cardCache.put(dto, CardCache.LAGGING);
+					loaded.put(keyExtractor.apply(dto), dto);
+				}
+				return loaded;
+			});
+	}
+
+}
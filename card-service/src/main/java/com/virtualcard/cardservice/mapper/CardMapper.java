@@ -1,6 +1,8 @@
 package com.virtualcard.cardservice.mapper;
 
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.Mappings;
 
 import com.virtualcard.cardservice.entity.Card;
 import com.virtualcard.common.dto.CardDTO;
@@ -14,4 +16,19 @@ import com.virtualcard.common.mapper.EntityMapper;
  */
 @Mapper(componentModel = "spring")
 public interface CardMapper extends EntityMapper<CardDTO, Card> {
+
+	@Override
+	@Mappings({
+			@Mapping(target = "balance", source = "totalBalance")
+	})
+	CardDTO entityToDTO(Card entity);
+
+	@Override
+	@Mappings({
+			@Mapping(target = "id", ignore = true),
+			@Mapping(target = "balanceSlots", ignore = true),
+			@Mapping(target = "slotBalance", ignore = true)
+	})
+	Card dtoToEntity(CardDTO dto);
+
 }
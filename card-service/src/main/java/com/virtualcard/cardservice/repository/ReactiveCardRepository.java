@@ -1,16 +1,30 @@
 package com.virtualcard.cardservice.repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+import org.hibernate.reactive.mutiny.Mutiny;
 import org.hibernate.reactive.mutiny.Mutiny.SessionFactory;
 import org.springframework.stereotype.Repository;
 
 import com.virtualcard.cardservice.entity.Card;
+import com.virtualcard.common.enums.CardStatus;
+import com.virtualcard.common.error.InvalidInputException;
 import com.virtualcard.common.springdata.repository.ReactiveRepository;
+import com.virtualcard.common.springdata.repository.ReadConsistency;
+import com.virtualcard.common.springdata.repository.ReadReplicaRouter;
 
 import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.OptimisticLockException;
 
 /**
  * @author Lorenzo Leccese
@@ -21,30 +35,482 @@ import jakarta.persistence.LockModeType;
 @Repository
 public class ReactiveCardRepository extends ReactiveRepository<Card> {
 
-	public ReactiveCardRepository(final SessionFactory sessionFactory) {
-		super(sessionFactory);
+	/**
+	 * Claims the id of a transfer. A transfer already committed with the same id conflicts and inserts nothing, one still
+	 * in flight makes this insert wait for its outcome.
+	 */
+	private static final String CLAIM_TRANSFER_ID = """
+			INSERT INTO card_transfers (id, sender_card_id, recipient_card_id, amount, created_at)
+			VALUES (:id, :senderId, :recipientId, :amount, now())
+			ON CONFLICT (id) DO NOTHING
+			""";
+
+	/**
+	 * Debits an active card: a card with balance slots draws from its richest slot that covers the amount, skipping the
+	 * slots locked by concurrent debits, and from the card row only when no slot covers it. Returns the rows debited.
+	 */
+	private static final String DEBIT_CARD = """
+			WITH card AS (
+			    SELECT id, balance_slots FROM cards
+			    WHERE id = :id AND status = :status
+			), slot AS (
+			    SELECT s.card_id, s.slot
+			    FROM card_balance_slots s
+			    JOIN card c ON c.id = s.card_id
+			    WHERE c.balance_slots > 0
+			      AND s.balance >= :amount
+			    ORDER BY s.balance DESC
+			    LIMIT 1
+			    FOR UPDATE OF s SKIP LOCKED
+			), slot_debit AS (
+			    UPDATE card_balance_slots s
+			    SET balance = s.balance - :amount
+			    FROM slot
+			    WHERE s.card_id = slot.card_id
+			      AND s.slot = slot.slot
+			      AND s.balance >= :amount
+			    RETURNING s.card_id
+			), card_debit AS (
+			    UPDATE cards c
+			    SET balance = c.balance - :amount, version = c.version + 1
+			    FROM card
+			    WHERE c.id = card.id
+			      AND NOT EXISTS (SELECT 1 FROM slot)
+			      AND c.balance >= :amount
+			    RETURNING c.id
+			)
+			SELECT (SELECT COUNT(*) FROM slot_debit) + (SELECT COUNT(*) FROM card_debit)
+			""";
+
+	/**
+	 * Credits an active card: a card with balance slots is credited on the slot picked by {@code :salt},
+	 * without locking the card row. Returns the rows credited.
+	 *
+	 * Like every statement changing a card, it locks the rows of that card only, the card row before its slots and the
+	 * slots in ascending order, see {@link #transfer(String, Long, Long, BigDecimal)}.
+	 */
+	private static final String CREDIT_CARD = """
+			WITH card AS (
+			    SELECT id, balance_slots FROM cards
+			    WHERE id = :id AND status = :status
+			), slot_credit AS (
+			    UPDATE card_balance_slots s
+			    SET balance = s.balance + :amount
+			    FROM card
+			    WHERE card.balance_slots > 0
+			      AND s.card_id = card.id
+			      AND s.slot = :salt % NULLIF(card.balance_slots, 0)
+			    RETURNING s.card_id
+			), card_credit AS (
+			    UPDATE cards c
+			    SET balance = c.balance + :amount, version = c.version + 1
+			    FROM card
+			    WHERE c.id = card.id
+			      AND card.balance_slots = 0
+			    RETURNING c.id
+			)
+			SELECT (SELECT COUNT(*) FROM slot_credit) + (SELECT COUNT(*) FROM card_credit)
+			""";
+
+	/**
+	 * Moves the balance slots of a card back into the card row. The card row is locked before its slots,
+	 * as every debit falling back to the card row does, so consolidations and debits cannot deadlock.
+	 */
+	private static final String CONSOLIDATE_BALANCE_SLOTS = """
+			WITH card AS (
+			    SELECT id FROM cards
+			    WHERE id = :id
+			    FOR UPDATE
+			), drained AS (
+			    SELECT s.card_id, s.slot, s.balance
+			    FROM card_balance_slots s
+			    JOIN card c ON c.id = s.card_id
+			    WHERE s.balance <> 0
+			    ORDER BY s.slot
+			    FOR UPDATE OF s
+			), zeroed AS (
+			    UPDATE card_balance_slots s
+			    SET balance = 0
+			    FROM drained d
+			    WHERE s.card_id = d.card_id
+			      AND s.slot = d.slot
+			)
+			UPDATE cards c
+			SET balance = c.balance + t.total, version = c.version + 1
+			FROM (SELECT SUM(balance) AS total FROM drained) t
+			WHERE c.id = :id
+			  AND t.total IS NOT NULL
+			""";
+
+	// Slots are never deleted when their number shrinks: a credit racing with the change still finds its slot
+	private static final String CREATE_BALANCE_SLOTS = """
+			INSERT INTO card_balance_slots (card_id, slot, balance)
+			SELECT :id, slot, 0
+			FROM generate_series(0, :slots - 1) AS slot
+			ON CONFLICT (card_id, slot) DO NOTHING
+			""";
+
+	private static final String CLEAR_BALANCE_SLOTS = """
+			UPDATE card_balance_slots
+			SET balance = 0
+			WHERE card_id = :id
+			  AND balance <> 0
+			""";
+
+	private static final String WRITE_BALANCE = """
+			UPDATE cards
+			SET balance = :balance, version = :version
+			WHERE id = :id
+			""";
+
+	private static final String CLEAR_ALL_BALANCE_SLOTS = """
+			UPDATE card_balance_slots
+			SET balance = 0
+			WHERE card_id IN (:ids)
+			  AND balance <> 0
+			""";
+
+	private static final String SUM_BALANCE_SLOTS = """
+			select s.cardId, sum(s.balance)
+			from CardBalanceSlot s
+			where s.cardId in :ids
+			group by s.cardId
+			""";
+
+	// Debits only apply while they keep the balance positive, the row lock is held for this statement only
+	private static final String APPLY_BALANCE_DELTA = """
+			UPDATE cards
+			SET balance = balance + :delta, version = version + 1
+			WHERE id = :id
+			  AND status = :status
+			  AND balance_slots = 0
+			  AND balance + :delta >= 0
+			RETURNING *
+			""";
+
+	public ReactiveCardRepository(final SessionFactory sessionFactory, final ReadReplicaRouter readReplicaRouter) {
+		super(sessionFactory, readReplicaRouter);
 	}
 
+	@Override
+	public Uni<Card> findById(final Long id, final ReadConsistency consistency) {
+		return withStatelessSession(consistency, session -> session.get(Card.class, id)
+			.call(card -> card == null ? Uni.createFrom().nullItem() : withSlotBalances(List.of(card), sumBalanceSlots(session::createSelectionQuery))));
+	}
+
+	/**
+	 * Lists the cards of the user, tolerating the replication lag.
+	 */
 	public Multi<Card> findByUserId(final Long userId) {
-		return Multi.createFrom().deferred(() -> sessionFactory
-			.withSession(session -> session.createQuery("from Card where userId = :userId", Card.class)
-				.setParameter("userId", userId)
-				.getResultList())
+		return Multi.createFrom().deferred(() -> withStatelessSession(ReadConsistency.LAG_TOLERANT, session -> session
+			.createSelectionQuery("from Card where userId = :userId", Card.class)
+			.setParameter("userId", userId)
+			.getResultList()
+			.chain(cards -> withSlotBalances(cards, sumBalanceSlots(session::createSelectionQuery))))
 			.onItem().transformToMulti(list -> Multi.createFrom().iterable(list)));
 	}
 
-	public Uni<Card> findByCode(final String code) {
-		return sessionFactory.withSession(session -> session
-			.createQuery("from Card where code = :code", Card.class)
+	public Uni<Card> findByCode(final String code, final ReadConsistency consistency) {
+		return withStatelessSession(consistency, session -> session
+			.createSelectionQuery("from Card where code = :code", Card.class)
 			.setParameter("code", code)
-			.getSingleResultOrNull());
+			.getSingleResultOrNull()
+			.call(card -> card == null ? Uni.createFrom().nullItem() : withSlotBalances(List.of(card), sumBalanceSlots(session::createSelectionQuery))));
+	}
+
+	public Uni<List<Card>> findAllByCodes(final Collection<String> codes, final ReadConsistency consistency) {
+		return withStatelessSession(consistency, session -> session
+			.createSelectionQuery("from Card where code in :codes", Card.class)
+			.setParameter("codes", codes)
+			.getResultList()
+			.chain(cards -> withSlotBalances(cards, sumBalanceSlots(session::createSelectionQuery))));
+	}
+
+	public Uni<List<Card>> findAllByIds(final Collection<Long> ids, final ReadConsistency consistency) {
+		return withStatelessSession(consistency, session -> session
+			.createSelectionQuery("from Card where id in :ids", Card.class)
+			.setParameter("ids", ids)
+			.getResultList()
+			.chain(cards -> withSlotBalances(cards, sumBalanceSlots(session::createSelectionQuery))));
 	}
 
 	public Uni<Card> updateCardBalance(final Long id, final BigDecimal newBalance) {
-		return sessionFactory.withTransaction((session, tx) -> session.find(Card.class, id, LockModeType.OPTIMISTIC)
+		return updateCardBalance(id, newBalance, null, LockModeType.OPTIMISTIC);
+	}
+
+	/**
+	 * Sets the balance of the card, reading it with the given lock mode, if the card is still at the expected version.
+	 *
+	 * With {@link LockModeType#OPTIMISTIC} a concurrent change fails the commit with an optimistic lock exception,
+	 * with {@link LockModeType#PESSIMISTIC_WRITE} the card is read {@code FOR UPDATE} and concurrent writers wait for each other.
+	 * Either way the version read is compared with the expected one, so a balance computed from a stale read is never
+	 * written, even by a writer that waited for the lock behind the change that made it stale.
+	 * The balance slots of the card, if any, are emptied since the new balance replaces the whole balance.
+	 *
+	 * @param expectedVersion the version the new balance was computed from, {@code null} to skip the comparison
+	 * @return a Uni emitting the updated card, {@code null} if not found, or failing with {@link OptimisticLockException}
+	 *         if the card is not at the expected version
+	 */
+	public Uni<Card> updateCardBalance(final Long id, final BigDecimal newBalance, final Integer expectedVersion, final LockModeType lockMode) {
+		return sessionFactory.withTransaction((session, tx) -> session.find(Card.class, id, lockMode)
+			.onItem().ifNotNull().call(card -> expectedVersion == null || expectedVersion.equals(card.getVersion())
+					? Uni.createFrom().voidItem()
+					: Uni.createFrom().failure(new OptimisticLockException("Card id: " + id + " is at version " + card.getVersion()
+							+ ", not at the expected version " + expectedVersion)))
+			.onItem().ifNotNull().call(card -> card.getBalanceSlots() == 0
+					? Uni.createFrom().voidItem()
+					: session.createNativeQuery(CLEAR_BALANCE_SLOTS)
+						.setParameter("id", id)
+						.executeUpdate())
 			.onItem().ifNotNull().invoke(card -> card.setBalance(newBalance)));
 	}
 
+	/**
+	 * Adds the delta to the balance of an active card with a single conditional update, without reading the card first.
+	 *
+	 * Concurrent deltas on the same card queue on its row lock instead of failing on a version conflict.
+	 * Cards with balance slots are credited on a slot and debited from any slot covering the debit instead.
+	 *
+	 * @param id    the id of the card
+	 * @param delta positive to credit the card, negative to debit it
+	 * @return a Uni emitting the updated card, or {@code null} if the card is not found, not active
+	 *         or its balance does not cover the debit
+	 */
+	public Uni<Card> applyBalanceDelta(final Long id, final BigDecimal delta) {
+		return sessionFactory.withTransaction((session, tx) -> session
+			.createNativeQuery(APPLY_BALANCE_DELTA, Card.class)
+			.setParameter("delta", delta)
+			.setParameter("id", id)
+			.setParameter("status", CardStatus.ACTIVE.name())
+			.getSingleResultOrNull()
+			.chain(card -> card != null ? Uni.createFrom().item(card) : applyBalanceDeltaToSlots(session, id, delta)));
+	}
+
+	private Uni<Card> applyBalanceDeltaToSlots(final Mutiny.Session session, final Long id, final BigDecimal delta) {
+		return session.find(Card.class, id)
+			.chain(card -> {
+				if (card == null || card.getBalanceSlots() == 0) {
+					return Uni.createFrom().nullItem();
+				}
+				final Uni<Boolean> applied = delta.signum() > 0 ? credit(session, id, delta) : debit(session, id, delta.negate());
+				return applied.chain(done -> done
+						? session.refresh(card).chain(() -> withSlotBalances(List.of(card), sumBalanceSlots(session::createSelectionQuery))).replaceWith(card)
+						: Uni.createFrom().nullItem());
+			});
+	}
+
+	/**
+	 * Moves the given amount from the sender card to the recipient card within a single database transaction.
+	 *
+	 * The balances are changed with relative updates: the debit only applies if the sender is active and covers the amount,
+	 * so no stale balance is ever written back. A sender with balance slots whose slots and row do not cover the amount on
+	 * their own has its slots consolidated before the debit is retried.
+	 *
+	 * The card with the lower id is changed first. Since each change only locks the rows of its own card, the card row
+	 * before its slots and the slots in ascending order, every transaction takes its locks in ascending (card id, slot)
+	 * order, the card row first, and two transactions cannot wait for each other, whichever way they move the amount and
+	 * whether the cards have balance slots or not. Debits from a slot skip the locked slots and do not wait at all.
+	 *
+	 * The transfer id is stored in the same transaction, so a transfer sent again with the id of a committed one, e.g. a
+	 * retry after a timeout, completes without moving the amount twice.
+	 *
+	 * @param transferId  the idempotency key of the transfer, chosen by the caller
+	 * @param senderId    the id of the card to debit
+	 * @param recipientId the id of the card to credit
+	 * @param amount      the amount to move, must be positive
+	 * @return a Uni completing when the transaction commits or the transfer was already applied, or failing with
+	 *         {@link InvalidInputException} if either update could not be applied, in which case nothing is changed
+	 */
+	public Uni<Void> transfer(final String transferId, final Long senderId, final Long recipientId, final BigDecimal amount) {
+		return sessionFactory.withTransaction((session, tx) -> claimTransferId(session, transferId, senderId, recipientId, amount)
+			.chain(claimed -> claimed
+					? transfer(session, senderId, recipientId, amount)
+					: Uni.createFrom().voidItem()));
+	}
+
+	/**
+	 * Applies one leg of a transfer sent as two separate calls, debiting its sender or crediting its recipient, within
+	 * a single database transaction. The leg is claimed under its own id like a whole transfer, so a leg sent again
+	 * completes without being applied twice.
+	 *
+	 * @param legId       the idempotency key of the leg, chosen by the caller
+	 * @param senderId    the id of the sender of the transfer
+	 * @param recipientId the id of the recipient of the transfer
+	 * @param debit       {@code true} to debit the sender, {@code false} to credit the recipient
+	 * @param amount      the amount of the transfer, must be positive
+	 * @return a Uni completing when the transaction commits or the leg was already applied, or failing with
+	 *         {@link InvalidInputException} if the card could not be changed, in which case nothing is changed
+	 */
+	public Uni<Void> transferLeg(final String legId, final Long senderId, final Long recipientId, final boolean debit, final BigDecimal amount) {
+		return sessionFactory.withTransaction((session, tx) -> claimTransferId(session, legId, senderId, recipientId, amount)
+			.chain(claimed -> {
+				if (!claimed) {
+					return Uni.createFrom().voidItem();
+				}
+				return debit ? debitSender(session, senderId, amount) : creditRecipient(session, recipientId, amount);
+			}));
+	}
+
+	private Uni<Boolean> claimTransferId(final Mutiny.Session session, final String transferId, final Long senderId, final Long recipientId,
+			final BigDecimal amount) {
+		return session.createNativeQuery(CLAIM_TRANSFER_ID)
+			.setParameter("id", transferId)
+			.setParameter("senderId", senderId)
+			.setParameter("recipientId", recipientId)
+			.setParameter("amount", amount)
+			.executeUpdate()
+			.map(claimed -> claimed == 1);
+	}
+
+	private Uni<Void> transfer(final Mutiny.Session session, final Long senderId, final Long recipientId, final BigDecimal amount) {
+		final Supplier<Uni<Void>> debit = () -> debitSender(session, senderId, amount);
+		final Supplier<Uni<Void>> credit = () -> creditRecipient(session, recipientId, amount);
+		return senderId < recipientId
+				? debit.get().chain(credit::get)
+				: credit.get().chain(debit::get);
+	}
+
+	private Uni<Void> debitSender(final Mutiny.Session session, final Long senderId, final BigDecimal amount) {
+		return debit(session, senderId, amount)
+			.chain(debited -> debited
+					? Uni.createFrom().voidItem()
+					: Uni.createFrom().failure(new InvalidInputException("Sender card id: " + senderId + " not found, blocked or insufficient balance")));
+	}
+
+	private Uni<Void> creditRecipient(final Mutiny.Session session, final Long recipientId, final BigDecimal amount) {
+		return credit(session, recipientId, amount)
+			.chain(credited -> credited
+					? Uni.createFrom().voidItem()
+					: Uni.createFrom().failure(new InvalidInputException("Recipient card id: " + recipientId + " not found or blocked")));
+	}
+
+	/**
+	 * Spreads the future credits of the card over the given number of balance slots, or sends them back to the card row
+	 * if the number is 0. The current slots are consolidated first, so the balance of the card does not change.
+	 *
+	 * @return a Uni emitting the card, or {@code null} if not found
+	 */
+	public Uni<Card> updateBalanceSlots(final Long id, final int slots) {
+		return sessionFactory.withTransaction((session, tx) -> consolidate(session, id)
+			.chain(() -> session.find(Card.class, id))
+			.onItem().ifNotNull().call(card -> {
+				card.setBalanceSlots(slots);
+				return slots == 0
+						? Uni.createFrom().voidItem()
+						: session.createNativeQuery(CREATE_BALANCE_SLOTS)
+							.setParameter("id", id)
+							.setParameter("slots", slots)
+							.executeUpdate();
+			}));
+	}
+
+	/**
+	 * Overwrites the balance and version of the given cards with a single transaction. The balance being the whole
+	 * balance of the card, its balance slots are emptied, after the card rows are locked as for a consolidation.
+	 *
+	 * @param cards detached cards carrying the id, balance and version to write
+	 */
+	public Uni<Void> writeBalances(final List<Card> cards) {
+		return sessionFactory.withTransaction((session, tx) -> Multi.createFrom().iterable(cards)
+			.onItem().transformToUniAndConcatenate(card -> session.createNativeQuery(WRITE_BALANCE)
+				.setParameter("balance", card.getBalance())
+				.setParameter("version", card.getVersion())
+				.setParameter("id", card.getId())
+				.executeUpdate())
+			.collect().last()
+			.chain(() -> session.createNativeQuery(CLEAR_ALL_BALANCE_SLOTS)
+				.setParameter("ids", cards.stream().map(Card::getId).toList())
+				.executeUpdate())
+			.replaceWithVoid());
+	}
+
+	/**
+	 * @return the ids of up to {@code limit} cards with a non empty balance slot
+	 */
+	public Uni<List<Long>> findCardIdsWithSlotBalance(final int limit) {
+		return query("select distinct s.cardId from CardBalanceSlot s where s.balance <> 0", Long.class, ReadConsistency.READ_YOUR_WRITES)
+			.maxResults(limit)
+			.list();
+	}
+
+	/**
+	 * Moves the balance slots of the card back into the card row, in its own transaction.
+	 *
+	 * @return a Uni emitting whether the card had a non empty slot
+	 */
+	public Uni<Boolean> consolidateBalanceSlots(final Long id) {
+		return sessionFactory.withTransaction((session, tx) -> consolidate(session, id));
+	}
+
+	private Uni<Boolean> debit(final Mutiny.Session session, final Long id, final BigDecimal amount) {
+		return debitOnce(session, id, amount)
+			.chain(debited -> debited
+					? Uni.createFrom().item(true)
+					// Neither a single slot nor the card row cover the amount, the slots may do it together
+					: consolidate(session, id).chain(consolidated -> consolidated ? debitOnce(session, id, amount) : Uni.createFrom().item(false)));
+	}
+
+	private Uni<Boolean> debitOnce(final Mutiny.Session session, final Long id, final BigDecimal amount) {
+		return session.createNativeQuery(DEBIT_CARD, Long.class)
+			.setParameter("id", id)
+			.setParameter("status", CardStatus.ACTIVE.name())
+			.setParameter("amount", amount)
+			.getSingleResult()
+			.map(debited -> debited == 1);
+	}
+
+	private Uni<Boolean> credit(final Mutiny.Session session, final Long id, final BigDecimal amount) {
+		return session.createNativeQuery(CREDIT_CARD, Long.class)
+			.setParameter("id", id)
+			.setParameter("status", CardStatus.ACTIVE.name())
+			.setParameter("amount", amount)
+			.setParameter("salt", ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE))
+			.getSingleResult()
+			.map(credited -> credited == 1);
+	}
+
+	private Uni<Boolean> consolidate(final Mutiny.Session session, final Long id) {
+		return session.createNativeQuery(CONSOLIDATE_BALANCE_SLOTS)
+			.setParameter("id", id)
+			.executeUpdate()
+			.map(updated -> updated == 1);
+	}
+
+	/**
+	 * Loads the sum of the balance slots of the cards that have any.
+	 *
+	 * @param sumBalanceSlots sums the slots of the given card ids, in the session that read the cards
+	 */
+	private static Uni<List<Card>> withSlotBalances(final List<Card> cards, final Function<List<Long>, Uni<List<Object[]>>> sumBalanceSlots) {
+		final List<Long> ids = cards.stream()
+			.filter(card -> card.getBalanceSlots() > 0)
+			.map(Card::getId)
+			.toList();
+		if (ids.isEmpty()) {
+			return Uni.createFrom().item(cards);
+		}
+		return sumBalanceSlots.apply(ids)
+			.map(rows -> {
+				final Map<Long, BigDecimal> slotBalances = new HashMap<>(rows.size());
+				for (final Object[] row : rows) {
+					slotBalances.put((Long) row[0], (BigDecimal) row[1]);
+				}
+				cards.forEach(card -> card.setSlotBalance(slotBalances.getOrDefault(card.getId(), BigDecimal.ZERO)));
+				return cards;
+			});
+	}
+
+	/**
+	 * @param createSelectionQuery the {@code createSelectionQuery} of the session, stateful or stateless, since the two
+	 *                             share no interface declaring it
+	 */
+	private static Function<List<Long>, Uni<List<Object[]>>> sumBalanceSlots(
+			final BiFunction<String, Class<Object[]>, Mutiny.SelectionQuery<Object[]>> createSelectionQuery) {
+		return ids -> createSelectionQuery.apply(SUM_BALANCE_SLOTS, Object[].class)
+			.setParameter("ids", ids)
+			.getResultList();
+	}
+
 	@Override
 	protected Class<Card> provideEntityClass() {
 		return Card.class;
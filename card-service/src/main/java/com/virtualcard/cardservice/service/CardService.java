@@ -6,21 +6,45 @@ import static com.virtualcard.common.converter.VertxWebFluxConverter.convertUniT
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Service;
 
+import com.virtualcard.cardservice.cache.CardCache;
+import com.virtualcard.cardservice.configuration.BalanceSlotProperties;
+import com.virtualcard.cardservice.configuration.CardIssuanceProperties;
+import com.virtualcard.cardservice.contention.ContentionTracker;
+import com.virtualcard.cardservice.engine.BalanceEngine;
+import com.virtualcard.cardservice.engine.CardBalance;
+import com.virtualcard.cardservice.lane.CardWriteLanes;
 import com.virtualcard.cardservice.entity.Card;
+import com.virtualcard.cardservice.entity.CardTransfer;
+import com.virtualcard.cardservice.loader.CardLoader;
 import com.virtualcard.cardservice.mapper.CardMapper;
 import com.virtualcard.cardservice.repository.ReactiveCardRepository;
 import com.virtualcard.cardservice.validator.CardValidator;
 import com.virtualcard.common.dto.CardDTO;
+import com.virtualcard.common.dto.CardIssuanceProgress;
+import com.virtualcard.common.dto.CardIssuanceProgress.Failure;
+import com.virtualcard.common.dto.UserDTO;
 import com.virtualcard.common.enums.CardStatus;
+import com.virtualcard.common.error.InvalidInputException;
+import com.virtualcard.common.error.NotFoundException;
+import com.virtualcard.common.request.AddCardRequest;
+import com.virtualcard.common.springdata.repository.ReadConsistency;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 
+import jakarta.persistence.OptimisticLockException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
 /**
  * @author Lorenzo Leccese
@@ -40,6 +64,19 @@ public class CardService {
 
 	private final CardMapper mapper;
 
+	private final CardCache cardCache;
+	private final CardLoader cardLoader;
+
+	private final ContentionTracker contentionTracker;
+
+	private final BalanceSlotProperties balanceSlotProperties;
+
+	private final BalanceEngine balanceEngine;
+
+	private final CardWriteLanes writeLanes;
+
+	private final CardIssuanceProperties issuanceProperties;
+
 	/**
 	 * Creates a new card with a generated unique identifier for the given cardholder name and initial balance.
 	 * The card is persisted in the repository.
@@ -55,16 +92,7 @@ public class CardService {
 			.flatMap(usr -> {
 				log.debug("User fetched: {}", usr);
 
-				final Card card = new Card();
-				card.setUserId(usr.getId());
-				card.setCode(cardNumber);
-				card.setStatus(activateCard() ? CardStatus.ACTIVE : CardStatus.BLOCKED);
-				card.setBalance(BigDecimal.ZERO);
-				card.setCreatedAt(Instant.now());
-				card.setExpirationDate(expiration);
-				card.setCvc(cvc);
-
-				return convertUniToMono(repository.save(card))
+				return convertUniToMono(repository.save(newCard(usr.getId(), cardNumber, expiration, cvc)))
 					.doOnSubscribe(sub -> log.debug("Subscribing to save card"))
 					.doOnNext(savedCard -> log.debug("Card saved: {}", savedCard))
 					.doOnError(err -> log.error("Error saving card: {}", err));
@@ -74,6 +102,95 @@ public class CardService {
 			.doOnError(err -> log.error("createCard failed: {}", err));
 	}
 
+	/**
+	 * Issues the cards of a stream of requests, reporting the progress after each chunk of cards.
+	 *
+	 * The requests are read {@code card-issuance.chunk-size} at a time: the users of a chunk are resolved with one call to
+	 * user-service and its cards inserted in one transaction, with the inserts sent in batches. Up to
+	 * {@code card-issuance.concurrent-chunks} chunks are processed at once and no more requests are read meanwhile, so memory
+	 * use does not depend on the size of the upload.
+	 *
+	 * A card is not issued when its user does not exist or its card number is taken, a chunk failing as a whole fails all its
+	 * cards: neither stops the issuance.
+	 *
+	 * @param requests the card requests
+	 * @return the progress of the issuance, emitted after each chunk in the order of the requests
+	 */
+	public Flux<CardIssuanceProgress> createCards(final Flux<AddCardRequest> requests) {
+		return requests.index()
+			.buffer(issuanceProperties.getChunkSize())
+			.flatMapSequential(this::issueChunk, issuanceProperties.getConcurrentChunks(), 1)
+			.scan(CardIssuanceProgress.NONE, (progress, chunk) -> progress.plus(chunk.processed(), chunk.issued(), chunk.failures()))
+			.skip(1); // the initial progress
+	}
+
+	private Mono<ChunkOutcome> issueChunk(final List<Tuple2<Long, AddCardRequest>> chunk) {
+		final Set<String> usernames = chunk.stream().map(indexed -> indexed.getT2().username()).collect(Collectors.toSet());
+		final Set<String> cardNumbers = chunk.stream().map(indexed -> indexed.getT2().cardNumber()).collect(Collectors.toSet());
+
+		final Mono<Map<String, Long>> userIds = userIntegrationService.findUsersByUsernames(usernames)
+			.collectMap(UserDTO::getUsername, UserDTO::getId);
+		final Mono<Set<String>> takenCardNumbers = convertUniToMono(repository.findAllByCodes(cardNumbers, ReadConsistency.READ_YOUR_WRITES))
+			.<Set<String>> map(cards -> cards.stream().map(Card::getCode).collect(Collectors.toCollection(HashSet::new)))
+			.defaultIfEmpty(new HashSet<>());
+
+		return Mono.zip(userIds, takenCardNumbers)
+			.flatMap(tuple -> {
+				final List<Tuple2<Long, AddCardRequest>> accepted = new ArrayList<>(chunk.size());
+				final List<Card> cards = new ArrayList<>(chunk.size());
+				final List<Failure> failures = new ArrayList<>();
+
+				for (final Tuple2<Long, AddCardRequest> indexed : chunk) {
+					final AddCardRequest request = indexed.getT2();
+					final Long userId = tuple.getT1().get(request.username());
+					if (userId == null) {
+						failures.add(failure(indexed, "User: " + request.username() + " not found"));
+					} else if (!tuple.getT2().add(request.cardNumber())) {
+						failures.add(failure(indexed, "Card number: " + request.cardNumber() + " already taken"));
+					} else {
+						accepted.add(indexed);
+						cards.add(newCard(userId, request.cardNumber(), request.expiration(), request.cvc()));
+					}
+				}
+
+				return convertUniToMono(repository.saveAll(cards))
+					.map(saved -> new ChunkOutcome(chunk.size(), saved.size(), failures))
+					.onErrorResume(e -> {
+						log.error("Inserting a chunk of {} cards failed: {}", cards.size(), e.toString());
+						accepted.forEach(indexed -> failures.add(failure(indexed, describe(e))));
+						return Mono.just(new ChunkOutcome(chunk.size(), 0, failures));
+					});
+			})
+			.onErrorResume(e -> {
+				log.error("Resolving the users of a chunk of {} cards failed: {}", chunk.size(), e.toString());
+				return Mono.just(new ChunkOutcome(chunk.size(), 0, chunk.stream().map(indexed -> failure(indexed, describe(e))).toList()));
+			});
+	}
+
+	// Outcome of the card requests of one chunk
+	private record ChunkOutcome(int processed, int issued, List<Failure> failures) {
+	}
+
+	private static Failure failure(final Tuple2<Long, AddCardRequest> indexed, final String error) {
+		return new Failure(indexed.getT1(), indexed.getT2().cardNumber(), error);
+	}
+
+	private static String describe(final Throwable error) {
+		return error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+	}
+
+	private Card newCard(final Long userId, final String cardNumber, final YearMonth expiration, final String cvc) {
+		final Card card = new Card();
+		card.setUserId(userId);
+		card.setCode(cardNumber);
+		card.setStatus(activateCard() ? CardStatus.ACTIVE : CardStatus.BLOCKED);
+		card.setBalance(BigDecimal.ZERO);
+		card.setCreatedAt(Instant.now());
+		card.setExpirationDate(expiration);
+		card.setCvc(cvc);
+		return card;
+	}
+
 	// Dummy method that encapsulate Card activation controls
 	private boolean activateCard() {
 		return true;
@@ -99,9 +216,14 @@ public class CardService {
 	 *         or an empty {@code Mono} if the card is invalid or does not exist
 	 */
 	public Mono<CardDTO> getValidCard(final String cardNumber) {
-		return Mono.fromCompletionStage(repository.findByCode(cardNumber)
-			.map(mapper::entityToDTO)
-			.subscribeAsCompletionStage())
+		return Mono.defer(() -> {
+			final CardDTO cached = cardCache.getByCode(cardNumber);
+			if (cached != null) {
+				return Mono.just(cached);
+			}
+			return cardLoader.findByCode(cardNumber);
+		})
+			.map(this::withEngineBalance)
 			.filter(validator.isCardValid());
 	}
 
@@ -112,26 +234,184 @@ public class CardService {
 	 * @return a {@code Mono<CardDTO>} containing the card information if found, or an empty Mono if no card is found
 	 */
 	public Mono<CardDTO> getCard(final Long id) {
-		return Mono.fromCompletionStage(repository.findById(id).map(mapper::entityToDTO)
-			.subscribeAsCompletionStage());
+		return Mono.defer(() -> {
+			final CardDTO cached = cardCache.getById(id);
+			if (cached != null) {
+				return Mono.just(cached);
+			}
+			return cardLoader.findById(id);
+		})
+			.map(this::withEngineBalance);
 	}
 
 	public Flux<CardDTO> getAllCardsByUsername(final String username) {
 
 		return userIntegrationService.findUserByUsername(username)
 			.flatMapMany(user -> convertMultiToFlux(repository.findByUserId(user.getId())))
-			.map(mapper::entityToDTO);
+			.map(mapper::entityToDTO)
+			.map(this::withEngineBalance);
 	}
 
 	/**
 	 * Updates the balance of a card with the specified ID to a new value.
 	 *
-	 * @param id         the unique identifier of the card whose balance needs to be updated
-	 * @param newBalance the new balance to be set for the card
-	 * @return a Mono signaling when the update operation has completed
+	 * The card is locked optimistically unless it has recently been contended, in which case it is locked
+	 * with {@code SELECT ... FOR UPDATE}. Either way the update is rejected if the card is no longer at the expected
+	 * version, since the new balance was computed by the caller from the balance it read: this holds under the
+	 * pessimistic lock as well, which only serializes the writers. A conflict is not retried for the same reason.
+	 * The write waits on the lane of the card for the writes submitted before it.
+	 * With the balance engine enabled the balance is set in memory instead.
+	 *
+	 * @param id              the unique identifier of the card whose balance needs to be updated
+	 * @param newBalance      the new balance to be set for the card
+	 * @param expectedVersion the version of the card the new balance was computed from, {@code null} to overwrite
+	 *                        the balance whatever its version
+	 * @return a Mono signaling when the update operation has completed, or failing with {@link OptimisticLockException}
+	 *         if the card changed since the expected version
+	 */
+	public Mono<Void> updateBalance(final Long id, final BigDecimal newBalance, final Integer expectedVersion) {
+		if (balanceEngine.isEnabled()) {
+			return balanceEngine.setBalance(id, newBalance, expectedVersion).then();
+		}
+		return writeLanes.submit(id, () -> {
+			final long stamp = cardCache.stamp();
+			// The committed entity carries the incremented version, so it can replace the cached one
+			return convertUniToMono(repository.updateCardBalance(id, newBalance, expectedVersion, contentionTracker.lockModeFor(id)))
+				.doOnNext(card -> cardCache.put(mapper.entityToDTO(card), stamp))
+				.doOnError(OptimisticLockException.class, e -> contentionTracker.recordConflict(id));
+		}).then();
+	}
+
+	/**
+	 * Credits or debits a card by a relative amount in one round trip.
+	 *
+	 * @param id    the unique identifier of the card
+	 * @param delta positive to credit the card, negative to debit it
+	 * @return a Mono emitting the updated card, or failing with {@link InvalidInputException}
+	 *         if the card is not found, not active or cannot cover the debit
+	 */
+	public Mono<CardDTO> applyBalanceDelta(final Long id, final BigDecimal delta) {
+		if (delta == null || delta.signum() == 0) {
+			return Mono.error(new InvalidInputException("Balance delta must not be 0"));
+		}
+		if (balanceEngine.isEnabled()) {
+			return balanceEngine.applyDelta(id, delta)
+				.switchIfEmpty(Mono.error(() -> new InvalidInputException("Card id: " + id + " not found, blocked or insufficient balance")))
+				.then(getCard(id));
+		}
+		return writeLanes.submit(id, () -> {
+			final long stamp = cardCache.stamp();
+			return convertUniToMono(repository.applyBalanceDelta(id, delta))
+				.switchIfEmpty(Mono.error(() -> new InvalidInputException("Card id: " + id + " not found, blocked or insufficient balance")))
+				.map(mapper::entityToDTO)
+				.doOnNext(card -> cardCache.put(card, stamp));
+		});
+	}
+
+	/**
+	 * Spreads the credits of a card over the given number of balance slots, so that concurrent credits to a hot card
+	 * do not queue on its row lock. The balance of the card is unchanged.
+	 *
+	 * @param id    the unique identifier of the card
+	 * @param slots the number of slots, 0 to credit the card row directly again
+	 * @return a Mono emitting the card, or failing with {@link NotFoundException} if it does not exist
+	 */
+	public Mono<CardDTO> updateBalanceSlots(final Long id, final int slots) {
+		if (slots < 0 || slots > balanceSlotProperties.getMaxSlots()) {
+			return Mono.error(new InvalidInputException("Balance slots must be between 0 and " + balanceSlotProperties.getMaxSlots()));
+		}
+		if (balanceEngine.isEnabled()) {
+			return Mono.error(new InvalidInputException("Balance slots are not used while the balance engine is enabled"));
+		}
+		return writeLanes.submit(id, () -> convertUniToMono(repository.updateBalanceSlots(id, slots)))
+			.switchIfEmpty(Mono.error(() -> new NotFoundException("Card id: " + id + " not found")))
+			.map(mapper::entityToDTO)
+			// The consolidation bumped the version of the card
+			.doOnNext(card -> cardCache.invalidate(id))
+			.doOnNext(card -> log.info("Card {} now spreads its credits over {} balance slots", id, slots));
+	}
+
+	/**
+	 * Moves an amount between two cards with a single atomic database transaction,
+	 * or in memory with the balance engine enabled. A transfer sent again with the same id is applied only once.
+	 *
+	 * @param transferId      the idempotency key of the transfer, chosen by the caller
+	 * @param senderCardId    the unique identifier of the card to debit
+	 * @param recipientCardId the unique identifier of the card to credit
+	 * @param amount          the amount to transfer
+	 * @return a Mono signaling when the transfer has been committed
+	 */
+	public Mono<Void> transfer(final String transferId, final Long senderCardId, final Long recipientCardId, final BigDecimal amount) {
+		final InvalidInputException invalid = validateTransfer(transferId, senderCardId, recipientCardId, amount);
+		if (invalid != null) {
+			return Mono.error(invalid);
+		}
+		if (balanceEngine.isEnabled()) {
+			return balanceEngine.transfer(transferId, senderCardId, recipientCardId, amount)
+				.doOnSuccess(v -> log.debug("Transferred {} from card {} to card {} in memory", amount, senderCardId, recipientCardId));
+		}
+		// Holds the lanes of both cards, so the transfer never races with another write of either
+		return writeLanes.submit(senderCardId, recipientCardId, () -> convertUniToMono(repository.transfer(transferId, senderCardId, recipientCardId, amount)))
+			.doOnSuccess(v -> {
+				// Bulk updates do not hand back the new state of the cards
+				cardCache.invalidate(senderCardId);
+				cardCache.invalidate(recipientCardId);
+			})
+			.doOnSuccess(v -> log.debug("Transferred {} from card {} to card {}", amount, senderCardId, recipientCardId));
+	}
+
+	/**
+	 * Applies one leg of a transfer sent as two separate calls, so that the caller can debit the sender and credit the
+	 * recipient concurrently and undo either one with the opposite leg of the reversed transfer.
+	 * A leg sent again with the same id is applied only once.
+	 *
+	 * @param legId           the idempotency key of the leg, chosen by the caller
+	 * @param senderCardId    the unique identifier of the sender of the transfer
+	 * @param recipientCardId the unique identifier of the recipient of the transfer
+	 * @param debit           {@code true} to debit the sender, {@code false} to credit the recipient
+	 * @param amount          the amount of the transfer
+	 * @return a Mono signaling when the leg has been committed
+	 */
+	public Mono<Void> transferLeg(final String legId, final Long senderCardId, final Long recipientCardId, final boolean debit,
+			final BigDecimal amount) {
+		final InvalidInputException invalid = validateTransfer(legId, senderCardId, recipientCardId, amount);
+		if (invalid != null) {
+			return Mono.error(invalid);
+		}
+		final Long cardId = debit ? senderCardId : recipientCardId;
+		if (balanceEngine.isEnabled()) {
+			return balanceEngine.transferLeg(legId, cardId, debit ? amount.negate() : amount);
+		}
+		return writeLanes.submit(cardId, () -> convertUniToMono(repository.transferLeg(legId, senderCardId, recipientCardId, debit, amount)))
+			// Bulk updates do not hand back the new state of the card
+			.doOnSuccess(v -> cardCache.invalidate(cardId))
+			.doOnSuccess(v -> log.debug("Applied the {} leg of transfer {}", debit ? "debit" : "credit", legId));
+	}
+
+	/**
+	 * @return the reason the transfer, or transfer leg, is invalid, or {@code null} if it is valid
+	 */
+	private static InvalidInputException validateTransfer(final String transferId, final Long senderCardId, final Long recipientCardId,
+			final BigDecimal amount) {
+		if (transferId == null || transferId.isBlank() || transferId.length() > CardTransfer.MAX_ID_LENGTH) {
+			return new InvalidInputException("Transfer id must be set and at most " + CardTransfer.MAX_ID_LENGTH + " characters long");
+		}
+		if (senderCardId == null || recipientCardId == null || senderCardId.equals(recipientCardId)) {
+			return new InvalidInputException("Sender and recipient must be two different cards");
+		}
+		if (amount == null || amount.signum() <= 0) {
+			return new InvalidInputException("Transfer amount must be greater than 0");
+		}
+		return null;
+	}
+
+	/**
+	 * Replaces the balance of the card with the one held by the balance engine, if the engine has it,
+	 * since the database only catches up with it at the next snapshot.
 	 */
-	public Mono<Void> updateBalance(final Long id, final BigDecimal newBalance) {
-		return Mono.fromCompletionStage(repository.updateCardBalance(id, newBalance).subscribeAsCompletionStage()).then();
+	private CardDTO withEngineBalance(final CardDTO card) {
+		final CardBalance balance = balanceEngine.isEnabled() ? balanceEngine.get(card.getId()) : null;
+		return balance == null ? card : balance.applyTo(card);
 	}
 
 }
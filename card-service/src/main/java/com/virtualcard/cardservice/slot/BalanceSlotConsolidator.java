@@ -0,0 +1,100 @@
+package com.virtualcard.cardservice.slot;
+
+import static com.virtualcard.common.converter.VertxWebFluxConverter.convertUniToMono;
+
+import java.time.Duration;
+
+import org.springframework.stereotype.Component;
+
+import com.virtualcard.cardservice.cache.CardCache;
+import com.virtualcard.cardservice.configuration.BalanceEngineProperties;
+import com.virtualcard.cardservice.configuration.BalanceSlotProperties;
+import com.virtualcard.cardservice.repository.ReactiveCardRepository;
+
+import lombok.extern.log4j.Log4j2;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Periodically moves the balance slots of the cards back into their card row.
+ *
+ * Slots fill up with credits and only drain when a debit happens to draw from them, so without consolidation
+ * the balance of a card would end up scattered in slots too small to cover a debit on their own.
+ * Each card is consolidated in its own short transaction, locking its row only for that time.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+@Log4j2
+@Component
+public class BalanceSlotConsolidator {
+
+	private final ReactiveCardRepository repository;
+	private final CardCache cardCache;
+	private final BalanceSlotProperties properties;
+	private final BalanceEngineProperties balanceEngineProperties;
+
+	private Disposable consolidation;
+
+	public BalanceSlotConsolidator(final ReactiveCardRepository repository, final CardCache cardCache, final BalanceSlotProperties properties,
+			final BalanceEngineProperties balanceEngineProperties) {
+		if (properties.getConsolidationBatchSize() < 1) {
+			throw new IllegalArgumentException("Consolidation batch size must be at least 1");
+		}
+		this.repository = repository;
+		this.cardCache = cardCache;
+		this.properties = properties;
+		this.balanceEngineProperties = balanceEngineProperties;
+	}
+
+	@PostConstruct
+	private void start() {
+		// The balance engine owns the balances and empties the slots as it writes them
+		if (balanceEngineProperties.isEnabled()) {
+			return;
+		}
+		final Duration interval = properties.getConsolidationInterval();
+		consolidation = Flux.interval(interval, interval)
+			.onBackpressureDrop()
+			.concatMap(tick -> consolidate()
+				.onErrorResume(e -> {
+					log.warn("Balance slot consolidation failed, will retry in {}: {}", interval, e.getMessage());
+					return Mono.empty();
+				}))
+			.subscribe();
+	}
+
+	@PreDestroy
+	private void stop() {
+		if (consolidation != null) {
+			consolidation.dispose();
+		}
+	}
+
+	/**
+	 * Consolidates up to a batch of cards with a non empty balance slot.
+	 *
+	 * @return a Mono emitting the number of cards consolidated
+	 */
+	public Mono<Long> consolidate() {
+		return convertUniToMono(repository.findCardIdsWithSlotBalance(properties.getConsolidationBatchSize()))
+			.flatMapIterable(ids -> ids)
+			.concatMap(id -> convertUniToMono(repository.consolidateBalanceSlots(id))
+				.filter(Boolean::booleanValue)
+				// The card row got a new balance and version
+				.doOnNext(consolidated -> cardCache.invalidate(id)))
+			.count()
+			.doOnNext(count -> {
+				if (count > 0) {
+					log.debug("Consolidated the balance slots of {} cards", count);
+				}
+			});
+	}
+
+}
@@ -0,0 +1,300 @@
+package com.virtualcard.cardservice.app.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.util.unit.DataSize;
+
+import com.virtualcard.cardservice.configuration.BalanceEngineProperties;
+import com.virtualcard.cardservice.engine.BalanceEngine;
+import com.virtualcard.cardservice.engine.BalanceJournal;
+import com.virtualcard.cardservice.engine.CardBalance;
+import com.virtualcard.cardservice.engine.JournalRecord;
+import com.virtualcard.cardservice.entity.Card;
+import com.virtualcard.cardservice.repository.ReactiveCardRepository;
+import com.virtualcard.common.enums.CardStatus;
+import com.virtualcard.common.error.InvalidInputException;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.persistence.OptimisticLockException;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class BalanceEngineTest {
+
+	private static final Long SENDER_ID = 1L;
+	private static final Long RECIPIENT_ID = 2L;
+	private static final String TRANSFER_ID = "transfer-1";
+
+	@TempDir
+	private Path directory;
+
+	@Mock
+	private ReactiveCardRepository repository;
+
+	// Rows of the cards table, as the repository mock reads and writes them
+	private final Map<Long, Card> database = new ConcurrentHashMap<>();
+
+	private final List<BalanceEngine> engines = new ArrayList<>();
+
+	@BeforeEach
+	void setup() {
+		database.put(SENDER_ID, card(SENDER_ID, "100.00", 0));
+		database.put(RECIPIENT_ID, card(RECIPIENT_ID, "10.00", 0));
+
+		Mockito.when(repository.findAllByIds(Mockito.anyCollection(), Mockito.any()))
+			.thenAnswer(invocation -> {
+				final Collection<Long> ids = invocation.getArgument(0);
+				return Uni.createFrom().item(ids.stream().map(database::get).filter(card -> card != null).map(BalanceEngineTest::copy).toList());
+			});
+		Mockito.when(repository.writeBalances(Mockito.anyList()))
+			.thenAnswer(invocation -> {
+				final List<Card> snapshots = invocation.getArgument(0);
+				snapshots.forEach(snapshot -> database.computeIfPresent(snapshot.getId(), (id, card) -> {
+					card.setBalance(snapshot.getBalance());
+					card.setVersion(snapshot.getVersion());
+					return card;
+				}));
+				return Uni.createFrom().voidItem();
+			});
+	}
+
+	@AfterEach
+	void stopEngines() throws IOException {
+		for (final BalanceEngine engine : engines) {
+			engine.stop();
+		}
+	}
+
+	@Test
+	void transfer_shouldMoveBalancesInMemoryAndSnapshotThemLater() throws IOException {
+		final BalanceEngine engine = startEngine(DataSize.ofKilobytes(64));
+
+		StepVerifier.create(engine.transfer(TRANSFER_ID, SENDER_ID, RECIPIENT_ID, new BigDecimal("40.00")))
+			.verifyComplete();
+
+		assertThat(engine.get(SENDER_ID)).isEqualTo(new CardBalance(SENDER_ID, CardStatus.ACTIVE, 6000, 1));
+		assertThat(engine.get(RECIPIENT_ID)).isEqualTo(new CardBalance(RECIPIENT_ID, CardStatus.ACTIVE, 5000, 1));
+		Mockito.verify(repository, Mockito.never()).writeBalances(Mockito.anyList());
+
+		StepVerifier.create(engine.flush())
+			.verifyComplete();
+
+		assertThat(database.get(SENDER_ID).getBalance()).isEqualByComparingTo("60.00");
+		assertThat(database.get(RECIPIENT_ID).getVersion()).isEqualTo(1);
+	}
+
+	@Test
+	void transfer_shouldApplyOnce_whenSentAgainWithSameId() throws IOException {
+		final BalanceEngine engine = startEngine(DataSize.ofKilobytes(64));
+
+		StepVerifier.create(engine.transfer(TRANSFER_ID, SENDER_ID, RECIPIENT_ID, new BigDecimal("40.00"))
+			.then(engine.transfer(TRANSFER_ID, SENDER_ID, RECIPIENT_ID, new BigDecimal("40.00"))))
+			.verifyComplete();
+
+		assertThat(engine.get(SENDER_ID).balanceCents()).isEqualTo(6000);
+		assertThat(engine.get(RECIPIENT_ID).balanceCents()).isEqualTo(5000);
+	}
+
+	@Test
+	void transfer_shouldBeRetryable_whenItFailed() throws IOException {
+		final BalanceEngine engine = startEngine(DataSize.ofKilobytes(64));
+		StepVerifier.create(engine.setBalance(SENDER_ID, new BigDecimal("10.00"), null))
+			.expectNextCount(1)
+			.verifyComplete();
+
+		StepVerifier.create(engine.transfer(TRANSFER_ID, SENDER_ID, RECIPIENT_ID, new BigDecimal("40.00")))
+			.expectError(InvalidInputException.class)
+			.verify();
+		StepVerifier.create(engine.setBalance(SENDER_ID, new BigDecimal("100.00"), null)
+			.then(engine.transfer(TRANSFER_ID, SENDER_ID, RECIPIENT_ID, new BigDecimal("40.00"))))
+			.verifyComplete();
+
+		assertThat(engine.get(SENDER_ID).balanceCents()).isEqualTo(6000);
+	}
+
+	@Test
+	void setBalance_shouldRejectStaleExpectedVersion() throws IOException {
+		final BalanceEngine engine = startEngine(DataSize.ofKilobytes(64));
+
+		StepVerifier.create(engine.setBalance(SENDER_ID, new BigDecimal("90.00"), 0))
+			.expectNextMatches(balance -> balance.version() == 1)
+			.verifyComplete();
+		StepVerifier.create(engine.setBalance(SENDER_ID, new BigDecimal("95.00"), 0))
+			.expectError(OptimisticLockException.class)
+			.verify();
+
+		assertThat(engine.get(SENDER_ID).balanceCents()).isEqualTo(9000);
+	}
+
+	@Test
+	void transfer_shouldLeaveBalancesUntouched_whenSenderCannotCover() throws IOException {
+		final BalanceEngine engine = startEngine(DataSize.ofKilobytes(64));
+
+		StepVerifier.create(engine.transfer(TRANSFER_ID, SENDER_ID, RECIPIENT_ID, new BigDecimal("100.01")))
+			.expectError(InvalidInputException.class)
+			.verify();
+
+		assertThat(engine.get(SENDER_ID).balanceCents()).isEqualTo(10000);
+		assertThat(engine.get(RECIPIENT_ID).balanceCents()).isEqualTo(1000);
+	}
+
+	@Test
+	void start_shouldRecoverBalancesNotYetSnapshotted() throws IOException {
+		final BalanceEngine crashed = startEngine(DataSize.ofKilobytes(64));
+		StepVerifier.create(crashed.transfer(TRANSFER_ID, SENDER_ID, RECIPIENT_ID, new BigDecimal("25.50")))
+			.verifyComplete();
+
+		final BalanceEngine restarted = startEngine(DataSize.ofKilobytes(64));
+
+		assertThat(restarted.get(SENDER_ID)).isEqualTo(new CardBalance(SENDER_ID, CardStatus.ACTIVE, 7450, 1));
+		assertThat(restarted.get(RECIPIENT_ID)).isEqualTo(new CardBalance(RECIPIENT_ID, CardStatus.ACTIVE, 3550, 1));
+	}
+
+	@Test
+	void transfer_shouldApplyOnce_whenSentAgainAfterRestart() throws IOException {
+		final BalanceEngine crashed = startEngine(DataSize.ofKilobytes(64));
+		StepVerifier.create(crashed.transfer(TRANSFER_ID, SENDER_ID, RECIPIENT_ID, new BigDecimal("40.00")))
+			.verifyComplete();
+
+		final BalanceEngine restarted = startEngine(DataSize.ofKilobytes(64));
+		StepVerifier.create(restarted.transfer(TRANSFER_ID, SENDER_ID, RECIPIENT_ID, new BigDecimal("40.00")))
+			.verifyComplete();
+
+		assertThat(restarted.get(SENDER_ID).balanceCents()).isEqualTo(6000);
+		assertThat(restarted.get(RECIPIENT_ID).balanceCents()).isEqualTo(5000);
+	}
+
+	@Test
+	void transfer_shouldApplyOnce_whenSentAgainAfterTheJournalRolled() throws IOException {
+		// Room for a handful of records only, the transfer records are dropped by the next generations
+		final BalanceEngine crashed = startEngine(DataSize.ofBytes(6L * JournalRecord.SIZE));
+		StepVerifier.create(crashed.transfer(TRANSFER_ID, SENDER_ID, RECIPIENT_ID, new BigDecimal("40.00"))
+			.thenMany(Flux.range(1, 20).concatMap(i -> crashed.setBalance(RECIPIENT_ID, BigDecimal.valueOf(i), null)))
+			.then(crashed.flush()))
+			.verifyComplete();
+
+		final BalanceEngine restarted = startEngine(DataSize.ofBytes(6L * JournalRecord.SIZE));
+		StepVerifier.create(restarted.transfer(TRANSFER_ID, SENDER_ID, RECIPIENT_ID, new BigDecimal("40.00")))
+			.verifyComplete();
+
+		assertThat(restarted.get(SENDER_ID).balanceCents()).isEqualTo(6000);
+		assertThat(restarted.get(RECIPIENT_ID).balanceCents()).isEqualTo(2000);
+	}
+
+	@Test
+	void transferLeg_shouldApplyOnce_whenSentAgainAfterRestart() throws IOException {
+		final BalanceEngine crashed = startEngine(DataSize.ofKilobytes(64));
+		StepVerifier.create(crashed.transferLeg(TRANSFER_ID + ":debit", SENDER_ID, new BigDecimal("-40.00")))
+			.verifyComplete();
+
+		final BalanceEngine restarted = startEngine(DataSize.ofKilobytes(64));
+		StepVerifier.create(restarted.transferLeg(TRANSFER_ID + ":debit", SENDER_ID, new BigDecimal("-40.00")))
+			.verifyComplete();
+
+		assertThat(restarted.get(SENDER_ID).balanceCents()).isEqualTo(6000);
+	}
+
+	@Test
+	void start_shouldCompleteTransfersLeftHalfway() throws IOException {
+		// The sender was debited but the process stopped before the recipient was credited
+		BalanceJournal.create(directory, 1, 16 * JournalRecord.SIZE, false, List.of(
+				JournalRecord.transfer(JournalRecord.Type.DEBIT, new CardBalance(SENDER_ID, CardStatus.ACTIVE, 6000, 1), 7, RECIPIENT_ID, 4000)))
+			.close();
+
+		final BalanceEngine engine = startEngine(DataSize.ofKilobytes(64));
+
+		assertThat(engine.get(SENDER_ID).balanceCents()).isEqualTo(6000);
+		assertThat(engine.get(RECIPIENT_ID).balanceCents()).isEqualTo(5000);
+	}
+
+	@Test
+	void setBalance_shouldRollTheJournalWithoutLosingChanges() throws IOException {
+		// Room for a handful of records only, the journal rolls many times
+		final BalanceEngine crashed = startEngine(DataSize.ofBytes(6L * JournalRecord.SIZE));
+
+		StepVerifier.create(Flux.range(1, 50)
+			.concatMap(i -> crashed.setBalance(i % 2 == 0 ? SENDER_ID : RECIPIENT_ID, BigDecimal.valueOf(i), null)))
+			.expectNextCount(50)
+			.verifyComplete();
+
+		final BalanceEngine restarted = startEngine(DataSize.ofBytes(6L * JournalRecord.SIZE));
+
+		assertThat(restarted.get(SENDER_ID)).isEqualTo(new CardBalance(SENDER_ID, CardStatus.ACTIVE, 5000, 25));
+		assertThat(restarted.get(RECIPIENT_ID)).isEqualTo(new CardBalance(RECIPIENT_ID, CardStatus.ACTIVE, 4900, 25));
+	}
+
+	@Test
+	void setBalance_shouldRollTheJournal_whenMoreCardsAreUnflushedThanItHolds() throws IOException {
+		final List<Long> ids = LongStream.rangeClosed(10, 17).boxed().toList();
+		ids.forEach(id -> database.put(id, card(id, "0.00", 0)));
+		// Room for two records, the balances of the eight cards must still be carried to the next generation
+		final BalanceEngine crashed = startEngine(DataSize.ofBytes(2L * JournalRecord.SIZE));
+
+		StepVerifier.create(Flux.fromIterable(ids)
+			.concatMap(id -> crashed.setBalance(id, BigDecimal.valueOf(id), null)))
+			.expectNextCount(ids.size())
+			.verifyComplete();
+
+		final BalanceEngine restarted = startEngine(DataSize.ofBytes(2L * JournalRecord.SIZE));
+
+		ids.forEach(id -> assertThat(restarted.get(id)).isEqualTo(new CardBalance(id, CardStatus.ACTIVE, id * 100, 1)));
+	}
+
+	private BalanceEngine startEngine(final DataSize journalSize) throws IOException {
+		final BalanceEngineProperties properties = new BalanceEngineProperties();
+		properties.setEnabled(true);
+		properties.setPartitions(2);
+		properties.setJournalDirectory(directory.toString());
+		properties.setJournalSize(journalSize);
+		// Snapshots are only taken when the tests flush
+		properties.setSnapshotInterval(Duration.ofHours(1));
+
+		final BalanceEngine engine = new BalanceEngine(repository, properties);
+		engine.start();
+		engines.add(engine);
+		return engine;
+	}
+
+	private static Card card(final Long id, final String balance, final int version) {
+		final Card card = new Card();
+		card.setId(id);
+		card.setBalance(new BigDecimal(balance));
+		card.setStatus(CardStatus.ACTIVE);
+		card.setVersion(version);
+		return card;
+	}
+
+	private static Card copy(final Card card) {
+		return card(card.getId(), card.getBalance().toPlainString(), card.getVersion());
+	}
+
+}
@@ -0,0 +1,105 @@
+package com.virtualcard.cardservice.app.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.virtualcard.cardservice.engine.BalanceJournal;
+import com.virtualcard.cardservice.engine.CardBalance;
+import com.virtualcard.cardservice.engine.JournalRecord;
+import com.virtualcard.common.enums.CardStatus;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+class BalanceJournalTest {
+
+	@TempDir
+	private Path directory;
+
+	@Test
+	void read_shouldReturnAppendedRecordsInOrder() throws IOException {
+		try (BalanceJournal journal = BalanceJournal.create(directory, 1, 16 * JournalRecord.SIZE, false, List.of())) {
+			journal.append(JournalRecord.set(balance(1L, 1000, 1)));
+			journal.append(JournalRecord.transfer(JournalRecord.Type.DEBIT, balance(1L, 600, 2), 7, 2L, 400));
+		}
+
+		final BalanceJournal.Content content = BalanceJournal.read(directory);
+
+		assertThat(content.lastGeneration()).hasValue(1);
+		assertThat(content.records()).containsExactly(
+				JournalRecord.set(balance(1L, 1000, 1)),
+				JournalRecord.transfer(JournalRecord.Type.DEBIT, balance(1L, 600, 2), 7, 2L, 400));
+	}
+
+	@Test
+	void read_shouldSkipCorruptedRecords() throws IOException {
+		try (BalanceJournal journal = BalanceJournal.create(directory, 1, 16 * JournalRecord.SIZE, false, List.of())) {
+			journal.append(JournalRecord.set(balance(1L, 1000, 1)));
+			journal.append(JournalRecord.set(balance(2L, 2000, 1)));
+			journal.append(JournalRecord.set(balance(3L, 3000, 1)));
+		}
+		// Flip a byte of the second record
+		try (FileChannel channel = FileChannel.open(directory.resolve("balances-1.journal"), StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[] { 0x7f }), JournalRecord.SIZE + 10L);
+		}
+
+		assertThat(BalanceJournal.read(directory).records())
+			.extracting(JournalRecord::cardId)
+			.containsExactly(1L, 3L);
+	}
+
+	@Test
+	void append_shouldRefuseRecordsOnceFull() throws IOException {
+		try (BalanceJournal journal = BalanceJournal.create(directory, 1, 2 * JournalRecord.SIZE, false, List.of(JournalRecord.set(balance(1L, 1, 1))))) {
+			assertThat(journal.append(JournalRecord.set(balance(1L, 2, 2)))).isTrue();
+			assertThat(journal.append(JournalRecord.set(balance(1L, 3, 3)))).isFalse();
+			assertThat(journal.isFull()).isTrue();
+		}
+	}
+
+	@Test
+	void create_shouldGrowTheJournal_whenCarriedRecordsDoNotFit() throws IOException {
+		final List<JournalRecord> carried = LongStream.rangeClosed(1, 8).mapToObj(id -> JournalRecord.set(balance(id, 100, 1))).toList();
+
+		try (BalanceJournal journal = BalanceJournal.create(directory, 1, 4 * JournalRecord.SIZE, false, carried)) {
+			assertThat(journal.isFull()).isFalse();
+			for (int i = 0; i < carried.size(); i++) {
+				assertThat(journal.append(JournalRecord.set(balance(9L, i, i + 1)))).isTrue();
+			}
+			assertThat(journal.isFull()).isTrue();
+		}
+
+		assertThat(Files.size(directory.resolve("balances-1.journal"))).isEqualTo(16L * JournalRecord.SIZE);
+		assertThat(BalanceJournal.read(directory).records()).hasSize(16).startsWith(carried.toArray(JournalRecord[]::new));
+	}
+
+	@Test
+	void deleteOlderThan_shouldKeepTheNewGeneration() throws IOException {
+		BalanceJournal.create(directory, 1, 4 * JournalRecord.SIZE, false, List.of(JournalRecord.set(balance(1L, 1, 1)))).close();
+		BalanceJournal.create(directory, 2, 4 * JournalRecord.SIZE, false, List.of(JournalRecord.set(balance(1L, 2, 2)))).close();
+
+		BalanceJournal.deleteOlderThan(directory, 2);
+
+		assertThat(Files.exists(directory.resolve("balances-1.journal"))).isFalse();
+		assertThat(BalanceJournal.read(directory).records()).containsExactly(JournalRecord.set(balance(1L, 2, 2)));
+	}
+
+	private static CardBalance balance(final Long id, final long cents, final int version) {
+		return new CardBalance(id, CardStatus.ACTIVE, cents, version);
+	}
+
+}
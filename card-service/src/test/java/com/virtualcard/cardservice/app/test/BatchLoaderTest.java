@@ -0,0 +1,90 @@
+package com.virtualcard.cardservice.app.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.virtualcard.cardservice.loader.BatchLoader;
+
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         17 set 2025
+ *
+ */
+class BatchLoaderTest {
+
+	private final List<Set<String>> batches = new CopyOnWriteArrayList<>();
+
+	private final Function<Set<String>, Mono<Map<String, String>>> upperCase = keys -> {
+		batches.add(keys);
+		return Mono.just(keys.stream()
+			.filter(key -> !key.startsWith("missing"))
+			.collect(Collectors.toMap(Function.identity(), String::toUpperCase)));
+	};
+
+	@Test
+	void load_shouldResolveConcurrentKeysWithOneBatch() {
+		final BatchLoader<String, String> loader = new BatchLoader<>(upperCase, Duration.ofMillis(20), 100);
+
+		StepVerifier.create(Flux.merge(loader.load("a"), loader.load("b"), loader.load("c")).collectList())
+			.expectNextMatches(values -> values.containsAll(List.of("A", "B", "C")))
+			.verifyComplete();
+
+		assertEquals(List.of(Set.of("a", "b", "c")), batches);
+	}
+
+	@Test
+	void load_shouldShareInFlightLookupOfSameKey() {
+		final BatchLoader<String, String> loader = new BatchLoader<>(upperCase, Duration.ofMillis(20), 100);
+
+		StepVerifier.create(Flux.merge(loader.load("a"), loader.load("a"), loader.load("a")).collectList())
+			.expectNext(List.of("A", "A", "A"))
+			.verifyComplete();
+
+		assertEquals(List.of(Set.of("a")), batches);
+	}
+
+	@Test
+	void load_shouldDispatchAsSoonAsBatchIsFull() {
+		final BatchLoader<String, String> loader = new BatchLoader<>(upperCase, Duration.ofMinutes(1), 2);
+
+		StepVerifier.create(Flux.merge(loader.load("a"), loader.load("b")).collectList())
+			.expectNextMatches(values -> values.size() == 2)
+			.expectComplete()
+			.verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	void load_shouldCompleteEmptyForMissingKey() {
+		final BatchLoader<String, String> loader = new BatchLoader<>(upperCase, Duration.ofMillis(1), 100);
+
+		StepVerifier.create(loader.load("missing"))
+			.verifyComplete();
+	}
+
+	@Test
+	void load_shouldPropagateBatchFailureToEveryKey() {
+		final BatchLoader<String, String> loader = new BatchLoader<>(keys -> Mono.error(new IllegalStateException("down")),
+				Duration.ofMillis(5), 100);
+
+		StepVerifier.create(Flux.mergeDelayError(2, loader.load("a"), loader.load("b")))
+			.expectErrorMatches(e -> Exceptions.unwrapMultiple(e).size() == 2
+					&& Exceptions.unwrapMultiple(e).stream().allMatch(IllegalStateException.class::isInstance))
+			.verify();
+	}
+
+}
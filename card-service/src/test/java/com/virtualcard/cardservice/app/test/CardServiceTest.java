@@ -5,8 +5,10 @@ import static org.junit.Assert.assertTrue;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
 
 import org.hibernate.reactive.mutiny.Mutiny;
 import org.hibernate.reactive.mutiny.Mutiny.SessionFactory;
@@ -22,9 +24,13 @@ import com.virtualcard.cardservice.repository.ReactiveCardRepository;
 import com.virtualcard.cardservice.service.CardService;
 import com.virtualcard.common.dto.CardDTO;
 import com.virtualcard.common.enums.CardStatus;
+import com.virtualcard.common.error.InvalidInputException;
 import com.virtualcard.common.test.AbstractPostgresReactiveTestContainer;
+import com.virtualcard.common.springdata.repository.ReadConsistency;
 
+import jakarta.persistence.LockModeType;
 import jakarta.persistence.OptimisticLockException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
@@ -137,7 +143,7 @@ class CardServiceTest extends AbstractPostgresReactiveTestContainer {
 		final CardDTO card = createAndReturnCard(new BigDecimal("50.00"), CardStatus.ACTIVE);
 
 		StepVerifier.create(
-				service.updateBalance(card.getId(), new BigDecimal("75.00"))
+				service.updateBalance(card.getId(), new BigDecimal("75.00"), card.getVersion())
 					.then(Mono.defer(() -> Mono.fromCompletionStage(repository.findById(card.getId())
 						.map(Card::getVersion)
 						.subscribeAsCompletionStage()))) // Reactive check
@@ -146,6 +152,31 @@ class CardServiceTest extends AbstractPostgresReactiveTestContainer {
 			.verifyComplete();
 	}
 
+	/**
+	 * Verifies that a balance computed from a stale version of the card is rejected even under the pessimistic lock,
+	 * which serializes the writers but would otherwise let the second one overwrite the first.
+	 */
+	@Test
+	void updateCardBalance_shouldRejectStaleExpectedVersion_whenLockedPessimistically() {
+		final CardDTO card = createAndReturnCard(new BigDecimal("50.00"), CardStatus.ACTIVE);
+
+		StepVerifier.create(Mono.fromCompletionStage(repository
+			.updateCardBalance(card.getId(), new BigDecimal("40.00"), card.getVersion(), LockModeType.PESSIMISTIC_WRITE)
+			.subscribeAsCompletionStage()))
+			.expectNextCount(1)
+			.verifyComplete();
+
+		StepVerifier.create(Mono.fromCompletionStage(repository
+			.updateCardBalance(card.getId(), new BigDecimal("45.00"), card.getVersion(), LockModeType.PESSIMISTIC_WRITE)
+			.subscribeAsCompletionStage()))
+			.expectError(OptimisticLockException.class)
+			.verify();
+
+		StepVerifier.create(service.getCard(card.getId()))
+			.expectNextMatches(c -> c.getBalance().compareTo(new BigDecimal("40.00")) == 0)
+			.verifyComplete();
+	}
+
 	/**
 	 * Tests that concurrent updates on the same record trigger an optimistic locking failure.
 	 *
@@ -199,6 +230,222 @@ class CardServiceTest extends AbstractPostgresReactiveTestContainer {
 		assertTrue(errorHolder.get() instanceof OptimisticLockException);
 	}
 
+	/**
+	 * Verifies that a transfer debits the sender and credits the recipient in the same transaction,
+	 * bumping the version of both cards.
+	 */
+	@Test
+	void transfer_shouldMoveAmountBetweenCards() {
+		final CardDTO sender = createAndReturnCard(new BigDecimal("100.00"), CardStatus.ACTIVE);
+		final CardDTO recipient = createAndReturnCard(new BigDecimal("10.00"), CardStatus.ACTIVE);
+
+		StepVerifier.create(service.transfer(UUID.randomUUID().toString(), sender.getId(), recipient.getId(), new BigDecimal("40.00")))
+			.verifyComplete();
+
+		StepVerifier.create(Mono.zip(service.getCard(sender.getId()), service.getCard(recipient.getId())))
+			.expectNextMatches(tuple -> tuple.getT1().getBalance().compareTo(new BigDecimal("60.00")) == 0
+					&& tuple.getT2().getBalance().compareTo(new BigDecimal("50.00")) == 0
+					&& tuple.getT1().getVersion() == 1
+					&& tuple.getT2().getVersion() == 1)
+			.verifyComplete();
+	}
+
+	/**
+	 * Verifies that a transfer sent again with the same id, as a retry after a timeout would, moves the amount once.
+	 */
+	@Test
+	void transfer_shouldApplyOnce_whenRetriedWithSameId() {
+		final CardDTO sender = createAndReturnCard(new BigDecimal("100.00"), CardStatus.ACTIVE);
+		final CardDTO recipient = createAndReturnCard(new BigDecimal("10.00"), CardStatus.ACTIVE);
+		final String transferId = UUID.randomUUID().toString();
+
+		StepVerifier.create(service.transfer(transferId, sender.getId(), recipient.getId(), new BigDecimal("40.00"))
+			.then(service.transfer(transferId, sender.getId(), recipient.getId(), new BigDecimal("40.00"))))
+			.verifyComplete();
+
+		StepVerifier.create(Mono.zip(service.getCard(sender.getId()), service.getCard(recipient.getId())))
+			.expectNextMatches(tuple -> tuple.getT1().getBalance().compareTo(new BigDecimal("60.00")) == 0
+					&& tuple.getT2().getBalance().compareTo(new BigDecimal("50.00")) == 0)
+			.verifyComplete();
+	}
+
+	/**
+	 * Verifies that the legs of a transfer sent as two concurrent calls move the amount once, even when a leg is sent again.
+	 */
+	@Test
+	void transferLeg_shouldApplyEachLegOnce_whenRetriedWithSameId() {
+		final CardDTO sender = createAndReturnCard(new BigDecimal("100.00"), CardStatus.ACTIVE);
+		final CardDTO recipient = createAndReturnCard(new BigDecimal("10.00"), CardStatus.ACTIVE);
+		final String transferId = UUID.randomUUID().toString();
+
+		StepVerifier.create(Mono.when(
+				service.transferLeg(transferId + ":debit", sender.getId(), recipient.getId(), true, new BigDecimal("40.00")),
+				service.transferLeg(transferId + ":credit", sender.getId(), recipient.getId(), false, new BigDecimal("40.00")))
+			.then(service.transferLeg(transferId + ":debit", sender.getId(), recipient.getId(), true, new BigDecimal("40.00"))))
+			.verifyComplete();
+
+		StepVerifier.create(Mono.zip(service.getCard(sender.getId()), service.getCard(recipient.getId())))
+			.expectNextMatches(tuple -> tuple.getT1().getBalance().compareTo(new BigDecimal("60.00")) == 0
+					&& tuple.getT2().getBalance().compareTo(new BigDecimal("50.00")) == 0)
+			.verifyComplete();
+	}
+
+	/**
+	 * Verifies that a transfer not covered by the sender balance fails and leaves both cards untouched.
+	 */
+	@Test
+	void transfer_shouldRollback_whenBalanceInsufficient() {
+		final CardDTO sender = createAndReturnCard(new BigDecimal("10.00"), CardStatus.ACTIVE);
+		final CardDTO recipient = createAndReturnCard(new BigDecimal("10.00"), CardStatus.ACTIVE);
+
+		StepVerifier.create(service.transfer(UUID.randomUUID().toString(), sender.getId(), recipient.getId(), new BigDecimal("40.00")))
+			.expectError(InvalidInputException.class)
+			.verify();
+
+		StepVerifier.create(Mono.zip(service.getCard(sender.getId()), service.getCard(recipient.getId())))
+			.expectNextMatches(tuple -> tuple.getT1().getBalance().compareTo(new BigDecimal("10.00")) == 0
+					&& tuple.getT2().getBalance().compareTo(new BigDecimal("10.00")) == 0)
+			.verifyComplete();
+	}
+
+	/**
+	 * Verifies that concurrent credits to the same card are all applied, none failing on a version conflict.
+	 */
+	@Test
+	void applyBalanceDelta_shouldApplyConcurrentCredits() {
+		final CardDTO card = createAndReturnCard(new BigDecimal("0.00"), CardStatus.ACTIVE);
+
+		StepVerifier.create(Flux.range(0, 20)
+			.flatMap(i -> service.applyBalanceDelta(card.getId(), new BigDecimal("5.00")))
+			.then(service.getCard(card.getId())))
+			.expectNextMatches(c -> c.getBalance().compareTo(new BigDecimal("100.00")) == 0 && c.getVersion() == 20)
+			.verifyComplete();
+	}
+
+	/**
+	 * Verifies that a debit not covered by the balance is rejected and leaves the card untouched.
+	 */
+	@Test
+	void applyBalanceDelta_shouldRejectDebit_whenBalanceInsufficient() {
+		final CardDTO card = createAndReturnCard(new BigDecimal("10.00"), CardStatus.ACTIVE);
+
+		StepVerifier.create(service.applyBalanceDelta(card.getId(), new BigDecimal("-10.01")))
+			.expectError(InvalidInputException.class)
+			.verify();
+
+		StepVerifier.create(service.applyBalanceDelta(card.getId(), new BigDecimal("-10.00")))
+			.expectNextMatches(c -> c.getBalance().signum() == 0 && c.getVersion() == 1)
+			.verifyComplete();
+	}
+
+	/**
+	 * Verifies that cards already in the near cache are not served stale after a transfer or a balance update.
+	 */
+	@Test
+	void cachedCards_shouldReflectTransferAndBalanceUpdate() {
+		final CardDTO sender = createAndReturnCard(new BigDecimal("100.00"), CardStatus.ACTIVE);
+		final CardDTO recipient = createAndReturnCard(new BigDecimal("10.00"), CardStatus.ACTIVE);
+
+		// Warm up the cache through both lookups
+		StepVerifier.create(Mono.zip(service.getValidCard(sender.getCode()), service.getCard(recipient.getId())))
+			.expectNextCount(1)
+			.verifyComplete();
+
+		StepVerifier.create(service.transfer(UUID.randomUUID().toString(), sender.getId(), recipient.getId(), new BigDecimal("40.00"))
+			.then(service.updateBalance(recipient.getId(), new BigDecimal("80.00"), null)))
+			.verifyComplete();
+
+		StepVerifier.create(Mono.zip(service.getValidCard(sender.getCode()), service.getCard(recipient.getId())))
+			.expectNextMatches(tuple -> tuple.getT1().getBalance().compareTo(new BigDecimal("60.00")) == 0
+					&& tuple.getT2().getBalance().compareTo(new BigDecimal("80.00")) == 0
+					&& tuple.getT2().getVersion() == 2)
+			.verifyComplete();
+	}
+
+	/**
+	 * Verifies that concurrent transfers to a card with balance slots are all credited, that its balance sums the slots
+	 * and that a debit no single slot covers is applied once the slots are consolidated.
+	 */
+	@Test
+	void balanceSlots_shouldSumConcurrentCreditsAndCoverLargerDebits() {
+		final CardDTO sender = createAndReturnCard(new BigDecimal("100.00"), CardStatus.ACTIVE);
+		final CardDTO merchant = createAndReturnCard(new BigDecimal("0.00"), CardStatus.ACTIVE);
+
+		StepVerifier.create(service.updateBalanceSlots(merchant.getId(), 4))
+			.expectNextMatches(c -> c.getBalance().signum() == 0)
+			.verifyComplete();
+
+		StepVerifier.create(Flux.range(0, 40)
+			.flatMap(i -> service.transfer(UUID.randomUUID().toString(), sender.getId(), merchant.getId(), new BigDecimal("1.00")), 8)
+			.then(Mono.zip(service.getCard(sender.getId()), service.getCard(merchant.getId()))))
+			.expectNextMatches(tuple -> tuple.getT1().getBalance().compareTo(new BigDecimal("60.00")) == 0
+					&& tuple.getT2().getBalance().compareTo(new BigDecimal("40.00")) == 0)
+			.verifyComplete();
+
+		StepVerifier.create(service.applyBalanceDelta(merchant.getId(), new BigDecimal("-40.00")))
+			.expectNextMatches(c -> c.getBalance().signum() == 0)
+			.verifyComplete();
+	}
+
+	/**
+	 * Verifies that concurrent transfers in opposite directions between two cards with balance slots all complete,
+	 * none aborted as a deadlock.
+	 */
+	@Test
+	void balanceSlots_shouldNotDeadlockOnOppositeTransfers() {
+		final CardDTO first = createAndReturnCard(new BigDecimal("100.00"), CardStatus.ACTIVE);
+		final CardDTO second = createAndReturnCard(new BigDecimal("100.00"), CardStatus.ACTIVE);
+
+		StepVerifier.create(service.updateBalanceSlots(first.getId(), 2)
+			.then(service.updateBalanceSlots(second.getId(), 2)))
+			.expectNextCount(1)
+			.verifyComplete();
+
+		StepVerifier.create(Flux.range(0, 40)
+			.flatMap(i -> Mono.fromCompletionStage(repository.transfer(UUID.randomUUID().toString(),
+					i % 2 == 0 ? first.getId() : second.getId(),
+					i % 2 == 0 ? second.getId() : first.getId(),
+					new BigDecimal("1.00")).subscribeAsCompletionStage()), 8)
+			.then(Mono.zip(service.getCard(first.getId()), service.getCard(second.getId()))))
+			.expectNextMatches(tuple -> tuple.getT1().getBalance().compareTo(new BigDecimal("100.00")) == 0
+					&& tuple.getT2().getBalance().compareTo(new BigDecimal("100.00")) == 0)
+			.verifyComplete();
+	}
+
+	/**
+	 * Verifies that consolidating the balance slots moves them to the card row without changing the balance.
+	 */
+	@Test
+	void balanceSlots_shouldConsolidateIntoCardRow() {
+		final CardDTO sender = createAndReturnCard(new BigDecimal("30.00"), CardStatus.ACTIVE);
+		final CardDTO merchant = createAndReturnCard(new BigDecimal("5.00"), CardStatus.ACTIVE);
+
+		StepVerifier.create(service.updateBalanceSlots(merchant.getId(), 2)
+			.then(service.transfer(UUID.randomUUID().toString(), sender.getId(), merchant.getId(), new BigDecimal("30.00")))
+			.then(Mono.fromCompletionStage(repository.consolidateBalanceSlots(merchant.getId()).subscribeAsCompletionStage()))
+			.then(Mono.fromCompletionStage(repository.findById(merchant.getId()).subscribeAsCompletionStage())))
+			.expectNextMatches(card -> card.getBalance().compareTo(new BigDecimal("35.00")) == 0
+					&& card.getSlotBalance().signum() == 0)
+			.verifyComplete();
+	}
+
+	/**
+	 * Verifies that a batch of cards larger than the id allocation block is inserted with distinct ids from the sequence.
+	 */
+	@Test
+	void saveAll_shouldInsertCardsWithDistinctIds() {
+		final List<Card> cards = IntStream.range(0, 120)
+			.mapToObj(i -> newCard(new BigDecimal("1.00"), CardStatus.ACTIVE))
+			.toList();
+
+		StepVerifier.create(Mono.fromCompletionStage(repository.saveAll(cards)
+			.chain(saved -> repository.findAllByCodes(saved.stream().map(Card::getCode).toList(), ReadConsistency.READ_YOUR_WRITES))
+			.subscribeAsCompletionStage()))
+			.expectNextMatches(found -> found.size() == 120
+					&& found.stream().map(Card::getId).distinct().count() == 120)
+			.verifyComplete();
+	}
+
 	/**
 	 * Creates a new card with the given cardholder name and initial balance,
 	 * stores it in the repository, and retrieves it using its unique identifier.
@@ -207,18 +454,20 @@ class CardServiceTest extends AbstractPostgresReactiveTestContainer {
 	 * @return the newly created card as a {@link CardDTO} instance
 	 */
 	private CardDTO createAndReturnCard(final BigDecimal initialAmount, final CardStatus status) {
-		final String code = UUID.randomUUID().toString();
+		return repository.save(newCard(initialAmount, status)) // returns Uni<Card>
+			.flatMap(savedCard -> repository.findByCode(savedCard.getCode(), ReadConsistency.READ_YOUR_WRITES))
+			.map(mapper::entityToDTO)
+			.await().indefinitely(); // block only for test setup
+	}
+
+	private static Card newCard(final BigDecimal initialAmount, final CardStatus status) {
 		final Card card = new Card();
 		card.setUserId(1L);
-		card.setCode(code);
+		card.setCode(UUID.randomUUID().toString());
 		card.setBalance(initialAmount);
 		card.setCreatedAt(Instant.now());
 		card.setStatus(status);
-
-		return repository.save(card) // returns Uni<Card>
-			.flatMap(savedCard -> repository.findByCode(savedCard.getCode()))
-			.map(mapper::entityToDTO)
-			.await().indefinitely(); // block only for test setup
+		return card;
 	}
 
 	@Override
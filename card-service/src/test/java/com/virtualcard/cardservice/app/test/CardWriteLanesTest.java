@@ -0,0 +1,250 @@
+package com.virtualcard.cardservice.app.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.virtualcard.cardservice.configuration.CardWriteLaneProperties;
+import com.virtualcard.cardservice.lane.CardWriteLanes;
+import com.virtualcard.common.error.RateLimitExceededException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import reactor.util.retry.Retry;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+class CardWriteLanesTest {
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private CardWriteLanes lanes;
+
+	@AfterEach
+	void stopLanes() {
+		lanes.stop();
+	}
+
+	@Test
+	void submit_shouldRunTheMutationsOfACardOneAtATimeInOrder() {
+		lanes = lanes(2, 64);
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+
+		final List<Integer> completed = Flux.merge(IntStream.range(0, 20)
+			.mapToObj(i -> lanes.submit(1L, () -> Mono.fromCallable(() -> {
+				maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+				return i;
+			})
+				.delayElement(Duration.ofMillis(2))
+				.doOnNext(ignored -> running.decrementAndGet())))
+			.toList())
+			.collectList()
+			.block(Duration.ofSeconds(10));
+
+		assertEquals(IntStream.range(0, 20).boxed().toList(), completed);
+		assertEquals(1, maxRunning.get());
+	}
+
+	@Test
+	void submit_shouldRunCardsOnDifferentLanesInParallel() {
+		lanes = lanes(2, 64);
+		final Sinks.One<String> release = Sinks.one();
+
+		// Card 1 holds its lane until card 2, on the other lane, has been written
+		final Mono<String> blocked = lanes.submit(1L, release::asMono);
+		final Mono<String> independent = lanes.submit(2L, () -> Mono.just("written"))
+			.doOnNext(ignored -> release.tryEmitValue("released"));
+
+		StepVerifier.create(Mono.zip(blocked, independent))
+			.assertNext(tuple -> {
+				assertEquals("released", tuple.getT1());
+				assertEquals("written", tuple.getT2());
+			})
+			.expectComplete()
+			.verify(Duration.ofSeconds(10));
+	}
+
+	@Test
+	void submit_shouldRejectMutationsWhenTheLaneIsFull() throws InterruptedException {
+		lanes = lanes(2, 1);
+		final CountDownLatch started = new CountDownLatch(1);
+		final Sinks.One<String> release = Sinks.one();
+
+		final Mono<String> running = lanes.submit(1L, () -> {
+			started.countDown();
+			return release.asMono();
+		}).cache();
+		running.subscribe();
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+
+		// Card 3 shares the lane of card 1 and fills its queue
+		final Mono<String> queued = lanes.submit(3L, () -> Mono.just("queued")).cache();
+		queued.subscribe();
+		assertEquals(1, lanes.depthOf(1L));
+		assertEquals(1, meterRegistry.get("cards.write-lanes.depth").tag("lane", "1").gauge().value());
+		assertEquals(0, meterRegistry.get("cards.write-lanes.depth").tag("lane", "0").gauge().value());
+
+		StepVerifier.create(lanes.submit(1L, () -> Mono.just("rejected")))
+			.expectError(RateLimitExceededException.class)
+			.verify(Duration.ofSeconds(10));
+		assertEquals(1, meterRegistry.get("cards.write-lanes.rejected").counter().count());
+
+		// The other lane still accepts mutations
+		StepVerifier.create(lanes.submit(2L, () -> Mono.just("accepted")))
+			.expectNext("accepted")
+			.expectComplete()
+			.verify(Duration.ofSeconds(10));
+
+		release.tryEmitValue("released");
+		assertEquals("released", running.block(Duration.ofSeconds(10)));
+		assertEquals("queued", queued.block(Duration.ofSeconds(10)));
+	}
+
+	@Test
+	void submit_shouldPropagateTheErrorOfTheMutationAndKeepTheLaneRunning() {
+		lanes = lanes(1, 8);
+
+		StepVerifier.create(lanes.submit(1L, () -> Mono.error(new IllegalStateException("failed"))))
+			.expectErrorMessage("failed")
+			.verify(Duration.ofSeconds(10));
+		StepVerifier.create(lanes.submit(1L, () -> Mono.just("next")))
+			.expectNext("next")
+			.expectComplete()
+			.verify(Duration.ofSeconds(10));
+	}
+
+	@Test
+	void submit_shouldHoldTheLanesOfBothCards_forATwoCardMutation() throws InterruptedException {
+		lanes = lanes(2, 8);
+		final CountDownLatch started = new CountDownLatch(1);
+		final Sinks.One<String> release = Sinks.one();
+		final AtomicInteger written = new AtomicInteger();
+
+		// Cards 1 and 2 are on different lanes
+		final Mono<String> transfer = lanes.submit(1L, 2L, () -> {
+			started.countDown();
+			return release.asMono();
+		}).cache();
+		transfer.subscribe();
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+
+		final Mono<Integer> first = lanes.submit(1L, () -> Mono.fromCallable(written::incrementAndGet)).cache();
+		final Mono<Integer> second = lanes.submit(2L, () -> Mono.fromCallable(written::incrementAndGet)).cache();
+		first.subscribe();
+		second.subscribe();
+		Thread.sleep(50);
+		assertEquals(0, written.get());
+
+		release.tryEmitValue("released");
+		assertEquals("released", transfer.block(Duration.ofSeconds(10)));
+		first.block(Duration.ofSeconds(10));
+		second.block(Duration.ofSeconds(10));
+		assertEquals(2, written.get());
+	}
+
+	@Test
+	void submit_shouldNotDeadlock_onTwoCardMutationsInOppositeOrder() {
+		lanes = lanes(4, 256);
+
+		final List<Integer> completed = Flux.merge(IntStream.range(0, 100)
+			.mapToObj(i -> lanes.submit(i % 2 == 0 ? 1L : 2L, i % 2 == 0 ? 2L : 1L, () -> Mono.just(i)
+				.delayElement(Duration.ofMillis(1))))
+			.toList())
+			.collectList()
+			.block(Duration.ofSeconds(10));
+
+		assertEquals(100, completed.size());
+	}
+
+	@Test
+	void submit_shouldStallTheLaneUntilATimedOutMutationCompletes() throws InterruptedException {
+		lanes = lanes(1, 8, Duration.ofMillis(100));
+		final Sinks.One<String> release = Sinks.one();
+		final AtomicInteger running = new AtomicInteger();
+
+		final Mono<String> overdue = lanes.submit(1L, () -> {
+			running.incrementAndGet();
+			return release.asMono().doOnNext(ignored -> running.decrementAndGet());
+		}).cache();
+		final Mono<String> queued = lanes.submit(1L, () -> Mono.just("queued")).cache();
+		overdue.subscribe(ignored -> {}, ignored -> {});
+		queued.subscribe(ignored -> {}, ignored -> {});
+
+		StepVerifier.create(overdue)
+			.expectError(TimeoutException.class)
+			.verify(Duration.ofSeconds(10));
+		StepVerifier.create(queued)
+			.expectError(RateLimitExceededException.class)
+			.verify(Duration.ofSeconds(10));
+		StepVerifier.create(lanes.submit(1L, () -> Mono.just("rejected")))
+			.expectError(RateLimitExceededException.class)
+			.verify(Duration.ofSeconds(10));
+
+		release.tryEmitValue("released");
+
+		// The next mutation only starts once the overdue one has completed, the lane resuming right after
+		StepVerifier.create(Mono.defer(() -> lanes.submit(1L, () -> Mono.fromCallable(running::get)))
+			.retryWhen(Retry.fixedDelay(100, Duration.ofMillis(10)).filter(RateLimitExceededException.class::isInstance)))
+			.expectNext(0)
+			.expectComplete()
+			.verify(Duration.ofSeconds(10));
+	}
+
+	@Test
+	void stop_shouldFailTheRunningAndQueuedMutations() throws InterruptedException {
+		lanes = lanes(1, 8);
+		final CountDownLatch started = new CountDownLatch(1);
+
+		final Mono<String> running = lanes.submit(1L, () -> {
+			started.countDown();
+			return Mono.<String> never();
+		}).cache();
+		running.subscribe(ignored -> {}, ignored -> {});
+		assertTrue(started.await(10, TimeUnit.SECONDS));
+		final Mono<String> queued = lanes.submit(1L, () -> Mono.just("queued")).cache();
+		queued.subscribe(ignored -> {}, ignored -> {});
+
+		lanes.stop();
+
+		StepVerifier.create(running)
+			.expectError(IllegalStateException.class)
+			.verify(Duration.ofSeconds(10));
+		StepVerifier.create(queued)
+			.expectError(IllegalStateException.class)
+			.verify(Duration.ofSeconds(10));
+		StepVerifier.create(lanes.submit(1L, () -> Mono.just("rejected")))
+			.expectError(IllegalStateException.class)
+			.verify(Duration.ofSeconds(10));
+	}
+
+	private CardWriteLanes lanes(final int count, final int queueCapacity) {
+		return lanes(count, queueCapacity, Duration.ofSeconds(10));
+	}
+
+	private CardWriteLanes lanes(final int count, final int queueCapacity, final Duration mutationTimeout) {
+		final CardWriteLaneProperties properties = new CardWriteLaneProperties();
+		properties.setLanes(count);
+		properties.setQueueCapacity(queueCapacity);
+		properties.setMutationTimeout(mutationTimeout);
+		return new CardWriteLanes(properties, meterRegistry);
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.virtualcard.cardservice.app.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.virtualcard.cardservice.configuration.CardContentionProperties;
+import com.virtualcard.cardservice.contention.ConflictSketch;
+import com.virtualcard.cardservice.contention.ContentionTracker;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.LockModeType;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+class ContentionTrackerTest {
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final FakeTicker ticker = new FakeTicker();
+
+	@Test
+	void lockModeFor_shouldSwitchToPessimisticOnlyForContendedCards() {
+		final ContentionTracker tracker = tracker(Duration.ofMinutes(1));
+
+		tracker.recordConflict(1L);
+		tracker.recordConflict(1L);
+		assertEquals(LockModeType.OPTIMISTIC, tracker.lockModeFor(1L));
+
+		tracker.recordConflict(1L);
+		assertEquals(LockModeType.PESSIMISTIC_WRITE, tracker.lockModeFor(1L));
+		assertEquals(LockModeType.OPTIMISTIC, tracker.lockModeFor(2L));
+
+		assertEquals(1, meterRegistry.get("cards.lock.writes").tag("mode", "pessimistic").counter().count());
+		assertEquals(2, meterRegistry.get("cards.lock.writes").tag("mode", "optimistic").counter().count());
+		assertEquals(3, meterRegistry.get("cards.lock.conflicts").counter().count());
+		assertEquals(1, meterRegistry.get("cards.lock.hot-cards").gauge().value());
+	}
+
+	@Test
+	void lockModeFor_shouldGoBackToOptimisticAfterCoolDown() {
+		final ContentionTracker tracker = tracker(Duration.ofSeconds(30));
+
+		for (int i = 0; i < 3; i++) {
+			tracker.recordConflict(1L);
+		}
+		assertTrue(tracker.isHot(1L));
+
+		ticker.advance(Duration.ofSeconds(31));
+
+		assertFalse(tracker.isHot(1L));
+		assertEquals(LockModeType.OPTIMISTIC, tracker.lockModeFor(1L));
+	}
+
+	@Test
+	void recordConflict_shouldRestartTheCoolDownOfAHotCard() {
+		final ContentionTracker tracker = tracker(Duration.ofSeconds(30));
+
+		for (int i = 0; i < 3; i++) {
+			tracker.recordConflict(1L);
+		}
+		ticker.advance(Duration.ofSeconds(20));
+		// Below the threshold by now, since the counts were halved, but the card is still hot
+		tracker.recordConflict(1L);
+		ticker.advance(Duration.ofSeconds(20));
+
+		assertTrue(tracker.isHot(1L));
+
+		ticker.advance(Duration.ofSeconds(11));
+
+		assertFalse(tracker.isHot(1L));
+	}
+
+	@Test
+	void conflictSketch_shouldHalveCountsWhenWindowElapses() {
+		final ConflictSketch sketch = new ConflictSketch(64, Duration.ofSeconds(10), ticker);
+
+		for (int i = 0; i < 8; i++) {
+			sketch.increment(1L);
+		}
+		assertEquals(8, sketch.estimate(1L));
+		assertEquals(0, sketch.estimate(2L));
+
+		ticker.advance(Duration.ofSeconds(10));
+
+		assertEquals(4, sketch.estimate(1L));
+	}
+
+	private ContentionTracker tracker(final Duration coolDown) {
+		final CardContentionProperties properties = new CardContentionProperties();
+		properties.setCoolDown(coolDown);
+		return new ContentionTracker(properties, meterRegistry, ticker);
+	}
+
+	private static final class FakeTicker implements Ticker {
+
+		private final AtomicLong nanos = new AtomicLong();
+
+		private void advance(final Duration duration) {
+			nanos.addAndGet(duration.toNanos());
+		}
+
+		@Override
+		public long read() {
+			return nanos.get();
+		}
+	}
+
+}
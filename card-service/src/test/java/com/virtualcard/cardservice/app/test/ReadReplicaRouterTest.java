@@ -0,0 +1,127 @@
+package com.virtualcard.cardservice.app.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+import org.hibernate.reactive.mutiny.Mutiny;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import com.virtualcard.cardservice.entity.Card;
+import com.virtualcard.cardservice.repository.ReactiveCardRepository;
+import com.virtualcard.common.springdata.repository.ReadConsistency;
+import com.virtualcard.common.springdata.repository.ReadReplicaRouter;
+
+import io.smallrye.mutiny.Uni;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ReadReplicaRouterTest {
+
+	@Mock
+	private Mutiny.SessionFactory primary;
+
+	@Mock
+	private Mutiny.SessionFactory replica;
+
+	@Mock
+	private Mutiny.Session primarySession;
+
+	@Mock
+	private Mutiny.Session replicaSession;
+
+	@BeforeEach
+	void setup() {
+		mockSessions(primary, primarySession);
+		mockSessions(replica, replicaSession);
+	}
+
+	@Test
+	void withReadOnlySession_shouldReadFromTheReplica() {
+		final ReadReplicaRouter router = new ReadReplicaRouter(primary, replica, Duration.ofMinutes(1));
+
+		assertThat(router.withReadOnlySession(session -> Uni.createFrom().item(session)).await().indefinitely())
+			.isSameAs(replicaSession);
+		Mockito.verify(replicaSession).setDefaultReadOnly(true);
+		Mockito.verifyNoInteractions(primary);
+	}
+
+	@Test
+	void withReadOnlySession_shouldFallBackToThePrimary_whenReplicaIsUnreachable() {
+		final ReadReplicaRouter router = new ReadReplicaRouter(primary, replica, Duration.ofMinutes(1));
+		final Function<Mutiny.Session, Uni<Mutiny.Session>> work = session -> session == replicaSession
+				? Uni.createFrom().failure(new ConnectException("Connection refused"))
+				: Uni.createFrom().item(session);
+
+		assertThat(router.withReadOnlySession(work).await().indefinitely()).isSameAs(primarySession);
+		assertThat(router.isReplicaAvailable()).isFalse();
+
+		// The replica is skipped until the fallback period elapses
+		assertThat(router.withReadOnlySession(work).await().indefinitely()).isSameAs(primarySession);
+		Mockito.verify(replica, Mockito.times(1)).withSession(Mockito.<Function<Mutiny.Session, Uni<Object>>> any());
+	}
+
+	@Test
+	void withReadOnlySession_shouldNotRetryQueryErrorsOnThePrimary() {
+		final ReadReplicaRouter router = new ReadReplicaRouter(primary, replica, Duration.ofMinutes(1));
+
+		final Uni<Object> failing = router.withReadOnlySession(session -> Uni.createFrom().failure(new IllegalStateException("bad query")));
+
+		assertThat(failing.onFailure().recoverWithItem(Throwable::getMessage).await().indefinitely()).isEqualTo("bad query");
+		assertThat(router.isReplicaAvailable()).isTrue();
+		Mockito.verifyNoInteractions(primary);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void lagTolerantRead_shouldGoToTheReplicaSessionFactory() {
+		final Mutiny.StatelessSession statelessSession = Mockito.mock(Mutiny.StatelessSession.class);
+		final Mutiny.SelectionQuery<Card> query = Mockito.mock(Mutiny.SelectionQuery.class);
+		final Card card = new Card();
+		card.setId(1L);
+		Mockito.when(replica.withStatelessSession(Mockito.<Function<Mutiny.StatelessSession, Uni<Object>>> any()))
+			.thenAnswer(invocation -> ((Function<Mutiny.StatelessSession, Uni<Object>>) invocation.getArgument(0)).apply(statelessSession));
+		Mockito.when(statelessSession.createSelectionQuery(Mockito.anyString(), Mockito.eq(Card.class))).thenReturn(query);
+		Mockito.when(query.setParameter(Mockito.anyString(), Mockito.any())).thenReturn(query);
+		Mockito.when(query.getResultList()).thenReturn(Uni.createFrom().item(List.of(card)));
+
+		final ReactiveCardRepository repository = new ReactiveCardRepository(primary, new ReadReplicaRouter(primary, replica, Duration.ofMinutes(1)));
+
+		assertThat(repository.findAllByIds(List.of(1L), ReadConsistency.LAG_TOLERANT).await().indefinitely()).containsExactly(card);
+		Mockito.verify(replica).withStatelessSession(Mockito.<Function<Mutiny.StatelessSession, Uni<Object>>> any());
+		Mockito.verifyNoInteractions(primary);
+	}
+
+	@Test
+	void primaryOnly_shouldAlwaysReadFromThePrimary() {
+		final ReadReplicaRouter router = ReadReplicaRouter.primaryOnly(primary);
+
+		assertThat(router.withReadOnlySession(session -> Uni.createFrom().item(session)).await().indefinitely())
+			.isSameAs(primarySession);
+		assertThat(router.isReplicaAvailable()).isFalse();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void mockSessions(final Mutiny.SessionFactory factory, final Mutiny.Session session) {
+		Mockito.when(session.setDefaultReadOnly(true)).thenReturn(session);
+		Mockito.when(factory.withSession(Mockito.<Function<Mutiny.Session, Uni<Object>>> any()))
+			.thenAnswer(invocation -> ((Function<Mutiny.Session, Uni<Object>>) invocation.getArgument(0)).apply(session));
+	}
+
+}
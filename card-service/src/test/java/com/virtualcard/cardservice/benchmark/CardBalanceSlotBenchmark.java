@@ -0,0 +1,166 @@
+package com.virtualcard.cardservice.benchmark;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.hibernate.reactive.mutiny.Mutiny;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import com.virtualcard.cardservice.entity.Card;
+import com.virtualcard.cardservice.repository.ReactiveCardRepository;
+import com.virtualcard.common.enums.CardStatus;
+import com.virtualcard.common.springdata.repository.ReadReplicaRouter;
+
+import jakarta.persistence.Persistence;
+
+/**
+ * Transfers per second to hot cards by concurrent writers, as the number of balance slots of the hot cards grows from
+ * none, where every credit queues on the card row, to many.
+ *
+ * {@code creditHotCard} moves money from a card of its own to the same hot card, as a merchant receives payments.
+ * {@code oppositeTransfers} moves money back and forth between two hot cards, half of the writers each way, which
+ * would deadlock if the transfers did not take their locks in the same order.
+ *
+ * Needs a Docker environment for the Postgres container.
+ *
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.virtualcard.cardservice.benchmark.CardBalanceSlotBenchmark}
+ * or straight from the IDE.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(CardBalanceSlotBenchmark.WRITERS)
+public class CardBalanceSlotBenchmark {
+
+	static final int WRITERS = 16;
+
+	private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000.00");
+	private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+	@Param({ "0", "4", "16", "64" })
+	private int balanceSlots;
+
+	private PostgreSQLContainer<?> postgres;
+	private Mutiny.SessionFactory sessionFactory;
+	private ReactiveCardRepository repository;
+
+	private Long merchantId;
+	private Long partnerId;
+	private List<Long> senderIds;
+	private final AtomicInteger writers = new AtomicInteger();
+
+	@Setup(Level.Trial)
+	@SuppressWarnings("resource")
+	public void setUp() {
+		postgres = new PostgreSQLContainer<>("postgres:15.3");
+		postgres.start();
+
+		sessionFactory = Persistence.createEntityManagerFactory("default", Map.of(
+				"jakarta.persistence.jdbc.url", postgres.getJdbcUrl(),
+				"jakarta.persistence.jdbc.user", postgres.getUsername(),
+				"jakarta.persistence.jdbc.password", postgres.getPassword(),
+				"hibernate.hbm2ddl.auto", "create",
+				"hibernate.show_sql", "false"))
+			.unwrap(Mutiny.SessionFactory.class);
+		repository = new ReactiveCardRepository(sessionFactory, ReadReplicaRouter.primaryOnly(sessionFactory));
+
+		final List<Card> cards = IntStream.range(0, WRITERS + 2).mapToObj(i -> newCard()).toList();
+		sessionFactory.withTransaction(session -> session.persistAll(cards.toArray()))
+			.await().indefinitely();
+
+		merchantId = cards.get(0).getId();
+		partnerId = cards.get(1).getId();
+		senderIds = cards.subList(2, cards.size()).stream().map(Card::getId).toList();
+		if (balanceSlots > 0) {
+			repository.updateBalanceSlots(merchantId, balanceSlots).await().indefinitely();
+			repository.updateBalanceSlots(partnerId, balanceSlots).await().indefinitely();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		sessionFactory.close();
+		postgres.stop();
+	}
+
+	/**
+	 * The card of each writer, and the direction it moves money between the two hot cards.
+	 */
+	@State(Scope.Thread)
+	public static class Writer {
+
+		private Long senderId;
+		private boolean towardsPartner;
+
+		@Setup(Level.Trial)
+		public void claim(final CardBalanceSlotBenchmark benchmark) {
+			final int writer = benchmark.writers.getAndIncrement();
+			senderId = benchmark.senderIds.get(writer % WRITERS);
+			towardsPartner = writer % 2 == 0;
+		}
+	}
+
+	@Benchmark
+	public void creditHotCard(final Writer writer) {
+		repository.transfer(UUID.randomUUID().toString(), writer.senderId, merchantId, AMOUNT)
+			.await().indefinitely();
+	}
+
+	@Benchmark
+	public void oppositeTransfers(final Writer writer) {
+		final Long from = writer.towardsPartner ? merchantId : partnerId;
+		final Long to = writer.towardsPartner ? partnerId : merchantId;
+		repository.transfer(UUID.randomUUID().toString(), from, to, AMOUNT)
+			.await().indefinitely();
+	}
+
+	private static Card newCard() {
+		final Card card = new Card();
+		card.setUserId(1L);
+		card.setCode(UUID.randomUUID().toString());
+		card.setStatus(CardStatus.ACTIVE);
+		card.setBalance(INITIAL_BALANCE);
+		card.setCreatedAt(Instant.now());
+		return card;
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+			.include(CardBalanceSlotBenchmark.class.getSimpleName())
+			.build())
+			.run();
+	}
+
+}
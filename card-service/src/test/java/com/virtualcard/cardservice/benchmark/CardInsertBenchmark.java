@@ -0,0 +1,132 @@
+package com.virtualcard.cardservice.benchmark;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.hibernate.reactive.mutiny.Mutiny;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import com.virtualcard.cardservice.entity.Card;
+import com.virtualcard.common.enums.CardStatus;
+
+import jakarta.persistence.Persistence;
+
+/**
+ * Cards inserted per second through Hibernate Reactive, one at a time as {@code createCard} does and in batches as the
+ * bulk issuance does, without an optimizer, a round trip to the sequence per card as with an identity column, and with
+ * the pooled-lo blocks of the mapping.
+ *
+ * Needs a Docker environment for the Postgres container.
+ *
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.virtualcard.cardservice.benchmark.CardInsertBenchmark}
+ * or straight from the IDE.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@OperationsPerInvocation(CardInsertBenchmark.CARDS)
+public class CardInsertBenchmark {
+
+	static final int CARDS = 500;
+
+	@Param({ "none", "pooled-lo" })
+	private String optimizer;
+
+	private PostgreSQLContainer<?> postgres;
+	private Mutiny.SessionFactory sessionFactory;
+
+	@Setup(Level.Trial)
+	@SuppressWarnings("resource")
+	public void setUp() {
+		postgres = new PostgreSQLContainer<>("postgres:15.3");
+		postgres.start();
+
+		sessionFactory = Persistence.createEntityManagerFactory("default", Map.of(
+				"jakarta.persistence.jdbc.url", postgres.getJdbcUrl(),
+				"jakarta.persistence.jdbc.user", postgres.getUsername(),
+				"jakarta.persistence.jdbc.password", postgres.getPassword(),
+				"hibernate.hbm2ddl.auto", "create",
+				"hibernate.show_sql", "false",
+				"hibernate.id.optimizer.pooled.preferred", optimizer))
+			.unwrap(Mutiny.SessionFactory.class);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		sessionFactory.close();
+		postgres.stop();
+	}
+
+	/**
+	 * Each card persisted and flushed in its own session, as a single card is created.
+	 */
+	@Benchmark
+	public List<Card> persistEach() {
+		final List<Card> cards = newCards();
+		cards.forEach(card -> sessionFactory.withSession(session -> session.persist(card)
+			.call(session::flush))
+			.await().indefinitely());
+		return cards;
+	}
+
+	/**
+	 * All the cards persisted in one transaction with the inserts sent in batches, as a chunk of a bulk issuance.
+	 */
+	@Benchmark
+	public List<Card> persistAll() {
+		final List<Card> cards = newCards();
+		return sessionFactory.withTransaction(session -> session.persistAll(cards.toArray()).replaceWith(cards))
+			.await().indefinitely();
+	}
+
+	private static List<Card> newCards() {
+		return IntStream.range(0, CARDS).mapToObj(i -> {
+			final Card card = new Card();
+			card.setUserId(1L);
+			card.setCode(UUID.randomUUID().toString());
+			card.setStatus(CardStatus.ACTIVE);
+			card.setBalance(BigDecimal.ZERO);
+			card.setCreatedAt(Instant.now());
+			return card;
+		}).toList();
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+			.include(CardInsertBenchmark.class.getSimpleName())
+			.build())
+			.run();
+	}
+
+}
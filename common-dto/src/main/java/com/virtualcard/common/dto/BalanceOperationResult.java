@@ -0,0 +1,30 @@
+package com.virtualcard.common.dto;
+
+import java.math.BigDecimal;
+
+import com.virtualcard.common.request.BalanceOperationRequest;
+
+/**
+ * Outcome of one balance operation of a bulk request.
+ *
+ * @param index the position of the operation in the bulk request, starting from 0
+ * @param error the reason of the failure, {@code null} if the operation succeeded
+ *
+ * @author Lorenzo Leccese
+ *
+ *         21 set 2025
+ *
+ */
+public record BalanceOperationResult(long index, String senderCardNumber, String recipientCardNumber, BigDecimal amount, boolean success,
+		String error) implements DTO {
+
+	public static BalanceOperationResult succeeded(final long index, final BalanceOperationRequest request) {
+		return new BalanceOperationResult(index, request.senderCardNumber(), request.recipientCardNumber(), request.amount(), true, null);
+	}
+
+	public static BalanceOperationResult failed(final long index, final BalanceOperationRequest request, final Throwable error) {
+		return new BalanceOperationResult(index, request.senderCardNumber(), request.recipientCardNumber(), request.amount(), false,
+				error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName());
+	}
+
+}
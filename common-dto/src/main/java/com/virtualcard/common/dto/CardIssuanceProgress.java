@@ -0,0 +1,34 @@
+package com.virtualcard.common.dto;
+
+import java.util.List;
+
+/**
+ * Progress of a bulk card issuance, emitted after each chunk of cards.
+ *
+ * @param processed the number of card requests processed so far
+ * @param issued    the number of cards issued so far
+ * @param failures  the card requests of the last chunk that were not issued
+ *
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+public record CardIssuanceProgress(long processed, long issued, List<Failure> failures) implements DTO {
+
+	public static final CardIssuanceProgress NONE = new CardIssuanceProgress(0, 0, List.of());
+
+	/**
+	 * @param index the position of the card request in the bulk request, starting from 0
+	 */
+	public record Failure(long index, String cardNumber, String error) {
+	}
+
+	/**
+	 * @return the progress after the given chunk, carrying only the failures of that chunk
+	 */
+	public CardIssuanceProgress plus(final int chunkProcessed, final int chunkIssued, final List<Failure> chunkFailures) {
+		return new CardIssuanceProgress(processed + chunkProcessed, issued + chunkIssued, List.copyOf(chunkFailures));
+	}
+
+}
@@ -0,0 +1,14 @@
+package com.virtualcard.common.request;
+
+import java.math.BigDecimal;
+
+/**
+ * Relative change of a card balance, positive to credit the card and negative to debit it.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+public record BalanceDeltaRequest(BigDecimal delta) {
+}
@@ -0,0 +1,12 @@
+package com.virtualcard.common.request;
+
+/**
+ * Number of balance slots the credits of a card are spread over, 0 to credit the card row directly.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+public record BalanceSlotsRequest(int slots) {
+}
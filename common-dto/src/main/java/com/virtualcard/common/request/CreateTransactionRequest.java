@@ -5,10 +5,14 @@ import java.math.BigDecimal;
 import com.virtualcard.common.enums.TransactionType;
 
 /**
+ * A transaction to record.
+ *
+ * @param requestId idempotency key chosen by the caller, a transaction sent again with the same id is recorded only once
+ *
  * @author Lorenzo Leccese
  *
  *         8 giu 2025
  *
  */
-public record CreateTransactionRequest(Long senderCardId, Long recipientCardId, BigDecimal amount, TransactionType type) {
+public record CreateTransactionRequest(String requestId, Long senderCardId, Long recipientCardId, BigDecimal amount, TransactionType type) {
 }
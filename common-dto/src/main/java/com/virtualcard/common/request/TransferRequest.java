@@ -0,0 +1,16 @@
+package com.virtualcard.common.request;
+
+import java.math.BigDecimal;
+
+/**
+ * A transfer between two cards.
+ *
+ * @param transferId idempotency key chosen by the caller, a transfer sent again with the same id is applied only once
+ *
+ * @author Lorenzo Leccese
+ *
+ *         15 set 2025
+ *
+ */
+public record TransferRequest(String transferId, Long senderCardId, Long recipientCardId, BigDecimal amount) {
+}
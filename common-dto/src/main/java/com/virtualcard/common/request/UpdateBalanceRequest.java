@@ -3,10 +3,16 @@ package com.virtualcard.common.request;
 import java.math.BigDecimal;
 
 /**
+ * A new balance for a card.
+ *
+ * @param newBalance      the balance replacing the current one
+ * @param expectedVersion the version of the card the new balance was computed from, the update is rejected if the card
+ *                        changed since; {@code null} to overwrite whatever the current balance is
+ *
  * @author Lorenzo Leccese
  *
  *         8 giu 2025
  *
  */
-public record UpdateBalanceRequest(BigDecimal newBalance) {
+public record UpdateBalanceRequest(BigDecimal newBalance, Integer expectedVersion) {
 }
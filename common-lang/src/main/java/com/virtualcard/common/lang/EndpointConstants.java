@@ -18,11 +18,20 @@ public class EndpointConstants {
 	public static final String CREDENTIALS = "/credentials";
 	public static final String TRANSACTIONS = "/transactions";
 	public static final String UPDATE_BALANCE = "/updateBalance";
+	public static final String BALANCE = "/balance";
+	public static final String BALANCE_SLOTS = "/balanceSlots";
 	public static final String BALANCE_OPERATION = "/balanceOperation";
+	public static final String TRANSFER = "/transfer";
+	public static final String DEBIT = "/debit";
+	public static final String CREDIT = "/credit";
+	public static final String BULK = "/bulk";
 	public static final String SPEND = "/spend";
 	public static final String TOPUP = "/topup";
 	public static final String GET_ALL_CARDS_BY_USER = "/getAllCardsByUser";
 	public static final String LAST_MONTH = "/thisMonth";
+	public static final String EXPORT = "/export";
+	public static final String SUMMARY = "/summary";
+	public static final String SERIES = "/series";
 
 	public static final String AMOUNT_QUERY = "?amount=";
 
@@ -39,9 +48,20 @@ public class EndpointConstants {
 	public static final String SPEND_MAPPING = ID + SPEND;
 	public static final String TOPUP_MAPPING = ID + TOPUP;
 	public static final String UPDATE_BALANCE_MAPPING = ID + UPDATE_BALANCE;
+	public static final String BALANCE_MAPPING = ID + BALANCE;
+	public static final String BALANCE_SLOTS_MAPPING = ID + BALANCE_SLOTS;
+	public static final String BULK_BALANCE_OPERATION_MAPPING = BALANCE_OPERATION + BULK;
+	public static final String EXPORT_MAPPING = ID + EXPORT;
+	public static final String SUMMARY_MAPPING = ID + SUMMARY;
+	public static final String SERIES_MAPPING = ID + SERIES;
+	public static final String TRANSFER_DEBIT_MAPPING = TRANSFER + DEBIT;
+	public static final String TRANSFER_CREDIT_MAPPING = TRANSFER + CREDIT;
 
 	// URLs
 	public static final String GET_CARD_URL = CARDS + SLASH;
 	public static final String GET_COVERED_CARD_URL = CARDS + COVERED + SLASH;
+	public static final String TRANSFER_URL = CARDS + TRANSFER;
+	public static final String TRANSFER_DEBIT_URL = TRANSFER_URL + DEBIT;
+	public static final String TRANSFER_CREDIT_URL = TRANSFER_URL + CREDIT;
 
 }
@@ -0,0 +1,19 @@
+package com.virtualcard.common.lang.id;
+
+/**
+ * Source of unique, time-ordered identifiers: ids generated later sort after the earlier ones,
+ * both numerically and as strings, so that they append to the right edge of a B-tree index.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         18 set 2025
+ *
+ */
+public interface IdGenerator {
+
+	/**
+	 * @return a new identifier, at most 36 characters long
+	 */
+	String nextId();
+
+}
@@ -0,0 +1,43 @@
+package com.virtualcard.common.lang.id;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         18 set 2025
+ *
+ */
+public enum IdGeneratorType {
+
+	UUID_V7(false) {
+		@Override
+		public IdGenerator create(final int nodeId) {
+			return new UuidV7Generator();
+		}
+	},
+
+	SNOWFLAKE(true) {
+		@Override
+		public IdGenerator create(final int nodeId) {
+			return new SnowflakeIdGenerator(nodeId);
+		}
+	};
+
+	private final boolean nodeIdRequired;
+
+	IdGeneratorType(final boolean nodeIdRequired) {
+		this.nodeIdRequired = nodeIdRequired;
+	}
+
+	/**
+	 * @return whether the generated ids embed the node id, which must then be unique to each running instance
+	 */
+	public boolean isNodeIdRequired() {
+		return nodeIdRequired;
+	}
+
+	/**
+	 * @param nodeId the id of the running instance, only used by generators that embed it
+	 */
+	public abstract IdGenerator create(int nodeId);
+
+}
@@ -3,7 +3,6 @@ package com.virtualcard.common.security.component;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.server.reactive.ServerHttpRequest;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
 import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
@@ -30,11 +29,15 @@ public abstract class AbstractAuthenticationFilter implements WebFilter {
 	@Override
 	public Mono<Void> filter(final ServerWebExchange exchange, final WebFilterChain chain) {
 		final String token = resolveToken(exchange.getRequest());
-		if ((StringUtils.isBlank(token) || !jwtService.validateToken(token))) {
+		if (StringUtils.isBlank(token)) {
 			return chain.filter(exchange);
 		}
-		final Authentication authentication = this.jwtService.getAuthentication(token);
-		return chain.filter(exchange).contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication));
+		// Signature and claims are verified once, the same result backs both the check and the authentication
+		return jwtService.verify(token)
+			.map(verified -> verified.toAuthentication(token))
+			.map(authentication -> chain.filter(exchange)
+				.contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication)))
+			.orElseGet(() -> chain.filter(exchange));
 	}
 
 	private String resolveToken(final ServerHttpRequest request) {
@@ -1,21 +1,26 @@
 package com.virtualcard.common.security.service;
 
-import java.util.Collection;
-import java.util.Collections;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.Date;
+import java.util.Optional;
 
 import javax.crypto.SecretKey;
 
-import org.apache.commons.lang3.StringUtils;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.userdetails.User;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 
 import lombok.extern.log4j.Log4j2;
 
 import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jws;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
@@ -34,52 +39,147 @@ public abstract class AbstractJwtService {
 	static final String PREFIX = "Bearer ";
 //	private static final String AUTHORITIES_KEY = "roles";
 
+	public static final long DEFAULT_VERIFIED_TOKEN_CACHE_SIZE = 10_000;
+
 	static final SecretKey key = Jwts.SIG.HS256.key().build();
 
+	private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	});
+
+	/**
+	 * Tokens already verified, keyed by the SHA-256 digest of the compact token so that raw credentials are not retained.
+	 * Each entry is evicted when its token expires, {@code null} when caching is disabled.
+	 */
+	private final Cache<ByteBuffer, VerifiedToken> verifiedTokens;
+
+	private final Clock clock;
+
+	// Immutable and thread-safe, built once instead of on every call
+	private final JwtParser parser;
+
+	protected AbstractJwtService() {
+		this(DEFAULT_VERIFIED_TOKEN_CACHE_SIZE);
+	}
+
+	protected AbstractJwtService(final long verifiedTokenCacheSize) {
+		this(verifiedTokenCacheSize, Clock.systemUTC());
+	}
+
+	protected AbstractJwtService(final long verifiedTokenCacheSize, final Clock clock) {
+		this.clock = clock;
+		this.parser = Jwts.parser()
+			.verifyWith(key)
+			.clock(() -> Date.from(clock.instant()))
+			.build();
+		this.verifiedTokens = verifiedTokenCacheSize > 0
+			? Caffeine.newBuilder()
+				.maximumSize(verifiedTokenCacheSize)
+				.expireAfter(new UntilTokenExpiry(clock))
+				.build()
+			: null;
+	}
+
 	// Generate signed JWT token
 	public String getToken(final String username) {
 		return Jwts.builder()
 			.subject(username)
-			.expiration(new Date(System.currentTimeMillis() + EXPIRATIONTIME))
+			.expiration(new Date(clock.millis() + EXPIRATIONTIME))
 			.signWith(key)
 			.compact();
 	}
 
+	/**
+	 * Verifies the signature and expiration of the token, parsing it at most once for its whole lifetime.
+	 *
+	 * @param token the compact JWT
+	 * @return the verified claims, empty if the token is invalid or expired
+	 */
+	public Optional<VerifiedToken> verify(final String token) {
+		if (token == null || token.isBlank()) {
+			return Optional.empty();
+		}
+		if (verifiedTokens == null) {
+			return parse(token);
+		}
+
+		final ByteBuffer digest = digest(token);
+		final VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+		if (cached != null && !cached.isExpired(clock.instant())) {
+			return Optional.of(cached);
+		}
+		final Optional<VerifiedToken> verified = parse(token);
+		verified.ifPresent(v -> verifiedTokens.put(digest, v));
+		return verified;
+	}
+
 	public Mono<String> getAuthUser(final String token) {
 		return Mono.fromCallable(() -> {
-			try {
-				final JwtParser jwtParser = Jwts.parser().verifyWith(key).build();
-				final String username = jwtParser.parseSignedClaims(token).getPayload().getSubject();
-				log.debug("Parsed username: {}", username);
-				return username;
-			} catch (final JwtException e) {
-				log.debug("Invalid token: {}", e.getMessage());
-				return null;
-			}
+			final String username = verify(token).map(VerifiedToken::subject).orElse(null);
+			log.debug("Parsed username: {}", username);
+			return username;
 		});
 	}
 
+	/**
+	 * @throws BadCredentialsException if the token is invalid or expired, answered with a 401 by the entry point
+	 */
 	public Authentication getAuthentication(final String token) {
-		final Claims claims = Jwts.parser().verifyWith(key).build()
-			.parseSignedClaims(token)
-			.getPayload();
-		final Collection<? extends GrantedAuthority> authorities = Collections.emptyList();
-		final User principal = new User(claims.getSubject(), StringUtils.EMPTY, authorities);
-		return new UsernamePasswordAuthenticationToken(principal, token, authorities);
+		return verify(token)
+			.orElseThrow(() -> new BadCredentialsException("Invalid JWT token"))
+			.toAuthentication(token);
 	}
 
 	public boolean validateToken(final String token) {
+		return verify(token).isPresent();
+	}
+
+	private Optional<VerifiedToken> parse(final String token) {
 		try {
-			final Jws<Claims> claims = Jwts.parser().verifyWith(key).build()
-				.parseSignedClaims(token);
-			if (claims.getPayload().getExpiration().before(new Date())) {
-				return false;
+			final Claims claims = parser.parseSignedClaims(token).getPayload();
+			final Date expiration = claims.getExpiration();
+			final VerifiedToken verified = new VerifiedToken(claims.getSubject(), expiration == null ? null : expiration.toInstant());
+			if (verified.isExpired(clock.instant())) {
+				return Optional.empty();
 			}
-			return true;
+			return Optional.of(verified);
 		} catch (JwtException | IllegalArgumentException e) {
 			log.info("Invalid JWT token.");
 		}
-		return false;
+		return Optional.empty();
+	}
+
+	private static ByteBuffer digest(final String token) {
+		return ByteBuffer.wrap(SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII)));
+	}
+
+	private static final class UntilTokenExpiry implements Expiry<ByteBuffer, VerifiedToken> {
+
+		private final Clock clock;
+
+		private UntilTokenExpiry(final Clock clock) {
+			this.clock = clock;
+		}
+
+		@Override
+		public long expireAfterCreate(final ByteBuffer digest, final VerifiedToken token, final long currentTime) {
+			return Math.max(0, Duration.between(clock.instant(), token.expiresAt()).toNanos());
+		}
+
+		@Override
+		public long expireAfterUpdate(final ByteBuffer digest, final VerifiedToken token, final long currentTime, final long currentDuration) {
+			return expireAfterCreate(digest, token, currentTime);
+		}
+
+		@Override
+		public long expireAfterRead(final ByteBuffer digest, final VerifiedToken token, final long currentTime, final long currentDuration) {
+			return currentDuration;
+		}
+
 	}
 
 }
@@ -0,0 +1,33 @@
+package com.virtualcard.common.security.service;
+
+import java.time.Instant;
+import java.util.Collections;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+
+/**
+ * Claims of a JWT whose signature and expiration have already been checked.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         15 set 2025
+ *
+ */
+public record VerifiedToken(String subject, Instant expiresAt) {
+
+	public boolean isExpired(final Instant now) {
+		return expiresAt == null || !expiresAt.isAfter(now);
+	}
+
+	/**
+	 * Builds a fresh authentication for the current request, the token instances are mutable and must not be shared.
+	 */
+	public Authentication toAuthentication(final String token) {
+		final User principal = new User(subject, StringUtils.EMPTY, Collections.emptyList());
+		return new UsernamePasswordAuthenticationToken(principal, token, Collections.emptyList());
+	}
+
+}
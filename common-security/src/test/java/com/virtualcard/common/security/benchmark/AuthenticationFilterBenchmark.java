@@ -0,0 +1,94 @@
+package com.virtualcard.common.security.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+
+import com.virtualcard.common.security.component.AbstractAuthenticationFilter;
+import com.virtualcard.common.security.service.AbstractJwtService;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Throughput of the authentication filter on bearer requests, with the verified token cache enabled and disabled.
+ * A cache size of {@code 0} makes every request pay the HMAC check and the claims parsing.
+ *
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.virtualcard.common.security.benchmark.AuthenticationFilterBenchmark}
+ * or straight from the IDE.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         15 set 2025
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class AuthenticationFilterBenchmark {
+
+	@Param({ "0", "10000" })
+	private long cacheSize;
+
+	/**
+	 * Number of distinct users sending requests.
+	 */
+	@Param({ "1000" })
+	private int users;
+
+	private AbstractAuthenticationFilter filter;
+	private String[] authorizationHeaders;
+
+	private final WebFilterChain chain = exchange -> Mono.empty();
+
+	@Setup
+	public void setUp() {
+		final AbstractJwtService jwtService = new AbstractJwtService(cacheSize) {
+		};
+		filter = new AbstractAuthenticationFilter(jwtService) {
+		};
+		authorizationHeaders = new String[users];
+		for (int i = 0; i < users; i++) {
+			authorizationHeaders[i] = "Bearer " + jwtService.getToken("user-" + i);
+		}
+	}
+
+	@Benchmark
+	public Void filterBearerRequest() {
+		final String header = authorizationHeaders[ThreadLocalRandom.current().nextInt(users)];
+		final MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/cards")
+			.header(HttpHeaders.AUTHORIZATION, header));
+		return filter.filter(exchange, chain).block();
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+			.include(AuthenticationFilterBenchmark.class.getSimpleName())
+			.build())
+			.run();
+	}
+
+}
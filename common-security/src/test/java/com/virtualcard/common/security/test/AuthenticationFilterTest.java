@@ -0,0 +1,174 @@
+package com.virtualcard.common.security.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.web.server.WebFilterChain;
+
+import com.virtualcard.common.security.component.AbstractAuthenticationFilter;
+import com.virtualcard.common.security.service.AbstractJwtService;
+import com.virtualcard.common.security.service.VerifiedToken;
+
+import io.jsonwebtoken.Jwts;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         15 set 2025
+ *
+ */
+class AuthenticationFilterTest {
+
+	private final MutableClock clock = new MutableClock(Instant.parse("2025-09-15T10:00:00Z"));
+	private AbstractJwtService jwtService;
+
+	@BeforeEach
+	void setUp() {
+		jwtService = newJwtService(AbstractJwtService.DEFAULT_VERIFIED_TOKEN_CACHE_SIZE);
+	}
+
+	@Test
+	void verify_shouldReuseTheVerifiedToken_onCacheHit() {
+		final String token = jwtService.getToken("alice");
+
+		final VerifiedToken first = jwtService.verify(token).orElseThrow();
+		final VerifiedToken second = jwtService.verify(token).orElseThrow();
+
+		assertThat(first.subject()).isEqualTo("alice");
+		assertThat(second).isSameAs(first);
+	}
+
+	@Test
+	void verify_shouldParseTheToken_onCacheMiss() {
+		jwtService = newJwtService(0);
+		final String token = jwtService.getToken("alice");
+
+		final VerifiedToken first = jwtService.verify(token).orElseThrow();
+		final VerifiedToken second = jwtService.verify(token).orElseThrow();
+
+		assertThat(second).isEqualTo(first).isNotSameAs(first);
+	}
+
+	@Test
+	void verify_shouldRejectACachedToken_onceExpired() {
+		final String token = jwtService.getToken("alice");
+		assertThat(jwtService.verify(token)).isPresent();
+
+		clock.advance(Duration.ofDays(2));
+
+		assertThat(jwtService.verify(token)).isEmpty();
+		assertThat(jwtService.validateToken(token)).isFalse();
+	}
+
+	@Test
+	void verify_shouldRejectInvalidTokens() {
+		final String token = jwtService.getToken("alice");
+		final String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+		final String foreign = Jwts.builder()
+			.subject("alice")
+			.expiration(Date.from(clock.instant().plus(Duration.ofHours(1))))
+			.signWith(Jwts.SIG.HS256.key().build())
+			.compact();
+
+		assertThat(jwtService.verify("not-a-jwt")).isEmpty();
+		assertThat(jwtService.verify(tampered)).isEmpty();
+		assertThat(jwtService.verify(foreign)).isEmpty();
+		assertThat(jwtService.verify(" ")).isEmpty();
+	}
+
+	@Test
+	void getAuthentication_shouldFailWithBadCredentials_forInvalidToken() {
+		assertThatThrownBy(() -> jwtService.getAuthentication("not-a-jwt"))
+			.isInstanceOf(BadCredentialsException.class);
+	}
+
+	@Test
+	void filter_shouldAuthenticateTheRequest_forValidToken() {
+		final String token = jwtService.getToken("alice");
+
+		StepVerifier.create(filter(token))
+			.assertNext(authentication -> {
+				assertThat(authentication).isPresent();
+				assertThat(authentication.get().getName()).isEqualTo("alice");
+				assertThat(authentication.get().getCredentials()).isEqualTo(token);
+			})
+			.verifyComplete();
+	}
+
+	@Test
+	void filter_shouldLeaveTheRequestAnonymous_forInvalidToken() {
+		StepVerifier.create(filter("not-a-jwt"))
+			.assertNext(authentication -> assertThat(authentication).isEmpty())
+			.verifyComplete();
+	}
+
+	/**
+	 * @return the authentication seen by the rest of the chain
+	 */
+	private Mono<Optional<Authentication>> filter(final String token) {
+		final AbstractAuthenticationFilter filter = new AbstractAuthenticationFilter(jwtService) {
+		};
+		final MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/cards")
+			.header(HttpHeaders.AUTHORIZATION, "Bearer " + token));
+		final AtomicReference<Optional<Authentication>> seen = new AtomicReference<>(Optional.empty());
+		final WebFilterChain chain = ex -> ReactiveSecurityContextHolder.getContext()
+			.map(SecurityContext::getAuthentication)
+			.doOnNext(authentication -> seen.set(Optional.of(authentication)))
+			.then();
+		return filter.filter(exchange, chain).then(Mono.fromSupplier(seen::get));
+	}
+
+	private AbstractJwtService newJwtService(final long cacheSize) {
+		return new AbstractJwtService(cacheSize, clock) {
+		};
+	}
+
+	private static final class MutableClock extends Clock {
+
+		private volatile Instant now;
+
+		private MutableClock(final Instant now) {
+			this.now = now;
+		}
+
+		private void advance(final Duration duration) {
+			now = now.plus(duration);
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(final ZoneId zone) {
+			return this;
+		}
+	}
+
+}
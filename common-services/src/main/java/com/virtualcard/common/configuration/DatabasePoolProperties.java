@@ -0,0 +1,91 @@
+package com.virtualcard.common.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Shape of the Vert.x connection pool behind the Hibernate Reactive session factories of the service.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+@ConfigurationProperties(prefix = "database-pool")
+public class DatabasePoolProperties {
+	private int maxSize = 5;
+	// -1 for an unbounded wait queue
+	private int maxWaitQueueSize = -1;
+	private Duration connectionTimeout = Duration.ofSeconds(30);
+	// 0 to never close idle connections
+	private Duration idleTimeout = Duration.ZERO;
+	private int pipeliningLimit = 256;
+	private boolean cachePreparedStatements = true;
+	private int preparedStatementCacheMaxSize = 256;
+	private int preparedStatementCacheSqlLimit = 2048;
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public void setMaxSize(final int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public int getMaxWaitQueueSize() {
+		return maxWaitQueueSize;
+	}
+
+	public void setMaxWaitQueueSize(final int maxWaitQueueSize) {
+		this.maxWaitQueueSize = maxWaitQueueSize;
+	}
+
+	public Duration getConnectionTimeout() {
+		return connectionTimeout;
+	}
+
+	public void setConnectionTimeout(final Duration connectionTimeout) {
+		this.connectionTimeout = connectionTimeout;
+	}
+
+	public Duration getIdleTimeout() {
+		return idleTimeout;
+	}
+
+	public void setIdleTimeout(final Duration idleTimeout) {
+		this.idleTimeout = idleTimeout;
+	}
+
+	public int getPipeliningLimit() {
+		return pipeliningLimit;
+	}
+
+	public void setPipeliningLimit(final int pipeliningLimit) {
+		this.pipeliningLimit = pipeliningLimit;
+	}
+
+	public boolean isCachePreparedStatements() {
+		return cachePreparedStatements;
+	}
+
+	public void setCachePreparedStatements(final boolean cachePreparedStatements) {
+		this.cachePreparedStatements = cachePreparedStatements;
+	}
+
+	public int getPreparedStatementCacheMaxSize() {
+		return preparedStatementCacheMaxSize;
+	}
+
+	public void setPreparedStatementCacheMaxSize(final int preparedStatementCacheMaxSize) {
+		this.preparedStatementCacheMaxSize = preparedStatementCacheMaxSize;
+	}
+
+	public int getPreparedStatementCacheSqlLimit() {
+		return preparedStatementCacheSqlLimit;
+	}
+
+	public void setPreparedStatementCacheSqlLimit(final int preparedStatementCacheSqlLimit) {
+		this.preparedStatementCacheSqlLimit = preparedStatementCacheSqlLimit;
+	}
+}
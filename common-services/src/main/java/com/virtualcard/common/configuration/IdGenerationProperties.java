@@ -0,0 +1,30 @@
+package com.virtualcard.common.configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Number of ids taken at a time from each id sequence.
+ *
+ * The allocation size of a sequence must match its increment in the database and the allocation size of the entity
+ * mapping, which is checked at startup. A sequence not listed is checked with the size of its mapping.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+@ConfigurationProperties(prefix = "id-generation")
+public class IdGenerationProperties {
+	private Map<String, Integer> allocationSizes = new LinkedHashMap<>();
+
+	public Map<String, Integer> getAllocationSizes() {
+		return allocationSizes;
+	}
+
+	public void setAllocationSizes(final Map<String, Integer> allocationSizes) {
+		this.allocationSizes = allocationSizes;
+	}
+}
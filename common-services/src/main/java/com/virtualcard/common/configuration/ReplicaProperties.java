@@ -0,0 +1,62 @@
+package com.virtualcard.common.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Read replica of the database, used by the read-only queries of the repositories when enabled.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+@ConfigurationProperties(prefix = "replica")
+public class ReplicaProperties {
+	private boolean enabled = false;
+	private String url;
+	private String username;
+	private String password;
+	private Duration fallbackPeriod = Duration.ofSeconds(10);
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(final boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public void setUrl(final String url) {
+		this.url = url;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+	public void setUsername(final String username) {
+		this.username = username;
+	}
+
+	public String getPassword() {
+		return password;
+	}
+
+	public void setPassword(final String password) {
+		this.password = password;
+	}
+
+	public Duration getFallbackPeriod() {
+		return fallbackPeriod;
+	}
+
+	public void setFallbackPeriod(final Duration fallbackPeriod) {
+		this.fallbackPeriod = fallbackPeriod;
+	}
+}
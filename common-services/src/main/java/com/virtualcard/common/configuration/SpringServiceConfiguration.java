@@ -1,8 +1,24 @@
 package com.virtualcard.common.configuration;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.hibernate.reactive.mutiny.Mutiny;
+import org.hibernate.reactive.provider.Settings;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 
+import com.virtualcard.common.pool.ConfiguredSqlClientPool;
+import com.virtualcard.common.pool.SqlPoolMeters;
+import com.virtualcard.common.springdata.repository.ReadReplicaRouter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.metrics.MetricsOptions;
+import io.vertx.pgclient.PgConnectOptions;
 import jakarta.persistence.Persistence;
 
 /**
@@ -11,12 +27,136 @@ import jakarta.persistence.Persistence;
  *         10 ago 2025
  *
  */
+@EnableConfigurationProperties({ ReplicaProperties.class, DatabasePoolProperties.class, IdGenerationProperties.class })
 public abstract class SpringServiceConfiguration {
 
+	private static final String PERSISTENCE_UNIT = "default"; // name from persistence.xml
+	private static final String PRIMARY_POOL = "primary";
+	private static final String REPLICA_POOL = "replica";
+	// The primary database must answer within it for the service to start
+	private static final Duration SEQUENCE_CHECK_TIMEOUT = Duration.ofSeconds(30);
+
+	@Bean
+	SqlPoolMeters sqlPoolMeters(final MeterRegistry meterRegistry) {
+		return new SqlPoolMeters(meterRegistry);
+	}
+
+	/**
+	 * Vert.x instance running the database pools, with the metrics of the pools exported.
+	 */
+	@Bean(destroyMethod = "close")
+	Vertx vertx(final SqlPoolMeters sqlPoolMeters) {
+		return Vertx.vertx(new VertxOptions()
+			.setMetricsOptions(new MetricsOptions()
+				.setEnabled(true)
+				.setFactory(options -> sqlPoolMeters)));
+	}
+
+	/**
+	 * Hibernate Reactive pool of the primary session factory, started and stopped with it.
+	 */
+	@Bean
+	ConfiguredSqlClientPool primarySqlClientPool(final DatabasePoolProperties poolProperties, final SqlPoolMeters sqlPoolMeters) {
+		return new ConfiguredSqlClientPool(PRIMARY_POOL, poolProperties, sqlPoolMeters);
+	}
+
+	@Bean
+	Mutiny.SessionFactory sessionFactory(final Vertx vertx, final ConfiguredSqlClientPool primarySqlClientPool,
+			final IdGenerationProperties idGenerationProperties) {
+		final Map<String, Integer> allocationSizes = allocationSizes(idGenerationProperties);
+		final Mutiny.SessionFactory sessionFactory = createSessionFactory(vertx, Map.of(Settings.SQL_CLIENT_POOL, primarySqlClientPool));
+		checkAllocationSizes(sessionFactory, allocationSizes);
+		return sessionFactory;
+	}
+
+	/**
+	 * The allocation sizes the entities of the service map their id sequences with, by sequence name.
+	 */
+	protected abstract Map<String, Integer> idAllocationSizes();
+
+	/**
+	 * The configured allocation size of each id sequence of the service, or its mapped one if not configured.
+	 * Hibernate allocates the ids with the size of the {@code @SequenceGenerator}, so a configured size differing from it
+	 * fails the startup instead of being silently ignored.
+	 */
+	private Map<String, Integer> allocationSizes(final IdGenerationProperties properties) {
+		final Map<String, Integer> mapped = idAllocationSizes();
+		properties.getAllocationSizes().forEach((sequence, size) -> {
+			if (!mapped.containsKey(sequence)) {
+				throw new IllegalStateException("Id sequence " + sequence + " of id-generation.allocation-sizes is not mapped by this service");
+			}
+			if (!mapped.get(sequence).equals(size)) {
+				throw new IllegalStateException("Allocation size " + size + " of id sequence " + sequence + " differs from the mapped "
+						+ mapped.get(sequence) + ", change the allocation size of the entity as well");
+			}
+		});
+		final Map<String, Integer> sizes = new LinkedHashMap<>(mapped);
+		sizes.putAll(properties.getAllocationSizes());
+		return sizes;
+	}
+
+	/**
+	 * Connection settings of the primary database, as resolved from the persistence unit, for the pools a service
+	 * opens besides the ones of the session factories.
+	 */
+	@Bean
+	PgConnectOptions primaryConnectOptions(final Mutiny.SessionFactory sessionFactory, final ConfiguredSqlClientPool primarySqlClientPool) {
+		// The session factory has started the pool
+		return primarySqlClientPool.getConnectOptions();
+	}
+
+	/**
+	 * Without an enabled replica, read-only queries go to the primary session factory.
+	 *
+	 * The replica session factory is built from the same persistence unit, pointed at the replica
+	 * and never updating its schema.
+	 */
 	@Bean
-	Mutiny.SessionFactory sessionFactory() {
-		return Persistence.createEntityManagerFactory("default") // name from persistence.xml
-			.unwrap(Mutiny.SessionFactory.class);
+	ReadReplicaRouter readReplicaRouter(final Mutiny.SessionFactory sessionFactory, final ReplicaProperties properties,
+			final Vertx vertx, final DatabasePoolProperties poolProperties, final SqlPoolMeters sqlPoolMeters) {
+		if (!properties.isEnabled()) {
+			return ReadReplicaRouter.primaryOnly(sessionFactory);
+		}
+		final Mutiny.SessionFactory replica = createSessionFactory(vertx, Map.of(
+				"jakarta.persistence.jdbc.url", properties.getUrl(),
+				"jakarta.persistence.jdbc.user", properties.getUsername(),
+				"jakarta.persistence.jdbc.password", properties.getPassword(),
+				"hibernate.hbm2ddl.auto", "none",
+				Settings.SQL_CLIENT_POOL, new ConfiguredSqlClientPool(REPLICA_POOL, poolProperties, sqlPoolMeters)));
+		return new ReadReplicaRouter(sessionFactory, replica, properties.getFallbackPeriod());
+	}
+
+	/**
+	 * Fails the startup when the allocation size of a sequence differs from its increment, the instances would otherwise
+	 * take overlapping blocks of ids.
+	 */
+	private static void checkAllocationSizes(final Mutiny.SessionFactory sessionFactory, final Map<String, Integer> allocationSizes) {
+		allocationSizes.forEach((sequence, size) -> {
+			final List<Long> increments = sessionFactory.withStatelessSession(session -> session
+				.createNativeQuery("SELECT increment_by FROM pg_sequences WHERE schemaname = current_schema() AND sequencename = :sequence", Long.class)
+				.setParameter("sequence", sequence)
+				.getResultList())
+				.await().atMost(SEQUENCE_CHECK_TIMEOUT);
+			if (increments.isEmpty()) {
+				throw new IllegalStateException("Id sequence " + sequence + " not found");
+			}
+			if (increments.get(0) != size.longValue()) {
+				throw new IllegalStateException("Allocation size " + size + " of id sequence " + sequence
+						+ " differs from its increment " + increments.get(0) + ", alter the sequence first");
+			}
+		});
+	}
+
+	/**
+	 * Builds the session factory on a worker of the given Vert.x instance, which Hibernate Reactive then adopts
+	 * instead of starting its own.
+	 */
+	private static Mutiny.SessionFactory createSessionFactory(final Vertx vertx, final Map<String, Object> properties) {
+		return vertx.executeBlocking(() -> Persistence.createEntityManagerFactory(PERSISTENCE_UNIT, properties)
+			.unwrap(Mutiny.SessionFactory.class))
+			.toCompletionStage()
+			.toCompletableFuture()
+			.join();
 	}
 
 }
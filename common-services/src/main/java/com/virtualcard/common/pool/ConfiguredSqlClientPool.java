@@ -0,0 +1,127 @@
+package com.virtualcard.common.pool;
+
+import java.net.URI;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.engine.jdbc.spi.SqlExceptionHelper;
+import org.hibernate.reactive.pool.ReactiveConnection;
+import org.hibernate.reactive.pool.impl.DefaultSqlClientPool;
+
+import com.virtualcard.common.configuration.DatabasePoolProperties;
+
+import io.vertx.core.Vertx;
+import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.PoolOptions;
+import io.vertx.sqlclient.SqlConnectOptions;
+
+/**
+ * Hibernate Reactive connection pool shaped by {@link DatabasePoolProperties} instead of the Hibernate defaults.
+ *
+ * The connection settings still come from the persistence unit, the pool only overrides its size, wait queue,
+ * timeouts, pipelining and prepared statement cache. The pool is named, so that its meters can be told apart.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+public class ConfiguredSqlClientPool extends DefaultSqlClientPool {
+
+	private final String name;
+	private final DatabasePoolProperties properties;
+	private final SqlPoolMeters poolMeters;
+	private volatile PgConnectOptions connectOptions;
+
+	public ConfiguredSqlClientPool(final String name, final DatabasePoolProperties properties, final SqlPoolMeters poolMeters) {
+		this.name = name;
+		this.properties = properties;
+		this.poolMeters = poolMeters;
+	}
+
+	@Override
+	protected Pool createPool(final URI uri, final SqlConnectOptions connectOptions, final PoolOptions poolOptions, final Vertx vertx) {
+		applyTo(poolOptions);
+		this.connectOptions = configure(connectOptions);
+		final Pool pool = super.createPool(uri, this.connectOptions, poolOptions, vertx);
+		final SqlPoolMetrics metrics = poolMeters.get(name);
+		if (metrics != null) {
+			metrics.bind(pool::size);
+		}
+		return pool;
+	}
+
+	/**
+	 * Connection settings the pool was started with, for the pools other than Hibernate's that must reach the same
+	 * database.
+	 *
+	 * @return a copy of the settings, free to be changed
+	 */
+	public PgConnectOptions getConnectOptions() {
+		if (connectOptions == null) {
+			throw new IllegalStateException("Pool " + name + " not started yet");
+		}
+		return new PgConnectOptions(connectOptions);
+	}
+
+	@Override
+	public CompletionStage<ReactiveConnection> getConnection() {
+		return meterFailure(super.getConnection());
+	}
+
+	@Override
+	public CompletionStage<ReactiveConnection> getConnection(final SqlExceptionHelper sqlExceptionHelper) {
+		return meterFailure(super.getConnection(sqlExceptionHelper));
+	}
+
+	@Override
+	public CompletionStage<ReactiveConnection> getConnection(final String tenantId) {
+		return meterFailure(super.getConnection(tenantId));
+	}
+
+	@Override
+	public CompletionStage<ReactiveConnection> getConnection(final String tenantId, final SqlExceptionHelper sqlExceptionHelper) {
+		return meterFailure(super.getConnection(tenantId, sqlExceptionHelper));
+	}
+
+	/**
+	 * Counts the requests that did not get a connection, which the SQL client never reports to the pool metrics.
+	 */
+	private CompletionStage<ReactiveConnection> meterFailure(final CompletionStage<ReactiveConnection> connection) {
+		final SqlPoolMetrics metrics = poolMeters.get(name);
+		if (metrics == null) {
+			return connection;
+		}
+		return connection.whenComplete((ignored, error) -> {
+			if (error != null) {
+				metrics.acquireFailed();
+			}
+		});
+	}
+
+	private void applyTo(final PoolOptions poolOptions) {
+		poolOptions
+			.setName(name)
+			.setMaxSize(properties.getMaxSize())
+			.setMaxWaitQueueSize(properties.getMaxWaitQueueSize())
+			.setConnectionTimeout((int) properties.getConnectionTimeout().toMillis())
+			.setConnectionTimeoutUnit(TimeUnit.MILLISECONDS)
+			.setIdleTimeout((int) properties.getIdleTimeout().toMillis())
+			.setIdleTimeoutUnit(TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Hibernate builds driver-neutral connect options, they are turned into PostgreSQL ones to set the pipelining limit.
+	 */
+	private PgConnectOptions configure(final SqlConnectOptions connectOptions) {
+		final PgConnectOptions pgConnectOptions = PgConnectOptions.wrap(connectOptions);
+		pgConnectOptions
+			.setPipeliningLimit(properties.getPipeliningLimit())
+			.setCachePreparedStatements(properties.isCachePreparedStatements())
+			.setPreparedStatementCacheMaxSize(properties.getPreparedStatementCacheMaxSize())
+			.setPreparedStatementCacheSqlLimit(properties.getPreparedStatementCacheSqlLimit());
+		return pgConnectOptions;
+	}
+
+}
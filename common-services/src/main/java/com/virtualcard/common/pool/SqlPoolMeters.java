@@ -0,0 +1,44 @@
+package com.virtualcard.common.pool;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.spi.metrics.PoolMetrics;
+import io.vertx.core.spi.metrics.VertxMetrics;
+
+/**
+ * Vert.x metrics exporting the SQL connection pools to Micrometer, every other metric of Vert.x is left disabled.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+public class SqlPoolMeters implements VertxMetrics {
+
+	private static final String SQL_POOL_TYPE = "sql";
+
+	private final MeterRegistry meterRegistry;
+	private final Map<String, SqlPoolMetrics> pools = new ConcurrentHashMap<>();
+
+	public SqlPoolMeters(final MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public PoolMetrics<?> createPoolMetrics(final String poolType, final String poolName, final int maxPoolSize) {
+		if (!SQL_POOL_TYPE.equals(poolType)) {
+			return null;
+		}
+		return pools.computeIfAbsent(poolName, name -> new SqlPoolMetrics(name, maxPoolSize, meterRegistry));
+	}
+
+	/**
+	 * @return the meters of the pool, or null if no pool with that name has been created
+	 */
+	public SqlPoolMetrics get(final String poolName) {
+		return pools.get(poolName);
+	}
+
+}
@@ -0,0 +1,116 @@
+package com.virtualcard.common.pool;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.vertx.core.spi.metrics.PoolMetrics;
+
+/**
+ * Meters of one Vert.x SQL connection pool, fed by the pool itself as connections are requested, acquired and released.
+ *
+ * Each request is identified by the time it was submitted, so the acquire latency is the time it spent in the wait queue.
+ *
+ * The SQL client of Vert.x 4.5 only calls {@link #submitted()}, {@link #begin(Long)}, {@link #end(Long, boolean)} and
+ * {@link #close()}, never {@link #rejected(Long)}: the requests that fail to get a connection are reported by
+ * {@link ConfiguredSqlClientPool} through {@link #acquireFailed()} instead, and only there, so that none is counted twice.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+public class SqlPoolMetrics implements PoolMetrics<Long> {
+
+	private final AtomicInteger waiters = new AtomicInteger();
+	private final AtomicInteger active = new AtomicInteger();
+	// Connections opened by the pool, known once the pool has been bound
+	private volatile IntSupplier size = () -> 0;
+
+	private final Timer acquireLatency;
+	private final Counter rejected;
+
+	public SqlPoolMetrics(final String poolName, final int maxSize, final MeterRegistry meterRegistry) {
+		Gauge.builder("db.pool.active", active, AtomicInteger::get)
+			.description("Connections in use")
+			.tag("pool", poolName)
+			.register(meterRegistry);
+		Gauge.builder("db.pool.idle", this, SqlPoolMetrics::idle)
+			.description("Open connections waiting to be used")
+			.tag("pool", poolName)
+			.register(meterRegistry);
+		Gauge.builder("db.pool.waiters", waiters, AtomicInteger::get)
+			.description("Requests waiting for a connection")
+			.tag("pool", poolName)
+			.register(meterRegistry);
+		Gauge.builder("db.pool.max", () -> maxSize)
+			.description("Maximum connections of the pool")
+			.tag("pool", poolName)
+			.register(meterRegistry);
+		this.acquireLatency = Timer.builder("db.pool.acquire")
+			.description("Time waited for a connection")
+			.tag("pool", poolName)
+			.register(meterRegistry);
+		this.rejected = Counter.builder("db.pool.rejected")
+			.description("Requests that did not get a connection")
+			.tag("pool", poolName)
+			.register(meterRegistry);
+	}
+
+	/**
+	 * Reads the open connections from the pool, from which the idle ones are derived.
+	 */
+	void bind(final IntSupplier size) {
+		this.size = size;
+	}
+
+	public int active() {
+		return active.get();
+	}
+
+	public int idle() {
+		return Math.max(0, size.getAsInt() - active.get());
+	}
+
+	public int waiters() {
+		return waiters.get();
+	}
+
+	@Override
+	public Long submitted() {
+		waiters.incrementAndGet();
+		return System.nanoTime();
+	}
+
+	@Override
+	public Long begin(final Long submittedAt) {
+		waiters.decrementAndGet();
+		active.incrementAndGet();
+		acquireLatency.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+		return submittedAt;
+	}
+
+	@Override
+	public void rejected(final Long submittedAt) {
+		// Never called by the SQL client, see acquireFailed
+	}
+
+	/**
+	 * The SQL client does not report the requests that failed to get a connection, e.g. because the wait queue
+	 * was full, the connection could not be opened or the wait timed out, so the pool reports them here.
+	 */
+	void acquireFailed() {
+		waiters.decrementAndGet();
+		rejected.increment();
+	}
+
+	@Override
+	public void end(final Long submittedAt, final boolean succeeded) {
+		active.decrementAndGet();
+	}
+
+}
@@ -0,0 +1,113 @@
+package com.virtualcard.common.springdata.id;
+
+import java.util.List;
+
+import org.hibernate.reactive.mutiny.Mutiny;
+
+import io.smallrye.mutiny.Uni;
+
+/**
+ * Ids of a sequence handed out a block at a time, for the inserts not going through the id generator of the entity,
+ * such as native multi-row inserts.
+ *
+ * The blocks are those of the {@code @SequenceGenerator} of the entities with the pooled-lo optimizer: each value of the
+ * sequence is the first id of a block as large as the increment of the sequence, which is read from the database along
+ * with the blocks. All the blocks needed
+ * by an insert are fetched in one query, in the session of the insert, and the ids it leaves over go to the next inserts.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+public class PooledLoSequence {
+
+	private static final String NEXT_BLOCKS = """
+			SELECT nextval('%1$s'), s.increment_by
+			FROM pg_sequences s, generate_series(1, :blocks)
+			WHERE s.schemaname = current_schema() AND s.sequencename = '%1$s'""";
+
+	private final String sequence;
+	private final String nextBlocksSql;
+
+	// Increment of the sequence, 0 until the first block is fetched
+	private volatile int allocationSize;
+
+	// Ids left over by the inserts, from nextId included to limit excluded
+	private long nextId;
+	private long limit;
+
+	/**
+	 * @param sequence the name of the sequence, in the current schema
+	 */
+	public PooledLoSequence(final String sequence) {
+		this.sequence = sequence;
+		this.nextBlocksSql = NEXT_BLOCKS.formatted(sequence);
+	}
+
+	/**
+	 * Takes the given number of ids, fetching new blocks from the sequence only when the ones left over do not suffice.
+	 *
+	 * @param session the session of the insert
+	 * @param count   the number of ids needed
+	 * @return a Uni emitting the ids, unique across all the instances sharing the sequence
+	 */
+	public Uni<long[]> nextIds(final Mutiny.Session session, final int count) {
+		final long[] ids = new long[count];
+		final int taken = take(ids, 0);
+		return taken == count ? Uni.createFrom().item(ids) : fetch(session, ids, taken);
+	}
+
+	private Uni<long[]> fetch(final Mutiny.Session session, final long[] ids, final int from) {
+		final int missing = ids.length - from;
+		final int size = allocationSize;
+		final int blocks = size == 0 ? 1 : (missing + size - 1) / size;
+
+		return nextBlocks(session, blocks).chain(rows -> {
+			if (rows.isEmpty()) {
+				return Uni.createFrom().failure(new IllegalStateException("Sequence " + sequence + " not found"));
+			}
+			int filled = from;
+			for (final Object[] row : rows) {
+				final long first = ((Number) row[0]).longValue();
+				final int increment = ((Number) row[1]).intValue();
+				allocationSize = increment;
+
+				int used = 0;
+				while (used < increment && filled < ids.length) {
+					ids[filled++] = first + used++;
+				}
+				if (used < increment) {
+					release(first + used, first + increment);
+				}
+			}
+			return filled == ids.length ? Uni.createFrom().item(ids) : fetch(session, ids, filled);
+		});
+	}
+
+	/**
+	 * Fetches the first ids of the given number of blocks, each with the increment of the sequence.
+	 */
+	protected Uni<List<Object[]>> nextBlocks(final Mutiny.Session session, final int blocks) {
+		return session.createNativeQuery(nextBlocksSql, Object[].class)
+			.setParameter("blocks", blocks)
+			.getResultList();
+	}
+
+	private synchronized int take(final long[] ids, final int from) {
+		int filled = from;
+		while (filled < ids.length && nextId < limit) {
+			ids[filled++] = nextId++;
+		}
+		return filled;
+	}
+
+	// Keeps the rest of a block for the next inserts, unless a concurrent insert already left some ids over
+	private synchronized void release(final long from, final long to) {
+		if (nextId >= limit) {
+			nextId = from;
+			limit = to;
+		}
+	}
+
+}
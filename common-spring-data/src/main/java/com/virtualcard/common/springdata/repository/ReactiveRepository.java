@@ -1,5 +1,8 @@
 package com.virtualcard.common.springdata.repository;
 
+import java.util.List;
+import java.util.function.Function;
+
 import org.hibernate.reactive.mutiny.Mutiny;
 import org.hibernate.reactive.mutiny.Mutiny.SessionFactory;
 
@@ -8,6 +11,9 @@ import com.virtualcard.common.springdata.entity.BaseEntity;
 import io.smallrye.mutiny.Uni;
 
 /**
+ * Base repository of the entities: writes always go to the primary, reads to the primary or to the read replica
+ * depending on the {@link ReadConsistency} they are given.
+ *
  * @author Lorenzo Leccese
  *
  *         3 ago 2025
@@ -17,15 +23,36 @@ public abstract class ReactiveRepository<E extends BaseEntity> {
 
 	protected final Mutiny.SessionFactory sessionFactory;
 
+	private final ReadReplicaRouter readReplicaRouter;
+
+	// Reads that must see the latest writes
+	private final ReadReplicaRouter primaryRouter;
+
 	private final Class<E> entityClass;
 
 	public ReactiveRepository(final SessionFactory sessionFactory) {
+		this(sessionFactory, ReadReplicaRouter.primaryOnly(sessionFactory));
+	}
+
+	public ReactiveRepository(final SessionFactory sessionFactory, final ReadReplicaRouter readReplicaRouter) {
 		this.sessionFactory = sessionFactory;
+		this.readReplicaRouter = readReplicaRouter;
+		this.primaryRouter = ReadReplicaRouter.primaryOnly(sessionFactory);
 		this.entityClass = provideEntityClass();
 	}
 
+	/**
+	 * Reads the entity from the primary in a stateless session, the entity is detached and must be saved to be changed.
+	 */
 	public Uni<E> findById(final Long id) {
-		return sessionFactory.withSession(session -> session.find(this.entityClass, id));
+		return findById(id, ReadConsistency.READ_YOUR_WRITES);
+	}
+
+	/**
+	 * Reads the entity in a stateless session, the entity is detached and must be saved to be changed.
+	 */
+	public Uni<E> findById(final Long id, final ReadConsistency consistency) {
+		return withStatelessSession(consistency, session -> session.get(this.entityClass, id));
 	}
 
 	public Uni<E> save(final E entity) {
@@ -35,6 +62,48 @@ public abstract class ReactiveRepository<E extends BaseEntity> {
 		);
 	}
 
+	/**
+	 * Inserts the entities in one transaction.
+	 *
+	 * The inserts are sent in batches of {@code hibernate.jdbc.batch_size} statements, as long as the ids of the entity
+	 * are not generated by the insert itself.
+	 */
+	public Uni<List<E>> saveAll(final List<E> entities) {
+		if (entities.isEmpty()) {
+			return Uni.createFrom().item(entities);
+		}
+		return sessionFactory.withTransaction(session -> session.persistAll(entities.toArray())
+			.replaceWith(entities));
+	}
+
+	/**
+	 * Runs the queries in a read-only session, on the primary or on the read replica depending on the consistency.
+	 */
+	protected <T> Uni<T> withReadOnlySession(final ReadConsistency consistency, final Function<Mutiny.Session, Uni<T>> work) {
+		return router(consistency).withReadOnlySession(work);
+	}
+
+	/**
+	 * Runs the reads in a stateless session, on the primary or on the read replica depending on the consistency.
+	 */
+	protected <T> Uni<T> withStatelessSession(final ReadConsistency consistency, final Function<Mutiny.StatelessSession, Uni<T>> work) {
+		return router(consistency).withStatelessSession(work);
+	}
+
+	/**
+	 * Read-only query, run on the primary or on the read replica depending on the consistency.
+	 */
+	protected <R> ReadOnlyQuery<R> query(final String query, final Class<R> resultType, final ReadConsistency consistency) {
+		return new ReadOnlyQuery<>(router(consistency), query, resultType);
+	}
+
+	private ReadReplicaRouter router(final ReadConsistency consistency) {
+		return switch (consistency) {
+			case READ_YOUR_WRITES -> primaryRouter;
+			case LAG_TOLERANT -> readReplicaRouter;
+		};
+	}
+
 	protected abstract Class<E> provideEntityClass();
 
 }
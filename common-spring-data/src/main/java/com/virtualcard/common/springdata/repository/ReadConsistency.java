@@ -0,0 +1,29 @@
+package com.virtualcard.common.springdata.repository;
+
+/**
+ * Where a read of the repositories is served from, given by every read that may go to the read replica.
+ *
+ * A read must see every committed write, and go to the primary, when its result is written back, cached, or decides
+ * whether a write happens: the balances loaded by the balance engine, the card numbers checked before an issuance and
+ * the users looked up to log in or to issue cards. Reads only returned to the client, such as card listings,
+ * transaction history, counts, rollups and exports, tolerate the replication lag and go to the replica if any, as do
+ * the cards filling the card cache, which refuses a lagging card older than the cached one or recently invalidated.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+public enum ReadConsistency {
+
+	/**
+	 * Sees the latest committed writes, always read from the primary.
+	 */
+	READ_YOUR_WRITES,
+
+	/**
+	 * May lag behind the latest writes, read from the read replica if any and from the primary while it is unreachable.
+	 */
+	LAG_TOLERANT
+
+}
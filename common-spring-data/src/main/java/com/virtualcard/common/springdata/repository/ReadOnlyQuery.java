@@ -0,0 +1,83 @@
+package com.virtualcard.common.springdata.repository;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.reactive.mutiny.Mutiny;
+
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+
+/**
+ * A read-only HQL query run in a stateless session, built by {@link ReactiveRepository#query} and executed by one of
+ * its terminal methods. The whole result is read before the session is closed, the query is never streamed from a cursor.
+ *
+ * The result type may be an entity, read without being tracked, a scalar, or a DTO or record filled by a
+ * {@code select new} projection, so that the rows never go through an entity at all.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+public class ReadOnlyQuery<R> {
+
+	private final ReadReplicaRouter router;
+	private final String query;
+	private final Class<R> resultType;
+	private final Map<String, Object> parameters = new LinkedHashMap<>();
+	private int firstResult;
+	private int maxResults = -1;
+
+	ReadOnlyQuery(final ReadReplicaRouter router, final String query, final Class<R> resultType) {
+		this.router = router;
+		this.query = query;
+		this.resultType = resultType;
+	}
+
+	public ReadOnlyQuery<R> parameter(final String name, final Object value) {
+		parameters.put(name, value);
+		return this;
+	}
+
+	public ReadOnlyQuery<R> firstResult(final int firstResult) {
+		this.firstResult = firstResult;
+		return this;
+	}
+
+	public ReadOnlyQuery<R> maxResults(final int maxResults) {
+		this.maxResults = maxResults;
+		return this;
+	}
+
+	public Uni<List<R>> list() {
+		return router.withStatelessSession(session -> create(session).getResultList());
+	}
+
+	/**
+	 * Emits the results one by one once all of them have been read, the session is closed before the first one is emitted.
+	 */
+	public Multi<R> listItems() {
+		return list().onItem().transformToMulti(results -> Multi.createFrom().iterable(results));
+	}
+
+	public Uni<R> singleResult() {
+		return router.withStatelessSession(session -> create(session).getSingleResult());
+	}
+
+	public Uni<R> singleResultOrNull() {
+		return router.withStatelessSession(session -> create(session).getSingleResultOrNull());
+	}
+
+	private Mutiny.SelectionQuery<R> create(final Mutiny.StatelessSession session) {
+		final Mutiny.SelectionQuery<R> selection = session.createSelectionQuery(query, resultType);
+		parameters.forEach(selection::setParameter);
+		selection.setFirstResult(firstResult);
+		if (maxResults >= 0) {
+			selection.setMaxResults(maxResults);
+		}
+		return selection;
+	}
+
+}
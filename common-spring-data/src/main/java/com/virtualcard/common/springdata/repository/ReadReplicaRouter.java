@@ -0,0 +1,100 @@
+package com.virtualcard.common.springdata.repository;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.hibernate.reactive.mutiny.Mutiny;
+import org.hibernate.reactive.mutiny.Mutiny.SessionFactory;
+
+import lombok.extern.log4j.Log4j2;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.VertxException;
+
+/**
+ * Routes read-only work to the session factory of a read replica, falling back to the primary one.
+ *
+ * When the replica cannot be reached, the work is retried on the primary and the replica is skipped for the
+ * configured fallback period, so an outage costs one failed attempt per period instead of one per query.
+ * Query errors are not retried, they would fail on the primary as well.
+ * Reads served by the replica may lag behind the latest writes.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+@Log4j2
+public class ReadReplicaRouter implements AutoCloseable {
+
+	private final Mutiny.SessionFactory primary;
+	private final Mutiny.SessionFactory replica;
+	private final long fallbackPeriodNanos;
+
+	private volatile long replicaSkippedUntil;
+
+	/**
+	 * @param replica the session factory of the replica, {@code null} to always use the primary one
+	 */
+	public ReadReplicaRouter(final SessionFactory primary, final SessionFactory replica, final Duration fallbackPeriod) {
+		this.primary = primary;
+		this.replica = replica;
+		this.fallbackPeriodNanos = fallbackPeriod.toNanos();
+		this.replicaSkippedUntil = System.nanoTime();
+	}
+
+	public static ReadReplicaRouter primaryOnly(final SessionFactory primary) {
+		return new ReadReplicaRouter(primary, null, Duration.ZERO);
+	}
+
+	public <T> Uni<T> withReadOnlySession(final Function<Mutiny.Session, Uni<T>> work) {
+		return route(factory -> factory.withSession(readOnly(work)));
+	}
+
+	/**
+	 * Runs the work in a stateless session, which keeps no persistence context: the entities read are never
+	 * snapshotted for dirty checking nor tracked, so they are cheaper to load than in a read-only session.
+	 */
+	public <T> Uni<T> withStatelessSession(final Function<Mutiny.StatelessSession, Uni<T>> work) {
+		return route(factory -> factory.withStatelessSession(work));
+	}
+
+	public boolean isReplicaAvailable() {
+		return replica != null && System.nanoTime() - replicaSkippedUntil >= 0;
+	}
+
+	@Override
+	public void close() {
+		if (replica != null) {
+			replica.close();
+		}
+	}
+
+	private <T> Uni<T> route(final Function<Mutiny.SessionFactory, Uni<T>> work) {
+		if (!isReplicaAvailable()) {
+			return work.apply(primary);
+		}
+		return work.apply(replica)
+			.onFailure(ReadReplicaRouter::isUnreachable).recoverWithUni(e -> {
+				replicaSkippedUntil = System.nanoTime() + fallbackPeriodNanos;
+				log.warn("Read replica unreachable, reading from the primary for the next {}: {}", Duration.ofNanos(fallbackPeriodNanos), e.getMessage());
+				return work.apply(primary);
+			});
+	}
+
+	private static <T> Function<Mutiny.Session, Uni<T>> readOnly(final Function<Mutiny.Session, Uni<T>> work) {
+		return session -> work.apply(session.setDefaultReadOnly(true));
+	}
+
+	private static boolean isUnreachable(final Throwable error) {
+		for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+			if (cause instanceof IOException || cause instanceof VertxException || cause instanceof TimeoutException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
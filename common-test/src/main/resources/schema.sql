@@ -4,12 +4,12 @@
 
 --
 -- TOC entry 212 (class 1259 OID 16466)
--- Name: card_id_seq; Type: SEQUENCE; Schema: public; Owner: postgres
+-- Name: cards_seq; Type: SEQUENCE; Schema: public; Owner: postgres
 --
 
-CREATE SEQUENCE card_id_seq
+CREATE SEQUENCE cards_seq
     START WITH 1
-    INCREMENT BY 1
+    INCREMENT BY 50
     NO MINVALUE
     NO MAXVALUE
     CACHE 1;
@@ -29,18 +29,63 @@ CREATE TABLE cards (
     version integer DEFAULT 0 NOT NULL,
     created_at timestamp(6) with time zone DEFAULT LOCALTIMESTAMP NOT NULL,
     cvc character varying(4),
-    expiration_date bytea
+    expiration_date bytea,
+    balance_slots integer DEFAULT 0 NOT NULL
+);
+
+
+--
+-- Name: card_balance_slots; Type: TABLE; Schema: public; Owner: postgres
+--
+
+CREATE TABLE card_balance_slots (
+    card_id bigint NOT NULL,
+    slot integer NOT NULL,
+    balance numeric(15,2) NOT NULL
+);
+
+
+--
+-- Name: card_transfers; Type: TABLE; Schema: public; Owner: postgres
+--
+
+CREATE TABLE card_transfers (
+    id character varying(64) NOT NULL,
+    sender_card_id bigint NOT NULL,
+    recipient_card_id bigint NOT NULL,
+    amount numeric(15,2) NOT NULL,
+    created_at timestamp with time zone NOT NULL
+);
+
+
+--
+-- Name: transaction_requests; Type: TABLE; Schema: public; Owner: postgres
+--
+
+CREATE TABLE transaction_requests (
+    id character varying(64) NOT NULL,
+    transaction_id bigint NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL
+);
+
+
+--
+-- Name: transaction_codes; Type: TABLE; Schema: public; Owner: postgres
+--
+
+CREATE TABLE transaction_codes (
+    code character varying(36) NOT NULL
 );
 
 
 --
 -- TOC entry 214 (class 1259 OID 16480)
--- Name: transaction_id_seq; Type: SEQUENCE; Schema: public; Owner: postgres
+-- Name: transactions_seq; Type: SEQUENCE; Schema: public; Owner: postgres
 --
 
-CREATE SEQUENCE transaction_id_seq
+CREATE SEQUENCE transactions_seq
     START WITH 1
-    INCREMENT BY 1
+    INCREMENT BY 50
     NO MINVALUE
     NO MAXVALUE
     CACHE 1;
@@ -61,14 +106,69 @@ CREATE TABLE transactions (
 );
 
 
+--
+-- Name: card_transaction_entries; Type: TABLE; Schema: public; Owner: postgres
+--
+
+CREATE TABLE card_transaction_entries (
+    card_id bigint NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL,
+    transaction_id bigint NOT NULL,
+    direction character varying(255) NOT NULL,
+    amount numeric(15,2) NOT NULL
+);
+
+
+--
+-- Name: card_transaction_stats; Type: TABLE; Schema: public; Owner: postgres
+--
+
+CREATE TABLE card_transaction_stats (
+    card_id bigint NOT NULL,
+    stripe integer NOT NULL,
+    total_count bigint NOT NULL,
+    total_sent numeric(38,2) NOT NULL,
+    total_received numeric(38,2) NOT NULL,
+    last_activity_at timestamp(6) with time zone
+);
+
+
+--
+-- Name: card_daily_rollups; Type: TABLE; Schema: public; Owner: postgres
+--
+
+CREATE TABLE card_daily_rollups (
+    card_id bigint NOT NULL,
+    day date NOT NULL,
+    stripe integer NOT NULL,
+    total_count bigint NOT NULL,
+    total_sent numeric(38,2) NOT NULL,
+    total_received numeric(38,2) NOT NULL
+);
+
+
+--
+-- Name: card_monthly_rollups; Type: TABLE; Schema: public; Owner: postgres
+--
+
+CREATE TABLE card_monthly_rollups (
+    card_id bigint NOT NULL,
+    month date NOT NULL,
+    stripe integer NOT NULL,
+    total_count bigint NOT NULL,
+    total_sent numeric(38,2) NOT NULL,
+    total_received numeric(38,2) NOT NULL
+);
+
+
 --
 -- TOC entry 210 (class 1259 OID 16450)
--- Name: user_id_seq; Type: SEQUENCE; Schema: public; Owner: postgres
+-- Name: users_seq; Type: SEQUENCE; Schema: public; Owner: postgres
 --
 
-CREATE SEQUENCE user_id_seq
+CREATE SEQUENCE users_seq
     START WITH 1
-    INCREMENT BY 1
+    INCREMENT BY 20
     NO MINVALUE
     NO MAXVALUE
     CACHE 1;
@@ -95,6 +195,38 @@ ALTER TABLE ONLY cards
     ADD CONSTRAINT "Card_pkey" PRIMARY KEY (id);
 
 
+--
+-- Name: card_balance_slots card_balance_slots_pkey; Type: CONSTRAINT; Schema: public; Owner: postgres
+--
+
+ALTER TABLE ONLY card_balance_slots
+    ADD CONSTRAINT card_balance_slots_pkey PRIMARY KEY (card_id, slot);
+
+
+--
+-- Name: card_transfers card_transfers_pkey; Type: CONSTRAINT; Schema: public; Owner: postgres
+--
+
+ALTER TABLE ONLY card_transfers
+    ADD CONSTRAINT card_transfers_pkey PRIMARY KEY (id);
+
+
+--
+-- Name: transaction_requests transaction_requests_pkey; Type: CONSTRAINT; Schema: public; Owner: postgres
+--
+
+ALTER TABLE ONLY transaction_requests
+    ADD CONSTRAINT transaction_requests_pkey PRIMARY KEY (id);
+
+
+--
+-- Name: transaction_codes transaction_codes_pkey; Type: CONSTRAINT; Schema: public; Owner: postgres
+--
+
+ALTER TABLE ONLY transaction_codes
+    ADD CONSTRAINT transaction_codes_pkey PRIMARY KEY (code);
+
+
 --
 -- TOC entry 3360 (class 2606 OID 16502)
 -- Name: transactions Transaction_pkey; Type: CONSTRAINT; Schema: public; Owner: postgres
@@ -105,45 +237,53 @@ ALTER TABLE ONLY transactions
 
 
 --
--- TOC entry 3354 (class 2606 OID 16521)
--- Name: users User_pkey; Type: CONSTRAINT; Schema: public; Owner: postgres
+-- Name: card_transaction_entries card_transaction_entries_pkey; Type: CONSTRAINT; Schema: public; Owner: postgres
 --
 
-ALTER TABLE ONLY users
-    ADD CONSTRAINT "User_pkey" PRIMARY KEY (id);
+ALTER TABLE ONLY card_transaction_entries
+    ADD CONSTRAINT card_transaction_entries_pkey PRIMARY KEY (card_id, created_at, transaction_id);
 
 
 --
--- TOC entry 3356 (class 2606 OID 16569)
--- Name: users users_unique; Type: CONSTRAINT; Schema: public; Owner: postgres
+-- Name: card_transaction_stats card_transaction_stats_pkey; Type: CONSTRAINT; Schema: public; Owner: postgres
 --
 
-ALTER TABLE ONLY users
-    ADD CONSTRAINT users_unique UNIQUE (cardholder_name);
+ALTER TABLE ONLY card_transaction_stats
+    ADD CONSTRAINT card_transaction_stats_pkey PRIMARY KEY (card_id, stripe);
+
+
+--
+-- Name: card_daily_rollups card_daily_rollups_pkey; Type: CONSTRAINT; Schema: public; Owner: postgres
+--
+
+ALTER TABLE ONLY card_daily_rollups
+    ADD CONSTRAINT card_daily_rollups_pkey PRIMARY KEY (card_id, day, stripe);
 
 
 --
--- TOC entry 3365 (class 2620 OID 16468)
--- Name: cards card_id_trigger; Type: TRIGGER; Schema: public; Owner: postgres
+-- Name: card_monthly_rollups card_monthly_rollups_pkey; Type: CONSTRAINT; Schema: public; Owner: postgres
 --
 
-CREATE TRIGGER card_id_trigger BEFORE INSERT ON cards FOR EACH ROW EXECUTE FUNCTION card_id_trigger_func();
+ALTER TABLE ONLY card_monthly_rollups
+    ADD CONSTRAINT card_monthly_rollups_pkey PRIMARY KEY (card_id, month, stripe);
 
 
 --
--- TOC entry 3366 (class 2620 OID 16482)
--- Name: transactions transaction_id_trigger; Type: TRIGGER; Schema: public; Owner: postgres
+-- TOC entry 3354 (class 2606 OID 16521)
+-- Name: users User_pkey; Type: CONSTRAINT; Schema: public; Owner: postgres
 --
 
-CREATE TRIGGER transaction_id_trigger BEFORE INSERT ON transactions FOR EACH ROW EXECUTE FUNCTION transaction_id_trigger_func();
+ALTER TABLE ONLY users
+    ADD CONSTRAINT "User_pkey" PRIMARY KEY (id);
 
 
 --
--- TOC entry 3364 (class 2620 OID 16452)
--- Name: users user_id_trigger; Type: TRIGGER; Schema: public; Owner: postgres
+-- TOC entry 3356 (class 2606 OID 16569)
+-- Name: users users_unique; Type: CONSTRAINT; Schema: public; Owner: postgres
 --
 
-CREATE TRIGGER user_id_trigger BEFORE INSERT ON users FOR EACH ROW EXECUTE FUNCTION user_id_trigger_func();
+ALTER TABLE ONLY users
+    ADD CONSTRAINT users_unique UNIQUE (cardholder_name);
 
 
 --
@@ -0,0 +1,39 @@
+-- Per-card daily and monthly totals of the transaction entries, by UTC period and split in stripes summed on read.
+-- Requires card_transaction_entries_PSQL.sql.
+
+CREATE TABLE IF NOT EXISTS card_daily_rollups (
+    card_id BIGINT NOT NULL,
+    day DATE NOT NULL,
+    stripe INTEGER NOT NULL,
+    total_count BIGINT NOT NULL,
+    total_sent NUMERIC(38,2) NOT NULL,
+    total_received NUMERIC(38,2) NOT NULL,
+    PRIMARY KEY (card_id, day, stripe)
+);
+
+CREATE TABLE IF NOT EXISTS card_monthly_rollups (
+    card_id BIGINT NOT NULL,
+    month DATE NOT NULL,
+    stripe INTEGER NOT NULL,
+    total_count BIGINT NOT NULL,
+    total_sent NUMERIC(38,2) NOT NULL,
+    total_received NUMERIC(38,2) NOT NULL,
+    PRIMARY KEY (card_id, month, stripe)
+);
+
+-- Backfill the existing entries into stripe 0
+INSERT INTO card_daily_rollups (card_id, day, stripe, total_count, total_sent, total_received)
+SELECT card_id, CAST(created_at AT TIME ZONE 'UTC' AS date), 0,
+    COUNT(*),
+    SUM(CASE WHEN direction = 'DEBIT' THEN amount ELSE 0 END),
+    SUM(CASE WHEN direction = 'CREDIT' THEN amount ELSE 0 END)
+FROM card_transaction_entries
+GROUP BY 1, 2
+ON CONFLICT DO NOTHING;
+
+INSERT INTO card_monthly_rollups (card_id, month, stripe, total_count, total_sent, total_received)
+SELECT card_id, month, 0, SUM(total_count), SUM(total_sent), SUM(total_received)
+FROM (SELECT card_id, CAST(date_trunc('month', day) AS date) AS month, total_count, total_sent, total_received
+      FROM card_daily_rollups) daily
+GROUP BY card_id, month
+ON CONFLICT DO NOTHING;
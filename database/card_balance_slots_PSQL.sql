@@ -0,0 +1,10 @@
+-- Balance slots of the cards credited too often for a single row, summed with the card balance on read.
+
+ALTER TABLE cards ADD COLUMN IF NOT EXISTS balance_slots INTEGER NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS card_balance_slots (
+    card_id BIGINT NOT NULL,
+    slot INTEGER NOT NULL,
+    balance NUMERIC(15,2) NOT NULL,
+    PRIMARY KEY (card_id, slot)
+);
@@ -0,0 +1,23 @@
+-- Per-card transaction entries: one row for the sender and one for the recipient of each transaction,
+-- written together with the transaction so the history of a card is a single index range scan.
+
+CREATE TABLE IF NOT EXISTS card_transaction_entries (
+    card_id BIGINT NOT NULL,
+    created_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    transaction_id BIGINT NOT NULL,
+    direction VARCHAR(255) NOT NULL,
+    amount NUMERIC(15,2) NOT NULL,
+    PRIMARY KEY (card_id, created_at, transaction_id)
+);
+
+-- Backfill the existing transactions, a transfer to the same card only gets its debit entry
+INSERT INTO card_transaction_entries (card_id, created_at, transaction_id, direction, amount)
+SELECT sender_card_id, created_at, id, 'DEBIT', amount FROM transactions
+UNION ALL
+SELECT recipient_card_id, created_at, id, 'CREDIT', amount FROM transactions
+WHERE recipient_card_id <> sender_card_id
+ON CONFLICT DO NOTHING;
+
+-- The history no longer reads the transactions by card
+DROP INDEX IF EXISTS idx_transactions_sender_created_at;
+DROP INDEX IF EXISTS idx_transactions_recipient_created_at;
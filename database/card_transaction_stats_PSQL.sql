@@ -0,0 +1,24 @@
+-- Per-card running totals of the transaction entries, split in stripes summed on read.
+-- The service takes the entries of a detached partition off stripe 0, so the totals cover the retained months only.
+-- Requires card_transaction_entries_PSQL.sql.
+
+CREATE TABLE IF NOT EXISTS card_transaction_stats (
+    card_id BIGINT NOT NULL,
+    stripe INTEGER NOT NULL,
+    total_count BIGINT NOT NULL,
+    total_sent NUMERIC(38,2) NOT NULL,
+    total_received NUMERIC(38,2) NOT NULL,
+    last_activity_at TIMESTAMP(6) WITH TIME ZONE,
+    PRIMARY KEY (card_id, stripe)
+);
+
+-- Backfill the existing entries into stripe 0, the service adds to the other stripes as it writes
+INSERT INTO card_transaction_stats (card_id, stripe, total_count, total_sent, total_received, last_activity_at)
+SELECT card_id, 0,
+    COUNT(*),
+    SUM(CASE WHEN direction = 'DEBIT' THEN amount ELSE 0 END),
+    SUM(CASE WHEN direction = 'CREDIT' THEN amount ELSE 0 END),
+    MAX(created_at)
+FROM card_transaction_entries
+GROUP BY card_id
+ON CONFLICT (card_id, stripe) DO NOTHING;
@@ -0,0 +1,13 @@
+-- Idempotency keys of the transfers applied by card-service, inserted in the transaction of the transfer itself.
+-- A transfer repeated with the same id, e.g. a retry after a timeout, finds its key and is not applied again.
+-- Keys only need to outlive the retries of their caller, older rows can be deleted.
+
+CREATE TABLE IF NOT EXISTS card_transfers (
+    id VARCHAR(64) PRIMARY KEY,
+    sender_card_id BIGINT NOT NULL,
+    recipient_card_id BIGINT NOT NULL,
+    amount NUMERIC(15,2) NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS card_transfers_created_at_idx ON card_transfers (created_at);
@@ -0,0 +1,8 @@
+-- Card ids allocated in blocks from a sequence instead of by the insert, so the inserts of a bulk issuance can be batched.
+-- The increment must match Card.ID_ALLOCATION_SIZE and id-generation.allocation-sizes of card-service.
+
+ALTER TABLE cards ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS cards_seq INCREMENT BY 50;
+
+SELECT setval('cards_seq', COALESCE((SELECT MAX(id) FROM cards), 0) + 1, false);
@@ -0,0 +1,20 @@
+-- Transaction and user ids allocated in blocks from sequences with the pooled-lo optimizer: each value of a sequence is
+-- the first id of a block as large as its increment. Requires cards_id_sequence_PSQL.sql for the card ids.
+--
+-- The increments must match the ID_ALLOCATION_SIZE of the entities and id-generation.allocation-sizes, which the
+-- services check at startup. To change an allocation size, stop the services inserting into the table, then
+-- ALTER SEQUENCE ... INCREMENT BY the new size and deploy the entity and its configuration with the same size.
+
+BEGIN;
+
+-- transactions.id was an identity column, or defaulted to transaction_id_seq once partitioned
+ALTER TABLE transactions ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE transactions ALTER COLUMN id DROP DEFAULT;
+
+CREATE SEQUENCE IF NOT EXISTS transactions_seq INCREMENT BY 50;
+SELECT setval('transactions_seq', COALESCE((SELECT MAX(id) FROM transactions), 0) + 1, false);
+
+CREATE SEQUENCE IF NOT EXISTS users_seq INCREMENT BY 20;
+SELECT setval('users_seq', COALESCE((SELECT MAX(id) FROM users), 0) + 1, false);
+
+COMMIT;
@@ -0,0 +1,68 @@
+-- Converts transactions and card_transaction_entries to monthly range partitions on created_at (UTC months).
+-- Run once with the service stopped, then set partitioning.enabled=true so the service keeps creating
+-- the future partitions and detaching the expired ones. Requires card_transaction_entries_PSQL.sql.
+--
+-- The primary and unique keys of a partitioned table must include the partition key, so UNIQUE (code, created_at)
+-- only holds within a month: the uniqueness of a code across months is enforced by transaction_codes_PSQL.sql.
+
+BEGIN;
+
+-- The monthly bounds below are computed on UTC wall clock timestamps, this makes them print in UTC as well
+SET LOCAL TIME ZONE 'UTC';
+
+ALTER TABLE transactions RENAME TO transactions_unpartitioned;
+ALTER TABLE card_transaction_entries RENAME TO card_transaction_entries_unpartitioned;
+
+CREATE TABLE transactions (
+    id BIGINT NOT NULL DEFAULT nextval('transaction_id_seq'),
+    code VARCHAR(36) NOT NULL,
+    sender_card_id BIGINT NOT NULL REFERENCES cards(id),
+    recipient_card_id BIGINT NOT NULL REFERENCES cards(id),
+    type VARCHAR(255) NOT NULL,
+    amount NUMERIC(15,2) NOT NULL,
+    created_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (id, created_at),
+    UNIQUE (code, created_at)
+) PARTITION BY RANGE (created_at);
+
+CREATE TABLE card_transaction_entries (
+    card_id BIGINT NOT NULL,
+    created_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    transaction_id BIGINT NOT NULL,
+    direction VARCHAR(255) NOT NULL,
+    amount NUMERIC(15,2) NOT NULL,
+    PRIMARY KEY (card_id, created_at, transaction_id)
+) PARTITION BY RANGE (created_at);
+
+-- One partition per month, from the oldest transaction up to three months ahead. The months are stepped on
+-- timestamps without time zone holding the UTC wall clock, so no local offset or DST change shifts a bound.
+DO $$
+DECLARE
+    month_start TIMESTAMP;
+    last_month TIMESTAMP := date_trunc('month', now() AT TIME ZONE 'UTC') + INTERVAL '3 months';
+    suffix TEXT;
+BEGIN
+    SELECT COALESCE(date_trunc('month', min(created_at) AT TIME ZONE 'UTC'), last_month - INTERVAL '3 months')
+    INTO month_start FROM transactions_unpartitioned;
+
+    WHILE month_start <= last_month LOOP
+        suffix := to_char(month_start, '"_y"YYYY"m"MM');
+        EXECUTE format('CREATE TABLE %I PARTITION OF transactions FOR VALUES FROM (%L) TO (%L)',
+            'transactions' || suffix, month_start AT TIME ZONE 'UTC', (month_start + INTERVAL '1 month') AT TIME ZONE 'UTC');
+        EXECUTE format('CREATE TABLE %I PARTITION OF card_transaction_entries FOR VALUES FROM (%L) TO (%L)',
+            'card_transaction_entries' || suffix, month_start AT TIME ZONE 'UTC', (month_start + INTERVAL '1 month') AT TIME ZONE 'UTC');
+        month_start := month_start + INTERVAL '1 month';
+    END LOOP;
+END $$;
+
+INSERT INTO transactions (id, code, sender_card_id, recipient_card_id, type, amount, created_at)
+SELECT id, code, sender_card_id, recipient_card_id, type, amount, created_at FROM transactions_unpartitioned;
+
+INSERT INTO card_transaction_entries (card_id, created_at, transaction_id, direction, amount)
+SELECT card_id, created_at, transaction_id, direction, amount FROM card_transaction_entries_unpartitioned;
+
+DROP TRIGGER IF EXISTS transaction_id_trigger ON transactions_unpartitioned;
+DROP TABLE card_transaction_entries_unpartitioned;
+DROP TABLE transactions_unpartitioned;
+
+COMMIT;
@@ -0,0 +1,12 @@
+-- Codes of the recorded transactions, inserted in the statement that inserts the transactions themselves.
+-- The unique key of the partitioned transactions table must include created_at, so it cannot reject a code
+-- recorded in another month: this table is not partitioned, so a code is unique across months.
+-- Rows are kept when the partitions of their transactions are detached, so an expired code is never reused.
+
+CREATE TABLE IF NOT EXISTS transaction_codes (
+    code VARCHAR(36) PRIMARY KEY
+);
+
+INSERT INTO transaction_codes (code)
+SELECT code FROM transactions
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,12 @@
+-- Idempotency keys of the requests that recorded a transaction, inserted in the transaction of the insert itself.
+-- A request repeated with the same id, e.g. a retry after a timeout, finds its key and gets the transaction recorded
+-- the first time. The table is not partitioned, so a key is unique across months.
+-- Keys only need to outlive the retries of their caller, older rows can be deleted.
+
+CREATE TABLE IF NOT EXISTS transaction_requests (
+    id VARCHAR(64) PRIMARY KEY,
+    transaction_id BIGINT NOT NULL,
+    created_at TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS transaction_requests_created_at_idx ON transaction_requests (created_at);
@@ -0,0 +1,34 @@
+package com.virtualcard.transactionservice.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Vert.x pool used to stream exports from server-side cursors. It connects to the primary database with the
+ * settings of the primary pool, only its size is its own.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+@ConfigurationProperties(prefix = "export")
+public class ExportProperties {
+	private int maxPoolSize = 4;
+	private int fetchSize = 500;
+
+	public int getMaxPoolSize() {
+		return maxPoolSize;
+	}
+
+	public void setMaxPoolSize(final int maxPoolSize) {
+		this.maxPoolSize = maxPoolSize;
+	}
+
+	public int getFetchSize() {
+		return fetchSize;
+	}
+
+	public void setFetchSize(final int fetchSize) {
+		this.fetchSize = fetchSize;
+	}
+}
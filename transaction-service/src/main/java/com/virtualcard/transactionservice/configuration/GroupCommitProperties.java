@@ -0,0 +1,33 @@
+package com.virtualcard.transactionservice.configuration;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         19 set 2025
+ *
+ */
+@ConfigurationProperties(prefix = "group-commit")
+public class GroupCommitProperties {
+	private Duration flushWindow = Duration.ofMillis(2);
+	private int maxBatchSize = 64;
+
+	public Duration getFlushWindow() {
+		return flushWindow;
+	}
+
+	public void setFlushWindow(final Duration flushWindow) {
+		this.flushWindow = flushWindow;
+	}
+
+	public int getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	public void setMaxBatchSize(final int maxBatchSize) {
+		this.maxBatchSize = maxBatchSize;
+	}
+}
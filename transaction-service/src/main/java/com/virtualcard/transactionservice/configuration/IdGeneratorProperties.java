@@ -0,0 +1,34 @@
+package com.virtualcard.transactionservice.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import com.virtualcard.common.lang.id.IdGeneratorType;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         18 set 2025
+ *
+ */
+@ConfigurationProperties(prefix = "id-generator")
+public class IdGeneratorProperties {
+	private IdGeneratorType type = IdGeneratorType.UUID_V7;
+	// Not set unless configured, so that an instance cannot silently share the node id of another one
+	private Integer nodeId;
+
+	public IdGeneratorType getType() {
+		return type;
+	}
+
+	public void setType(final IdGeneratorType type) {
+		this.type = type;
+	}
+
+	public Integer getNodeId() {
+		return nodeId;
+	}
+
+	public void setNodeId(final Integer nodeId) {
+		this.nodeId = nodeId;
+	}
+}
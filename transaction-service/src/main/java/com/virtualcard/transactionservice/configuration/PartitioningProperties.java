@@ -0,0 +1,62 @@
+package com.virtualcard.transactionservice.configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+@ConfigurationProperties(prefix = "partitioning")
+public class PartitioningProperties {
+	private boolean enabled = false;
+	private List<String> tables = new ArrayList<>(List.of("transactions", "card_transaction_entries"));
+	private int premadeMonths = 3;
+	private int retainedMonths = 24;
+	private Duration checkInterval = Duration.ofHours(1);
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(final boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public List<String> getTables() {
+		return tables;
+	}
+
+	public void setTables(final List<String> tables) {
+		this.tables = tables;
+	}
+
+	public int getPremadeMonths() {
+		return premadeMonths;
+	}
+
+	public void setPremadeMonths(final int premadeMonths) {
+		this.premadeMonths = premadeMonths;
+	}
+
+	public int getRetainedMonths() {
+		return retainedMonths;
+	}
+
+	public void setRetainedMonths(final int retainedMonths) {
+		this.retainedMonths = retainedMonths;
+	}
+
+	public Duration getCheckInterval() {
+		return checkInterval;
+	}
+
+	public void setCheckInterval(final Duration checkInterval) {
+		this.checkInterval = checkInterval;
+	}
+}
@@ -1,12 +1,23 @@
 package com.virtualcard.transactionservice.configuration;
 
+import java.util.Map;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import com.virtualcard.common.configuration.SpringServiceConfiguration;
+import com.virtualcard.common.lang.id.IdGenerator;
+import com.virtualcard.common.lang.id.IdGeneratorType;
+import com.virtualcard.transactionservice.entity.Transaction;
 
 import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.info.Info;
+import io.vertx.core.Vertx;
+import io.vertx.pgclient.PgBuilder;
+import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.PoolOptions;
 
 /**
  * @author Lorenzo Leccese
@@ -15,8 +26,42 @@ import io.swagger.v3.oas.models.info.Info;
  *
  */
 @Configuration
+@EnableConfigurationProperties({ IdGeneratorProperties.class, GroupCommitProperties.class, PartitioningProperties.class,
+		TransactionStatsProperties.class, ExportProperties.class })
 public class TransactionServiceConfiguration extends SpringServiceConfiguration {
 
+	private static final String EXPORT_POOL = "export";
+
+	/**
+	 * A code generated twice fails the insert on transaction_codes, so a generator embedding the node id refuses
+	 * to start unless the node id of the instance is configured, in its Eureka metadata or else in NODE_ID.
+	 */
+	@Bean
+	IdGenerator transactionCodeGenerator(final IdGeneratorProperties properties) {
+		final IdGeneratorType type = properties.getType();
+		final Integer nodeId = properties.getNodeId();
+		if (nodeId == null) {
+			if (type.isNodeIdRequired()) {
+				throw new IllegalStateException("eureka.instance.metadata-map.node-id or NODE_ID must be set to an id unique to this instance when id-generator.type is " + type);
+			}
+			return type.create(0);
+		}
+		return type.create(nodeId);
+	}
+
+	/**
+	 * Connections are opened lazily, on the first export. The pool reaches the primary database with the settings
+	 * of the primary pool, and runs on the Vert.x instance of the database pools, so that it is metered with them.
+	 */
+	@Bean(destroyMethod = "close")
+	Pool exportPool(final Vertx vertx, final PgConnectOptions primaryConnectOptions, final ExportProperties properties) {
+		return PgBuilder.pool()
+			.with(new PoolOptions().setName(EXPORT_POOL).setMaxSize(properties.getMaxPoolSize()))
+			.connectingTo(primaryConnectOptions)
+			.using(vertx)
+			.build();
+	}
+
 	@Bean
 	OpenAPI customOpenAPI() {
 		return new OpenAPI()
@@ -26,4 +71,9 @@ public class TransactionServiceConfiguration extends SpringServiceConfiguration
 				.description("Simple API for demonstration"));
 	}
 
+	@Override
+	protected Map<String, Integer> idAllocationSizes() {
+		return Map.of(Transaction.ID_SEQUENCE, Transaction.ID_ALLOCATION_SIZE);
+	}
+
 }
@@ -0,0 +1,22 @@
+package com.virtualcard.transactionservice.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+@ConfigurationProperties(prefix = "transaction-stats")
+public class TransactionStatsProperties {
+	private int stripes = 8;
+
+	public int getStripes() {
+		return stripes;
+	}
+
+	public void setStripes(final int stripes) {
+		this.stripes = stripes;
+	}
+}
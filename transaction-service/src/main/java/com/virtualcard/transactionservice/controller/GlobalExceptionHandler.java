@@ -0,0 +1,30 @@
+package com.virtualcard.transactionservice.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         16 set 2025
+ *
+ */
+@RestControllerAdvice
+public class GlobalExceptionHandler {
+
+	/**
+	 * Handles invalid paging parameters, such as a negative page or a malformed cursor.
+	 *
+	 * @param ex the {@link IllegalArgumentException} describing the invalid parameter.
+	 * @return a {@link ResponseEntity} with a status code of 400 (Bad Request) and the error message.
+	 */
+	@ExceptionHandler(IllegalArgumentException.class)
+	public ResponseEntity<String> handleIllegalArgument(final IllegalArgumentException ex) {
+		return ResponseEntity
+			.status(HttpStatus.BAD_REQUEST)
+			.body(ex.getMessage());
+	}
+
+}
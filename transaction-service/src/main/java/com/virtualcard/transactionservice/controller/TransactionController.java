@@ -1,15 +1,23 @@
 package com.virtualcard.transactionservice.controller;
 
+import static com.virtualcard.common.lang.EndpointConstants.EXPORT_MAPPING;
 import static com.virtualcard.common.lang.EndpointConstants.GET_TRANSACTIONS_LAST_MONTH_BY_CARD_ID;
 import static com.virtualcard.common.lang.EndpointConstants.ID;
+import static com.virtualcard.common.lang.EndpointConstants.SERIES_MAPPING;
+import static com.virtualcard.common.lang.EndpointConstants.SUMMARY_MAPPING;
 import static com.virtualcard.common.lang.EndpointConstants.TRANSACTIONS;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
+import java.time.YearMonth;
 import java.time.ZoneOffset;
 
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -21,7 +29,12 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.virtualcard.common.dto.TransactionDTO;
 import com.virtualcard.common.request.CreateTransactionRequest;
+import com.virtualcard.transactionservice.export.ExportFormat;
 import com.virtualcard.transactionservice.pagination.PagedTransactionResponse;
+import com.virtualcard.transactionservice.rollup.ActivityTotals;
+import com.virtualcard.transactionservice.rollup.RollupGranularity;
+import com.virtualcard.transactionservice.service.CardActivityService;
+import com.virtualcard.transactionservice.service.TransactionExportService;
 import com.virtualcard.transactionservice.service.TransactionService;
 
 import lombok.RequiredArgsConstructor;
@@ -41,18 +54,30 @@ import reactor.core.publisher.Mono;
 public class TransactionController {
 
 	private final TransactionService transactionService;
+	private final TransactionExportService transactionExportService;
+	private final CardActivityService cardActivityService;
 
+	/**
+	 * Retrieves a page of the transactions of a card, most recent first.
+	 *
+	 * Pages are addressed by number unless a {@code cursor} is given: in that case keyset pagination is used,
+	 * an empty cursor returns the first page and every page carries the {@code nextCursor} to pass for the next one.
+	 */
 	@GetMapping(ID)
 	public Mono<PagedTransactionResponse> getTransactionsByCardId(
 			@PathVariable("id") final Long cardId,
 			@RequestParam(defaultValue = "0") final int page,
 			@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final OffsetDateTime upperBoundDate,
 			@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final OffsetDateTime lowerBoundDate,
-			@RequestParam(defaultValue = "20") final int size) {
+			@RequestParam(defaultValue = "20") final int size,
+			@RequestParam(required = false) final String cursor) {
 
 		// Use MIN if lowerBoundDate is null
 		final OffsetDateTime lower = lowerBoundDate != null ? lowerBoundDate : OffsetDateTime.of(LocalDateTime.of(1991, 1, 1, 1, 1), ZoneOffset.UTC);
 
+		if (cursor != null) {
+			return transactionService.getTransactionsByCardIdAfter(cardId, cursor, upperBoundDate, lower, size);
+		}
 		return transactionService.getTransactionsByCardId(cardId, page, upperBoundDate, lower, size);
 	}
 
@@ -62,11 +87,61 @@ public class TransactionController {
 		return transactionService.getAllCurrentMonthTransactionsByCardId(cardId);
 	}
 
+	/**
+	 * Streams the transactions of a card within the interval as an attachment, one line per transaction.
+	 *
+	 * @param format {@code ndjson} or {@code csv}
+	 */
+	@GetMapping(EXPORT_MAPPING)
+	public Mono<Void> exportTransactionsByCardId(
+			@PathVariable("id") final Long cardId,
+			@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final OffsetDateTime from,
+			@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final OffsetDateTime to,
+			@RequestParam(defaultValue = "ndjson") final String format,
+			final ServerHttpResponse response) {
+
+		final ExportFormat exportFormat = ExportFormat.fromParameter(format);
+		final Flux<DataBuffer> body = transactionExportService.exportTransactionsByCardId(cardId, from.toInstant(), to.toInstant(), exportFormat,
+				response.bufferFactory());
+
+		response.getHeaders().setContentType(exportFormat.getMediaType());
+		response.getHeaders().setContentDisposition(ContentDisposition.attachment()
+			.filename("transactions-" + cardId + exportFormat.getExtension())
+			.build());
+		return response.writeWith(body);
+	}
+
+	/**
+	 * Retrieves the totals of a card within a UTC month, the current one if not given.
+	 *
+	 * @param month the month as {@code yyyy-MM}
+	 */
+	@GetMapping(SUMMARY_MAPPING)
+	public Mono<ActivityTotals> getMonthlySummaryByCardId(
+			@PathVariable("id") final Long cardId,
+			@RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") final YearMonth month) {
+		return cardActivityService.getMonthlySummary(cardId, month != null ? month : YearMonth.now(ZoneOffset.UTC));
+	}
+
+	/**
+	 * Retrieves the totals of a card for each UTC day or month between the two dates, included.
+	 *
+	 * @param granularity {@code day} or {@code month}
+	 */
+	@GetMapping(SERIES_MAPPING)
+	public Flux<ActivityTotals> getSeriesByCardId(
+			@PathVariable("id") final Long cardId,
+			@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) final LocalDate from,
+			@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) final LocalDate to,
+			@RequestParam(defaultValue = "day") final String granularity) {
+		return cardActivityService.getSeries(cardId, RollupGranularity.fromParameter(granularity), from, to);
+	}
+
 	@PostMapping
 	@ResponseStatus(HttpStatus.CREATED)
 	public Mono<TransactionDTO> createTransaction(@RequestBody final Mono<CreateTransactionRequest> transactionRequestMono) {
 		return transactionRequestMono
-			.flatMap(req -> transactionService.createTransaction(req.senderCardId(), req.recipientCardId(), req.amount(), req.type()));
+			.flatMap(req -> transactionService.createTransaction(req.requestId(), req.senderCardId(), req.recipientCardId(), req.amount(), req.type()));
 	}
 
 }
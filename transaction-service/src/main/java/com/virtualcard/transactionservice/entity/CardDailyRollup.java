@@ -0,0 +1,69 @@
+package com.virtualcard.transactionservice.entity;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import com.virtualcard.common.springdata.entity.BaseEntity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+/**
+ * Totals of the {@link CardTransactionEntry} of a card within a UTC day, striped as the {@link CardTransactionStats}.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+@Entity
+@Table(name = "card_daily_rollups")
+@IdClass(CardDailyRollup.RollupId.class)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CardDailyRollup implements BaseEntity {
+
+	@Id
+	@Column(name = "card_id", nullable = false)
+	private Long cardId;
+
+	@Id
+	@Column(name = "day", nullable = false)
+	private LocalDate day;
+
+	@Id
+	@Column(name = "stripe", nullable = false)
+	private Integer stripe;
+
+	@Column(name = "total_count", nullable = false)
+	private Long totalCount;
+
+	@Column(name = "total_sent", nullable = false)
+	private BigDecimal totalSent;
+
+	@Column(name = "total_received", nullable = false)
+	private BigDecimal totalReceived;
+
+	@Data
+	@AllArgsConstructor
+	@NoArgsConstructor
+	public static class RollupId implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private Long cardId;
+		private LocalDate day;
+		private Integer stripe;
+
+	}
+
+}
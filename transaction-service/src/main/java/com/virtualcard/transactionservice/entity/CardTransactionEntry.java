@@ -0,0 +1,72 @@
+package com.virtualcard.transactionservice.entity;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import com.virtualcard.common.springdata.entity.BaseEntity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+/**
+ * One row per card involved in a {@link Transaction}, written in the same database transaction.
+ *
+ * The primary key (card_id, created_at, transaction_id) keeps the entries of a card ordered by time,
+ * so the history of a card is a single range scan instead of an OR over the sender and recipient columns.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+@Entity
+@Table(name = "card_transaction_entries")
+@IdClass(CardTransactionEntry.EntryId.class)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CardTransactionEntry implements BaseEntity {
+
+	@Id
+	@Column(name = "card_id", nullable = false)
+	private Long cardId;
+
+	@Id
+	@Column(name = "created_at", nullable = false)
+	private Instant createdAt;
+
+	@Id
+	@Column(name = "transaction_id", nullable = false)
+	private Long transactionId;
+
+	@Column(name = "direction", nullable = false)
+	@Enumerated(EnumType.STRING)
+	private EntryDirection direction;
+
+	@Column(name = "amount", nullable = false)
+	private BigDecimal amount;
+
+	@Data
+	@AllArgsConstructor
+	@NoArgsConstructor
+	public static class EntryId implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private Long cardId;
+		private Instant createdAt;
+		private Long transactionId;
+
+	}
+
+}
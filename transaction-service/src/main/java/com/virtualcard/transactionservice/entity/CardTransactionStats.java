@@ -0,0 +1,70 @@
+package com.virtualcard.transactionservice.entity;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import com.virtualcard.common.springdata.entity.BaseEntity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+
+/**
+ * Running totals of the {@link CardTransactionEntry} of a card, updated by the same statement that inserts them.
+ *
+ * The totals of a card are split over a few stripes, each write adding to a single random one,
+ * so concurrent writes on a hot card rarely wait on the same row lock. The totals of a card are the sum of its stripes.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+@Entity
+@Table(name = "card_transaction_stats")
+@IdClass(CardTransactionStats.StripeId.class)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CardTransactionStats implements BaseEntity {
+
+	@Id
+	@Column(name = "card_id", nullable = false)
+	private Long cardId;
+
+	@Id
+	@Column(name = "stripe", nullable = false)
+	private Integer stripe;
+
+	@Column(name = "total_count", nullable = false)
+	private Long totalCount;
+
+	@Column(name = "total_sent", nullable = false)
+	private BigDecimal totalSent;
+
+	@Column(name = "total_received", nullable = false)
+	private BigDecimal totalReceived;
+
+	@Column(name = "last_activity_at")
+	private Instant lastActivityAt;
+
+	@Data
+	@AllArgsConstructor
+	@NoArgsConstructor
+	public static class StripeId implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private Long cardId;
+		private Integer stripe;
+
+	}
+
+}
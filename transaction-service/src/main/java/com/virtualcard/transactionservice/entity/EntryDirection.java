@@ -0,0 +1,14 @@
+package com.virtualcard.transactionservice.entity;
+
+/**
+ * Side of a transaction seen from the card of a {@link CardTransactionEntry}.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+public enum EntryDirection {
+	DEBIT,
+	CREDIT
+}
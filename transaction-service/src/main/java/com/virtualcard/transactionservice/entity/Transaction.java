@@ -17,7 +17,9 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 
 /**
  * @author Lorenzo Leccese
@@ -32,8 +34,14 @@ import jakarta.persistence.Table;
 @NoArgsConstructor
 public class Transaction implements BaseEntity {
 
+	public static final String ID_SEQUENCE = "transactions_seq";
+	// Must match id-generation.allocation-sizes and the increment of the sequence, checked at startup
+	public static final int ID_ALLOCATION_SIZE = 50;
+
+	// Ids taken a block at a time from the sequence, which the multi-row insert of the repository draws from as well
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+	@SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
 	private Long id;
 
 	@Column(name = "code", nullable = false, unique = true)
@@ -55,4 +63,8 @@ public class Transaction implements BaseEntity {
 	@Column(name = "created_at")
 	private Instant createdAt;
 
+	// Idempotency key of the request recording the transaction, stored in TransactionRequest
+	@Transient
+	private String requestId;
+
 }
@@ -0,0 +1,47 @@
+package com.virtualcard.transactionservice.entity;
+
+import java.time.Instant;
+
+import com.virtualcard.common.springdata.entity.BaseEntity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * The request that recorded a transaction, keyed by the id chosen by its caller.
+ *
+ * The row is inserted in the same database transaction as the transaction, so a request sent again with the same id
+ * finds it and gets back the transaction already recorded. Unlike the transactions, the table is not partitioned,
+ * so the id is unique across months.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+@Entity
+@Table(name = "transaction_requests")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionRequest implements BaseEntity {
+
+	public static final int MAX_ID_LENGTH = 64;
+
+	@Id
+	@Column(name = "id", nullable = false, length = MAX_ID_LENGTH)
+	private String id;
+
+	@Column(name = "transaction_id", nullable = false)
+	private Long transactionId;
+
+	@Column(name = "created_at", nullable = false)
+	private Instant createdAt;
+
+}
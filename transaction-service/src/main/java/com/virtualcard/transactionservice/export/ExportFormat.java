@@ -0,0 +1,32 @@
+package com.virtualcard.transactionservice.export;
+
+import java.util.Locale;
+
+import org.springframework.http.MediaType;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ExportFormat {
+	NDJSON(MediaType.APPLICATION_NDJSON, ".ndjson"),
+	CSV(new MediaType("text", "csv"), ".csv");
+
+	private final MediaType mediaType;
+	private final String extension;
+
+	public static ExportFormat fromParameter(final String format) {
+		try {
+			return valueOf(format.toUpperCase(Locale.ROOT));
+		} catch (final IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unsupported export format: " + format + ", expected ndjson or csv");
+		}
+	}
+}
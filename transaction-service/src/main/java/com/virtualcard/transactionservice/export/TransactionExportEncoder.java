@@ -0,0 +1,85 @@
+package com.virtualcard.transactionservice.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.virtualcard.common.dto.TransactionDTO;
+
+/**
+ * Encodes exported transactions one line at a time, each directly into a buffer of the response.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+@Component
+public class TransactionExportEncoder {
+
+	private static final String CSV_HEADER = "id,code,sender_card_id,recipient_card_id,type,amount,created_at\n";
+	private static final int LINE_CAPACITY = 256;
+
+	private final ObjectWriter jsonWriter;
+
+	public TransactionExportEncoder(final ObjectMapper objectMapper) {
+		// The buffer stream is closed here, after the line separator
+		this.jsonWriter = objectMapper.writerFor(TransactionDTO.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+	}
+
+	/**
+	 * @return the buffer to write before the first line, {@code null} if the format has none
+	 */
+	public DataBuffer header(final ExportFormat format, final DataBufferFactory bufferFactory) {
+		if (format != ExportFormat.CSV) {
+			return null;
+		}
+		return bufferFactory.allocateBuffer(CSV_HEADER.length()).write(CSV_HEADER, StandardCharsets.UTF_8);
+	}
+
+	public DataBuffer encode(final TransactionDTO transaction, final ExportFormat format, final DataBufferFactory bufferFactory) {
+		final DataBuffer buffer = bufferFactory.allocateBuffer(LINE_CAPACITY);
+		try {
+			return switch (format) {
+				case NDJSON -> writeJsonLine(transaction, buffer);
+				case CSV -> buffer.write(csvLine(transaction), StandardCharsets.UTF_8);
+			};
+		} catch (final RuntimeException e) {
+			DataBufferUtils.release(buffer);
+			throw e;
+		}
+	}
+
+	private DataBuffer writeJsonLine(final TransactionDTO transaction, final DataBuffer buffer) {
+		try (OutputStream out = buffer.asOutputStream()) {
+			jsonWriter.writeValue(out, transaction);
+			out.write('\n');
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return buffer;
+	}
+
+	private static String csvLine(final TransactionDTO transaction) {
+		return new StringBuilder(LINE_CAPACITY)
+			.append(transaction.getId()).append(',')
+			.append(transaction.getCode()).append(',')
+			.append(transaction.getSenderCardId()).append(',')
+			.append(transaction.getRecipientCardId()).append(',')
+			.append(transaction.getType()).append(',')
+			.append(transaction.getAmount().toPlainString()).append(',')
+			.append(transaction.getCreatedAt())
+			.append('\n')
+			.toString();
+	}
+
+}
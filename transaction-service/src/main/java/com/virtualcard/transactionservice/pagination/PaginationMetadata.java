@@ -1,15 +1,21 @@
 package com.virtualcard.transactionservice.pagination;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import lombok.Builder;
 import lombok.Data;
 
 @Data
 @Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class PaginationMetadata {
-    private int currentPage;
+    // Page number and totals are only known for offset pagination
+    private Integer currentPage;
     private int pageSize;
-    private int totalElements;
-    private int totalPages;
+    private Integer totalElements;
+    private Integer totalPages;
     private boolean hasNext;
     private boolean hasPrevious;
+    // Continuation token of the next page with keyset pagination, see TransactionCursor
+    private String nextCursor;
 }
@@ -0,0 +1,53 @@
+package com.virtualcard.transactionservice.pagination;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Position of a transaction in the history of a card, ordered by {@code (createdAt, id)} descending.
+ *
+ * Clients only ever see the opaque token produced by {@link #encode()}, so the key layout can change freely.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         16 set 2025
+ *
+ */
+public record TransactionCursor(Instant createdAt, Long id) {
+
+	private static final int TOKEN_BYTES = Long.BYTES + Integer.BYTES + Long.BYTES;
+
+	public String encode() {
+		final ByteBuffer buffer = ByteBuffer.allocate(TOKEN_BYTES)
+			.putLong(createdAt.getEpochSecond())
+			.putInt(createdAt.getNano())
+			.putLong(id);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+	}
+
+	/**
+	 * Decodes a continuation token.
+	 *
+	 * @param token the token returned in a previous page, blank to start from the most recent transaction
+	 * @return the decoded cursor, or {@code null} for a blank token
+	 * @throws IllegalArgumentException if the token is malformed
+	 */
+	public static TransactionCursor decode(final String token) {
+		if (token == null || token.isBlank()) {
+			return null;
+		}
+		final byte[] bytes;
+		try {
+			bytes = Base64.getUrlDecoder().decode(token);
+		} catch (final IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid cursor: " + token, e);
+		}
+		if (bytes.length != TOKEN_BYTES) {
+			throw new IllegalArgumentException("Invalid cursor: " + token);
+		}
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		return new TransactionCursor(Instant.ofEpochSecond(buffer.getLong(), buffer.getInt()), buffer.getLong());
+	}
+
+}
@@ -0,0 +1,57 @@
+package com.virtualcard.transactionservice.partition;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The partition of a table holding the rows created within one month, bounds are in UTC.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+public record MonthlyPartition(String parentTable, YearMonth month) {
+
+	private static final Pattern SUFFIX = Pattern.compile("_y(\\d{4})m(\\d{2})$");
+
+	/**
+	 * Recognizes the partitions created by {@link #name()}, any other name is ignored.
+	 */
+	public static Optional<MonthlyPartition> parse(final String parentTable, final String name) {
+		if (!name.startsWith(parentTable)) {
+			return Optional.empty();
+		}
+		final Matcher matcher = SUFFIX.matcher(name);
+		if (!matcher.find() || matcher.start() != parentTable.length()) {
+			return Optional.empty();
+		}
+		return Optional.of(new MonthlyPartition(parentTable, YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)))));
+	}
+
+	public String name() {
+		return "%s_y%04dm%02d".formatted(parentTable, month.getYear(), month.getMonthValue());
+	}
+
+	public Instant lowerBound() {
+		return month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+	}
+
+	public Instant upperBound() {
+		return month.plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+	}
+
+	public String createStatement() {
+		return "CREATE TABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES FROM ('%s') TO ('%s')"
+			.formatted(name(), parentTable, lowerBound(), upperBound());
+	}
+
+	public String detachStatement() {
+		return "ALTER TABLE %s DETACH PARTITION %s".formatted(parentTable, name());
+	}
+
+}
@@ -0,0 +1,127 @@
+package com.virtualcard.transactionservice.partition;
+
+import static com.virtualcard.common.converter.VertxWebFluxConverter.convertUniToMono;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Component;
+
+import com.virtualcard.transactionservice.configuration.PartitioningProperties;
+import com.virtualcard.transactionservice.repository.PartitionRepository;
+
+import lombok.extern.log4j.Log4j2;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Keeps the monthly partitions of the transaction tables ahead of time.
+ *
+ * At startup and then at every check interval, the partitions from the current month up to {@code premadeMonths}
+ * months ahead are created if missing, so inserts never hit a month without a partition, and the partitions older than
+ * {@code retainedMonths} are detached, so indexes and vacuum only deal with the recent history. Detaching a partition
+ * of the entries also takes it off the per-card stats, so the counts keep matching the readable transactions.
+ * Tables that are not partitioned, as the ones created by Hibernate, are skipped.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+@Log4j2
+@Component
+public class PartitionMaintainer {
+
+	private final PartitionRepository repository;
+	private final PartitioningProperties properties;
+
+	// Tables already reported as not partitioned
+	private final Set<String> skippedTables = ConcurrentHashMap.newKeySet();
+
+	private Disposable maintenance;
+
+	public PartitionMaintainer(final PartitionRepository repository, final PartitioningProperties properties) {
+		if (properties.getPremadeMonths() < 0) {
+			throw new IllegalArgumentException("Premade months must not be negative");
+		}
+		if (properties.getRetainedMonths() < 1) {
+			throw new IllegalArgumentException("Retained months must be at least 1");
+		}
+		this.repository = repository;
+		this.properties = properties;
+	}
+
+	@PostConstruct
+	private void start() {
+		if (!properties.isEnabled()) {
+			return;
+		}
+		maintenance = Flux.interval(Duration.ZERO, properties.getCheckInterval())
+			.onBackpressureDrop()
+			.concatMap(tick -> maintain(YearMonth.now(ZoneOffset.UTC))
+				.onErrorResume(e -> {
+					log.warn("Partition maintenance failed, will retry in {}: {}", properties.getCheckInterval(), e.getMessage());
+					return Mono.empty();
+				}))
+			.subscribe();
+	}
+
+	@PreDestroy
+	private void stop() {
+		if (maintenance != null) {
+			maintenance.dispose();
+		}
+	}
+
+	/**
+	 * Creates the missing partitions and detaches the expired ones of every configured table.
+	 *
+	 * @param currentMonth the month, in UTC, the inserts are currently going to
+	 */
+	public Mono<Void> maintain(final YearMonth currentMonth) {
+		return Flux.fromIterable(properties.getTables())
+			.concatMap(table -> convertUniToMono(repository.isPartitioned(table))
+				.flatMap(partitioned -> {
+					if (!partitioned) {
+						if (skippedTables.add(table)) {
+							log.warn("Table {} is not partitioned, skipping its partition maintenance", table);
+						}
+						return Mono.empty();
+					}
+					return createAhead(table, currentMonth).then(detachExpired(table, currentMonth));
+				}))
+			.then();
+	}
+
+	private Mono<Void> createAhead(final String table, final YearMonth currentMonth) {
+		return Flux.range(0, properties.getPremadeMonths() + 1)
+			.map(offset -> new MonthlyPartition(table, currentMonth.plusMonths(offset)))
+			.concatMap(partition -> convertUniToMono(repository.create(partition)))
+			.then();
+	}
+
+	private Mono<Void> detachExpired(final String table, final YearMonth currentMonth) {
+		final YearMonth oldestRetained = currentMonth.minusMonths(properties.getRetainedMonths() - 1L);
+
+		return convertUniToMono(repository.findPartitionNames(table))
+			.flatMapIterable(names -> names.stream()
+				.map(name -> MonthlyPartition.parse(table, name))
+				.flatMap(Optional::stream)
+				.filter(partition -> partition.month().isBefore(oldestRetained))
+				.sorted(Comparator.comparing(MonthlyPartition::month))
+				.toList())
+			.concatMap(partition -> convertUniToMono(repository.detach(partition))
+				.doOnSuccess(ignored -> log.info("Detached partition {} of {}", partition.name(), table)))
+			.then();
+	}
+
+}
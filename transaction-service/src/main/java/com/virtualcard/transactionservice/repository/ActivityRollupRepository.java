@@ -0,0 +1,68 @@
+package com.virtualcard.transactionservice.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.stereotype.Repository;
+
+import com.virtualcard.common.springdata.repository.ReadReplicaRouter;
+import com.virtualcard.transactionservice.rollup.ActivityTotals;
+import com.virtualcard.transactionservice.rollup.RollupGranularity;
+
+import io.smallrye.mutiny.Uni;
+
+/**
+ * Reads the daily and monthly rollups written with the transactions by {@link ReactiveTransactionRepository#insertAll}.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+@Repository
+public class ActivityRollupRepository {
+
+	// The stripes of each period are summed, a card has at most a few rows per period
+	private static final String FIND_DAILY_TOTALS = """
+			SELECT new com.virtualcard.transactionservice.rollup.ActivityTotals(r.day, SUM(r.totalCount), SUM(r.totalReceived), SUM(r.totalSent))
+			FROM CardDailyRollup r
+			WHERE r.cardId = :cardId
+			  AND r.day >= :firstPeriod
+			  AND r.day <= :lastPeriod
+			GROUP BY r.day
+			ORDER BY r.day
+			""";
+
+	private static final String FIND_MONTHLY_TOTALS = """
+			SELECT new com.virtualcard.transactionservice.rollup.ActivityTotals(r.month, SUM(r.totalCount), SUM(r.totalReceived), SUM(r.totalSent))
+			FROM CardMonthlyRollup r
+			WHERE r.cardId = :cardId
+			  AND r.month >= :firstPeriod
+			  AND r.month <= :lastPeriod
+			GROUP BY r.month
+			ORDER BY r.month
+			""";
+
+	private final ReadReplicaRouter readReplicaRouter;
+
+	public ActivityRollupRepository(final ReadReplicaRouter readReplicaRouter) {
+		this.readReplicaRouter = readReplicaRouter;
+	}
+
+	/**
+	 * @return the totals of the periods with at least one transaction, oldest first
+	 */
+	public Uni<List<ActivityTotals>> findTotals(final Long cardId, final RollupGranularity granularity, final LocalDate firstPeriod,
+			final LocalDate lastPeriod) {
+		final String query = granularity == RollupGranularity.DAY ? FIND_DAILY_TOTALS : FIND_MONTHLY_TOTALS;
+
+		// Projected straight into the totals, the rollup entities are never loaded. Rollups are only returned to the
+		// client and tolerate the replication lag, see ReadConsistency#LAG_TOLERANT
+		return readReplicaRouter.withStatelessSession(session -> session.createSelectionQuery(query, ActivityTotals.class)
+			.setParameter("cardId", cardId)
+			.setParameter("firstPeriod", firstPeriod)
+			.setParameter("lastPeriod", lastPeriod)
+			.getResultList());
+	}
+
+}
@@ -0,0 +1,96 @@
+package com.virtualcard.transactionservice.repository;
+
+import java.util.List;
+
+import org.hibernate.reactive.mutiny.Mutiny;
+import org.hibernate.reactive.mutiny.Mutiny.SessionFactory;
+import org.springframework.stereotype.Repository;
+
+import com.virtualcard.transactionservice.partition.MonthlyPartition;
+
+import io.smallrye.mutiny.Uni;
+
+/**
+ * Catalog queries and DDL for the declarative partitions of the transaction tables.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+@Repository
+public class PartitionRepository {
+
+	private static final String IS_PARTITIONED = """
+			SELECT COUNT(*) FROM pg_partitioned_table pt
+			JOIN pg_class c ON c.oid = pt.partrelid
+			WHERE c.relname = :table AND pg_table_is_visible(c.oid)
+			""";
+
+	private static final String FIND_PARTITIONS = """
+			SELECT CAST(c.relname AS text) FROM pg_inherits i
+			JOIN pg_class c ON c.oid = i.inhrelid
+			JOIN pg_class p ON p.oid = i.inhparent
+			WHERE p.relname = :table AND pg_table_is_visible(p.oid)
+			""";
+
+	private static final String ENTRIES_TABLE = "card_transaction_entries";
+
+	// Takes the entries of a partition off the stats of their cards, on stripe 0 since the stripes are summed on read
+	private static final String SUBTRACT_STATS = """
+			INSERT INTO card_transaction_stats AS s (card_id, stripe, total_count, total_sent, total_received, last_activity_at)
+			SELECT card_id, 0,
+				-COUNT(*),
+				-SUM(CASE WHEN direction = 'DEBIT' THEN amount ELSE 0 END),
+				-SUM(CASE WHEN direction = 'CREDIT' THEN amount ELSE 0 END),
+				NULL
+			FROM %s
+			GROUP BY card_id
+			ORDER BY card_id
+			ON CONFLICT (card_id, stripe) DO UPDATE SET
+				total_count = s.total_count + EXCLUDED.total_count,
+				total_sent = s.total_sent + EXCLUDED.total_sent,
+				total_received = s.total_received + EXCLUDED.total_received
+			""";
+
+	private final SessionFactory sessionFactory;
+
+	public PartitionRepository(final SessionFactory sessionFactory) {
+		this.sessionFactory = sessionFactory;
+	}
+
+	public Uni<Boolean> isPartitioned(final String table) {
+		return sessionFactory.withSession(session -> session.createNativeQuery(IS_PARTITIONED, Long.class)
+			.setParameter("table", table)
+			.getSingleResult())
+			.map(count -> count > 0);
+	}
+
+	public Uni<List<String>> findPartitionNames(final String table) {
+		return sessionFactory.withSession(session -> session.createNativeQuery(FIND_PARTITIONS, String.class)
+			.setParameter("table", table)
+			.getResultList());
+	}
+
+	public Uni<Integer> create(final MonthlyPartition partition) {
+		return sessionFactory.withTransaction((session, tx) -> session.createNativeQuery(partition.createStatement()).executeUpdate());
+	}
+
+	/**
+	 * Detaches the partition, keeping it as a standalone table to be archived or dropped outside the service.
+	 * A partition of the entries is taken off the stats in the same transaction, so the stats only count the entries
+	 * still readable.
+	 */
+	public Uni<Integer> detach(final MonthlyPartition partition) {
+		return sessionFactory.withTransaction((session, tx) -> subtractStats(session, partition)
+			.chain(() -> session.createNativeQuery(partition.detachStatement()).executeUpdate()));
+	}
+
+	private static Uni<Integer> subtractStats(final Mutiny.Session session, final MonthlyPartition partition) {
+		if (!ENTRIES_TABLE.equals(partition.parentTable())) {
+			return Uni.createFrom().item(0);
+		}
+		return session.createNativeQuery(SUBTRACT_STATS.formatted(partition.name())).executeUpdate();
+	}
+
+}
@@ -1,12 +1,29 @@
 package com.virtualcard.transactionservice.repository;
 
 import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
+import org.hibernate.reactive.mutiny.Mutiny;
 import org.hibernate.reactive.mutiny.Mutiny.SessionFactory;
 import org.springframework.stereotype.Repository;
 
+import com.virtualcard.common.springdata.id.PooledLoSequence;
 import com.virtualcard.common.springdata.repository.ReactiveRepository;
+import com.virtualcard.common.springdata.repository.ReadConsistency;
+import com.virtualcard.common.springdata.repository.ReadOnlyQuery;
+import com.virtualcard.common.springdata.repository.ReadReplicaRouter;
+import com.virtualcard.transactionservice.configuration.TransactionStatsProperties;
+import com.virtualcard.transactionservice.entity.CardTransactionEntry;
+import com.virtualcard.transactionservice.entity.CardTransactionStats;
 import com.virtualcard.transactionservice.entity.Transaction;
+import com.virtualcard.transactionservice.entity.TransactionRequest;
+import com.virtualcard.transactionservice.pagination.TransactionCursor;
 
 import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
@@ -21,48 +38,319 @@ import io.smallrye.mutiny.Uni;
 public class ReactiveTransactionRepository
 		extends ReactiveRepository<Transaction> {
 
-	public ReactiveTransactionRepository(final SessionFactory sessionFactory) {
-		super(sessionFactory);
+	private final int statsStripes;
+
+	// Ids of the multi-row inserts, from the same blocks the id generator of the entity takes
+	private final PooledLoSequence transactionIds = new PooledLoSequence(Transaction.ID_SEQUENCE);
+
+	public ReactiveTransactionRepository(final SessionFactory sessionFactory, final ReadReplicaRouter readReplicaRouter,
+			final TransactionStatsProperties statsProperties) {
+		super(sessionFactory, readReplicaRouter);
+		if (statsProperties.getStripes() < 1) {
+			throw new IllegalArgumentException("Stats stripes must be at least 1");
+		}
+		this.statsStripes = statsProperties.getStripes();
 	}
 
+	// The entries of a card are the primary key prefix, read in index order and joined to their transactions.
+	// Bounding both sides on created_at lets Postgres prune the monthly partitions of both tables
 	private final String FIND_BY_CARDID_WITHIN_INTERVAL = """
-					SELECT t FROM Transaction t
-					WHERE (t.senderCardId = :cardId OR t.recipientCardId = :cardId)
+					SELECT t FROM CardTransactionEntry e
+					JOIN Transaction t ON t.id = e.transactionId AND t.createdAt = e.createdAt
+					WHERE e.cardId = :cardId
+					  AND e.createdAt >= :lowerBound
+					  AND e.createdAt <= :higherBound
+					  AND t.createdAt >= :lowerBound
+					  AND t.createdAt <= :higherBound
+					ORDER BY e.createdAt DESC, e.transactionId DESC
+			""";
+
+	private final String FIND_BY_CARDID_WITHIN_INTERVAL_AFTER_CURSOR = """
+					SELECT t FROM CardTransactionEntry e
+					JOIN Transaction t ON t.id = e.transactionId AND t.createdAt = e.createdAt
+					WHERE e.cardId = :cardId
+					  AND e.createdAt >= :lowerBound
+					  AND e.createdAt <= :higherBound
 					  AND t.createdAt >= :lowerBound
 					  AND t.createdAt <= :higherBound
-					ORDER BY t.createdAt DESC
+					  AND (e.createdAt < :cursorCreatedAt
+					    OR (e.createdAt = :cursorCreatedAt AND e.transactionId < :cursorId))
+					ORDER BY e.createdAt DESC, e.transactionId DESC
+			""";
+
+	// Adds the entries to one stripe per card, in card order so concurrent statements lock the rows in the same order
+	private static final String UPSERT_STATS = """
+				INSERT INTO card_transaction_stats AS s (card_id, stripe, total_count, total_sent, total_received, last_activity_at)
+				SELECT card_id, :stripe,
+					COUNT(*),
+					SUM(CASE WHEN direction = 'DEBIT' THEN amount ELSE 0 END),
+					SUM(CASE WHEN direction = 'CREDIT' THEN amount ELSE 0 END),
+					MAX(created_at)
+				FROM entries
+				GROUP BY card_id
+				ORDER BY card_id
+				ON CONFLICT (card_id, stripe) DO UPDATE SET
+					total_count = s.total_count + EXCLUDED.total_count,
+					total_sent = s.total_sent + EXCLUDED.total_sent,
+					total_received = s.total_received + EXCLUDED.total_received,
+					last_activity_at = GREATEST(s.last_activity_at, EXCLUDED.last_activity_at)
+			""";
+
+	// Same as the stats, per card and per UTC period given by the table, period column and bucket expression
+	private static final String UPSERT_ROLLUP = """
+				INSERT INTO %1$s AS r (card_id, %2$s, stripe, total_count, total_sent, total_received)
+				SELECT card_id, %3$s, :stripe,
+					COUNT(*),
+					SUM(CASE WHEN direction = 'DEBIT' THEN amount ELSE 0 END),
+					SUM(CASE WHEN direction = 'CREDIT' THEN amount ELSE 0 END)
+				FROM entries
+				GROUP BY 1, 2
+				ORDER BY 1, 2
+				ON CONFLICT (card_id, %2$s, stripe) DO UPDATE SET
+					total_count = r.total_count + EXCLUDED.total_count,
+					total_sent = r.total_sent + EXCLUDED.total_sent,
+					total_received = r.total_received + EXCLUDED.total_received
 			""";
 
+	// Applies the rows of the entries CTE to the stats and to the daily and monthly rollups of their cards
+	private static final String MAINTAIN_AGGREGATES = """
+			stats AS (
+			""" + UPSERT_STATS + """
+			),
+			daily_rollups AS (
+			""" + UPSERT_ROLLUP.formatted("card_daily_rollups", "day", "CAST(created_at AT TIME ZONE 'UTC' AS date)") + """
+			),
+			monthly_rollups AS (
+			""" + UPSERT_ROLLUP.formatted("card_monthly_rollups", "month", "CAST(date_trunc('month', created_at AT TIME ZONE 'UTC') AS date)") + """
+			)
+			""";
+
+	/**
+	 * Claims the request ids of a batch, returning the ids of the transactions they were claimed for. An id already
+	 * committed, or repeated within the batch, conflicts and is not returned; one still in flight makes this insert
+	 * wait for its outcome.
+	 */
+	private static final String CLAIM_REQUEST_IDS = """
+			INSERT INTO transaction_requests (id, transaction_id, created_at)
+			VALUES """;
+
+	private static final String CLAIM_REQUEST_IDS_RETURN = """
+			 ON CONFLICT (id) DO NOTHING
+			RETURNING transaction_id""";
+
+	private static final String FIND_BY_REQUEST_IDS = """
+					SELECT r.id, t FROM TransactionRequest r
+					JOIN Transaction t ON t.id = r.transactionId AND t.createdAt = r.createdAt
+					WHERE r.id IN (:requestIds)
+			""";
+
+	private static final String INSERT_TRANSACTIONS = """
+			WITH inserted AS (
+				INSERT INTO transactions (id, code, sender_card_id, recipient_card_id, type, amount, created_at)
+				VALUES """;
+
+	// A transfer to the same card only gets its debit entry, so it is listed once in the history
+	private static final String INSERT_ENTRIES_AND_RETURN = """
+			 RETURNING id, code, sender_card_id, recipient_card_id, amount, created_at
+			),
+			entries AS (
+				INSERT INTO card_transaction_entries (card_id, created_at, transaction_id, direction, amount)
+				SELECT sender_card_id, created_at, id, 'DEBIT', amount FROM inserted
+				UNION ALL
+				SELECT recipient_card_id, created_at, id, 'CREDIT', amount FROM inserted
+				WHERE recipient_card_id <> sender_card_id
+				RETURNING card_id, created_at, direction, amount
+			),
+			codes AS (
+				INSERT INTO transaction_codes (code)
+				SELECT code FROM inserted
+			),
+			""" + MAINTAIN_AGGREGATES + """
+			SELECT count(*) FROM inserted""";
+
 	public Multi<Transaction> findAllTransactionsWithinIntervalByCardId(final Long cardId, final Instant lowerBound, final Instant higherBound) {
-		return sessionFactory.withSession(session -> {
-			final var query = session.createQuery(FIND_BY_CARDID_WITHIN_INTERVAL, Transaction.class);
-			query.setParameter("cardId", cardId);
-			query.setParameter("lowerBound", lowerBound);
-			query.setParameter("higherBound", higherBound);
-			// getResultList returns Uni<List<Transaction>>
-			return query.getResultList();
-		}).onItem().transformToMulti(list -> Multi.createFrom().iterable(list));
+		return query(FIND_BY_CARDID_WITHIN_INTERVAL, Transaction.class, ReadConsistency.LAG_TOLERANT)
+			.parameter("cardId", cardId)
+			.parameter("lowerBound", lowerBound)
+			.parameter("higherBound", higherBound)
+			.listItems();
 	}
 
 	public Multi<Transaction> findAllTransactionsWithinIntervalByCardId(final Long cardId, final Instant lowerBound, final Instant higherBound, final int page, final int size) {
-		return sessionFactory.withSession(session -> {
-			final var query = session.createQuery(FIND_BY_CARDID_WITHIN_INTERVAL, Transaction.class);
-			query.setParameter("cardId", cardId);
-			query.setParameter("lowerBound", lowerBound);
-			query.setParameter("higherBound", higherBound);
-			query.setFirstResult(page * size);
-			query.setMaxResults(size);
-			return query.getResultList();
-		}).onItem().transformToMulti(list -> Multi.createFrom().iterable(list));
+		return query(FIND_BY_CARDID_WITHIN_INTERVAL, Transaction.class, ReadConsistency.LAG_TOLERANT)
+			.parameter("cardId", cardId)
+			.parameter("lowerBound", lowerBound)
+			.parameter("higherBound", higherBound)
+			.firstResult(page * size)
+			.maxResults(size)
+			.listItems();
 	}
 
+	/**
+	 * Seeks the transactions of a card strictly older than the given cursor, so the database never
+	 * reads and discards the rows of the previous pages.
+	 *
+	 * @param cursor the position of the last transaction already returned, {@code null} to start from the most recent one
+	 * @param limit  the maximum number of transactions to return
+	 */
+	public Multi<Transaction> findAllTransactionsWithinIntervalByCardIdAfter(final Long cardId, final Instant lowerBound, final Instant higherBound,
+			final TransactionCursor cursor, final int limit) {
+		final ReadOnlyQuery<Transaction> query = query(cursor == null ? FIND_BY_CARDID_WITHIN_INTERVAL : FIND_BY_CARDID_WITHIN_INTERVAL_AFTER_CURSOR, Transaction.class, ReadConsistency.LAG_TOLERANT)
+			.parameter("cardId", cardId)
+			.parameter("lowerBound", lowerBound)
+			.parameter("higherBound", higherBound)
+			.maxResults(limit);
+		if (cursor != null) {
+			query.parameter("cursorCreatedAt", cursor.createdAt())
+				.parameter("cursorId", cursor.id());
+		}
+		return query.listItems();
+	}
+
+	/**
+	 * Inserts all the transactions with a single multi-row statement in one database transaction,
+	 * assigning them ids from the sequence of the entity. The same statement writes the
+	 * {@link CardTransactionEntry} of the sender and of the recipient of each transaction and adds them to the
+	 * {@link CardTransactionStats} and to the daily and monthly rollups of both cards.
+	 *
+	 * The request ids of the transactions are stored as {@link TransactionRequest} in the same database transaction:
+	 * a transaction whose request id was already recorded is not inserted again, the one recorded first takes its place.
+	 *
+	 * @param transactions the transactions to insert, their codes must be unique
+	 * @return a Uni emitting, in the same order, the transactions once committed
+	 */
+	public Uni<List<Transaction>> insertAll(final List<Transaction> transactions) {
+		return sessionFactory.withTransaction((session, tx) -> transactionIds.nextIds(session, transactions.size())
+			.invoke(ids -> {
+				for (int i = 0; i < transactions.size(); i++) {
+					transactions.get(i).setId(ids[i]);
+				}
+			})
+			.chain(() -> claimRequestIds(session, transactions))
+			.chain(claimed -> {
+				final List<Transaction> recorded = transactions.stream()
+					.filter(transaction -> transaction.getRequestId() == null || claimed.contains(transaction.getId()))
+					.toList();
+				final List<String> repeatedRequestIds = transactions.stream()
+					.filter(transaction -> transaction.getRequestId() != null && !claimed.contains(transaction.getId()))
+					.map(Transaction::getRequestId)
+					.distinct()
+					.toList();
+
+				return insertTransactions(session, recorded)
+					.chain(() -> findByRequestIds(session, repeatedRequestIds))
+					.map(existing -> transactions.stream()
+						.map(transaction -> transaction.getRequestId() == null || claimed.contains(transaction.getId())
+								? transaction
+								: recordedBefore(existing, transaction.getRequestId()))
+						.toList());
+			}));
+	}
+
+	// Claimed in request id order, so that two batches repeating the same requests cannot wait for each other
+	private static Uni<Set<Long>> claimRequestIds(final Mutiny.Session session, final List<Transaction> transactions) {
+		final List<Transaction> requested = transactions.stream()
+			.filter(transaction -> transaction.getRequestId() != null)
+			.sorted(Comparator.comparing(Transaction::getRequestId))
+			.toList();
+		if (requested.isEmpty()) {
+			return Uni.createFrom().item(Set.of());
+		}
+
+		final StringBuilder sql = new StringBuilder(CLAIM_REQUEST_IDS);
+		for (int i = 0; i < requested.size(); i++) {
+			sql.append(i == 0 ? " " : ", ")
+				.append("(:requestId").append(i)
+				.append(", :transactionId").append(i)
+				.append(", :createdAt").append(i)
+				.append(')');
+		}
+		sql.append(CLAIM_REQUEST_IDS_RETURN);
+
+		final var query = session.createNativeQuery(sql.toString(), Long.class);
+		for (int i = 0; i < requested.size(); i++) {
+			final Transaction transaction = requested.get(i);
+			query.setParameter("requestId" + i, transaction.getRequestId());
+			query.setParameter("transactionId" + i, transaction.getId());
+			query.setParameter("createdAt" + i, transaction.getCreatedAt());
+		}
+		return query.getResultList().map(HashSet::new);
+	}
+
+	private Uni<Void> insertTransactions(final Mutiny.Session session, final List<Transaction> transactions) {
+		if (transactions.isEmpty()) {
+			return Uni.createFrom().voidItem();
+		}
+
+		final StringBuilder sql = new StringBuilder(INSERT_TRANSACTIONS);
+		for (int i = 0; i < transactions.size(); i++) {
+			sql.append(i == 0 ? " " : ", ")
+				.append("(:id").append(i)
+				.append(", :code").append(i)
+				.append(", :senderCardId").append(i)
+				.append(", :recipientCardId").append(i)
+				.append(", :type").append(i)
+				.append(", :amount").append(i)
+				.append(", :createdAt").append(i)
+				.append(')');
+		}
+		sql.append(INSERT_ENTRIES_AND_RETURN);
+
+		final var query = session.createNativeQuery(sql.toString(), Long.class);
+		query.setParameter("stripe", nextStatsStripe());
+		for (int i = 0; i < transactions.size(); i++) {
+			final Transaction transaction = transactions.get(i);
+			query.setParameter("id" + i, transaction.getId());
+			query.setParameter("code" + i, transaction.getCode());
+			query.setParameter("senderCardId" + i, transaction.getSenderCardId());
+			query.setParameter("recipientCardId" + i, transaction.getRecipientCardId());
+			query.setParameter("type" + i, transaction.getType().name());
+			query.setParameter("amount" + i, transaction.getAmount());
+			query.setParameter("createdAt" + i, transaction.getCreatedAt());
+		}
+		return query.getSingleResult().replaceWithVoid();
+	}
+
+	// The claims conflicted, so the transactions of these request ids have committed, or were inserted by this same transaction
+	private static Uni<Map<String, Transaction>> findByRequestIds(final Mutiny.Session session, final List<String> requestIds) {
+		if (requestIds.isEmpty()) {
+			return Uni.createFrom().item(Map.of());
+		}
+		return session.createQuery(FIND_BY_REQUEST_IDS, Object[].class)
+			.setParameter("requestIds", requestIds)
+			.getResultList()
+			.map(rows -> {
+				final Map<String, Transaction> transactions = new HashMap<>();
+				for (final Object[] row : rows) {
+					final Transaction transaction = (Transaction) row[1];
+					transaction.setRequestId((String) row[0]);
+					transactions.put(transaction.getRequestId(), transaction);
+				}
+				return transactions;
+			});
+	}
+
+	private static Transaction recordedBefore(final Map<String, Transaction> existing, final String requestId) {
+		final Transaction transaction = existing.get(requestId);
+		if (transaction == null) {
+			// Its month was detached since
+			throw new IllegalStateException("Transaction of request " + requestId + " is no longer available");
+		}
+		return transaction;
+	}
+
+	/**
+	 * Sums the few stats stripes of the card instead of counting its transactions. The entries of a detached
+	 * partition are taken off the stats, so the count covers the retained months only.
+	 */
 	public Uni<Long> countTransactionsByCardId(final Long cardId) {
-		return sessionFactory.withSession(session -> {
-			final String countQuery = "SELECT COUNT(t) FROM Transaction t WHERE t.senderCardId = :cardId OR t.recipientCardId = :cardId";
-			final var query = session.createQuery(countQuery, Long.class);
-			query.setParameter("cardId", cardId);
-			return query.getSingleResult();
-		});
+		return query("SELECT COALESCE(SUM(s.totalCount), 0) FROM CardTransactionStats s WHERE s.cardId = :cardId", Long.class, ReadConsistency.LAG_TOLERANT)
+			.parameter("cardId", cardId)
+			.singleResult();
+	}
+
+	private int nextStatsStripe() {
+		return ThreadLocalRandom.current().nextInt(statsStripes);
 	}
 
 	@Override
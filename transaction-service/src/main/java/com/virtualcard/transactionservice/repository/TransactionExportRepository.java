@@ -0,0 +1,116 @@
+package com.virtualcard.transactionservice.repository;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.springframework.stereotype.Repository;
+
+import com.virtualcard.common.dto.TransactionDTO;
+import com.virtualcard.common.enums.TransactionType;
+import com.virtualcard.transactionservice.configuration.ExportProperties;
+
+import io.vertx.core.Future;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowStream;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.Tuple;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Streams the transactions of a card from a server-side cursor.
+ *
+ * Hibernate Reactive only returns whole result lists, so exports go through their own Vert.x pool: rows are fetched
+ * {@code fetchSize} at a time and only as fast as the subscriber requests them, so the heap used does not depend on
+ * the size of the export.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+@Repository
+public class TransactionExportRepository {
+
+	private static final String EXPORT_BY_CARDID_WITHIN_INTERVAL = """
+			SELECT t.id, t.code, t.sender_card_id, t.recipient_card_id, t.type, t.amount, t.created_at
+			FROM card_transaction_entries e
+			JOIN transactions t ON t.id = e.transaction_id AND t.created_at = e.created_at
+			WHERE e.card_id = $1
+			  AND e.created_at >= $2
+			  AND e.created_at <= $3
+			  AND t.created_at >= $2
+			  AND t.created_at <= $3
+			ORDER BY e.created_at DESC, e.transaction_id DESC
+			""";
+
+	private final Pool pool;
+	private final int fetchSize;
+
+	public TransactionExportRepository(final Pool exportPool, final ExportProperties properties) {
+		if (properties.getFetchSize() < 1) {
+			throw new IllegalArgumentException("Export fetch size must be at least 1");
+		}
+		this.pool = exportPool;
+		this.fetchSize = properties.getFetchSize();
+	}
+
+	/**
+	 * Streams the transactions of a card within the interval, most recent first.
+	 *
+	 * The cursor lives in a read-only database transaction, committed once the stream completes and rolled back
+	 * if it fails or is cancelled, then the connection goes back to the pool.
+	 */
+	public Flux<TransactionDTO> streamTransactionsWithinIntervalByCardId(final Long cardId, final Instant lowerBound, final Instant higherBound) {
+		final Tuple arguments = Tuple.of(cardId, lowerBound.atOffset(ZoneOffset.UTC), higherBound.atOffset(ZoneOffset.UTC));
+
+		return Flux.usingWhen(
+				toMono(pool.getConnection()),
+				connection -> stream(connection, arguments),
+				connection -> toMono(connection.close()));
+	}
+
+	private Flux<TransactionDTO> stream(final SqlConnection connection, final Tuple arguments) {
+		return Flux.usingWhen(
+				toMono(connection.begin()),
+				tx -> toMono(connection.query("SET TRANSACTION READ ONLY").execute())
+					.then(toMono(connection.prepare(EXPORT_BY_CARDID_WITHIN_INTERVAL)))
+					.flatMapMany(statement -> toFlux(statement.createStream(fetchSize, arguments)))
+					.map(TransactionExportRepository::toTransactionDTO),
+				tx -> toMono(tx.commit()),
+				(tx, error) -> toMono(tx.rollback()),
+				tx -> toMono(tx.rollback()));
+	}
+
+	/**
+	 * Bridges the row stream to the requests of the subscriber: the stream starts paused and each request fetches
+	 * the requested rows, reading the next chunk of the cursor only when the previous one has been consumed.
+	 */
+	private static Flux<Row> toFlux(final RowStream<Row> rows) {
+		return Flux.create(sink -> {
+			rows.pause();
+			rows.exceptionHandler(sink::error)
+				.endHandler(ignored -> sink.complete())
+				.handler(sink::next);
+			sink.onRequest(rows::fetch);
+			sink.onCancel(rows::close);
+		});
+	}
+
+	private static TransactionDTO toTransactionDTO(final Row row) {
+		return new TransactionDTO(
+				row.getLong("id"),
+				row.getLong("sender_card_id"),
+				row.getLong("recipient_card_id"),
+				row.getString("code"),
+				TransactionType.valueOf(row.getString("type")),
+				row.getBigDecimal("amount"),
+				row.getOffsetDateTime("created_at").toInstant());
+	}
+
+	private static <T> Mono<T> toMono(final Future<T> future) {
+		return Mono.fromCompletionStage(future.toCompletionStage());
+	}
+
+}
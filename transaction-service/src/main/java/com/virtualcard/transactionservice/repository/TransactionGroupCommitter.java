@@ -0,0 +1,154 @@
+package com.virtualcard.transactionservice.repository;
+
+import static com.virtualcard.common.converter.VertxWebFluxConverter.convertUniToMono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.virtualcard.transactionservice.configuration.GroupCommitProperties;
+import com.virtualcard.transactionservice.entity.Transaction;
+
+import lombok.extern.log4j.Log4j2;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Group commit of the transaction inserts.
+ *
+ * Transactions submitted concurrently are buffered for a short window, or until the batch is full,
+ * then written with one multi-row insert and a single commit. Each caller is completed only once its batch has committed.
+ * If a batch fails, its transactions are retried one by one so that a single bad row only fails its own caller.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         19 set 2025
+ *
+ */
+@Log4j2
+@Component
+public class TransactionGroupCommitter {
+
+	private final ReactiveTransactionRepository repository;
+	private final long flushWindowNanos;
+	private final int maxBatchSize;
+	private final Scheduler scheduler = Schedulers.parallel();
+
+	private final DistributionSummary batchSize;
+	private final Timer waitTime;
+
+	// Guarded by this
+	private List<PendingInsert> pending = new ArrayList<>();
+
+	private record PendingInsert(Transaction transaction, Sinks.One<Transaction> sink, long enqueuedAt) {
+	}
+
+	public TransactionGroupCommitter(final ReactiveTransactionRepository repository, final GroupCommitProperties properties,
+			final MeterRegistry meterRegistry) {
+		if (properties.getMaxBatchSize() < 1) {
+			throw new IllegalArgumentException("Max batch size must be at least 1");
+		}
+		this.repository = repository;
+		this.flushWindowNanos = properties.getFlushWindow().toNanos();
+		this.maxBatchSize = properties.getMaxBatchSize();
+		this.batchSize = DistributionSummary.builder("transactions.group-commit.batch-size")
+			.description("Transactions written by each group commit")
+			.publishPercentileHistogram()
+			.register(meterRegistry);
+		this.waitTime = Timer.builder("transactions.group-commit.wait")
+			.description("Time from submitting a transaction to the commit of its batch")
+			.publishPercentileHistogram()
+			.register(meterRegistry);
+	}
+
+	/**
+	 * Queues the transaction for the next group commit.
+	 *
+	 * @return a Mono emitting the transaction, with its generated id, once its batch has committed, or the transaction
+	 *         recorded before with the same request id
+	 */
+	public Mono<Transaction> submit(final Transaction transaction) {
+		return Mono.defer(() -> {
+			final Sinks.One<Transaction> sink = Sinks.one();
+			List<PendingInsert> full = null;
+
+			synchronized (this) {
+				pending.add(new PendingInsert(transaction, sink, System.nanoTime()));
+				if (pending.size() >= maxBatchSize) {
+					full = pending;
+					pending = new ArrayList<>();
+				} else if (pending.size() == 1) {
+					final List<PendingInsert> batch = pending;
+					scheduler.schedule(() -> flushIfPending(batch), flushWindowNanos, TimeUnit.NANOSECONDS);
+				}
+			}
+
+			if (full != null) {
+				flush(full);
+			}
+			return sink.asMono();
+		});
+	}
+
+	private void flushIfPending(final List<PendingInsert> batch) {
+		synchronized (this) {
+			// Already flushed because it filled up before the window elapsed
+			if (pending != batch) {
+				return;
+			}
+			pending = new ArrayList<>();
+		}
+		flush(batch);
+	}
+
+	private void flush(final List<PendingInsert> batch) {
+		batchSize.record(batch.size());
+		final List<Transaction> transactions = batch.stream().map(PendingInsert::transaction).toList();
+
+		convertUniToMono(repository.insertAll(transactions))
+			.subscribe(
+					saved -> {
+						for (int i = 0; i < batch.size(); i++) {
+							complete(batch.get(i), saved.get(i), null);
+						}
+					},
+					error -> {
+						if (batch.size() == 1) {
+							complete(batch.get(0), null, error);
+							return;
+						}
+						log.warn("Group commit of {} transactions failed, retrying them one by one: {}", batch.size(), error.getMessage());
+						retryOneByOne(batch);
+					});
+	}
+
+	private void retryOneByOne(final List<PendingInsert> batch) {
+		Flux.fromIterable(batch)
+			.flatMap(insert -> convertUniToMono(repository.insertAll(List.of(insert.transaction())))
+				.doOnSuccess(saved -> complete(insert, saved.get(0), null))
+				.onErrorResume(error -> {
+					complete(insert, null, error);
+					return Mono.empty();
+				}))
+			.subscribe();
+	}
+
+	private void complete(final PendingInsert insert, final Transaction saved, final Throwable error) {
+		waitTime.record(System.nanoTime() - insert.enqueuedAt(), TimeUnit.NANOSECONDS);
+		if (error != null) {
+			insert.sink().tryEmitError(error);
+		} else {
+			insert.sink().tryEmitValue(saved);
+		}
+	}
+
+}
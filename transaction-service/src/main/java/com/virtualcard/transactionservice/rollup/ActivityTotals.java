@@ -0,0 +1,23 @@
+package com.virtualcard.transactionservice.rollup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Transactions of a card within a UTC day or month, identified by its first day.
+ *
+ * @param totalIn  the amount received by the card
+ * @param totalOut the amount sent by the card
+ *
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+public record ActivityTotals(LocalDate period, long count, BigDecimal totalIn, BigDecimal totalOut) {
+
+	public static ActivityTotals empty(final LocalDate period) {
+		return new ActivityTotals(period, 0, BigDecimal.ZERO, BigDecimal.ZERO);
+	}
+
+}
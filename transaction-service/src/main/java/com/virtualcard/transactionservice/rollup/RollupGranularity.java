@@ -0,0 +1,46 @@
+package com.virtualcard.transactionservice.rollup;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Locale;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+public enum RollupGranularity {
+	DAY(ChronoUnit.DAYS),
+	MONTH(ChronoUnit.MONTHS);
+
+	private final ChronoUnit unit;
+
+	RollupGranularity(final ChronoUnit unit) {
+		this.unit = unit;
+	}
+
+	public static RollupGranularity fromParameter(final String granularity) {
+		try {
+			return valueOf(granularity.toUpperCase(Locale.ROOT));
+		} catch (final IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unsupported granularity: " + granularity + ", expected day or month");
+		}
+	}
+
+	/**
+	 * @return the first day of the period containing the date
+	 */
+	public LocalDate periodOf(final LocalDate date) {
+		return this == MONTH ? date.with(TemporalAdjusters.firstDayOfMonth()) : date;
+	}
+
+	public LocalDate next(final LocalDate period) {
+		return period.plus(1, unit);
+	}
+
+	public long periodsBetween(final LocalDate firstPeriod, final LocalDate lastPeriod) {
+		return unit.between(firstPeriod, lastPeriod) + 1;
+	}
+}
@@ -0,0 +1,82 @@
+package com.virtualcard.transactionservice.service;
+
+import static com.virtualcard.common.converter.VertxWebFluxConverter.convertUniToMono;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Service;
+
+import com.virtualcard.transactionservice.repository.ActivityRollupRepository;
+import com.virtualcard.transactionservice.rollup.ActivityTotals;
+import com.virtualcard.transactionservice.rollup.RollupGranularity;
+
+import lombok.RequiredArgsConstructor;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Serves the spending summaries and charts of a card from the rollups, never reading its transactions.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+@Service
+@RequiredArgsConstructor
+public class CardActivityService {
+
+	public static final int MAX_SERIES_PERIODS = 366;
+
+	private final ActivityRollupRepository repository;
+
+	/**
+	 * @param month the UTC month to summarize
+	 * @return the totals of the month, zero if the card had no transactions
+	 */
+	public Mono<ActivityTotals> getMonthlySummary(final Long cardId, final YearMonth month) {
+		final LocalDate period = month.atDay(1);
+		return getSeries(cardId, RollupGranularity.MONTH, period, period).single();
+	}
+
+	/**
+	 * Builds the time series of a card with one element per period between the two dates, included, periods without
+	 * transactions having zero totals.
+	 *
+	 * @throws IllegalArgumentException if the interval is reversed or spans more than {@value #MAX_SERIES_PERIODS} periods
+	 */
+	public Flux<ActivityTotals> getSeries(final Long cardId, final RollupGranularity granularity, final LocalDate from, final LocalDate to) {
+		final LocalDate firstPeriod = granularity.periodOf(from);
+		final LocalDate lastPeriod = granularity.periodOf(to);
+
+		if (firstPeriod.isAfter(lastPeriod)) {
+			throw new IllegalArgumentException("Series interval starts after it ends");
+		}
+		if (granularity.periodsBetween(firstPeriod, lastPeriod) > MAX_SERIES_PERIODS) {
+			throw new IllegalArgumentException("Series interval cannot span more than " + MAX_SERIES_PERIODS + " periods");
+		}
+
+		return convertUniToMono(repository.findTotals(cardId, granularity, firstPeriod, lastPeriod))
+			.flatMapIterable(totals -> fillGaps(totals, granularity, firstPeriod, lastPeriod));
+	}
+
+	private static List<ActivityTotals> fillGaps(final List<ActivityTotals> totals, final RollupGranularity granularity,
+			final LocalDate firstPeriod, final LocalDate lastPeriod) {
+		final Map<LocalDate, ActivityTotals> totalsByPeriod = totals.stream()
+			.collect(Collectors.toMap(ActivityTotals::period, Function.identity()));
+
+		final List<ActivityTotals> series = new ArrayList<>();
+		for (LocalDate period = firstPeriod; !period.isAfter(lastPeriod); period = granularity.next(period)) {
+			series.add(totalsByPeriod.getOrDefault(period, ActivityTotals.empty(period)));
+		}
+		return series;
+	}
+
+}
@@ -0,0 +1,52 @@
+package com.virtualcard.transactionservice.service;
+
+import java.time.Instant;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Service;
+
+import com.virtualcard.transactionservice.export.ExportFormat;
+import com.virtualcard.transactionservice.export.TransactionExportEncoder;
+import com.virtualcard.transactionservice.repository.TransactionExportRepository;
+
+import lombok.RequiredArgsConstructor;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+@Service
+@RequiredArgsConstructor
+public class TransactionExportService {
+
+	private final TransactionExportRepository repository;
+	private final TransactionExportEncoder encoder;
+
+	/**
+	 * Exports the transactions of a card within the interval, most recent first, one line per transaction.
+	 *
+	 * @param bufferFactory the factory of the response, so lines are encoded straight into its buffers
+	 * @return the encoded lines, read from the database as the response is written
+	 */
+	public Flux<DataBuffer> exportTransactionsByCardId(final Long cardId, final Instant lowerBound, final Instant higherBound,
+			final ExportFormat format, final DataBufferFactory bufferFactory) {
+		if (lowerBound.isAfter(higherBound)) {
+			throw new IllegalArgumentException("Export interval starts after it ends");
+		}
+
+		final Flux<DataBuffer> lines = repository.streamTransactionsWithinIntervalByCardId(cardId, lowerBound, higherBound)
+			.map(transaction -> encoder.encode(transaction, format, bufferFactory))
+			.doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+
+		return Mono.fromSupplier(() -> encoder.header(format, bufferFactory))
+			.concatWith(lines);
+	}
+
+}
@@ -6,19 +6,23 @@ import static com.virtualcard.common.converter.VertxWebFluxConverter.convertUniT
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
-import java.util.UUID;
 
 import org.springframework.stereotype.Service;
 
 import com.virtualcard.common.dto.TransactionDTO;
 import com.virtualcard.common.enums.TransactionType;
 import com.virtualcard.common.lang.DateUtils;
+import com.virtualcard.common.lang.id.IdGenerator;
 import com.virtualcard.transactionservice.entity.Transaction;
+import com.virtualcard.transactionservice.entity.TransactionRequest;
 import com.virtualcard.transactionservice.mapper.TransactionMapper;
 import com.virtualcard.transactionservice.pagination.PagedTransactionResponse;
 import com.virtualcard.transactionservice.pagination.PaginationMetadata;
+import com.virtualcard.transactionservice.pagination.TransactionCursor;
 import com.virtualcard.transactionservice.repository.ReactiveTransactionRepository;
+import com.virtualcard.transactionservice.repository.TransactionGroupCommitter;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
@@ -41,6 +45,8 @@ public class TransactionService {
 //	private final JooqTransactionRepository repository;
 	private final ReactiveTransactionRepository repository;
 	private final TransactionMapper mapper;
+	private final IdGenerator codeGenerator;
+	private final TransactionGroupCommitter groupCommitter;
 
 	public Flux<TransactionDTO> getAllCurrentMonthTransactionsByCardId(final Long cardId) {
 		final Instant lastDayOfTheMonth = DateUtils.getLastDayOfTheMonth();
@@ -98,19 +104,83 @@ public class TransactionService {
 			});
 	}
 
-	public Mono<TransactionDTO> createTransaction(final Long senderCardId, final Long recipientCardId, final BigDecimal amount, final TransactionType type) {
+	/**
+	 * Retrieves a page of the transactions of a card with keyset pagination.
+	 *
+	 * Instead of skipping the rows of the previous pages, the query seeks straight past the last transaction
+	 * already returned, and one extra row is fetched to tell whether a next page exists, so no count is needed
+	 * and the cost of a page does not depend on how deep the client scrolled.
+	 *
+	 * @param cursor the continuation token returned with the previous page, blank for the first page
+	 * @return the page, whose metadata carries the token of the next page if there is one
+	 */
+	public Mono<PagedTransactionResponse> getTransactionsByCardIdAfter(
+			final Long cardId,
+			final String cursor,
+			final OffsetDateTime upperBoundDate,
+			final OffsetDateTime lowerBoundDate,
+			final int size) {
+
+		if (size < 1) {
+			throw new IllegalArgumentException("Page size must be greater than 0");
+		}
+		final TransactionCursor after = TransactionCursor.decode(cursor);
+
+		return convertMultiToFlux(repository
+			.findAllTransactionsWithinIntervalByCardIdAfter(cardId, lowerBoundDate.toInstant(), upperBoundDate.toInstant(), after, size + 1)
+			.map(mapper::entityToDTO))
+			.collectList()
+			.map(fetched -> {
+				final boolean hasNext = fetched.size() > size;
+				final List<TransactionDTO> transactions = hasNext ? fetched.subList(0, size) : fetched;
+
+				return PagedTransactionResponse.builder()
+					.transactions(transactions)
+					.metadata(PaginationMetadata.builder()
+						.pageSize(size)
+						.hasNext(hasNext)
+						.hasPrevious(after != null)
+						.nextCursor(hasNext ? cursorOf(transactions) : null)
+						.build())
+					.build();
+			});
+	}
 
-		log.debug("createTransaction called with senderCardId={}, recipientCardId={}, amount={}, type={}", senderCardId, recipientCardId, amount, type);
+	private static String cursorOf(final List<TransactionDTO> transactions) {
+		if (transactions.isEmpty()) {
+			return null;
+		}
+		final TransactionDTO last = transactions.get(transactions.size() - 1);
+		return new TransactionCursor(last.getCreatedAt(), last.getId()).encode();
+	}
+
+	/**
+	 * Records a transaction. A request id already recorded gets back the transaction recorded the first time,
+	 * so the caller can send the request again when its outcome is unknown.
+	 *
+	 * @param requestId the idempotency key of the request, chosen by the caller, {@code null} to always record a new transaction
+	 * @return a Mono emitting the transaction once committed
+	 */
+	public Mono<TransactionDTO> createTransaction(final String requestId, final Long senderCardId, final Long recipientCardId, final BigDecimal amount,
+			final TransactionType type) {
+
+		log.debug("createTransaction called with requestId={}, senderCardId={}, recipientCardId={}, amount={}, type={}", requestId, senderCardId,
+				recipientCardId, amount, type);
+
+		if (requestId != null && (requestId.isBlank() || requestId.length() > TransactionRequest.MAX_ID_LENGTH)) {
+			return Mono.error(new IllegalArgumentException("Request id must be at most " + TransactionRequest.MAX_ID_LENGTH + " characters long and not blank"));
+		}
 
 		final Transaction transaction = new Transaction();
+		transaction.setRequestId(requestId);
 		transaction.setSenderCardId(senderCardId);
 		transaction.setRecipientCardId(recipientCardId);
-		transaction.setCode(UUID.randomUUID().toString());
-		transaction.setCreatedAt(Instant.now());
+		transaction.setCode(codeGenerator.nextId());
+		transaction.setCreatedAt(Instant.now().truncatedTo(ChronoUnit.MICROS));
 		transaction.setAmount(amount);
 		transaction.setType(type);
 
-		return convertUniToMono(repository.save(transaction))
+		return groupCommitter.submit(transaction)
 			.doOnNext(saved -> log.debug("Saved transaction: {}", saved))
 			.map(mapper::entityToDTO);
 	}
@@ -0,0 +1,149 @@
+package com.virtualcard.transactionservice.benchmark;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.postgresql.PGConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import com.virtualcard.common.lang.id.IdGeneratorType;
+
+/**
+ * Insert throughput on a populated table with a unique index on the code column, the same layout as
+ * {@code transactions.code}, comparing random UUIDs with the time-ordered generators.
+ *
+ * Shared buffers are kept small so that the index does not fit in memory, as on a production-sized table:
+ * random codes then keep faulting leaf pages in while time-ordered ones always hit the rightmost leaf.
+ * Needs a Docker environment for the Postgres container.
+ *
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.virtualcard.transactionservice.benchmark.TransactionCodeInsertBenchmark}
+ * or straight from the IDE.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         18 set 2025
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(4)
+public class TransactionCodeInsertBenchmark {
+
+	private static final int BATCH_SIZE = 500;
+	private static final int COPY_CHUNK = 100_000;
+
+	@Param({ "RANDOM", "UUID_V7", "SNOWFLAKE" })
+	private String generator;
+
+	@Param({ "5000000" })
+	private int populatedRows;
+
+	private PostgreSQLContainer<?> postgres;
+	private Supplier<String> codes;
+
+	@Setup(Level.Trial)
+	@SuppressWarnings("resource")
+	public void setUp() throws SQLException, IOException {
+		codes = "RANDOM".equals(generator)
+				? () -> UUID.randomUUID().toString()
+				: IdGeneratorType.valueOf(generator).create(1)::nextId;
+
+		postgres = new PostgreSQLContainer<>("postgres:15.3")
+			.withCommand("postgres", "-c", "shared_buffers=32MB", "-c", "synchronous_commit=off");
+		postgres.start();
+
+		try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+			statement.execute("CREATE TABLE transaction_codes (id BIGSERIAL PRIMARY KEY, code VARCHAR(36) NOT NULL UNIQUE)");
+
+			final PGConnection pg = connection.unwrap(PGConnection.class);
+			for (int copied = 0; copied < populatedRows; copied += COPY_CHUNK) {
+				final StringBuilder rows = new StringBuilder(COPY_CHUNK * 37);
+				for (int i = 0; i < Math.min(COPY_CHUNK, populatedRows - copied); i++) {
+					rows.append(codes.get()).append('\n');
+				}
+				pg.getCopyAPI().copyIn("COPY transaction_codes (code) FROM STDIN", new StringReader(rows.toString()));
+			}
+			statement.execute("VACUUM ANALYZE transaction_codes");
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		postgres.stop();
+	}
+
+	Connection connect() throws SQLException {
+		return DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+	}
+
+	@State(Scope.Thread)
+	public static class Session {
+
+		private Connection connection;
+		private PreparedStatement insert;
+
+		@Setup(Level.Trial)
+		public void open(final TransactionCodeInsertBenchmark benchmark) throws SQLException {
+			connection = benchmark.connect();
+			connection.setAutoCommit(false);
+			insert = connection.prepareStatement("INSERT INTO transaction_codes (code) VALUES (?)");
+		}
+
+		@TearDown(Level.Trial)
+		public void close() throws SQLException {
+			connection.close();
+		}
+	}
+
+	/**
+	 * One operation inserts and commits {@value #BATCH_SIZE} rows.
+	 */
+	@Benchmark
+	public int[] insertBatch(final Session session) throws SQLException {
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			session.insert.setString(1, codes.get());
+			session.insert.addBatch();
+		}
+		final int[] inserted = session.insert.executeBatch();
+		session.connection.commit();
+		return inserted;
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+			.include(TransactionCodeInsertBenchmark.class.getSimpleName())
+			.build())
+			.run();
+	}
+
+}
@@ -0,0 +1,146 @@
+package com.virtualcard.transactionservice.benchmark;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.hibernate.reactive.mutiny.Mutiny;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import com.virtualcard.common.enums.TransactionType;
+import com.virtualcard.common.springdata.repository.ReadReplicaRouter;
+import com.virtualcard.transactionservice.configuration.TransactionStatsProperties;
+import com.virtualcard.transactionservice.entity.Transaction;
+import com.virtualcard.transactionservice.repository.ReactiveTransactionRepository;
+
+import jakarta.persistence.Persistence;
+
+/**
+ * Transactions inserted per second by concurrent writers, without an optimizer, a round trip to the sequence per
+ * transaction as with an identity column, and with the pooled-lo blocks of the mapping.
+ *
+ * {@code persistEach} and {@code persistAll} insert the entities through Hibernate Reactive, one per session and all
+ * in one batched transaction. {@code insertAll} is the multi-row insert of the group commits, taking its ids from the
+ * same sequence.
+ *
+ * Needs a Docker environment for the Postgres container.
+ *
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.virtualcard.transactionservice.benchmark.TransactionInsertBenchmark}
+ * or straight from the IDE.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(4)
+@OperationsPerInvocation(TransactionInsertBenchmark.TRANSACTIONS)
+public class TransactionInsertBenchmark {
+
+	static final int TRANSACTIONS = 100;
+
+	@Param({ "none", "pooled-lo" })
+	private String optimizer;
+
+	private PostgreSQLContainer<?> postgres;
+	private Mutiny.SessionFactory sessionFactory;
+	private ReactiveTransactionRepository repository;
+
+	@Setup(Level.Trial)
+	@SuppressWarnings("resource")
+	public void setUp() {
+		postgres = new PostgreSQLContainer<>("postgres:15.3");
+		postgres.start();
+
+		sessionFactory = Persistence.createEntityManagerFactory("default", Map.of(
+				"jakarta.persistence.jdbc.url", postgres.getJdbcUrl(),
+				"jakarta.persistence.jdbc.user", postgres.getUsername(),
+				"jakarta.persistence.jdbc.password", postgres.getPassword(),
+				"hibernate.hbm2ddl.auto", "create",
+				"hibernate.show_sql", "false",
+				"hibernate.id.optimizer.pooled.preferred", optimizer))
+			.unwrap(Mutiny.SessionFactory.class);
+
+		repository = new ReactiveTransactionRepository(sessionFactory, ReadReplicaRouter.primaryOnly(sessionFactory),
+				new TransactionStatsProperties());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		sessionFactory.close();
+		postgres.stop();
+	}
+
+	@Benchmark
+	public List<Transaction> persistEach() {
+		final List<Transaction> transactions = newTransactions();
+		transactions.forEach(transaction -> sessionFactory.withSession(session -> session.persist(transaction)
+			.call(session::flush))
+			.await().indefinitely());
+		return transactions;
+	}
+
+	@Benchmark
+	public List<Transaction> persistAll() {
+		final List<Transaction> transactions = newTransactions();
+		return sessionFactory.withTransaction(session -> session.persistAll(transactions.toArray()).replaceWith(transactions))
+			.await().indefinitely();
+	}
+
+	@Benchmark
+	public List<Transaction> insertAll() {
+		return repository.insertAll(newTransactions())
+			.await().indefinitely();
+	}
+
+	private static List<Transaction> newTransactions() {
+		final Instant now = Instant.now();
+		return IntStream.range(0, TRANSACTIONS).mapToObj(i -> {
+			final Transaction transaction = new Transaction();
+			transaction.setCode(UUID.randomUUID().toString());
+			transaction.setSenderCardId(1L + i % 10);
+			transaction.setRecipientCardId(11L + i % 10);
+			transaction.setType(TransactionType.TRANSFER);
+			transaction.setAmount(BigDecimal.TEN);
+			transaction.setCreatedAt(now);
+			return transaction;
+		}).toList();
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+			.include(TransactionInsertBenchmark.class.getSimpleName())
+			.build())
+			.run();
+	}
+
+}
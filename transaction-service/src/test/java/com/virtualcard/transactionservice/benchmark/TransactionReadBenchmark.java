@@ -0,0 +1,165 @@
+package com.virtualcard.transactionservice.benchmark;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.reactive.mutiny.Mutiny;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import com.virtualcard.common.dto.TransactionDTO;
+import com.virtualcard.transactionservice.entity.Transaction;
+
+import jakarta.persistence.Persistence;
+
+/**
+ * Latency and allocation of a page of transactions of one card read through Hibernate Reactive, comparing the
+ * read-only session the repositories used to open with the stateless session they use now, and with a
+ * {@code select new} projection straight into the DTO.
+ *
+ * The allocation per operation is reported by the GC profiler as {@code gc.alloc.rate.norm}.
+ * Needs a Docker environment for the Postgres container.
+ *
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.virtualcard.transactionservice.benchmark.TransactionReadBenchmark}
+ * or straight from the IDE.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(4)
+public class TransactionReadBenchmark {
+
+	private static final long CARD_ID = 1L;
+
+	private static final String FIND_PAGE = """
+			SELECT t FROM CardTransactionEntry e
+			JOIN Transaction t ON t.id = e.transactionId AND t.createdAt = e.createdAt
+			WHERE e.cardId = :cardId
+			ORDER BY e.createdAt DESC, e.transactionId DESC
+			""";
+
+	private static final String FIND_PAGE_PROJECTED = """
+			SELECT new com.virtualcard.common.dto.TransactionDTO(t.id, t.senderCardId, t.recipientCardId, t.code, t.type, t.amount, t.createdAt)
+			FROM CardTransactionEntry e
+			JOIN Transaction t ON t.id = e.transactionId AND t.createdAt = e.createdAt
+			WHERE e.cardId = :cardId
+			ORDER BY e.createdAt DESC, e.transactionId DESC
+			""";
+
+	@Param({ "20", "200" })
+	private int pageSize;
+
+	@Param({ "10000" })
+	private int populatedRows;
+
+	private PostgreSQLContainer<?> postgres;
+	private Mutiny.SessionFactory sessionFactory;
+
+	@Setup(Level.Trial)
+	@SuppressWarnings("resource")
+	public void setUp() throws SQLException {
+		postgres = new PostgreSQLContainer<>("postgres:15.3");
+		postgres.start();
+
+		sessionFactory = Persistence.createEntityManagerFactory("default", Map.of(
+				"jakarta.persistence.jdbc.url", postgres.getJdbcUrl(),
+				"jakarta.persistence.jdbc.user", postgres.getUsername(),
+				"jakarta.persistence.jdbc.password", postgres.getPassword(),
+				"hibernate.hbm2ddl.auto", "create",
+				"hibernate.show_sql", "false"))
+			.unwrap(Mutiny.SessionFactory.class);
+
+		try (Connection connection = DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+				Statement statement = connection.createStatement()) {
+			statement.execute("""
+					INSERT INTO transactions (id, code, sender_card_id, recipient_card_id, type, amount, created_at)
+					SELECT g, md5(g::text), %d, 2, 'TRANSFER', 10, now() - g * interval '1 second'
+					FROM generate_series(1, %d) g
+					""".formatted(CARD_ID, populatedRows));
+			statement.execute("""
+					INSERT INTO card_transaction_entries (card_id, created_at, transaction_id, direction, amount)
+					SELECT sender_card_id, created_at, id, 'DEBIT', amount FROM transactions
+					""");
+			statement.execute("VACUUM ANALYZE");
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		sessionFactory.close();
+		postgres.stop();
+	}
+
+	/**
+	 * The previous read path: every transaction is added to the persistence context, with its snapshot.
+	 */
+	@Benchmark
+	public List<Transaction> readOnlySession() {
+		return sessionFactory.withSession(session -> session.setDefaultReadOnly(true)
+			.createSelectionQuery(FIND_PAGE, Transaction.class)
+			.setParameter("cardId", CARD_ID)
+			.setMaxResults(pageSize)
+			.getResultList())
+			.await().indefinitely();
+	}
+
+	@Benchmark
+	public List<Transaction> statelessSession() {
+		return sessionFactory.withStatelessSession(session -> session
+			.createSelectionQuery(FIND_PAGE, Transaction.class)
+			.setParameter("cardId", CARD_ID)
+			.setMaxResults(pageSize)
+			.getResultList())
+			.await().indefinitely();
+	}
+
+	@Benchmark
+	public List<TransactionDTO> statelessProjection() {
+		return sessionFactory.withStatelessSession(session -> session
+			.createSelectionQuery(FIND_PAGE_PROJECTED, TransactionDTO.class)
+			.setParameter("cardId", CARD_ID)
+			.setMaxResults(pageSize)
+			.getResultList())
+			.await().indefinitely();
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+			.include(TransactionReadBenchmark.class.getSimpleName())
+			.addProfiler(GCProfiler.class)
+			.build())
+			.run();
+	}
+
+}
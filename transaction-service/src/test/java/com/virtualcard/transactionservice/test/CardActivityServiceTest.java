@@ -0,0 +1,77 @@
+package com.virtualcard.transactionservice.test;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.virtualcard.transactionservice.repository.ActivityRollupRepository;
+import com.virtualcard.transactionservice.rollup.ActivityTotals;
+import com.virtualcard.transactionservice.rollup.RollupGranularity;
+import com.virtualcard.transactionservice.service.CardActivityService;
+
+import io.smallrye.mutiny.Uni;
+import reactor.test.StepVerifier;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+@ExtendWith(MockitoExtension.class)
+class CardActivityServiceTest {
+
+	private static final Long CARD_ID = 123L;
+
+	@InjectMocks
+	private CardActivityService service;
+
+	@Mock
+	private ActivityRollupRepository repository;
+
+	@Test
+	void getSeries_shouldFillDaysWithoutTransactions() {
+		final LocalDate from = LocalDate.of(2025, 9, 1);
+		final LocalDate to = LocalDate.of(2025, 9, 3);
+		final ActivityTotals second = new ActivityTotals(LocalDate.of(2025, 9, 2), 2, BigDecimal.TEN, BigDecimal.ONE);
+
+		Mockito.when(repository.findTotals(CARD_ID, RollupGranularity.DAY, from, to))
+			.thenReturn(Uni.createFrom().item(List.of(second)));
+
+		StepVerifier.create(service.getSeries(CARD_ID, RollupGranularity.DAY, from, to))
+			.expectNext(ActivityTotals.empty(from), second, ActivityTotals.empty(to))
+			.verifyComplete();
+	}
+
+	@Test
+	void getMonthlySummary_shouldReadTheMonthlyRollup() {
+		final LocalDate september = LocalDate.of(2025, 9, 1);
+		final ActivityTotals totals = new ActivityTotals(september, 40, new BigDecimal("100.00"), new BigDecimal("75.00"));
+
+		Mockito.when(repository.findTotals(CARD_ID, RollupGranularity.MONTH, september, september))
+			.thenReturn(Uni.createFrom().item(List.of(totals)));
+
+		StepVerifier.create(service.getMonthlySummary(CARD_ID, YearMonth.of(2025, 9)))
+			.expectNext(totals)
+			.verifyComplete();
+	}
+
+	@Test
+	void getSeries_shouldRejectTooLongOrReversedIntervals() {
+		assertThrows(IllegalArgumentException.class,
+				() -> service.getSeries(CARD_ID, RollupGranularity.DAY, LocalDate.of(2024, 1, 1), LocalDate.of(2025, 9, 1)));
+		assertThrows(IllegalArgumentException.class,
+				() -> service.getSeries(CARD_ID, RollupGranularity.MONTH, LocalDate.of(2025, 9, 1), LocalDate.of(2025, 8, 31)));
+	}
+
+}
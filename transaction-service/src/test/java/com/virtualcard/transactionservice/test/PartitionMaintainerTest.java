@@ -0,0 +1,89 @@
+package com.virtualcard.transactionservice.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.virtualcard.transactionservice.configuration.PartitioningProperties;
+import com.virtualcard.transactionservice.partition.MonthlyPartition;
+import com.virtualcard.transactionservice.partition.PartitionMaintainer;
+import com.virtualcard.transactionservice.repository.PartitionRepository;
+
+import io.smallrye.mutiny.Uni;
+import reactor.test.StepVerifier;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+@ExtendWith(MockitoExtension.class)
+class PartitionMaintainerTest {
+
+	private static final String TABLE = "transactions";
+
+	@Mock
+	private PartitionRepository repository;
+
+	@Test
+	void maintain_shouldCreateUpcomingAndDetachExpiredPartitions() {
+		Mockito.when(repository.isPartitioned(TABLE)).thenReturn(Uni.createFrom().item(true));
+		Mockito.when(repository.create(Mockito.any())).thenReturn(Uni.createFrom().item(0));
+		Mockito.when(repository.detach(Mockito.any())).thenReturn(Uni.createFrom().item(0));
+		Mockito.when(repository.findPartitionNames(TABLE))
+			.thenReturn(Uni.createFrom().item(List.of("transactions_y2025m06", "transactions_y2025m07", "transactions_y2025m08", "transactions_archive")));
+
+		StepVerifier.create(maintainer(2, 2).maintain(YearMonth.of(2025, 9)))
+			.verifyComplete();
+
+		final ArgumentCaptor<MonthlyPartition> created = ArgumentCaptor.forClass(MonthlyPartition.class);
+		Mockito.verify(repository, Mockito.times(3)).create(created.capture());
+		assertThat(created.getAllValues()).extracting(MonthlyPartition::name)
+			.containsExactly("transactions_y2025m09", "transactions_y2025m10", "transactions_y2025m11");
+
+		final ArgumentCaptor<MonthlyPartition> detached = ArgumentCaptor.forClass(MonthlyPartition.class);
+		Mockito.verify(repository, Mockito.times(2)).detach(detached.capture());
+		assertThat(detached.getAllValues()).extracting(MonthlyPartition::name)
+			.containsExactly("transactions_y2025m06", "transactions_y2025m07");
+	}
+
+	@Test
+	void maintain_shouldSkipTablesThatAreNotPartitioned() {
+		Mockito.when(repository.isPartitioned(TABLE)).thenReturn(Uni.createFrom().item(false));
+
+		StepVerifier.create(maintainer(3, 24).maintain(YearMonth.of(2025, 9)))
+			.verifyComplete();
+
+		Mockito.verify(repository, Mockito.never()).create(Mockito.any());
+		Mockito.verify(repository, Mockito.never()).detach(Mockito.any());
+	}
+
+	@Test
+	void monthlyPartition_shouldCoverTheWholeMonthInUtc() {
+		final MonthlyPartition partition = MonthlyPartition.parse(TABLE, "transactions_y2025m12").orElseThrow();
+
+		assertThat(partition.month()).isEqualTo(YearMonth.of(2025, 12));
+		assertThat(partition.lowerBound()).isEqualTo(Instant.parse("2025-12-01T00:00:00Z"));
+		assertThat(partition.upperBound()).isEqualTo(Instant.parse("2026-01-01T00:00:00Z"));
+		assertThat(MonthlyPartition.parse(TABLE, "card_transaction_entries_y2025m12")).isEmpty();
+	}
+
+	private PartitionMaintainer maintainer(final int premadeMonths, final int retainedMonths) {
+		final PartitioningProperties properties = new PartitioningProperties();
+		properties.setTables(List.of(TABLE));
+		properties.setPremadeMonths(premadeMonths);
+		properties.setRetainedMonths(retainedMonths);
+		return new PartitionMaintainer(repository, properties);
+	}
+
+}
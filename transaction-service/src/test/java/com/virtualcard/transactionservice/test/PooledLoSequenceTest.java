@@ -0,0 +1,97 @@
+package com.virtualcard.transactionservice.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.reactive.mutiny.Mutiny;
+import org.junit.jupiter.api.Test;
+
+import com.virtualcard.common.springdata.id.PooledLoSequence;
+
+import io.smallrye.mutiny.Uni;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+class PooledLoSequenceTest {
+
+	private static final int INCREMENT = 10;
+
+	@Test
+	void nextIds_shouldHandOutTheLeftoversBeforeFetchingNewBlocks() {
+		final FakeSequence sequence = new FakeSequence(1);
+
+		assertThat(sequence.nextIds(null, 3).await().indefinitely()).containsExactly(1, 2, 3);
+		assertThat(sequence.nextIds(null, 5).await().indefinitely()).containsExactly(4, 5, 6, 7, 8);
+		assertThat(sequence.queries.get()).isEqualTo(1);
+
+		assertThat(sequence.nextIds(null, 4).await().indefinitely()).containsExactly(9, 10, 11, 12);
+		assertThat(sequence.queries.get()).isEqualTo(2);
+	}
+
+	@Test
+	void nextIds_shouldFetchAllTheMissingBlocksInOneQuery() {
+		final FakeSequence sequence = new FakeSequence(1);
+		sequence.nextIds(null, 1).await().indefinitely();
+
+		final long[] ids = sequence.nextIds(null, 35).await().indefinitely();
+
+		assertThat(ids).hasSize(35).doesNotHaveDuplicates();
+		assertThat(ids[0]).isEqualTo(2);
+		assertThat(sequence.queries.get()).isEqualTo(2);
+		assertThat(sequence.blocksRequested).containsExactly(1, 3);
+	}
+
+	@Test
+	void nextIds_shouldNotOverlapAcrossInstancesSharingTheSequence() {
+		final AtomicLong database = new AtomicLong(1);
+		final FakeSequence first = new FakeSequence(database);
+		final FakeSequence second = new FakeSequence(database);
+
+		final List<Long> ids = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			Arrays.stream((i % 2 == 0 ? first : second).nextIds(null, 7).await().indefinitely()).forEach(ids::add);
+		}
+
+		assertThat(ids).hasSize(140).doesNotHaveDuplicates();
+	}
+
+	/**
+	 * Sequence incremented by {@value #INCREMENT}, returning the first id of each block.
+	 */
+	private static class FakeSequence extends PooledLoSequence {
+
+		private final AtomicLong database;
+		private final AtomicInteger queries = new AtomicInteger();
+		private final List<Integer> blocksRequested = new ArrayList<>();
+
+		FakeSequence(final long start) {
+			this(new AtomicLong(start));
+		}
+
+		FakeSequence(final AtomicLong database) {
+			super("transactions_seq");
+			this.database = database;
+		}
+
+		@Override
+		protected Uni<List<Object[]>> nextBlocks(final Mutiny.Session session, final int blocks) {
+			queries.incrementAndGet();
+			blocksRequested.add(blocks);
+			final List<Object[]> rows = new ArrayList<>(blocks);
+			for (int i = 0; i < blocks; i++) {
+				rows.add(new Object[] { database.getAndAdd(INCREMENT), (long) INCREMENT });
+			}
+			return Uni.createFrom().item(rows);
+		}
+	}
+
+}
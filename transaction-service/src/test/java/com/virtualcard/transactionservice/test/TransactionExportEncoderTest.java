@@ -0,0 +1,69 @@
+package com.virtualcard.transactionservice.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.virtualcard.common.dto.TransactionDTO;
+import com.virtualcard.common.enums.TransactionType;
+import com.virtualcard.transactionservice.export.ExportFormat;
+import com.virtualcard.transactionservice.export.TransactionExportEncoder;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+class TransactionExportEncoderTest {
+
+	private final DataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+
+	private final TransactionExportEncoder encoder = new TransactionExportEncoder(JsonMapper.builder()
+		.addModule(new JavaTimeModule())
+		.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+		.build());
+
+	private final TransactionDTO transaction = new TransactionDTO(7L, 1L, 2L, "code-7", TransactionType.TRANSFER, new BigDecimal("10.50"),
+			Instant.parse("2025-09-22T10:15:30Z"));
+
+	@Test
+	void encode_shouldWriteOneJsonObjectPerLine() {
+		assertThat(encoder.header(ExportFormat.NDJSON, bufferFactory)).isNull();
+		assertThat(text(encoder.encode(transaction, ExportFormat.NDJSON, bufferFactory)))
+			.startsWith("{\"id\":7,")
+			.contains("\"amount\":10.50", "\"createdAt\":\"2025-09-22T10:15:30Z\"")
+			.endsWith("}\n")
+			.containsOnlyOnce("\n");
+	}
+
+	@Test
+	void encode_shouldWriteCsvHeaderAndRows() {
+		assertThat(text(encoder.header(ExportFormat.CSV, bufferFactory)))
+			.isEqualTo("id,code,sender_card_id,recipient_card_id,type,amount,created_at\n");
+		assertThat(text(encoder.encode(transaction, ExportFormat.CSV, bufferFactory)))
+			.isEqualTo("7,code-7,1,2,TRANSFER,10.50,2025-09-22T10:15:30Z\n");
+	}
+
+	@Test
+	void fromParameter_shouldRejectUnknownFormats() {
+		assertThat(ExportFormat.fromParameter("csv")).isEqualTo(ExportFormat.CSV);
+		assertThrows(IllegalArgumentException.class, () -> ExportFormat.fromParameter("xml"));
+	}
+
+	private static String text(final DataBuffer buffer) {
+		return buffer.toString(StandardCharsets.UTF_8);
+	}
+
+}
@@ -0,0 +1,253 @@
+package com.virtualcard.transactionservice.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.quality.Strictness;
+
+import com.virtualcard.common.dto.TransactionDTO;
+import com.virtualcard.common.enums.TransactionType;
+import com.virtualcard.transactionservice.configuration.ExportProperties;
+import com.virtualcard.transactionservice.repository.TransactionExportRepository;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.PreparedStatement;
+import io.vertx.sqlclient.Query;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.RowStream;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.Transaction;
+import io.vertx.sqlclient.Tuple;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         22 set 2025
+ *
+ */
+@ExtendWith(MockitoExtension.class)
+class TransactionExportRepositoryTest {
+
+	private static final int FETCH_SIZE = 2;
+	private static final Instant LOWER_BOUND = Instant.parse("2025-09-01T00:00:00Z");
+	private static final Instant HIGHER_BOUND = Instant.parse("2025-09-30T00:00:00Z");
+
+	@Mock
+	private Pool pool;
+
+	@Mock
+	private SqlConnection connection;
+
+	@Mock
+	private Transaction tx;
+
+	@Mock
+	private Query<RowSet<Row>> readOnly;
+
+	@Mock
+	private PreparedStatement statement;
+
+	private TransactionExportRepository repository;
+
+	@BeforeEach
+	void setUp() {
+		final ExportProperties properties = new ExportProperties();
+		properties.setFetchSize(FETCH_SIZE);
+		repository = new TransactionExportRepository(pool, properties);
+
+		Mockito.when(pool.getConnection()).thenReturn(Future.succeededFuture(connection));
+		Mockito.when(connection.begin()).thenReturn(Future.succeededFuture(tx));
+		Mockito.when(connection.query("SET TRANSACTION READ ONLY")).thenReturn(readOnly);
+		Mockito.when(readOnly.execute()).thenReturn(Future.succeededFuture());
+		Mockito.when(connection.prepare(Mockito.anyString())).thenReturn(Future.succeededFuture(statement));
+		Mockito.when(connection.close()).thenReturn(Future.succeededFuture());
+	}
+
+	@Test
+	void stream_shouldReadTheCursorOnlyAsFastAsRequested() {
+		final Cursor cursor = cursor(5);
+		Mockito.when(tx.commit()).thenReturn(Future.succeededFuture());
+
+		StepVerifier.create(stream(), 0)
+			.expectSubscription()
+			.then(() -> assertThat(cursor.delivered).isZero())
+			.thenRequest(1)
+			.assertNext(transaction -> assertThat(transaction.getId()).isEqualTo(1L))
+			.then(() -> {
+				assertThat(cursor.delivered).isEqualTo(1);
+				assertThat(cursor.chunksRead).isEqualTo(1);
+			})
+			.thenRequest(2)
+			.expectNextCount(2)
+			.then(() -> {
+				assertThat(cursor.delivered).isEqualTo(3);
+				assertThat(cursor.chunksRead).isEqualTo(2);
+			})
+			.thenRequest(10)
+			.expectNextCount(2)
+			.verifyComplete();
+
+		assertThat(cursor.chunksRead).isEqualTo(3);
+		Mockito.verify(statement).createStream(Mockito.eq(FETCH_SIZE), Mockito.any(Tuple.class));
+		Mockito.verify(tx).commit();
+		Mockito.verify(tx, Mockito.never()).rollback();
+		Mockito.verify(connection).close();
+	}
+
+	@Test
+	void stream_shouldCloseTheCursorAndRollBack_whenCancelled() {
+		final Cursor cursor = cursor(5);
+		Mockito.when(tx.rollback()).thenReturn(Future.succeededFuture());
+
+		StepVerifier.create(stream(), 1)
+			.expectNextCount(1)
+			.thenCancel()
+			.verify();
+
+		assertThat(cursor.delivered).isEqualTo(1);
+		assertThat(cursor.closed).isTrue();
+		Mockito.verify(tx).rollback();
+		Mockito.verify(tx, Mockito.never()).commit();
+		Mockito.verify(connection).close();
+	}
+
+	@Test
+	void stream_shouldRollBack_whenTheCursorFails() {
+		final Cursor cursor = cursor(5);
+		Mockito.when(tx.rollback()).thenReturn(Future.succeededFuture());
+		final IllegalStateException failure = new IllegalStateException("connection reset");
+
+		StepVerifier.create(stream(), 1)
+			.expectNextCount(1)
+			.then(() -> cursor.fail(failure))
+			.expectErrorMatches(failure::equals)
+			.verify();
+
+		Mockito.verify(tx).rollback();
+		Mockito.verify(tx, Mockito.never()).commit();
+		Mockito.verify(connection).close();
+	}
+
+	private Flux<TransactionDTO> stream() {
+		return repository.streamTransactionsWithinIntervalByCardId(1L, LOWER_BOUND, HIGHER_BOUND);
+	}
+
+	private Cursor cursor(final int size) {
+		final Cursor cursor = new Cursor(LongStream.rangeClosed(1, size).mapToObj(TransactionExportRepositoryTest::row).toList());
+		Mockito.when(statement.createStream(Mockito.anyInt(), Mockito.any(Tuple.class))).thenReturn(cursor);
+		return cursor;
+	}
+
+	private static Row row(final long id) {
+		// Rows past the demand are never read
+		final Row row = Mockito.mock(Row.class, Mockito.withSettings().strictness(Strictness.LENIENT));
+		Mockito.when(row.getLong("id")).thenReturn(id);
+		Mockito.when(row.getLong("sender_card_id")).thenReturn(1L);
+		Mockito.when(row.getLong("recipient_card_id")).thenReturn(2L);
+		Mockito.when(row.getString("code")).thenReturn("code-" + id);
+		Mockito.when(row.getString("type")).thenReturn(TransactionType.TRANSFER.name());
+		Mockito.when(row.getBigDecimal("amount")).thenReturn(BigDecimal.TEN);
+		Mockito.when(row.getOffsetDateTime("created_at")).thenReturn(OffsetDateTime.of(2025, 9, 15, 10, 0, 0, 0, ZoneOffset.UTC));
+		return row;
+	}
+
+	/**
+	 * Server-side cursor of {@link #FETCH_SIZE} rows per read, handing rows to the handler only as they are fetched.
+	 */
+	private static final class Cursor implements RowStream<Row> {
+
+		private final List<Row> rows;
+		private Handler<Row> handler;
+		private Handler<Void> endHandler;
+		private Handler<Throwable> exceptionHandler;
+		private long demand;
+		private int delivered;
+		private int chunksRead;
+		private boolean closed;
+
+		private Cursor(final List<Row> rows) {
+			this.rows = new ArrayList<>(rows);
+		}
+
+		@Override
+		public RowStream<Row> exceptionHandler(final Handler<Throwable> handler) {
+			this.exceptionHandler = handler;
+			return this;
+		}
+
+		@Override
+		public RowStream<Row> handler(final Handler<Row> handler) {
+			this.handler = handler;
+			return this;
+		}
+
+		@Override
+		public RowStream<Row> pause() {
+			demand = 0;
+			return this;
+		}
+
+		@Override
+		public RowStream<Row> resume() {
+			return fetch(Long.MAX_VALUE);
+		}
+
+		@Override
+		public RowStream<Row> endHandler(final Handler<Void> handler) {
+			this.endHandler = handler;
+			return this;
+		}
+
+		@Override
+		public RowStream<Row> fetch(final long amount) {
+			demand = Long.MAX_VALUE - demand < amount ? Long.MAX_VALUE : demand + amount;
+			while (demand > 0 && !closed && delivered < rows.size()) {
+				if (delivered % FETCH_SIZE == 0) {
+					chunksRead++;
+				}
+				demand--;
+				handler.handle(rows.get(delivered++));
+			}
+			if (!closed && delivered == rows.size()) {
+				closed = true;
+				endHandler.handle(null);
+			}
+			return this;
+		}
+
+		private void fail(final Throwable failure) {
+			exceptionHandler.handle(failure);
+		}
+
+		@Override
+		public Future<Void> close() {
+			closed = true;
+			return Future.succeededFuture();
+		}
+
+		@Override
+		public void close(final Handler<AsyncResult<Void>> completionHandler) {
+			close().onComplete(completionHandler);
+		}
+	}
+
+}
@@ -0,0 +1,130 @@
+package com.virtualcard.transactionservice.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.virtualcard.common.enums.TransactionType;
+import com.virtualcard.transactionservice.configuration.GroupCommitProperties;
+import com.virtualcard.transactionservice.entity.Transaction;
+import com.virtualcard.transactionservice.repository.ReactiveTransactionRepository;
+import com.virtualcard.transactionservice.repository.TransactionGroupCommitter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.Uni;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+/**
+ * @author Lorenzo Leccese
+ *
+ *         19 set 2025
+ *
+ */
+@ExtendWith(MockitoExtension.class)
+class TransactionGroupCommitterTest {
+
+	@Mock
+	private ReactiveTransactionRepository repository;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final AtomicLong ids = new AtomicLong();
+
+	@Test
+	void submit_shouldWriteConcurrentTransactionsWithOneInsert() {
+		mockInsertAll();
+		final TransactionGroupCommitter committer = committer(Duration.ofMillis(20), 100);
+
+		StepVerifier.create(Flux.merge(committer.submit(transaction("a")), committer.submit(transaction("b")), committer.submit(transaction("c"))))
+			.expectNextCount(3)
+			.verifyComplete();
+
+		Mockito.verify(repository, Mockito.times(1)).insertAll(Mockito.anyList());
+		assertThat(meterRegistry.get("transactions.group-commit.batch-size").summary().max()).isEqualTo(3);
+		assertThat(meterRegistry.get("transactions.group-commit.wait").timer().count()).isEqualTo(3);
+	}
+
+	@Test
+	void submit_shouldFlushAsSoonAsBatchIsFull() {
+		mockInsertAll();
+		final TransactionGroupCommitter committer = committer(Duration.ofMinutes(1), 2);
+
+		StepVerifier.create(Flux.merge(committer.submit(transaction("a")), committer.submit(transaction("b"))))
+			.expectNextMatches(saved -> saved.getId() != null)
+			.expectNextMatches(saved -> saved.getId() != null)
+			.expectComplete()
+			.verify(Duration.ofSeconds(5));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	void submit_shouldOnlyFailTheOffendingTransaction_whenBatchFails() {
+		Mockito.when(repository.insertAll(Mockito.anyList())).thenAnswer(invocation -> {
+			final List<Transaction> batch = invocation.getArgument(0);
+			if (batch.stream().anyMatch(t -> t.getCode().equals("duplicate"))) {
+				return Uni.createFrom().failure(new IllegalStateException("duplicate code"));
+			}
+			batch.forEach(t -> t.setId(ids.incrementAndGet()));
+			return Uni.createFrom().item(batch);
+		});
+		final TransactionGroupCommitter committer = committer(Duration.ofMillis(20), 100);
+
+		StepVerifier.create(committer.submit(transaction("ok")).zipWith(committer.submit(transaction("duplicate")).onErrorReturn(new Transaction())))
+			.expectNextMatches(tuple -> tuple.getT1().getId() != null && tuple.getT2().getCode() == null)
+			.verifyComplete();
+
+		final ArgumentCaptor<List<Transaction>> batches = ArgumentCaptor.forClass(List.class);
+		Mockito.verify(repository, Mockito.times(3)).insertAll(batches.capture());
+		assertThat(batches.getAllValues().get(0)).hasSize(2);
+	}
+
+	@Test
+	void submit_shouldEmitTheTransactionRecordedBefore_whenRequestIsRepeated() {
+		final Transaction recordedBefore = transaction("first");
+		recordedBefore.setId(42L);
+		Mockito.when(repository.insertAll(Mockito.anyList())).thenAnswer(invocation -> {
+			final List<Transaction> batch = invocation.getArgument(0);
+			return Uni.createFrom().item(batch.stream()
+				.map(t -> t.getRequestId() != null ? recordedBefore : t)
+				.toList());
+		});
+		final TransactionGroupCommitter committer = committer(Duration.ofMinutes(1), 2);
+		final Transaction repeated = transaction("repeated");
+		repeated.setRequestId("transfer-1");
+
+		StepVerifier.create(committer.submit(transaction("new")).zipWith(committer.submit(repeated)))
+			.expectNextMatches(tuple -> tuple.getT1().getCode().equals("new") && tuple.getT2() == recordedBefore)
+			.verifyComplete();
+	}
+
+	private TransactionGroupCommitter committer(final Duration flushWindow, final int maxBatchSize) {
+		final GroupCommitProperties properties = new GroupCommitProperties();
+		properties.setFlushWindow(flushWindow);
+		properties.setMaxBatchSize(maxBatchSize);
+		return new TransactionGroupCommitter(repository, properties, meterRegistry);
+	}
+
+	private void mockInsertAll() {
+		Mockito.when(repository.insertAll(Mockito.anyList())).thenAnswer(invocation -> {
+			final List<Transaction> batch = invocation.getArgument(0);
+			batch.forEach(t -> t.setId(ids.incrementAndGet()));
+			return Uni.createFrom().item(batch);
+		});
+	}
+
+	private static Transaction transaction(final String code) {
+		return new Transaction(null, code, 1L, 2L, TransactionType.TRANSFER, BigDecimal.TEN, Instant.now(), null);
+	}
+
+}
@@ -11,19 +11,27 @@ import java.util.UUID;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import com.virtualcard.common.dto.TransactionDTO;
 import com.virtualcard.common.enums.TransactionType;
+import com.virtualcard.common.lang.id.IdGenerator;
+import com.virtualcard.common.lang.id.UuidV7Generator;
 import com.virtualcard.transactionservice.entity.Transaction;
 import com.virtualcard.transactionservice.mapper.TransactionMapper;
+import com.virtualcard.transactionservice.pagination.TransactionCursor;
 import com.virtualcard.transactionservice.repository.ReactiveTransactionRepository;
+import com.virtualcard.transactionservice.repository.TransactionGroupCommitter;
 import com.virtualcard.transactionservice.service.TransactionService;
 
 import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
+import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,6 +46,12 @@ class TransactionServiceTest {
 	@Mock
 	private TransactionMapper mapper;
 
+	@Spy
+	private IdGenerator codeGenerator = new UuidV7Generator();
+
+	@Mock
+	private TransactionGroupCommitter groupCommitter;
+
 	@Test
 	void getTransactionsByCardId_shouldReturnPagedResults() {
 		// Given
@@ -163,6 +177,125 @@ class TransactionServiceTest {
 				() -> service.getTransactionsByCardId(cardId, page, OffsetDateTime.MAX, OffsetDateTime.MIN, size));
 	}
 
+	@Test
+	void getTransactionsByCardIdAfter_shouldReturnNextCursor_whenMoreRowsExist() {
+		// Given
+		final Long cardId = 123L;
+		final int size = 2;
+		final Instant now = Instant.now();
+
+		// size + 1 rows fetched: the last one only signals that a next page exists
+		final List<Transaction> transactions = List.of(
+				createTransaction(3L, cardId, 4L, BigDecimal.TEN, now),
+				createTransaction(2L, cardId, 4L, BigDecimal.TEN, now.minusSeconds(1)),
+				createTransaction(1L, cardId, 4L, BigDecimal.TEN, now.minusSeconds(2)));
+
+		Mockito.when(repository.findAllTransactionsWithinIntervalByCardIdAfter(
+				Mockito.eq(cardId),
+				Mockito.any(Instant.class),
+				Mockito.any(Instant.class),
+				Mockito.isNull(),
+				Mockito.eq(size + 1)))
+			.thenReturn(Multi.createFrom().iterable(transactions));
+		mockMapper();
+
+		// When & Then
+		StepVerifier.create(service.getTransactionsByCardIdAfter(cardId, "", OffsetDateTime.MAX, OffsetDateTime.MIN, size))
+			.consumeNextWith(response -> {
+				assertThat(response.getTransactions()).extracting(TransactionDTO::getId).containsExactly(3L, 2L);
+				assertThat(response.getMetadata().isHasNext()).isTrue();
+				assertThat(response.getMetadata().isHasPrevious()).isFalse();
+				assertThat(response.getMetadata().getTotalElements()).isNull();
+				assertThat(TransactionCursor.decode(response.getMetadata().getNextCursor()))
+					.isEqualTo(new TransactionCursor(now.minusSeconds(1), 2L));
+			})
+			.verifyComplete();
+
+		Mockito.verify(repository, Mockito.never()).countTransactionsByCardId(Mockito.any());
+	}
+
+	@Test
+	void getTransactionsByCardIdAfter_shouldHandleLastPage() {
+		// Given
+		final Long cardId = 123L;
+		final int size = 2;
+		final TransactionCursor cursor = new TransactionCursor(Instant.now(), 10L);
+
+		Mockito.when(repository.findAllTransactionsWithinIntervalByCardIdAfter(
+				Mockito.eq(cardId),
+				Mockito.any(Instant.class),
+				Mockito.any(Instant.class),
+				Mockito.eq(cursor),
+				Mockito.eq(size + 1)))
+			.thenReturn(Multi.createFrom().iterable(List.of(createTransaction(9L, cardId, 4L, BigDecimal.TEN))));
+		mockMapper();
+
+		// When & Then
+		StepVerifier.create(service.getTransactionsByCardIdAfter(cardId, cursor.encode(), OffsetDateTime.MAX, OffsetDateTime.MIN, size))
+			.consumeNextWith(response -> {
+				assertThat(response.getTransactions()).hasSize(1);
+				assertThat(response.getMetadata().isHasNext()).isFalse();
+				assertThat(response.getMetadata().isHasPrevious()).isTrue();
+				assertThat(response.getMetadata().getNextCursor()).isNull();
+			})
+			.verifyComplete();
+	}
+
+	@Test
+	void getTransactionsByCardIdAfter_shouldRejectMalformedCursor() {
+		assertThrows(IllegalArgumentException.class,
+				() -> service.getTransactionsByCardIdAfter(123L, "not-a-cursor", OffsetDateTime.MAX, OffsetDateTime.MIN, 20));
+	}
+
+	@Test
+	void createTransaction_shouldAssignTimeOrderedCodes() {
+		Mockito.when(groupCommitter.submit(Mockito.any(Transaction.class)))
+			.thenAnswer(invocation -> Mono.just(invocation.<Transaction> getArgument(0)));
+		mockMapper();
+
+		final TransactionDTO first = service.createTransaction(null, 1L, 2L, BigDecimal.TEN, TransactionType.TRANSFER).block();
+		final TransactionDTO second = service.createTransaction(null, 1L, 2L, BigDecimal.TEN, TransactionType.TRANSFER).block();
+
+		assertThat(first.getCode()).hasSize(36);
+		assertThat(second.getCode()).isGreaterThan(first.getCode());
+	}
+
+	@Test
+	void createTransaction_shouldPassTheRequestId() {
+		Mockito.when(groupCommitter.submit(Mockito.any(Transaction.class)))
+			.thenAnswer(invocation -> Mono.just(invocation.<Transaction> getArgument(0)));
+		mockMapper();
+
+		service.createTransaction("transfer-1", 1L, 2L, BigDecimal.TEN, TransactionType.TRANSFER).block();
+
+		final ArgumentCaptor<Transaction> submitted = ArgumentCaptor.forClass(Transaction.class);
+		Mockito.verify(groupCommitter).submit(submitted.capture());
+		assertThat(submitted.getValue().getRequestId()).isEqualTo("transfer-1");
+	}
+
+	@Test
+	void createTransaction_shouldRejectTooLongRequestId() {
+		StepVerifier.create(service.createTransaction("x".repeat(65), 1L, 2L, BigDecimal.TEN, TransactionType.TRANSFER))
+			.expectError(IllegalArgumentException.class)
+			.verify();
+
+		Mockito.verifyNoInteractions(groupCommitter);
+	}
+
+	private void mockMapper() {
+		Mockito.when(mapper.entityToDTO(Mockito.any(Transaction.class)))
+			.thenAnswer(invocation -> {
+				final Transaction t = invocation.getArgument(0);
+				return new TransactionDTO(t.getId(), t.getSenderCardId(), t.getRecipientCardId(), t.getCode(), t.getType(), t.getAmount(), t.getCreatedAt());
+			});
+	}
+
+	private Transaction createTransaction(final Long id, final Long senderCardId, final Long recipientCardId, final BigDecimal amount, final Instant createdAt) {
+		final Transaction transaction = createTransaction(id, senderCardId, recipientCardId, amount);
+		transaction.setCreatedAt(createdAt);
+		return transaction;
+	}
+
 	private Transaction createTransaction(final Long id, final Long senderCardId, final Long recipientCardId, final BigDecimal amount) {
 		return new Transaction(
 				id,
@@ -171,6 +304,7 @@ class TransactionServiceTest {
 				recipientCardId,
 				TransactionType.TRANSFER,
 				amount,
-				Instant.now());
+				Instant.now(),
+				null);
 	}
 }
@@ -1,13 +1,18 @@
 package com.virtualcard.user_integration.service;
 
+import static com.virtualcard.common.lang.EndpointConstants.BULK;
 import static com.virtualcard.common.lang.LangConstants.SLASH;
 
+import java.util.Collection;
+
+import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.client.WebClient;
 
 import com.virtualcard.common.dto.UserDTO;
 
 import lombok.RequiredArgsConstructor;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -38,4 +43,19 @@ public abstract class AbstractUserIntegrationService {
 			.switchIfEmpty(Mono.error(new RuntimeException("User: " + username + " not found")));
 	}
 
+	/**
+	 * Resolves a batch of usernames in one call, the usernames not found are left out.
+	 */
+	public Flux<UserDTO> findUsersByUsernames(final Collection<String> usernames) {
+		if (usernames.isEmpty()) {
+			return Flux.empty();
+		}
+		return webClient.post()
+			.uri(userServiceBaseUrl + BULK)
+			.contentType(MediaType.APPLICATION_JSON)
+			.bodyValue(usernames)
+			.retrieve()
+			.bodyToFlux(UserDTO.class);
+	}
+
 }
@@ -1,9 +1,12 @@
 package com.virtualcard.user_service.configuration;
 
+import java.util.Map;
+
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import com.virtualcard.common.configuration.SpringServiceConfiguration;
+import com.virtualcard.user_service.entity.User;
 
 import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.info.Info;
@@ -36,4 +39,9 @@ public class UserServiceConfiguration extends SpringServiceConfiguration {
 				.description("Simple API for demonstration"));
 	}
 
+	@Override
+	protected Map<String, Integer> idAllocationSizes() {
+		return Map.of(User.ID_SEQUENCE, User.ID_ALLOCATION_SIZE);
+	}
+
 }
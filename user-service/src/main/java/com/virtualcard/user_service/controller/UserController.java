@@ -1,11 +1,16 @@
 package com.virtualcard.user_service.controller;
 
+import static com.virtualcard.common.lang.EndpointConstants.BULK;
 import static com.virtualcard.common.lang.EndpointConstants.GET_CREDENTIALS__BY_USER;
 import static com.virtualcard.common.lang.EndpointConstants.USER;
 import static com.virtualcard.common.lang.EndpointConstants.USERNAME;
 
+import java.util.List;
+
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -15,6 +20,7 @@ import com.virtualcard.user_service.service.UserService;
 
 import lombok.RequiredArgsConstructor;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -35,6 +41,14 @@ public class UserController {
 		return userService.findUserByUsername(username);
 	}
 
+	/**
+	 * Resolves a batch of usernames at once, the usernames not found are left out of the response.
+	 */
+	@PostMapping(BULK)
+	public Flux<UserDTO> getUsersByUsernames(@RequestBody final List<String> usernames) {
+		return userService.findUsersByUsernames(usernames);
+	}
+
 	@GetMapping(GET_CREDENTIALS__BY_USER)
 	public Mono<Credentials> getCredentialsByUsername(@PathVariable final String username) {
 		return userService.getCredentialsByUsername(username);
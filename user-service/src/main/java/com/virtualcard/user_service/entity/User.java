@@ -8,7 +8,10 @@ import lombok.NoArgsConstructor;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 /**
@@ -24,7 +27,14 @@ import jakarta.persistence.Table;
 @NoArgsConstructor
 public class User implements BaseEntity {
 
+	public static final String ID_SEQUENCE = "users_seq";
+	// Must match id-generation.allocation-sizes and the increment of the sequence, checked at startup
+	public static final int ID_ALLOCATION_SIZE = 20;
+
+	// Ids taken a block at a time from the sequence instead of being assigned by the scripts creating the users
 	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+	@SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
 	private Long id;
 
 	@Column(name = "username", nullable = false)
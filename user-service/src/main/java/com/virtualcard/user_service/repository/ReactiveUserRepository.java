@@ -1,9 +1,13 @@
 package com.virtualcard.user_service.repository;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.hibernate.reactive.mutiny.Mutiny.SessionFactory;
 import org.springframework.stereotype.Repository;
 
 import com.virtualcard.common.springdata.repository.ReactiveRepository;
+import com.virtualcard.common.springdata.repository.ReadConsistency;
 import com.virtualcard.user_service.entity.User;
 
 import io.smallrye.mutiny.Uni;
@@ -22,10 +26,15 @@ public class ReactiveUserRepository extends ReactiveRepository<User> {
 	}
 
 	public Uni<User> findByUsername(final String username) {
-		return sessionFactory.withSession(session -> session
-			.createQuery("from User where username = :username", User.class)
-			.setParameter("username", username)
-			.getSingleResultOrNull());
+		return query("from User where username = :username", User.class, ReadConsistency.READ_YOUR_WRITES)
+			.parameter("username", username)
+			.singleResultOrNull();
+	}
+
+	public Uni<List<User>> findAllByUsernames(final Collection<String> usernames) {
+		return query("from User where username in :usernames", User.class, ReadConsistency.READ_YOUR_WRITES)
+			.parameter("usernames", usernames)
+			.list();
 	}
 
 	@Override
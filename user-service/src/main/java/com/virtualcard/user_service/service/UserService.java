@@ -2,6 +2,8 @@ package com.virtualcard.user_service.service;
 
 import static com.virtualcard.common.converter.VertxWebFluxConverter.convertUniToMono;
 
+import java.util.Collection;
+
 import org.springframework.stereotype.Service;
 
 import com.virtualcard.common.dto.Credentials;
@@ -12,6 +14,7 @@ import com.virtualcard.user_service.repository.ReactiveUserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -38,6 +41,19 @@ public class UserService {
 			.map(mapper::entityToDTO));
 	}
 
+	/**
+	 * Finds the users with the given usernames in one query, the usernames not found are left out.
+	 */
+	public Flux<UserDTO> findUsersByUsernames(final Collection<String> usernames) {
+		if (usernames.isEmpty()) {
+			return Flux.empty();
+		}
+		return convertUniToMono(this.repository.findAllByUsernames(usernames))
+			.doOnNext(users -> log.debug("Found {} of {} users", users.size(), usernames.size()))
+			.flatMapIterable(users -> users)
+			.map(mapper::entityToDTO);
+	}
+
 	public Mono<Credentials> getCredentialsByUsername(final String username) {
 
 		return convertUniToMono(this.repository.findByUsername(username)
@@ -0,0 +1,123 @@
+package com.virtualcard.user_service.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.hibernate.reactive.mutiny.Mutiny;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import com.virtualcard.user_service.entity.User;
+
+import jakarta.persistence.Persistence;
+
+/**
+ * Users inserted per second through Hibernate Reactive, one per session and all in one batched transaction, as when
+ * onboarding the employees of a corporate client. Compares no optimizer, a round trip to the sequence per user, with
+ * the pooled-lo blocks of the mapping.
+ *
+ * Needs a Docker environment for the Postgres container.
+ *
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.virtualcard.user_service.benchmark.UserInsertBenchmark}
+ * or straight from the IDE.
+ *
+ * @author Lorenzo Leccese
+ *
+ *         23 set 2025
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@OperationsPerInvocation(UserInsertBenchmark.USERS)
+public class UserInsertBenchmark {
+
+	static final int USERS = 200;
+
+	@Param({ "none", "pooled-lo" })
+	private String optimizer;
+
+	private PostgreSQLContainer<?> postgres;
+	private Mutiny.SessionFactory sessionFactory;
+
+	@Setup(Level.Trial)
+	@SuppressWarnings("resource")
+	public void setUp() {
+		postgres = new PostgreSQLContainer<>("postgres:15.3");
+		postgres.start();
+
+		sessionFactory = Persistence.createEntityManagerFactory("default", Map.of(
+				"jakarta.persistence.jdbc.url", postgres.getJdbcUrl(),
+				"jakarta.persistence.jdbc.user", postgres.getUsername(),
+				"jakarta.persistence.jdbc.password", postgres.getPassword(),
+				"hibernate.hbm2ddl.auto", "create",
+				"hibernate.show_sql", "false",
+				"hibernate.id.optimizer.pooled.preferred", optimizer))
+			.unwrap(Mutiny.SessionFactory.class);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		sessionFactory.close();
+		postgres.stop();
+	}
+
+	@Benchmark
+	public List<User> persistEach() {
+		final List<User> users = newUsers();
+		users.forEach(user -> sessionFactory.withSession(session -> session.persist(user)
+			.call(session::flush))
+			.await().indefinitely());
+		return users;
+	}
+
+	@Benchmark
+	public List<User> persistAll() {
+		final List<User> users = newUsers();
+		return sessionFactory.withTransaction(session -> session.persistAll(users.toArray()).replaceWith(users))
+			.await().indefinitely();
+	}
+
+	private static List<User> newUsers() {
+		return IntStream.range(0, USERS).mapToObj(i -> {
+			final String name = UUID.randomUUID().toString();
+			final User user = new User();
+			user.setUsername(name);
+			user.setPassword("{noop}password");
+			user.setCardholderName(name);
+			user.setRole("USER");
+			return user;
+		}).toList();
+	}
+
+	public static void main(final String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+			.include(UserInsertBenchmark.class.getSimpleName())
+			.build())
+			.run();
+	}
+
+}